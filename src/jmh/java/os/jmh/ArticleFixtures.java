@@ -0,0 +1,105 @@
+package os.jmh;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+
+/**
+ * Builds the articles used by the benchmarks. They look like the ones of the data folder, with an abstract of a
+ * given length, and they are always the same, so two runs of a benchmark measure the same work.
+ */
+public final class ArticleFixtures {
+
+    private static final String WORDS = "coronavirus infection respiratory syndrome patients clinical outbreak "
+            + "transmission antibody vaccine protein cells immune response severe acute hospital ";
+
+    private ArticleFixtures() {
+    }
+
+    /**
+     * Build an article.
+     *
+     * @param number The number of the article, used in its id.
+     * @param abstractChars The length of its abstract.
+     * @return An {@link Article}.
+     */
+    public static Article article(int number, int abstractChars) {
+        Article article = new Article();
+        article.setId("pmid:" + (10_000_000 + number));
+        article.setArticleTitle("Acute immunodeficiency, multiple organ injury, and the pathogenesis of SARS "
+                + number);
+        article.setAbstractText(text(abstractChars, number));
+        article.setLanguage(Arrays.asList("eng"));
+        article.setPubDate("2003-12-01");
+        article.setFilterSources(Arrays.asList("cord19"));
+        article.setKeywords(Arrays.asList("kw1", "kw3"));
+        article.setPubTypes(Arrays.asList("Editorial"));
+        return article;
+    }
+
+    /**
+     * Build a list of articles.
+     *
+     * @param nArticles The number of articles.
+     * @param abstractChars The length of their abstracts.
+     * @return A list of {@link Article}s.
+     */
+    public static List<Article> articles(int nArticles, int abstractChars) {
+        List<Article> articles = new ArrayList<>(nArticles);
+        for (int i = 0; i < nArticles; i++) {
+            articles.add(article(i, abstractChars));
+        }
+        return articles;
+    }
+
+    /**
+     * Get the NDJSON line of an article, without the line break.
+     *
+     * @param article An {@link Article}.
+     * @return The json of the article in UTF-8.
+     * @throws JsonProcessingException when the article can not be serialized.
+     */
+    public static byte[] line(Article article) throws JsonProcessingException {
+        return ArticleJson.getArticleWriter().writeValueAsBytes(article);
+    }
+
+    /**
+     * Write a NDJSON file of articles in a temporary folder.
+     *
+     * @param nArticles The number of articles.
+     * @param abstractChars The length of their abstracts.
+     * @return The location of the file, which must be deleted after use.
+     * @throws IOException when the file can not be written.
+     */
+    public static Path file(int nArticles, int abstractChars) throws IOException {
+        Path file = Files.createTempFile("articles-", ".json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < nArticles; i++) {
+                writer.write(new String(line(article(i, abstractChars)), StandardCharsets.UTF_8));
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    private static String text(int nChars, int seed) {
+        StringBuilder text = new StringBuilder(nChars);
+        int offset = seed % WORDS.length();
+        while (text.length() < nChars) {
+            int end = Math.min(WORDS.length(), offset + nChars - text.length());
+            text.append(WORDS, offset, end);
+            offset = 0;
+        }
+        return text.toString();
+    }
+}
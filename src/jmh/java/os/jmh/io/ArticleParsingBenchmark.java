@@ -0,0 +1,51 @@
+package os.jmh.io;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+import os.jmh.ArticleFixtures;
+
+/**
+ * Parsing of a NDJSON line into an {@link Article} with the shared reader of {@link ArticleJson}, as done by the
+ * {@link os.exercise.io.ArticleBatchReader} for each line of a file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleParsingBenchmark {
+
+    @Param({"200", "2000", "20000"})
+    private int abstractChars;
+
+    private byte[] line;
+    private ObjectReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        line = ArticleFixtures.line(ArticleFixtures.article(1, abstractChars));
+        reader = ArticleJson.getArticleReader();
+    }
+
+    @Benchmark
+    public Article parseLine() throws IOException {
+        return reader.readValue(line);
+    }
+}
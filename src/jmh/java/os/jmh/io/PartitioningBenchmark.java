@@ -0,0 +1,92 @@
+package os.jmh.io;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.ArticleBatchReader;
+import os.exercise.io.ArticleJson;
+import os.exercise.io.JsonReader;
+import os.exercise.models.Article;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.BulkBatch;
+import os.jmh.ArticleFixtures;
+
+/**
+ * Splitting of the articles of a file into batches: the whole file read into partitions with
+ * {@link JsonReader#readArticlesFileIntoPartition(Path, Integer)}, the same file streamed in batches by an
+ * {@link ArticleBatchReader}, and the splitting of serialized articles by size with
+ * {@link ArticlesIndexer#getSizedBulkBatches(String, List, BatchLimits)}. Each operation handles the
+ * {@value #N_ARTICLES} articles of the file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitioningBenchmark {
+
+    private static final String INDEX = "articles";
+    private static final int N_ARTICLES = 10_000;
+    private static final int ABSTRACT_CHARS = 1000;
+    private static final long MAX_BATCH_BYTES = 10L * 1024 * 1024;
+
+    @Param({"100", "1000", "5000"})
+    private int batchSize;
+
+    private Path file;
+    private List<Article> articles;
+    private ArticlesIndexer indexer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = ArticleFixtures.file(N_ARTICLES, ABSTRACT_CHARS);
+        articles = ArticleFixtures.articles(N_ARTICLES, ABSTRACT_CHARS);
+        // Building requests does not use the client
+        indexer = new ArticlesIndexer(null, ArticleJson.getMapper());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<List<Article>> readFileIntoPartition() {
+        return JsonReader.readArticlesFileIntoPartition(file, batchSize);
+    }
+
+    @Benchmark
+    public void streamFileInBatches(Blackhole blackhole) throws IOException {
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(file, batchSize, MAX_BATCH_BYTES)) {
+            while (reader.hasNext()) {
+                blackhole.consume(reader.next());
+            }
+        }
+    }
+
+    @Benchmark
+    public List<BulkBatch> getSizedBulkBatches() throws JsonProcessingException {
+        return indexer.getSizedBulkBatches(INDEX, articles, new BatchLimits(batchSize, MAX_BATCH_BYTES));
+    }
+}
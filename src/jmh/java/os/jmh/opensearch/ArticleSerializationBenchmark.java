@@ -0,0 +1,50 @@
+package os.jmh.opensearch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+import os.jmh.ArticleFixtures;
+
+/**
+ * Serialization of an {@link Article} into the json of the index with the shared writer of {@link ArticleJson}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleSerializationBenchmark {
+
+    @Param({"200", "2000", "20000"})
+    private int abstractChars;
+
+    private Article article;
+    private ObjectWriter writer;
+
+    @Setup
+    public void setUp() {
+        article = ArticleFixtures.article(1, abstractChars);
+        writer = ArticleJson.getArticleWriter();
+    }
+
+    @Benchmark
+    public byte[] serializeArticle() throws JsonProcessingException {
+        return writer.writeValueAsBytes(article);
+    }
+}
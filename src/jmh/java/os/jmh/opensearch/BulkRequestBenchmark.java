@@ -0,0 +1,60 @@
+package os.jmh.opensearch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensearch.action.bulk.BulkRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.jmh.ArticleFixtures;
+
+/**
+ * Building of the {@code BulkRequest} of a batch with {@link ArticlesIndexer#getBulkRequest(String, List)}, for
+ * several batch and document sizes. The time and the allocation are per batch: divide them by {@code batchSize} to
+ * compare them per document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkRequestBenchmark {
+
+    private static final String INDEX = "articles";
+
+    @Param({"100", "1000", "5000"})
+    private int batchSize;
+
+    @Param({"200", "2000"})
+    private int abstractChars;
+
+    private List<Article> articles;
+    private ArticlesIndexer indexer;
+
+    @Setup
+    public void setUp() {
+        articles = ArticleFixtures.articles(batchSize, abstractChars);
+        // Building requests does not use the client
+        indexer = new ArticlesIndexer(null, ArticleJson.getMapper());
+    }
+
+    @Benchmark
+    public BulkRequest getBulkRequest() throws JsonProcessingException {
+        return indexer.getBulkRequest(INDEX, articles);
+    }
+}
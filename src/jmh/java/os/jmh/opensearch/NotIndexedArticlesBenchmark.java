@@ -0,0 +1,79 @@
+package os.jmh.opensearch;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.jmh.ArticleFixtures;
+
+/**
+ * Search of the failed articles in a large {@code BulkResponse} with
+ * {@link ArticlesIndexer#getNotIndexedArticles(BulkResponse, List)}, for several proportions of failed items.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotIndexedArticlesBenchmark {
+
+    private static final String INDEX = "articles";
+    private static final int PERCENT = 100;
+
+    @Param({"1000", "10000"})
+    private int responseSize;
+
+    @Param({"0", "1", "100"})
+    private int failedPercent;
+
+    private List<Article> articles;
+    private BulkResponse response;
+    private ArticlesIndexer indexer;
+
+    @Setup
+    public void setUp() {
+        articles = ArticleFixtures.articles(responseSize, 0);
+        ShardId shardId = new ShardId(INDEX, "_na_", -1);
+        int failedEvery = failedPercent == 0 ? Integer.MAX_VALUE : PERCENT / failedPercent;
+        BulkItemResponse[] items = new BulkItemResponse[responseSize];
+        for (int i = 0; i < responseSize; i++) {
+            if (i % failedEvery == failedEvery - 1) {
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure(INDEX,
+                        "id" + i, new OpenSearchException("mapper_parsing_exception"), RestStatus.BAD_REQUEST));
+            } else {
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                        new IndexResponse(shardId, "id" + i, i, 1, 1, true));
+            }
+        }
+        response = new BulkResponse(items, 1L);
+        // Reading responses does not use the client
+        indexer = new ArticlesIndexer(null, ArticleJson.getMapper());
+    }
+
+    @Benchmark
+    public List<String> getNotIndexedArticles() {
+        return indexer.getNotIndexedArticles(response, articles);
+    }
+}
@@ -0,0 +1,702 @@
+package os.exercise.app;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.io.BatchReader;
+import os.exercise.io.CheckpointJournal;
+import os.exercise.io.ContentHash;
+import os.exercise.io.IngestManifest;
+import os.exercise.io.RecordHashes;
+import os.exercise.io.JsonReader;
+import os.exercise.io.MappedArticleFileReader;
+import os.exercise.metrics.IngestionMetrics;
+import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.BulkBatch;
+import os.exercise.opensearch.DocumentIdMode;
+import os.exercise.util.LongHashSet;
+
+/**
+ * The IngestionPipeline class indexes json files with articles through four concurrent stages: file discovery,
+ * parsing, serialization and bulk sending. The stages are connected by bounded queues, so when OpenSearch slows down
+ * the sending stage stops taking batches and every previous stage blocks instead of piling batches up in memory.
+ * The sending stage uses {@link ArticlesIndexer#indexBatchAsync(BulkBatch)}, so each of its threads keeps several
+ * bulk requests in flight, bounded by the window of the indexer.
+ * Batches are sized by their serialized payload in bytes, with a maximum number of articles as a secondary limit.
+ * In pass-through mode the files must be NDJSON already in the format of the index: the parsing stage only extracts
+ * the id of each line and the serialization stage sends the original bytes, see {@link #setPassThrough(boolean)}.
+ * Big files can also be parsed by several threads each, see {@link #setChunkedParsing(ForkJoinPool, long, boolean)}.
+ * With a {@link CheckpointJournal}, the range of each file read is recorded once all its bulk requests have been
+ * acknowledged, and the files are read from the offset recorded, see {@link #setCheckpointJournal(CheckpointJournal)}.
+ * With an {@link IngestManifest}, the run is incremental: the files that did not change since the previous run are
+ * skipped and only the new or modified records of the others are sent, see {@link #setManifest(IngestManifest)}.
+ * The articles whose id was already read in the same run can also be dropped, see {@link #setDeduplication(boolean)}.
+ * The time spent parsing and serializing each batch and the depth of the queues can be recorded in an
+ * {@link IngestionMetrics}, see {@link #setMetrics(IngestionMetrics)}.
+ */
+public class IngestionPipeline {
+
+    private static final Logger LOGGER = LogManager.getLogger(IngestionPipeline.class);
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private static final Path END_OF_PATHS = Paths.get("");
+
+    private final ArticlesIndexer indexer;
+    private final String index;
+    private final Supplier<BatchLimits> limits;
+    private final int parserThreads;
+    private final int serializerThreads;
+    private final int senderThreads;
+    private final int queueCapacity;
+    private boolean passThrough;
+    private ForkJoinPool chunkPool;
+    private long minChunkedFileBytes;
+    private boolean orderedChunks;
+    private CheckpointJournal journal;
+    private IngestManifest manifest;
+    private boolean deduplication;
+    private IngestionMetrics metrics;
+
+    /**
+     * Constructor of the IngestionPipeline.
+     *
+     * @param indexer An {@link ArticlesIndexer}.
+     * @param index The name of the articles index.
+     * @param limits The {@link BatchLimits} of each bulk request.
+     * @param parserThreads The number of threads reading files.
+     * @param serializerThreads The number of threads building bulk requests.
+     * @param senderThreads The number of threads handing bulk requests to the indexer.
+     * @param queueCapacity The maximum number of elements waiting between two stages.
+     */
+    public IngestionPipeline(ArticlesIndexer indexer, String index, BatchLimits limits, int parserThreads,
+                             int serializerThreads, int senderThreads, int queueCapacity) {
+        this(indexer, index, () -> limits, parserThreads, serializerThreads, senderThreads, queueCapacity);
+    }
+
+    /**
+     * Constructor of the IngestionPipeline whose batch limits can change during the run, e.g. when they are tuned by
+     * an {@link os.exercise.opensearch.AdaptiveBulkController}.
+     *
+     * @param indexer An {@link ArticlesIndexer}.
+     * @param index The name of the articles index.
+     * @param limits The supplier of the {@link BatchLimits} of the next bulk requests.
+     * @param parserThreads The number of threads reading files.
+     * @param serializerThreads The number of threads building bulk requests.
+     * @param senderThreads The number of threads handing bulk requests to the indexer.
+     * @param queueCapacity The maximum number of elements waiting between two stages.
+     */
+    public IngestionPipeline(ArticlesIndexer indexer, String index, Supplier<BatchLimits> limits, int parserThreads,
+                             int serializerThreads, int senderThreads, int queueCapacity) {
+        if (parserThreads <= 0 || serializerThreads <= 0 || senderThreads <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("The number of threads and the queue capacity must be positive");
+        }
+        this.indexer = indexer;
+        this.index = index;
+        this.limits = limits;
+        this.parserThreads = parserThreads;
+        this.serializerThreads = serializerThreads;
+        this.senderThreads = senderThreads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Enable or disable the pass-through mode. When enabled, the articles are not deserialized into {@link Article}s
+     * but read as {@link RawArticle}s, and their json is indexed as it is. It is disabled by default.
+     *
+     * @param passThrough True to index the original json of the articles.
+     */
+    public void setPassThrough(boolean passThrough) {
+        this.passThrough = passThrough;
+    }
+
+    /**
+     * Parse the files of at least {@code minFileBytes} bytes with a {@link MappedArticleFileReader}, which splits
+     * them into chunks of the size of a batch that are parsed concurrently on a pool. Otherwise a single file is
+     * parsed by a single thread, which leaves most cores idle when one file is much bigger than the others.
+     * The files must be NDJSON. Compressed files are always parsed by a single thread. It is disabled by default.
+     *
+     * @param pool The {@link ForkJoinPool} that parses the chunks, or null to disable the chunked parsing.
+     * @param minFileBytes The size from which a file is parsed in chunks.
+     * @param ordered True to keep the batches of a file in order else false.
+     */
+    public void setChunkedParsing(ForkJoinPool pool, long minFileBytes, boolean ordered) {
+        this.chunkPool = pool;
+        this.minChunkedFileBytes = minFileBytes;
+        this.orderedChunks = ordered;
+    }
+
+    /**
+     * Record the progress of the run in a {@link CheckpointJournal}, and start reading each file at the offset
+     * recorded in it, so a run that resumes an interrupted one skips the articles already acknowledged.
+     * A range of a file is recorded once every bulk request built from it has received a response; the ranges whose
+     * requests failed are not, so they are sent again when the run is resumed.
+     *
+     * @param journal A {@link CheckpointJournal}, or null to disable the checkpoints.
+     */
+    public void setCheckpointJournal(CheckpointJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Make the runs incremental with an {@link IngestManifest}. The files whose content did not change since they
+     * were recorded are skipped; in the other files, the records whose id and hash are in the manifest are dropped
+     * before they are serialized. A file is recorded in the manifest, with the hash of each record, once every bulk
+     * request built from it has succeeded; the manifest must be saved after the run.
+     * A file read from a checkpoint offset is not recorded, as the hashes of the records before it are unknown.
+     *
+     * @param manifest An {@link IngestManifest}, or null to index every record of every file.
+     */
+    public void setManifest(IngestManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /**
+     * Enable or disable the suppression of duplicates. When enabled, the hash of the id of each article read is kept
+     * in a {@link LongHashSet} during the run, and the articles whose id was already seen are dropped before they are
+     * serialized, so the overlapping parts of the input files are only sent once. It is meant to be used with a
+     * {@link DocumentIdMode} that takes the id of the article, where sending the same id twice is wasted work.
+     * The articles without an id are always sent. It is disabled by default.
+     *
+     * @param deduplication True to send each id at most once per run.
+     */
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * Record the time spent parsing and serializing each batch, the bytes and articles read and the depth of the
+     * queues in an {@link IngestionMetrics}. The bulk requests are recorded by the metrics when they are registered as
+     * a listener of the {@link ArticlesIndexer}.
+     *
+     * @param metrics An {@link IngestionMetrics}, or null to record nothing.
+     */
+    public void setMetrics(IngestionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Index the articles of the json files and wait until every batch has received its response.
+     *
+     * @param paths A list of json files.
+     * @return True if every batch was read, serialized and sent else false.
+     */
+    public boolean run(List<Path> paths) {
+        if (passThrough) {
+            return new Run<RawArticle>(paths,
+                    chunked(JsonReader::openRawArticlesFile, JsonReader::openRawArticlesFileInChunks),
+                    (articles, batchLimits) -> indexer.getSizedRawBulkBatches(index, articles, batchLimits),
+                    RawArticle::getId, article -> ContentHash.of(article.getSource())).execute();
+        }
+        return new Run<Article>(paths, chunked(JsonReader::openArticlesFile, JsonReader::openArticlesFileInChunks),
+                (articles, batchLimits) -> indexer.getSizedBulkBatches(index, articles, batchLimits),
+                Article::getId, article -> ContentHash.of(ArticleJson.getArticleWriter().writeValueAsBytes(article)))
+                .execute();
+    }
+
+    private <T> ReaderFactory<T> chunked(ReaderFactory<T> reader, ChunkedReaderFactory<T> chunkedReader) {
+        return (path, batchSize, maxBatchBytes, startOffset) -> {
+            if (chunkPool != null && JsonReader.getContentSize(path) >= minChunkedFileBytes) {
+                return chunkedReader.open(path, batchSize, Math.min(maxBatchBytes, Integer.MAX_VALUE), startOffset,
+                        chunkPool, orderedChunks);
+            }
+            return reader.open(path, batchSize, maxBatchBytes, startOffset);
+        };
+    }
+
+    /**
+     * Opens a file of articles that is parsed in chunks.
+     */
+    @FunctionalInterface
+    private interface ChunkedReaderFactory<T> {
+        BatchReader<T> open(Path path, Integer batchSize, long chunkBytes, long startOffset, ForkJoinPool pool,
+                            boolean ordered) throws IOException;
+    }
+
+    /**
+     * Opens a file of articles.
+     */
+    @FunctionalInterface
+    private interface ReaderFactory<T> {
+        BatchReader<T> open(Path path, Integer batchSize, long maxBatchBytes, long startOffset) throws IOException;
+    }
+
+    /**
+     * Builds the bulk requests of a list of articles.
+     */
+    @FunctionalInterface
+    private interface BatchSerializer<T> {
+        List<BulkBatch> serialize(List<T> articles, BatchLimits limits) throws IOException;
+    }
+
+    /**
+     * Computes the {@link ContentHash} of an article, to find the records that changed in an incremental run.
+     */
+    @FunctionalInterface
+    private interface RecordHasher<T> {
+        long hash(T article) throws IOException;
+    }
+
+    /**
+     * The state of a single execution of the pipeline.
+     *
+     * @param <T> The type of the articles read from the files.
+     */
+    private final class Run<T> {
+
+        private final List<Path> paths;
+        private final ReaderFactory<T> readerFactory;
+        private final BatchSerializer<T> serializer;
+        private final Function<T, String> ids;
+        private final RecordHasher<T> hasher;
+        private final Segment endOfArticles = new Segment(END_OF_PATHS, 0, 0, Collections.emptyList(), null);
+        private final Bulk endOfBatches = new Bulk(null, endOfArticles);
+        private final BlockingQueue<Path> pathQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Segment> articlesQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Bulk> bulkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger nFile = new AtomicInteger();
+        private final AtomicBoolean success = new AtomicBoolean(true);
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final List<Thread> threads = new ArrayList<>();
+        private final LongHashSet seenIds = deduplication ? new LongHashSet() : null;
+        private final AtomicInteger duplicates = new AtomicInteger();
+
+        Run(List<Path> paths, ReaderFactory<T> readerFactory, BatchSerializer<T> serializer, Function<T, String> ids,
+            RecordHasher<T> hasher) {
+            this.paths = paths;
+            this.readerFactory = readerFactory;
+            this.serializer = serializer;
+            this.ids = ids;
+            this.hasher = hasher;
+        }
+
+        boolean execute() {
+            if (metrics != null) {
+                metrics.setDepths(pathQueue::size, articlesQueue::size, bulkQueue::size,
+                        indexer::getInFlightRequests);
+            }
+            startStage("discovery", 1, this::discover,
+                    () -> putEnd(pathQueue, END_OF_PATHS, parserThreads));
+            startStage("parser", parserThreads, this::parse,
+                    () -> putEnd(articlesQueue, endOfArticles, serializerThreads));
+            startStage("serializer", serializerThreads, this::serialize,
+                    () -> putEnd(bulkQueue, endOfBatches, senderThreads));
+            startStage("sender", senderThreads, this::send, () -> { });
+
+            try {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                indexer.flush();
+                if (seenIds != null) {
+                    LOGGER.info("{} duplicated article(s) were not sent", duplicates.get());
+                }
+                if (journal != null) {
+                    journal.sync();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.set(true);
+            } catch (IOException e) {
+                LOGGER.error("There was an error writing the checkpoint journal: {}", e.toString());
+            }
+            return success.get() && !aborted.get();
+        }
+
+        private void discover() {
+            for (Path path : paths) {
+                if (isUnchanged(path)) {
+                    LOGGER.info("Skipping file {}, it did not change since it was indexed", path);
+                    continue;
+                }
+                if (!put(pathQueue, path)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean isUnchanged(Path path) {
+            try {
+                return manifest != null && manifest.isUnchanged(path);
+            } catch (IOException e) {
+                LOGGER.warn("There was an error comparing the file {} with the manifest: {}", path, e.toString());
+                return false;
+            }
+        }
+
+        private void parse() {
+            Path path = take(pathQueue);
+            while (path != null && path != END_OF_PATHS) {
+                parseFile(path, nFile.incrementAndGet());
+                path = take(pathQueue);
+            }
+        }
+
+        private void parseFile(Path path, int fileNumber) {
+            BatchLimits fileLimits = limits.get();
+            long startOffset = journal == null ? 0 : journal.getOffset(path);
+            try {
+                long contentSize = JsonReader.getContentSize(path);
+                if (startOffset > 0 && contentSize >= 0 && startOffset >= contentSize) {
+                    LOGGER.info("Skipping file {}, it was already indexed", path);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.error("There was an error reading the file {}: {}", path, e);
+                success.set(false);
+                return;
+            }
+            LOGGER.info("Processing file {} from byte {}", path, startOffset);
+            FileTask file = null;
+            boolean completed = false;
+            try (BatchReader<T> reader = readerFactory.open(path, fileLimits.getMaxDocuments(),
+                    fileLimits.getMaxBytes(), startOffset)) {
+                if (manifest != null) {
+                    file = new FileTask(path, IngestManifest.FileState.of(path), startOffset == 0);
+                }
+                while (reader.hasNext()) {
+                    long parseStart = System.nanoTime();
+                    List<T> articles = reader.next();
+                    if (metrics != null) {
+                        metrics.recordParse(System.nanoTime() - parseStart, articles.size(),
+                                reader.getBatchEnd() - reader.getBatchStart());
+                    }
+                    if (file != null) {
+                        articles = file.filterChanged(articles);
+                    }
+                    if (seenIds != null) {
+                        articles = dropDuplicates(articles);
+                    }
+                    if (!put(articlesQueue, new Segment(path, reader.getBatchStart(), reader.getBatchEnd(),
+                            articles, file))) {
+                        return;
+                    }
+                    LOGGER.info("File {}/{} -> {}/{} bytes,", fileNumber, paths.size(),
+                            reader.getBytesRead(), reader.getTotalBytes());
+                }
+                if (reader.getSkippedLines() > 0) {
+                    LOGGER.warn("{} line(s) of the file {} were skipped because they are not valid articles",
+                            reader.getSkippedLines(), path);
+                }
+                if (reader.isFailed()) {
+                    LOGGER.error("The file {} was only read up to byte {}", path, reader.getBytesRead());
+                    success.set(false);
+                } else {
+                    completed = true;
+                }
+            } catch (IOException e) {
+                LOGGER.error("There was an error reading the file {}: {}", path, e);
+                success.set(false);
+            } finally {
+                if (file != null) {
+                    file.readDone(completed);
+                }
+            }
+        }
+
+        /**
+         * Keep the articles whose id was not seen before in the run.
+         */
+        private List<T> dropDuplicates(List<T> articles) {
+            List<T> unique = new ArrayList<>(articles.size());
+            synchronized (seenIds) {
+                for (T article : articles) {
+                    String id = ids.apply(article);
+                    if (id == null || seenIds.add(ContentHash.of(id.getBytes(StandardCharsets.UTF_8)))) {
+                        unique.add(article);
+                    }
+                }
+            }
+            duplicates.addAndGet(articles.size() - unique.size());
+            return unique;
+        }
+
+        private void serialize() {
+            Segment segment = take(articlesQueue);
+            while (segment != null && segment != endOfArticles) {
+                try {
+                    long serializeStart = System.nanoTime();
+                    List<BulkBatch> batches = serializer.serialize(segment.takeArticles(), limits.get());
+                    if (metrics != null) {
+                        metrics.recordSerialize(System.nanoTime() - serializeStart);
+                    }
+                    segment.setPendingBulks(batches.size());
+                    for (BulkBatch batch : batches) {
+                        if (!put(bulkQueue, new Bulk(batch, segment))) {
+                            return;
+                        }
+                    }
+                } catch (IOException e) {
+                    LOGGER.error("There was an error serializing the articles of the file {} from byte {} to {}: {}",
+                            segment.path, segment.start, segment.end, e);
+                    success.set(false);
+                    segment.serializationFailed();
+                }
+                segment = take(articlesQueue);
+            }
+        }
+
+        private void send() {
+            Bulk bulk = take(bulkQueue);
+            while (bulk != null && bulk != endOfBatches) {
+                Segment segment = bulk.segment;
+                indexer.indexBatchAsync(bulk.batch).thenAccept(batchSuccess -> {
+                    recordResult(batchSuccess);
+                    segment.bulkDone(batchSuccess);
+                });
+                bulk = take(bulkQueue);
+            }
+        }
+
+        private void recordResult(boolean batchSuccess) {
+            if (!batchSuccess) {
+                success.set(false);
+            }
+        }
+
+        /**
+         * Start the threads of a stage. When the last of them finishes, {@code onStageEnd} is run to let the next
+         * stage know. If a thread dies unexpectedly the whole run is aborted, so no stage waits forever.
+         */
+        private void startStage(String name, int nThreads, Runnable worker, Runnable onStageEnd) {
+            AtomicInteger running = new AtomicInteger(nThreads);
+            for (int i = 1; i <= nThreads; i++) {
+                Thread thread = new Thread(() -> {
+                    boolean finished = false;
+                    try {
+                        worker.run();
+                        finished = true;
+                    } finally {
+                        if (!finished) {
+                            aborted.set(true);
+                        }
+                        if (running.decrementAndGet() == 0) {
+                            onStageEnd.run();
+                        }
+                    }
+                }, "ingest-" + name + "-" + i);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        private <E> void putEnd(BlockingQueue<E> queue, E end, int nConsumers) {
+            for (int i = 0; i < nConsumers; i++) {
+                put(queue, end);
+            }
+        }
+
+        /**
+         * Put an element in a queue, waiting while it is full.
+         *
+         * @return False if the run was aborted before the element could be added.
+         */
+        private <E> boolean put(BlockingQueue<E> queue, E element) {
+            try {
+                while (!aborted.get()) {
+                    if (queue.offer(element, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.set(true);
+            }
+            return false;
+        }
+
+        /**
+         * Take an element from a queue, waiting while it is empty.
+         *
+         * @return The element, or null if the run was aborted.
+         */
+        private <E> E take(BlockingQueue<E> queue) {
+            try {
+                while (!aborted.get()) {
+                    E element = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (element != null) {
+                        return element;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aborted.set(true);
+            }
+            return null;
+        }
+
+        /**
+         * The articles of a range of a file, from the moment they are read until all their bulk requests are done.
+         */
+        private final class Segment {
+            private final Path path;
+            private final long start;
+            private final long end;
+            private final AtomicInteger pendingBulks = new AtomicInteger();
+            private final AtomicBoolean failed = new AtomicBoolean();
+            private final FileTask file;
+            private List<T> articles;
+
+            Segment(Path path, long start, long end, List<T> articles, FileTask file) {
+                this.path = path;
+                this.start = start;
+                this.end = end;
+                this.articles = articles;
+                this.file = file;
+                if (file != null) {
+                    file.segmentStarted();
+                }
+            }
+
+            /**
+             * Get the articles to serialize them, releasing them so they are not kept while the requests are in flight.
+             */
+            List<T> takeArticles() {
+                List<T> taken = articles;
+                articles = null;
+                return taken;
+            }
+
+            void setPendingBulks(int nBulks) {
+                pendingBulks.set(nBulks);
+                if (nBulks == 0) {
+                    done();
+                }
+            }
+
+            /**
+             * Settle a segment whose articles could not be serialized: it is not acknowledged, and its file is not
+             * recorded.
+             */
+            void serializationFailed() {
+                failed.set(true);
+                setPendingBulks(0);
+            }
+
+            void bulkDone(boolean bulkSuccess) {
+                if (!bulkSuccess) {
+                    failed.set(true);
+                }
+                if (pendingBulks.decrementAndGet() == 0) {
+                    done();
+                }
+            }
+
+            private void done() {
+                boolean segmentSuccess = !failed.get();
+                if (segmentSuccess && journal != null) {
+                    journal.acknowledge(path, start, end);
+                }
+                if (file != null) {
+                    file.segmentDone(segmentSuccess);
+                }
+            }
+        }
+
+        /**
+         * A file read in an incremental run: it drops the records that did not change and records the file in the
+         * manifest once it has been read and all its segments have been indexed.
+         */
+        private final class FileTask {
+            private final Path path;
+            private final IngestManifest.FileState state;
+            private final RecordHashes previousHashes;
+            private final RecordHashes.Builder recordHashes = new RecordHashes.Builder();
+            private final boolean recordable;
+            // The reading of the file counts as a pending segment, so the file is not recorded before it is read
+            private final AtomicInteger pendingSegments = new AtomicInteger(1);
+            private final AtomicBoolean failed = new AtomicBoolean();
+            private int unchangedRecords;
+
+            FileTask(Path path, IngestManifest.FileState state, boolean recordable) throws IOException {
+                this.path = path;
+                this.state = state;
+                this.recordable = recordable;
+                this.previousHashes = manifest.getRecordHashes(path);
+            }
+
+            /**
+             * Hash the articles of a batch and keep those that are not in the manifest with the same hash.
+             */
+            List<T> filterChanged(List<T> articles) throws IOException {
+                List<T> changed = new ArrayList<>(articles.size());
+                for (T article : articles) {
+                    String id = ids.apply(article);
+                    if (id == null) {
+                        changed.add(article);
+                        continue;
+                    }
+                    long idHash = RecordHashes.idHash(id);
+                    long hash = hasher.hash(article);
+                    recordHashes.add(idHash, hash);
+                    if (previousHashes.contains(idHash, hash)) {
+                        unchangedRecords++;
+                    } else {
+                        changed.add(article);
+                    }
+                }
+                return changed;
+            }
+
+            void segmentStarted() {
+                pendingSegments.incrementAndGet();
+            }
+
+            void segmentDone(boolean segmentSuccess) {
+                if (!segmentSuccess) {
+                    failed.set(true);
+                }
+                if (pendingSegments.decrementAndGet() == 0) {
+                    record();
+                }
+            }
+
+            void readDone(boolean completed) {
+                LOGGER.info("File {}: {} records did not change since it was indexed", path, unchangedRecords);
+                segmentDone(completed);
+            }
+
+            private void record() {
+                if (recordable && !failed.get()) {
+                    try {
+                        manifest.put(path, state, recordHashes.build());
+                    } catch (IOException e) {
+                        LOGGER.error("There was an error recording the file {} in the manifest: {}", path, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * A bulk request and the segment it was built from.
+         */
+        private final class Bulk {
+            private final BulkBatch batch;
+            private final Segment segment;
+
+            Bulk(BulkBatch batch, Segment segment) {
+                this.batch = batch;
+                this.segment = segment;
+            }
+        }
+    }
+}
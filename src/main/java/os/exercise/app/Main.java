@@ -1,38 +1,170 @@
 package os.exercise.app;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.http.HttpHost;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.opensearch.client.RestClient;
 import org.opensearch.client.RestHighLevelClient;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import os.exercise.io.JsonReader;
-import os.exercise.models.Article;
+import os.exercise.io.ArticleJson;
+import os.exercise.io.CheckpointJournal;
+import os.exercise.io.Compression;
+import os.exercise.io.DeadLetterQueue;
+import os.exercise.io.IngestManifest;
+import os.exercise.metrics.IngestionMetrics;
+import os.exercise.metrics.MetricsReporter;
+import os.exercise.opensearch.AdaptiveBulkController;
+import os.exercise.opensearch.ArticleExporter;
 import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.DeadLetterReplayer;
+import os.exercise.opensearch.DocumentIdMode;
+import os.exercise.opensearch.FanOutTarget;
+import os.exercise.opensearch.IndexBootstrapper;
+import os.exercise.opensearch.IndexPartitioner;
+import os.exercise.opensearch.IndexReconciler;
+import os.exercise.opensearch.NodeSelection;
+import os.exercise.opensearch.OpenSearchClientFactory;
+import os.exercise.opensearch.ReconciliationReport;
+import os.exercise.opensearch.RetryPolicy;
+import os.exercise.util.ByteArrayPool;
 
 /**
  * Main class where all the funcionalities meets.
  */
 public class Main {
 
-    private static final Integer N_INDEXING_FILES = 100;
+    private static final Integer N_INDEXING_FILES = Integer.getInteger("ingest.bulk.max.documents", 5000);
+    private static final long BULK_MAX_BYTES = Long.getLong("ingest.bulk.max.bytes", 10L * 1024 * 1024);
     private static final String INDEX_NAME = "articles";
     private static final Logger LOGGER = LogManager.getLogger(Main.class);
     private static final String DATA_PATH = "data";
 
-    private static final int PORT = 9200;
-    private static final String HOST = "localhost";
-    private static final String SCHEME = "http";
+    // The pipeline stages can be tuned with system properties, e.g. -Dingest.sender.threads=8
+    private static final int PARSER_THREADS = Integer.getInteger("ingest.parser.threads", 1);
+    private static final int SERIALIZER_THREADS = Integer.getInteger("ingest.serializer.threads", 2);
+    private static final int SENDER_THREADS = Integer.getInteger("ingest.sender.threads", 1);
+    private static final int IN_FLIGHT_REQUESTS = Integer.getInteger("ingest.inflight.requests", 4);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("ingest.queue.capacity", 8);
+    private static final boolean PASS_THROUGH = Boolean.getBoolean("ingest.passthrough");
+    private static final int CHUNK_THREADS = Integer.getInteger("ingest.chunk.threads",
+            Runtime.getRuntime().availableProcessors());
+    private static final long CHUNK_MIN_FILE_BYTES = Long.getLong("ingest.chunk.min.file.bytes", 256L * 1024 * 1024);
+    private static final boolean CHUNK_ORDERED =
+            Boolean.parseBoolean(System.getProperty("ingest.chunk.ordered", "true"));
+
+    // The batch size and the requests in flight are tuned from the cluster feedback unless -Dingest.adaptive=false
+    private static final boolean ADAPTIVE = Boolean.parseBoolean(System.getProperty("ingest.adaptive", "true"));
+    private static final int ADAPTIVE_MIN_DOCUMENTS = 100;
+    private static final long ADAPTIVE_MIN_BYTES = Long.getLong("ingest.adaptive.min.bytes", 1024L * 1024);
+    private static final long ADAPTIVE_MAX_BYTES = Long.getLong("ingest.adaptive.max.bytes", 15L * 1024 * 1024);
+    private static final int ADAPTIVE_MAX_IN_FLIGHT = Integer.getInteger("ingest.adaptive.max.inflight", 16);
+    private static final long ADAPTIVE_TARGET_LATENCY_MS = Long.getLong("ingest.adaptive.target.latency.ms", 2000);
+
+    private static final int RETRY_MAX = Integer.getInteger("ingest.retry.max", 5);
+    private static final long RETRY_INITIAL_DELAY_MS = Long.getLong("ingest.retry.initial.delay.ms", 100);
+    private static final long RETRY_MAX_DELAY_MS = Long.getLong("ingest.retry.max.delay.ms", 10_000);
+
+    private static final String CHECKPOINT_FILE = System.getProperty("ingest.checkpoint.file", "ingest.checkpoint");
+    private static final long CHECKPOINT_SYNC_MS = Long.getLong("ingest.checkpoint.sync.ms", 1000);
+    private static final boolean RESUME = Boolean.getBoolean("ingest.resume");
+
+    // An incremental run only indexes the new or changed records since the runs recorded in the manifest
+    private static final boolean INCREMENTAL = Boolean.getBoolean("ingest.incremental");
+    private static final String MANIFEST_FILE = System.getProperty("ingest.manifest.file", DATA_PATH + ".manifest");
+
+    // -Dingest.document.id=index|create uses the id of each article as _id, so loading it again does not duplicate it
+    private static final DocumentIdMode DOCUMENT_ID_MODE =
+            DocumentIdMode.fromName(System.getProperty("ingest.document.id", "auto"));
+    private static final boolean DEDUPLICATION = Boolean.parseBoolean(System.getProperty("ingest.dedup", "true"))
+            && DOCUMENT_ID_MODE != DocumentIdMode.AUTO;
+
+    // The bodies of the bulks are written into recycled arrays of -Dingest.bulk.pool.array.bytes, and the pool keeps
+    // at most -Dingest.bulk.pool.max.bytes of them; -Dingest.bulk.pooled=false lets the client build each body instead.
+    // With -Dingest.compression the bodies are gzipped as they are written, instead of by the client
+    private static final boolean POOLED_BODIES = Boolean.parseBoolean(System.getProperty("ingest.bulk.pooled", "true"));
+    private static final int BODY_POOL_ARRAY_BYTES = Integer.getInteger("ingest.bulk.pool.array.bytes", 64 * 1024);
+    private static final long BODY_POOL_MAX_BYTES = Long.getLong("ingest.bulk.pool.max.bytes", 64L * 1024 * 1024);
+
+    // The metrics are exported over JMX and logged in a single line every interval
+    private static final long METRICS_INTERVAL_MS = Long.getLong("ingest.metrics.interval.ms", 10_000);
+
+    // -Dingest.rebuild=true loads every file into a new index with the bulk-load profile, then swaps the alias to it
+    private static final boolean REBUILD = Boolean.getBoolean("ingest.rebuild");
+    private static final String SETTINGS_FILE =
+            System.getProperty("ingest.index.settings.file", "resources/mappings/settings.json");
+    private static final String MAPPING_FILE =
+            System.getProperty("ingest.index.mapping.file", "resources/mappings/mapping.json");
+    private static final int FORCE_MERGE_SEGMENTS = Integer.getInteger("ingest.rebuild.force.merge.segments", 0);
+    private static final boolean DELETE_PREVIOUS = Boolean.getBoolean("ingest.rebuild.delete.previous");
+    private static final DateTimeFormatter INDEX_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // -Dingest.partition=year|month routes each article to the index of its pub_date, e.g. articles-2003, under the
+    // articles alias, and -Dingest.partition.seal=true seals the partitions of the past periods after the run
+    private static final String PARTITION = System.getProperty("ingest.partition", "none");
+    private static final boolean SEAL_PARTITIONS = Boolean.getBoolean("ingest.partition.seal");
+
+    // The client spreads the bulks over the nodes, e.g. -Dingest.nodes=http://node1:9200,http://node2:9200
+    private static final String NODES = System.getProperty("ingest.nodes", "http://localhost:9200");
+    private static final NodeSelection NODE_SELECTION =
+            NodeSelection.fromName(System.getProperty("ingest.node.selection", "round_robin"));
+    private static final boolean COMPRESSION = Boolean.parseBoolean(System.getProperty("ingest.compression", "true"));
+    private static final long SNIFF_INTERVAL_MS = Long.getLong("ingest.sniff.interval.ms", 0);
+    // Connections beyond the bulks in flight, for the requests sent while indexing, e.g. by the sniffer
+    private static final int EXTRA_CONNECTIONS = 2;
+
+    // -Dingest.export=<folder> exports the articles index into NDJSON files that can be indexed again, instead of
+    // indexing, reading a point in time in -Dingest.export.slices parallel slices
+    private static final String EXPORT_PATH = System.getProperty("ingest.export");
+    private static final int EXPORT_SLICES = Integer.getInteger("ingest.export.slices", 1);
+    private static final int EXPORT_PAGE_SIZE = Integer.getInteger("ingest.export.page.size", 1000);
+    private static final long EXPORT_MAX_DOCUMENTS_PER_FILE = Long.getLong("ingest.export.max.documents.per.file",
+            1_000_000L);
+    private static final Compression EXPORT_COMPRESSION =
+            Compression.fromName(System.getProperty("ingest.export.compression", "gzip"));
+    private static final String EXPORT_SORT = System.getProperty("ingest.export.sort", "_shard_doc");
+
+    // -Dingest.reconcile=exact|checksum checks that every article of the data folder is in the index, instead of
+    // indexing, and -Dingest.reconcile.repair=true indexes the missing ones again
+    private static final String RECONCILE = System.getProperty("ingest.reconcile");
+    private static final boolean RECONCILE_REPAIR = Boolean.getBoolean("ingest.reconcile.repair");
+    private static final int RECONCILE_BATCH_SIZE = Integer.getInteger("ingest.reconcile.batch.size", 1000);
+    private static final int RECONCILE_PARALLELISM = Integer.getInteger("ingest.reconcile.parallelism", 4);
+    private static final int RECONCILE_BUCKETS = Integer.getInteger("ingest.reconcile.buckets", 1024);
+
+    // The articles that can not be indexed are written with their failure into the segments of -Dingest.dlq.folder,
+    // unless -Dingest.dlq=false, and -Dingest.replay=true indexes the segments again instead of the data folder
+    private static final boolean DEAD_LETTERS = Boolean.parseBoolean(System.getProperty("ingest.dlq", "true"));
+    private static final String DEAD_LETTER_PATH = System.getProperty("ingest.dlq.folder", "dead-letters");
+    private static final long DEAD_LETTER_SEGMENT_BYTES = Long.getLong("ingest.dlq.segment.bytes", 64L * 1024 * 1024);
+    private static final int DEAD_LETTER_CAPACITY = Integer.getInteger("ingest.dlq.capacity", 10_000);
+    private static final Compression DEAD_LETTER_COMPRESSION =
+            Compression.fromName(System.getProperty("ingest.dlq.compression", "gzip"));
+    private static final boolean REPLAY = Boolean.getBoolean("ingest.replay");
+
+    // -Dingest.fanout.clusters=http://dr1:9200,http://dr2:9200;http://new:9200 sends every batch to these clusters as
+    // well, separated by ';'. A cluster more than -Dingest.fanout.max.lag.bytes behind spills its batches into
+    // -Dingest.fanout.spill.folder, or holds back the primary cluster if the folder is empty
+    private static final String FANOUT_CLUSTERS = System.getProperty("ingest.fanout.clusters", "");
+    private static final int FANOUT_IN_FLIGHT_REQUESTS =
+            Integer.getInteger("ingest.fanout.inflight.requests", IN_FLIGHT_REQUESTS);
+    private static final long FANOUT_MAX_LAG_BYTES = Long.getLong("ingest.fanout.max.lag.bytes", 256L * 1024 * 1024);
+    private static final String FANOUT_SPILL_PATH = System.getProperty("ingest.fanout.spill.folder", "fanout-spill");
+    private static final long FANOUT_DRAIN_TIMEOUT_MS = Long.getLong("ingest.fanout.drain.timeout.ms", 3_600_000);
 
     private Main() {
     }
@@ -47,42 +179,418 @@ public class Main {
         Path folderPath = Paths.get(DATA_PATH);
         List<Path> paths = getPaths(folderPath);
 
-        RestHighLevelClient client = new RestHighLevelClient(
-                RestClient.builder(new HttpHost(HOST, PORT, SCHEME)));
+        try (OpenSearchClientFactory clientFactory = createClientFactory()) {
+            RestHighLevelClient client = clientFactory.create();
+            if (EXPORT_PATH != null) {
+                export(client, Paths.get(EXPORT_PATH));
+                return;
+            }
+            try (DeadLetterQueue deadLetterQueue = openDeadLetterQueue()) {
+                index(paths, client, deadLetterQueue);
+            }
+        } catch (IOException e) {
+            LOGGER.error("There was an error with the client of {}: {}", NODES, e);
+        }
+    }
 
-        ObjectMapper mapper = new ObjectMapper();
-        ArticlesIndexer indexer = new ArticlesIndexer(client, mapper);
+    /**
+     * Index the files, or run the mode given by the system properties: reconcile the index with the files, or replay
+     * the dead letter queue.
+     *
+     * @param paths A list of json files.
+     * @param client The {@code RestHighLevelClient} of the cluster.
+     * @param deadLetterQueue The {@link DeadLetterQueue} of the articles that can not be indexed, or null.
+     */
+    private static void index(List<Path> paths, RestHighLevelClient client, DeadLetterQueue deadLetterQueue) {
+        ObjectMapper mapper = ArticleJson.getMapper();
+        ArticlesIndexer indexer = new ArticlesIndexer(client, mapper, IN_FLIGHT_REQUESTS);
+        indexer.setRetryPolicy(new RetryPolicy(RETRY_MAX, RETRY_INITIAL_DELAY_MS, RETRY_MAX_DELAY_MS));
+        indexer.setDocumentIdMode(DOCUMENT_ID_MODE);
+        if (POOLED_BODIES) {
+            indexer.setBodyPool(new ByteArrayPool(BODY_POOL_ARRAY_BYTES, BODY_POOL_MAX_BYTES));
+            indexer.setBodyCompression(COMPRESSION);
+        }
+        IndexBootstrapper bootstrapper = new IndexBootstrapper(client);
+        IndexPartitioner partitioner = createPartitioner(bootstrapper);
+        indexer.setPartitioner(partitioner);
+        indexer.setDeadLetterQueue(deadLetterQueue);
+        List<OpenSearchClientFactory> targetFactories = addFanOutTargets(indexer);
 
-        indexFile(paths, indexer);
+        try {
+            if (RECONCILE != null) {
+                reconcile(paths, client, indexer);
+                return;
+            }
+            if (REPLAY) {
+                replay(Paths.get(DEAD_LETTER_PATH), indexer);
+                return;
+            }
+            if (partitioner != null) {
+                if (REBUILD) {
+                    LOGGER.warn("The partitions are loaded in place, a rebuild only applies to a single index");
+                }
+                indexFile(paths, indexer);
+                if (SEAL_PARTITIONS) {
+                    partitioner.getPastPartitions(YearMonth.now()).forEach(bootstrapper::seal);
+                }
+            } else if (REBUILD) {
+                rebuild(paths, indexer, bootstrapper);
+            } else {
+                indexFile(paths, indexer);
+            }
+        } finally {
+            closeFanOutTargets(indexer, targetFactories);
+        }
+    }
+
+    /**
+     * Open the dead letter queue of the system property {@code ingest.dlq.folder}, unless {@code ingest.dlq} is false.
+     *
+     * @return A {@link DeadLetterQueue}, or null if the failed articles are only logged.
+     */
+    private static DeadLetterQueue openDeadLetterQueue() {
+        if (!DEAD_LETTERS) {
+            return null;
+        }
+        try {
+            return new DeadLetterQueue(Paths.get(DEAD_LETTER_PATH), DEAD_LETTER_COMPRESSION, DEAD_LETTER_SEGMENT_BYTES,
+                    DEAD_LETTER_CAPACITY);
+        } catch (IOException e) {
+            LOGGER.error("There was an error opening the dead letter queue {}, the failed articles are only logged: {}",
+                    DEAD_LETTER_PATH, e);
+            return null;
+        }
+    }
+
+    /**
+     * Index again the articles of the segments of a dead letter queue. The ones that fail again are written into new
+     * segments of the dead letter queue of the indexer.
+     *
+     * @param folder The folder of the segments.
+     * @param indexer An {@ArticlesIndexer}.
+     * @return True if every article was indexed else false.
+     */
+    public static boolean replay(Path folder, ArticlesIndexer indexer) {
+        DeadLetterReplayer replayer = new DeadLetterReplayer(indexer, INDEX_NAME,
+                new BatchLimits(N_INDEXING_FILES, BULK_MAX_BYTES));
+        return replayer.replay(folder);
+    }
+
+    /**
+     * Add a {@link FanOutTarget} to the indexer for each cluster of the system property {@code ingest.fanout.clusters}.
+     * The targets send the same batches with their own indexer, whose document id mode, retry policy and body pool are
+     * those of the primary one, see {@link ArticlesIndexer#createTargetIndexer(RestHighLevelClient, int)}.
+     *
+     * @param indexer The {@ArticlesIndexer} of the primary cluster.
+     * @return The factories of the clients of the targets, to be closed with them.
+     */
+    private static List<OpenSearchClientFactory> addFanOutTargets(ArticlesIndexer indexer) {
+        List<OpenSearchClientFactory> factories = new ArrayList<>();
+        for (String cluster : FANOUT_CLUSTERS.split(";")) {
+            String nodes = cluster.trim();
+            if (nodes.isEmpty()) {
+                continue;
+            }
+            if (REBUILD || indexer.getPartitioner() != null) {
+                LOGGER.warn("The indices are only created on the primary cluster, they must already exist on {}",
+                        nodes);
+            }
+            OpenSearchClientFactory factory = createClientFactory(nodes);
+            factories.add(factory);
+            ArticlesIndexer targetIndexer;
+            try {
+                targetIndexer = indexer.createTargetIndexer(factory.create(), FANOUT_IN_FLIGHT_REQUESTS);
+            } catch (IOException e) {
+                LOGGER.error("There was an error with the client of {}, the articles are not sent to it: {}", nodes, e);
+                continue;
+            }
+            FanOutTarget target = new FanOutTarget(nodes, targetIndexer, FANOUT_MAX_LAG_BYTES);
+            if (!FANOUT_SPILL_PATH.isEmpty()) {
+                // Named after the nodes, so the batches left by a run go to the same cluster in the next one
+                Path spillFile = Paths.get(FANOUT_SPILL_PATH, nodes.replaceAll("[^A-Za-z0-9.-]+", "_") + ".spill");
+                try {
+                    Files.createDirectories(spillFile.getParent());
+                    target.setSpillFile(spillFile);
+                } catch (IOException e) {
+                    LOGGER.error("There was an error opening the spill file {}, {} holds back the primary cluster when "
+                            + "it falls behind: {}", spillFile, nodes, e);
+                }
+            }
+            indexer.addTarget(target);
+        }
+        return factories;
+    }
+
+    /**
+     * Wait until every {@link FanOutTarget} of the indexer has caught up, at most
+     * {@code ingest.fanout.drain.timeout.ms} each, and close them with their clients.
+     *
+     * @param indexer The {@ArticlesIndexer} of the primary cluster.
+     * @param factories The factories of the clients of the targets.
+     */
+    private static void closeFanOutTargets(ArticlesIndexer indexer, List<OpenSearchClientFactory> factories) {
+        for (FanOutTarget target : indexer.getTargets()) {
+            try {
+                if (!target.close(FANOUT_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("The cluster {} did not catch up: {} batch(es) are kept in its spill file, {} failed or"
+                            + " were lost and {} were not answered", target.getName(),
+                            target.getPendingSpilledBatches(), target.getFailedBatches(), target.getLagBatches());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting for the cluster {} to catch up", target.getName());
+            }
+        }
+        for (OpenSearchClientFactory factory : factories) {
+            try {
+                factory.close();
+            } catch (IOException e) {
+                LOGGER.error("There was an error closing the client of {}: {}", factory.getNodes(), e);
+            }
+        }
+    }
+
+    /**
+     * Create the factory of the clients of the nodes in the system property {@code ingest.nodes}. The connection pool
+     * allows the most bulk requests the ingestion can have in flight on any single node.
+     *
+     * @return An {@link OpenSearchClientFactory}.
+     */
+    public static OpenSearchClientFactory createClientFactory() {
+        return createClientFactory(NODES);
+    }
+
+    /**
+     * Create the factory of the clients of some nodes, with the settings of the system properties.
+     *
+     * @param nodes The comma-separated urls of the nodes of a cluster.
+     * @return An {@link OpenSearchClientFactory}.
+     */
+    public static OpenSearchClientFactory createClientFactory(String nodes) {
+        OpenSearchClientFactory clientFactory = new OpenSearchClientFactory(OpenSearchClientFactory.parseNodes(nodes));
+        int maxInFlight = ADAPTIVE ? Math.max(IN_FLIGHT_REQUESTS, ADAPTIVE_MAX_IN_FLIGHT) : IN_FLIGHT_REQUESTS;
+        int perRoute = maxInFlight + EXTRA_CONNECTIONS;
+        clientFactory.setMaxConnections(perRoute, perRoute * clientFactory.getNodes().size());
+        clientFactory.setNodeSelection(NODE_SELECTION);
+        clientFactory.setCompression(COMPRESSION);
+        // The pooled bulk bodies are compressed as they are written, see ArticlesIndexer#setBodyCompression
+        clientFactory.setPooledBulkCompression(POOLED_BODIES);
+        clientFactory.setSniffIntervalMillis(SNIFF_INTERVAL_MS);
+        return clientFactory;
+    }
+
+    /**
+     * Create the partitioner of the system property {@code ingest.partition}, whose partitions are created from the
+     * settings and mapping files with the index name as alias.
+     *
+     * @param bootstrapper The {@link IndexBootstrapper} of the cluster.
+     * @return An {@link IndexPartitioner}, or null if the articles are not partitioned.
+     */
+    public static IndexPartitioner createPartitioner(IndexBootstrapper bootstrapper) {
+        if ("none".equalsIgnoreCase(PARTITION.trim())) {
+            return null;
+        }
+        Path settings = Paths.get(SETTINGS_FILE);
+        Path mapping = Paths.get(MAPPING_FILE);
+        return new IndexPartitioner(INDEX_NAME, IndexPartitioner.Granularity.fromName(PARTITION),
+                index -> bootstrapper.ensureIndex(index, settings, mapping, INDEX_NAME));
+    }
+
+    /**
+     * Export the articles index into a folder, as files named after it, e.g. {@code articles-s0-00000.json.gz}.
+     *
+     * @param client The {@code RestHighLevelClient} of the cluster.
+     * @param folder The folder of the files.
+     * @return True if every article was exported else false.
+     */
+    public static boolean export(RestHighLevelClient client, Path folder) {
+        ArticleExporter exporter = new ArticleExporter(client, INDEX_NAME);
+        exporter.setSlices(EXPORT_SLICES);
+        exporter.setPageSize(EXPORT_PAGE_SIZE);
+        exporter.setMaxDocumentsPerFile(EXPORT_MAX_DOCUMENTS_PER_FILE);
+        exporter.setCompression(EXPORT_COMPRESSION);
+        exporter.setTiebreaker(EXPORT_SORT);
+        return exporter.export(folder, INDEX_NAME);
+    }
+
+    /**
+     * Check that every article of the files is in the articles index, and index the missing ones again if
+     * {@code ingest.reconcile.repair} is true.
+     *
+     * @param paths A list of json files.
+     * @param client The {@code RestHighLevelClient} of the cluster.
+     * @param indexer The {@ArticlesIndexer} of the missing articles.
+     * @return True if every article is in the index else false.
+     */
+    public static boolean reconcile(List<Path> paths, RestHighLevelClient client, ArticlesIndexer indexer) {
+        if (indexer.getDocumentIdMode() == DocumentIdMode.AUTO) {
+            LOGGER.error("The articles indexed with generated ids can not be reconciled with the files");
+            return false;
+        }
+        IndexReconciler reconciler = new IndexReconciler(client, INDEX_NAME);
+        reconciler.setBatchSize(RECONCILE_BATCH_SIZE);
+        reconciler.setParallelism(RECONCILE_PARALLELISM);
+        reconciler.setBuckets(RECONCILE_BUCKETS);
+        reconciler.setRepairIndexer(RECONCILE_REPAIR ? indexer : null);
+        ReconciliationReport report = "checksum".equalsIgnoreCase(RECONCILE.trim())
+                ? reconciler.reconcileByChecksum(paths) : reconciler.reconcile(paths);
+        return report != null && report.isReconciled();
+    }
+
+    /**
+     * Load every file into a new index, named after the alias and the time, and point the alias to it once it is
+     * loaded. The previous index keeps answering the searches through the alias until then, and if the load fails.
+     * The resume and the incremental runs do not apply, as the new index starts empty.
+     *
+     * @param paths A list of json files.
+     * @param indexer An {@ArticlesIndexer}.
+     * @param bootstrapper The {@link IndexBootstrapper} of the cluster of the indexer.
+     * @return True if the alias was swapped to the new index else false.
+     */
+    public static boolean rebuild(List<Path> paths, ArticlesIndexer indexer, IndexBootstrapper bootstrapper) {
+        String index = INDEX_NAME + "-" + INDEX_SUFFIX.format(LocalDateTime.now());
+        if (!bootstrapper.createIndex(index, Paths.get(SETTINGS_FILE), Paths.get(MAPPING_FILE))) {
+            return false;
+        }
+        if (!bootstrapper.startBulkLoad(index)) {
+            LOGGER.warn("The index {} is loaded with its own settings", index);
+        }
+        boolean indexed = indexFile(paths, indexer, index);
+        boolean finished = bootstrapper.finishBulkLoad(index, FORCE_MERGE_SEGMENTS);
+        if (!indexed || !finished) {
+            LOGGER.warn("The alias {} still points to the previous index, as {} was not fully loaded", INDEX_NAME,
+                    index);
+            return false;
+        }
+        return bootstrapper.swapAlias(INDEX_NAME, index, DELETE_PREVIOUS);
     }
 
     /**
      * Index the articles in the json files using the {@ArticlesIndexer}.
+     * The files are read, serialized and sent concurrently by an {@link IngestionPipeline}.
      *
      * @param paths A list of json files.
      * @param indexer An {@ArticlesIndexer}.
      */
     public static void indexFile(List<Path> paths, ArticlesIndexer indexer) {
-        int nFile = 1;
-        for(Path path : paths) {
-            LOGGER.info("Processing file {}", path);
-
-            int fileNumber = JsonReader.getFileNumber(path);
-            List<List<Article>> articlesBatches = JsonReader.readArticlesFileIntoPartition(path, N_INDEXING_FILES);
-
-            Integer nBatch = 1;
-            for(List<Article> articlesBatch : articlesBatches){
-                indexer.bulkAppendArticles(INDEX_NAME, articlesBatch);
-                LOGGER.info("File {}/{} -> {}/{},", nFile, paths.size(),
-                        Math.min(N_INDEXING_FILES*nBatch, fileNumber), fileNumber);
-                nBatch++;
+        indexFile(paths, indexer, INDEX_NAME);
+    }
+
+    /**
+     * Index the articles in the json files into an index using the {@ArticlesIndexer}.
+     *
+     * @param paths A list of json files.
+     * @param indexer An {@ArticlesIndexer}.
+     * @param index The name of the index, or of its alias.
+     * @return True if every article was indexed else false.
+     */
+    public static boolean indexFile(List<Path> paths, ArticlesIndexer indexer, String index) {
+        BatchLimits limits = new BatchLimits(N_INDEXING_FILES, BULK_MAX_BYTES);
+        Supplier<BatchLimits> batchLimits = () -> limits;
+        AdaptiveBulkController controller = null;
+        if (ADAPTIVE) {
+            controller = new AdaptiveBulkController(indexer, limits,
+                    new BatchLimits(ADAPTIVE_MIN_DOCUMENTS, ADAPTIVE_MIN_BYTES),
+                    new BatchLimits(N_INDEXING_FILES, Math.max(BULK_MAX_BYTES, ADAPTIVE_MAX_BYTES)),
+                    ADAPTIVE_MAX_IN_FLIGHT, ADAPTIVE_TARGET_LATENCY_MS);
+            indexer.addBulkListener(controller);
+            batchLimits = controller::getLimits;
+        }
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, index, batchLimits,
+                PARSER_THREADS, SERIALIZER_THREADS, SENDER_THREADS, QUEUE_CAPACITY);
+        pipeline.setPassThrough(PASS_THROUGH);
+        pipeline.setDeduplication(DEDUPLICATION);
+        IngestionMetrics metrics = new IngestionMetrics();
+        indexer.addBulkListener(metrics);
+        pipeline.setMetrics(metrics);
+        MetricsReporter reporter = new MetricsReporter(metrics, METRICS_INTERVAL_MS);
+        ForkJoinPool chunkPool = CHUNK_THREADS > 1 ? new ForkJoinPool(CHUNK_THREADS) : null;
+        pipeline.setChunkedParsing(chunkPool, CHUNK_MIN_FILE_BYTES, CHUNK_ORDERED);
+        CheckpointJournal journal = openCheckpointJournal();
+        pipeline.setCheckpointJournal(journal);
+        IngestManifest manifest = INCREMENTAL && !REBUILD ? openManifest() : null;
+        pipeline.setManifest(manifest);
+        boolean success = pipeline.run(paths);
+        if (!success) {
+            LOGGER.warn("Some batches could not be indexed. Consult the log for more information.");
+        }
+        reporter.close();
+        saveManifest(manifest);
+        closeCheckpointJournal(journal);
+        if (chunkPool != null) {
+            chunkPool.shutdown();
+        }
+        if (controller != null) {
+            LOGGER.info("Adaptive bulk controller: {}", controller);
+        }
+        return success;
+    }
+
+    /**
+     * Open the journal where the progress of the run is recorded. If the system property {@code ingest.resume} is
+     * true, the run resumes from the offsets recorded by the previous one.
+     *
+     * @return A {@link CheckpointJournal}, or null if it can not be opened.
+     */
+    private static CheckpointJournal openCheckpointJournal() {
+        try {
+            boolean resume = RESUME && !REBUILD;
+            CheckpointJournal journal = new CheckpointJournal(Paths.get(CHECKPOINT_FILE), CHECKPOINT_SYNC_MS, resume);
+            if (resume) {
+                LOGGER.info("Resuming the ingestion from the checkpoints in {}", CHECKPOINT_FILE);
+            }
+            return journal;
+        } catch (IOException e) {
+            LOGGER.error("There was an error opening the checkpoint journal {}, the progress will not be recorded: {}",
+                    CHECKPOINT_FILE, e);
+            return null;
+        }
+    }
+
+    private static void closeCheckpointJournal(CheckpointJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                LOGGER.error("There was an error closing the checkpoint journal {}: {}", CHECKPOINT_FILE, e);
+            }
+        }
+    }
+
+    /**
+     * Open the manifest of the files indexed by the previous incremental runs, next to the data folder.
+     *
+     * @return An {@link IngestManifest}, or null if it can not be read, so every record is indexed.
+     */
+    private static IngestManifest openManifest() {
+        try {
+            return new IngestManifest(Paths.get(MANIFEST_FILE));
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the manifest {}, every file will be indexed: {}",
+                    MANIFEST_FILE, e);
+            return null;
+        }
+    }
+
+    private static void saveManifest(IngestManifest manifest) {
+        if (manifest != null) {
+            try {
+                manifest.save();
+            } catch (IOException e) {
+                LOGGER.error("There was an error writing the manifest {}: {}", MANIFEST_FILE, e);
+            }
+            try {
+                manifest.close();
+            } catch (IOException e) {
+                LOGGER.error("There was an error closing the manifest {}: {}", MANIFEST_FILE, e);
             }
-            nFile++;
         }
     }
 
     /**
-     * Get all json files path in a folder.
+     * Get all json files path in a folder, including the json files compressed with gzip ({@code .json.gz}) or
+     * Zstandard ({@code .json.zst}), which are decompressed on the fly when they are read.
      *
      * @param folderPath The data folder.
      * @return A list of all json paths.
@@ -93,7 +601,7 @@ public class Main {
         try (Stream<Path> pathStream = Files.walk(folderPath)) {
             paths = pathStream
                     .filter(Files::isRegularFile)
-                    .filter(path -> path.toString().endsWith(".json"))
+                    .filter(Compression::isJsonFile)
                     .collect(Collectors.toList());
         } catch (IOException e){
             LOGGER.warn(e);
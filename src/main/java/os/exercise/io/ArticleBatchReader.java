@@ -0,0 +1,200 @@
+package os.exercise.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import os.exercise.models.Article;
+
+/**
+ * The ArticleBatchReader class reads a file with one json article per line (NDJSON) lazily, one batch at a time, so
+ * only the current batch is kept in memory.
+ * A malformed line does not end the reading: it is logged, skipped and counted, like in {@link RawArticleBatchReader}
+ * and in the {@link MappedArticleFileReader#articleParser()} of the big files.
+ */
+public class ArticleBatchReader implements BatchReader<Article> {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArticleBatchReader.class);
+    private static final int INITIAL_BATCH_CAPACITY = 1024;
+    private static final int MAX_LOGGED_BYTES = 200;
+
+    private final Path path;
+    private final int batchSize;
+    private final long maxBatchBytes;
+    private final long totalBytes;
+    private final LineReader lines;
+    private long lineNumber;
+
+    private Article nextArticle;
+    private long nextArticleEnd;
+    private long bytesRead;
+    private long batchStart;
+    private long skippedLines;
+    private boolean failed;
+
+    /**
+     * Constructor of the ArticleBatchReader.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum number of articles in each batch.
+     * @throws IOException when the file can not be opened.
+     */
+    public ArticleBatchReader(Path path, int batchSize) throws IOException {
+        this(path, batchSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructor of the ArticleBatchReader that also limits the size of the batches. A batch is closed once the
+     * lines of its articles add up to {@code maxBatchBytes}, which is a cheap upper bound of their serialized size.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum number of articles in each batch.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @throws IOException when the file can not be opened.
+     */
+    public ArticleBatchReader(Path path, int batchSize, long maxBatchBytes) throws IOException {
+        this(path, batchSize, maxBatchBytes, 0);
+    }
+
+    /**
+     * Constructor of the ArticleBatchReader that starts reading at an offset of the file, e.g. to resume an
+     * interrupted run. The offset must be the start of a line.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum number of articles in each batch.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @param startOffset The offset of the file where the reading starts.
+     * @throws IOException when the file can not be opened.
+     */
+    public ArticleBatchReader(Path path, int batchSize, long maxBatchBytes, long startOffset) throws IOException {
+        if (batchSize <= 0 || maxBatchBytes <= 0 || startOffset < 0) {
+            throw new IllegalArgumentException("The batch limits must be positive: " + batchSize + " articles, "
+                    + maxBatchBytes + " bytes, from offset " + startOffset);
+        }
+        this.path = path;
+        this.batchSize = batchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.totalBytes = JsonReader.getContentSize(path);
+        this.bytesRead = startOffset;
+        this.batchStart = startOffset;
+        this.lines = new LineReader(JsonReader.openAt(path, startOffset), startOffset);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return advance();
+    }
+
+    /**
+     * Read the next batch of articles.
+     *
+     * @return A non empty list of at most {@code batchSize} articles and about {@code maxBatchBytes} bytes.
+     */
+    @Override
+    public List<Article> next() {
+        if (!advance()) {
+            throw new NoSuchElementException("There are no more articles in the file " + path);
+        }
+        List<Article> batch = new ArrayList<>(Math.min(batchSize, INITIAL_BATCH_CAPACITY));
+        batchStart = bytesRead;
+        do {
+            batch.add(nextArticle);
+            bytesRead = nextArticleEnd;
+            nextArticle = null;
+        } while (batch.size() < batchSize && bytesRead - batchStart < maxBatchBytes && advance());
+        return batch;
+    }
+
+    /**
+     * Read lines until the next valid article, if it has not been read yet. An error reading the file ends the
+     * reading.
+     *
+     * @return True if there is an article pending to be returned else false.
+     */
+    private boolean advance() {
+        try {
+            while (nextArticle == null && !failed) {
+                byte[] line = lines.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                if (line.length > 0) {
+                    nextArticle = parseLine(line);
+                }
+                nextArticleEnd = lines.getBytesConsumed();
+            }
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the file {}: {}", path, e);
+            failed = true;
+        }
+        return nextArticle != null;
+    }
+
+    /**
+     * Deserialize a line into an {@link Article}, skipping it if it is not valid.
+     *
+     * @return The article, or null if the line is not valid.
+     */
+    private Article parseLine(byte[] line) {
+        try {
+            return ArticleJson.getArticleReader().readValue(line);
+        } catch (IOException e) {
+            skippedLines++;
+            LOGGER.error("The line {} of the file {} was skipped because {}: {}", lineNumber, path, e.getMessage(),
+                    new String(line, 0, Math.min(line.length, MAX_LOGGED_BYTES), StandardCharsets.UTF_8));
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of lines skipped because they were not valid articles.
+     *
+     * @return The number of skipped lines.
+     */
+    @Override
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public long getBatchStart() {
+        return batchStart;
+    }
+
+    @Override
+    public long getBatchEnd() {
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
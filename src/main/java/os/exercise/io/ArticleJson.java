@@ -0,0 +1,66 @@
+package os.exercise.io;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import os.exercise.models.Article;
+
+/**
+ * The ArticleJson class holds the Jackson objects shared by every reader and writer of articles.
+ * {@code ObjectReader}s and {@code ObjectWriter}s are immutable and thread-safe, and building them once avoids
+ * looking up the (de)serializers of {@link Article} on every call.
+ * If the system property {@code ingest.json.blackbird} is true, the Blackbird module is registered, so the accessors
+ * of {@link Article} are called through generated lambdas instead of reflection.
+ */
+public final class ArticleJson {
+
+    private static final ObjectMapper MAPPER = newMapper(Boolean.getBoolean("ingest.json.blackbird"));
+    private static final ObjectReader ARTICLE_READER = MAPPER.readerFor(Article.class);
+    private static final ObjectWriter ARTICLE_WRITER = MAPPER.writerFor(Article.class);
+
+    private ArticleJson() {
+    }
+
+    /**
+     * Create a new {@code ObjectMapper} for articles.
+     *
+     * @param generatedAccessors True to register the Blackbird module else false.
+     * @return A new {@code ObjectMapper}.
+     */
+    public static ObjectMapper newMapper(boolean generatedAccessors) {
+        ObjectMapper mapper = new ObjectMapper();
+        if (generatedAccessors) {
+            mapper.registerModule(new BlackbirdModule());
+        }
+        return mapper;
+    }
+
+    /**
+     * Get the shared {@code ObjectMapper}. It must not be reconfigured.
+     *
+     * @return The shared {@code ObjectMapper}.
+     */
+    public static ObjectMapper getMapper() {
+        return MAPPER;
+    }
+
+    /**
+     * Get the shared reader of {@link Article}s.
+     *
+     * @return An {@code ObjectReader} for {@link Article}.
+     */
+    public static ObjectReader getArticleReader() {
+        return ARTICLE_READER;
+    }
+
+    /**
+     * Get the shared writer of {@link Article}s.
+     *
+     * @return An {@code ObjectWriter} for {@link Article}.
+     */
+    public static ObjectWriter getArticleWriter() {
+        return ARTICLE_WRITER;
+    }
+}
@@ -0,0 +1,68 @@
+package os.exercise.io;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A reader of a file with articles that returns them lazily, one batch at a time, and keeps track of how much of the
+ * file has been consumed. Each batch covers a range of bytes of the file, so the progress of the indexing can be
+ * recorded and the reading resumed from a given offset.
+ *
+ * @param <T> The type of the articles read.
+ */
+public interface BatchReader<T> extends Iterator<List<T>>, Closeable {
+
+    /**
+     * Get the offset of the first byte of the file covered by the last batch returned.
+     *
+     * @return The start of the range of the last batch.
+     */
+    long getBatchStart();
+
+    /**
+     * Get the offset after the last byte of the file covered by the last batch returned. The ranges of consecutive
+     * batches of a file in order are contiguous, and include the bytes between articles.
+     *
+     * @return The end of the range of the last batch, exclusive.
+     */
+    long getBatchEnd();
+
+    /**
+     * Get the number of bytes of the file consumed by the batches returned so far.
+     *
+     * @return The number of bytes read.
+     */
+    long getBytesRead();
+
+    /**
+     * Get the size of the file being read.
+     *
+     * @return The size of the file in bytes, or -1 if it is compressed and the size of its content is unknown.
+     */
+    long getTotalBytes();
+
+    /**
+     * Check if the reading ended because of an error rather than the end of the file. The batches returned before the
+     * error are valid, but the rest of the file was not read.
+     *
+     * @return True if the file could not be read to its end else false.
+     */
+    boolean isFailed();
+
+    /**
+     * Get the number of lines of the file skipped because they were not valid articles. The reading goes on after
+     * them, and their bytes are part of the ranges of the batches.
+     *
+     * @return The number of lines skipped so far.
+     */
+    long getSkippedLines();
+
+    /**
+     * Get the location of the file being read.
+     *
+     * @return The path of the file.
+     */
+    Path getPath();
+}
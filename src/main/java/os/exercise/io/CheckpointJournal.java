@@ -0,0 +1,259 @@
+package os.exercise.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CheckpointJournal class records, for each input file, the offset up to which every article has been
+ * acknowledged by OpenSearch, so an interrupted run can be resumed from there instead of from the first file.
+ * The ranges of the batches can be acknowledged in any order, as several bulk requests are in flight at the same
+ * time: the offset of a file only moves over the ranges that are contiguous with it.
+ * The offsets are appended to the journal file and fsynced in batches, every {@code syncIntervalMillis}, so a crash
+ * loses at most the requests in flight and the acknowledgements of the last interval. The journal is compacted each
+ * time it is opened.
+ * Each offset is recorded with the size and the modification time of its file, so a file that was replaced since it
+ * was acknowledged is read again from the start instead of from an offset that means nothing in the new content.
+ */
+public class CheckpointJournal implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(CheckpointJournal.class);
+    private static final String SEPARATOR = "\t";
+    private static final int FIELDS = 4;
+    private static final long UNKNOWN = -1;
+
+    private final Path journalPath;
+    private final FileChannel channel;
+    private final Map<Path, FileProgress> files = new HashMap<>();
+    private final Map<Path, FileProgress> pendingOffsets = new LinkedHashMap<>();
+    private final Object syncLock = new Object();
+    private final ScheduledExecutorService syncScheduler;
+
+    /**
+     * Constructor of the CheckpointJournal.
+     *
+     * @param journalPath The location of the journal file.
+     * @param syncIntervalMillis The time between two writes of the journal to disk.
+     * @param resume True to load the offsets recorded by a previous run else false to start from scratch.
+     * @throws IOException when the journal can not be read or written.
+     */
+    public CheckpointJournal(Path journalPath, long syncIntervalMillis, boolean resume) throws IOException {
+        if (syncIntervalMillis <= 0) {
+            throw new IllegalArgumentException("The sync interval must be positive: " + syncIntervalMillis);
+        }
+        this.journalPath = journalPath;
+        if (resume && Files.exists(journalPath)) {
+            load();
+        }
+        compact();
+        this.channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncScheduler.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the offset of a file up to which every article has been acknowledged. If the file changed since, its
+     * progress is discarded.
+     *
+     * @param file The location of an input file.
+     * @return The offset where the reading of the file must resume, 0 if nothing was acknowledged or if the size or
+     *         the modification time of the file are not the recorded ones.
+     */
+    public synchronized long getOffset(Path file) {
+        Path key = key(file);
+        FileProgress progress = files.get(key);
+        if (progress == null) {
+            return 0;
+        }
+        FileProgress current = FileProgress.of(file);
+        if (progress.size != current.size || progress.lastModified != current.lastModified) {
+            LOGGER.warn("The file {} changed since its offset {} was recorded, it is read from the start", file,
+                    progress.offset);
+            files.put(key, current);
+            pendingOffsets.put(key, current);
+            return 0;
+        }
+        return progress.offset;
+    }
+
+    /**
+     * Record that the articles in a range of a file have been acknowledged.
+     *
+     * @param file The location of an input file.
+     * @param start The offset of the first byte of the range.
+     * @param end The offset after the last byte of the range.
+     */
+    public synchronized void acknowledge(Path file, long start, long end) {
+        Path key = key(file);
+        FileProgress progress = files.computeIfAbsent(key, k -> FileProgress.of(file));
+        if (progress.acknowledge(start, end)) {
+            pendingOffsets.put(key, progress);
+        }
+    }
+
+    /**
+     * Append the offsets that changed since the last call to the journal and fsync it.
+     *
+     * @throws IOException when the journal can not be written.
+     */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            StringBuilder lines = new StringBuilder();
+            synchronized (this) {
+                if (pendingOffsets.isEmpty()) {
+                    return;
+                }
+                pendingOffsets.forEach((file, progress) -> appendLine(lines, file, progress));
+                pendingOffsets.clear();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            LOGGER.error("There was an error writing the checkpoint journal {}: {}", journalPath, e);
+        }
+    }
+
+    /**
+     * Stop the periodic writes and write the last offsets.
+     */
+    @Override
+    public void close() throws IOException {
+        syncScheduler.shutdown();
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Load the last offset of each file. A line cut by a crash while it was written is ignored, and a line without
+     * the size and the modification time of its file, written by an older version, can not be resumed from.
+     */
+    private void load() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(SEPARATOR, FIELDS);
+                if (fields.length < FIELDS) {
+                    LOGGER.warn("Ignoring the incomplete line of the checkpoint journal {}: {}", journalPath, line);
+                    continue;
+                }
+                try {
+                    files.put(key(Paths.get(fields[FIELDS - 1])), new FileProgress(Long.parseLong(fields[0]),
+                            Long.parseLong(fields[1]), Long.parseLong(fields[2])));
+                } catch (InvalidPathException | NumberFormatException e) {
+                    LOGGER.warn("Ignoring the malformed line of the checkpoint journal {}: {}", journalPath, line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrite the journal with a single line per file, replacing it atomically.
+     */
+    private void compact() throws IOException {
+        StringBuilder lines = new StringBuilder();
+        files.forEach((file, progress) -> appendLine(lines, file, progress));
+        Path parent = journalPath.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, journalPath.getFileName().toString(), ".tmp");
+        try (FileChannel temporaryChannel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                temporaryChannel.write(buffer);
+            }
+            temporaryChannel.force(false);
+        }
+        Files.move(temporary, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void appendLine(StringBuilder lines, Path file, FileProgress progress) {
+        lines.append(progress.offset).append(SEPARATOR).append(progress.size).append(SEPARATOR)
+                .append(progress.lastModified).append(SEPARATOR).append(file).append('\n');
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * The acknowledged offset of a file and the ranges acknowledged after it, which are waiting for the gap between
+     * them to be acknowledged, with the size and the modification time of the file they belong to.
+     */
+    private static final class FileProgress {
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private final long size;
+        private final long lastModified;
+        private long offset;
+
+        FileProgress(long offset, long size, long lastModified) {
+            this.offset = offset;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Start the progress of a file with its current size and modification time, unknown if it does not exist.
+         */
+        static FileProgress of(Path file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileProgress(0, attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return new FileProgress(0, UNKNOWN, UNKNOWN);
+            }
+        }
+
+        /**
+         * Add a range and move the offset over the ranges contiguous with it.
+         *
+         * @return True if the offset moved else false.
+         */
+        boolean acknowledge(long start, long end) {
+            if (start > offset) {
+                ranges.merge(start, end, Math::max);
+                return false;
+            }
+            long previous = offset;
+            offset = Math.max(offset, end);
+            while (!ranges.isEmpty() && ranges.firstKey() <= offset) {
+                offset = Math.max(offset, ranges.pollFirstEntry().getValue());
+            }
+            return offset != previous;
+        }
+    }
+}
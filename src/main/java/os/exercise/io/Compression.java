@@ -0,0 +1,128 @@
+package os.exercise.io;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression of an input file, detected from its extension: {@code .json.gz} files are gzip and
+ * {@code .json.zst} files are Zstandard. The compressed files are decompressed on the fly while they are read, so they
+ * never have to be decompressed to disk. The exported files are compressed the same way while they are written.
+ */
+public enum Compression {
+
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final String JSON_EXTENSION = ".json";
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Get the compression of a file from its extension.
+     *
+     * @param path The location of a file.
+     * @return The {@link Compression} of the file, {@link #NONE} if it is not compressed.
+     */
+    public static Compression of(Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(GZIP.extension)) {
+            return GZIP;
+        }
+        if (name.endsWith(ZSTD.extension)) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Check if a file is a json file of articles, compressed or not.
+     *
+     * @param path The location of a file.
+     * @return True if the name of the file ends with {@code .json}, {@code .json.gz} or {@code .json.zst} else false.
+     */
+    public static boolean isJsonFile(Path path) {
+        for (Compression compression : values()) {
+            if (path.getFileName().toString().endsWith(JSON_EXTENSION + compression.extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a compression from its name, ignoring the case, e.g. from a system property.
+     *
+     * @param name The name of a compression.
+     * @return The {@link Compression}.
+     * @throws IllegalArgumentException when there is no compression with that name.
+     */
+    public static Compression fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+
+    /**
+     * Get the name of a json file compressed with this compression.
+     *
+     * @param baseName The name of the file without extension.
+     * @return The name with the {@code .json} extension and the one of the compression, e.g. {@code .json.gz}.
+     */
+    public String getFileName(String baseName) {
+        return baseName + JSON_EXTENSION + extension;
+    }
+
+    /**
+     * Wrap a stream of a file into one that compresses the bytes written to it.
+     *
+     * @param file The {@code OutputStream} of the file, which should be buffered.
+     * @return An {@code OutputStream} that compresses the bytes into the file. Flushing it writes out the bytes
+     *         compressed so far, so the file can be read up to there even if it is never closed. Closing it closes
+     *         the file.
+     * @throws IOException when the header of the file can not be written.
+     */
+    public OutputStream compress(OutputStream file) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(file, GZIP_BUFFER_BYTES, true);
+            case ZSTD:
+                return new ZstdOutputStream(file);
+            default:
+                return file;
+        }
+    }
+
+    /**
+     * Wrap a stream with the compressed bytes of a file into one that decompresses them.
+     *
+     * @param compressed The {@code InputStream} of the file, which should be buffered.
+     * @return An {@code InputStream} with the decompressed bytes.
+     * @throws IOException when the header of the file is not valid.
+     */
+    public InputStream decompress(InputStream compressed) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(compressed, GZIP_BUFFER_BYTES);
+            case ZSTD:
+                return new ZstdInputStream(compressed);
+            default:
+                return compressed;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package os.exercise.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * The ContentHash class computes the 64-bit hashes used to detect changes in the input files and in their records.
+ * The hash is made of a CRC-32C and a CRC-32 of the same bytes: both are computed with the instructions of the CPU by
+ * the JDK, so a file is hashed about as fast as it is read, and the two halves make accidental collisions negligible.
+ * It is not a cryptographic hash.
+ */
+public final class ContentHash {
+
+    private static final int BUFFER_BYTES = 1024 * 1024;
+    private static final int INT_BITS = 32;
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hash an array of bytes.
+     *
+     * @param bytes The bytes to hash.
+     * @return The 64-bit hash of the bytes.
+     */
+    public static long of(byte[] bytes) {
+        CRC32C crc32c = new CRC32C();
+        CRC32 crc32 = new CRC32();
+        crc32c.update(bytes);
+        crc32.update(bytes);
+        return combine(crc32c, crc32);
+    }
+
+    /**
+     * Hash the content of a file.
+     *
+     * @param file The location of the file.
+     * @return The 64-bit hash of the content of the file.
+     * @throws IOException when the file can not be read.
+     */
+    public static long of(Path file) throws IOException {
+        CRC32C crc32c = new CRC32C();
+        CRC32 crc32 = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                crc32c.update(buffer.duplicate());
+                crc32.update(buffer);
+                buffer.clear();
+            }
+        }
+        return combine(crc32c, crc32);
+    }
+
+    private static long combine(CRC32C crc32c, CRC32 crc32) {
+        return crc32c.getValue() << INT_BITS | crc32.getValue();
+    }
+}
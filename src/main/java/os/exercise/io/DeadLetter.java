@@ -0,0 +1,98 @@
+package os.exercise.io;
+
+import java.io.IOException;
+
+import os.exercise.models.RawArticle;
+
+/**
+ * An article that could not be indexed, kept with the reason of its failure by the {@link DeadLetterQueue}: the json
+ * that was sent, the index it was sent to, and the type, reason and HTTP status of the failure.
+ */
+public class DeadLetter {
+
+    private final String index;
+    private final String id;
+    private final String failureType;
+    private final String reason;
+    private final int status;
+    private final long timestamp;
+    private final byte[] source;
+
+    /**
+     * Constructor of a DeadLetter of an article that failed now.
+     *
+     * @param index The index the article was sent to.
+     * @param id The id of the article.
+     * @param failureType The type of the failure, e.g. {@code mapper_parsing_exception}.
+     * @param reason The message of the failure.
+     * @param status The HTTP status of the failure, or 0 if there was no response.
+     * @param source The json of the article, encoded in UTF-8 on a single line. It is not copied.
+     */
+    public DeadLetter(String index, String id, String failureType, String reason, int status, byte[] source) {
+        this(index, id, failureType, reason, status, System.currentTimeMillis(), source);
+    }
+
+    DeadLetter(String index, String id, String failureType, String reason, int status, long timestamp,
+               byte[] source) {
+        this.index = index;
+        this.id = id;
+        this.failureType = failureType;
+        this.reason = reason;
+        this.status = status;
+        this.timestamp = timestamp;
+        this.source = source;
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFailureType() {
+        return failureType;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the time of the failure.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public byte[] getSource() {
+        return source;
+    }
+
+    /**
+     * Get the article of the letter, to index it again. Its publication date is read from the json, so it goes to
+     * the same partition as the first time.
+     *
+     * @return A {@link RawArticle}, with the id of the letter if its json has none.
+     */
+    public RawArticle toRawArticle() {
+        try {
+            return RawArticleParser.parse(source);
+        } catch (IOException e) {
+            return new RawArticle(id, source);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeadLetter{index='" + index + "', id='" + id + "', failureType='" + failureType + "', reason='"
+                + reason + "', status=" + status + '}';
+    }
+}
@@ -0,0 +1,356 @@
+package os.exercise.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The DeadLetterQueue class keeps the articles that could not be indexed, with the reason of their failure, so they can
+ * be indexed again from it (see {@link DeadLetterReader}) instead of from the original input files.
+ * The letters are written as NDJSON, one {@link DeadLetter} per line with its full source, into compressed segments
+ * named {@code dead-letters-<time>-<sequence>.json.gz}. A segment is written with an {@code .open} suffix and renamed
+ * once it reaches {@code maxSegmentBytes} or the queue is closed; the segments are never modified after that.
+ * {@link #add(DeadLetter)} never blocks the thread that sends the bulk requests: the letters go through a bounded
+ * queue to a single writer thread, which flushes the segment after each group of letters, and the letters that do not
+ * fit in the queue are dropped and counted. {@link #flush(long, TimeUnit)} waits until the letters queued so far have
+ * been written or dropped. The segments left open by a crash are renamed when the queue is created, and can be read up
+ * to their last flush.
+ */
+public class DeadLetterQueue implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(DeadLetterQueue.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final String PREFIX = "dead-letters-";
+    private static final String OPEN_SUFFIX = ".open";
+    private static final DateTimeFormatter SEGMENT_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final int FILE_BUFFER_BYTES = 1 << 16;
+    private static final long POLL_MILLIS = 100;
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private final Path folder;
+    private final Compression compression;
+    private final long maxSegmentBytes;
+    private final BlockingQueue<DeadLetter> letters;
+    private final Thread writer;
+    private final LongAdder writtenLetters = new LongAdder();
+    private final LongAdder droppedLetters = new LongAdder();
+    private final AtomicLong queuedLetters = new AtomicLong();
+    // The letters taken from the queue, then written or dropped, guarded by this
+    private long handledLetters;
+    private final String segmentTime = SEGMENT_TIME.format(LocalDateTime.now());
+    private int segmentSequence;
+    private Path segment;
+    private CountingOutputStream segmentFile;
+    private OutputStream segmentStream;
+    private volatile boolean closed;
+
+    /**
+     * Constructor of the DeadLetterQueue. It starts the writer thread.
+     *
+     * @param folder The folder of the segments, created if it does not exist.
+     * @param compression The {@link Compression} of the segments.
+     * @param maxSegmentBytes The size of the file from which a segment is closed and a new one started.
+     * @param capacity The maximum number of letters waiting to be written.
+     * @throws IOException when the folder can not be created.
+     */
+    public DeadLetterQueue(Path folder, Compression compression, long maxSegmentBytes, int capacity)
+            throws IOException {
+        if (maxSegmentBytes <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("Invalid dead letter queue: segments of " + maxSegmentBytes
+                    + " bytes and a capacity of " + capacity);
+        }
+        this.folder = folder;
+        this.compression = compression;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.letters = new ArrayBlockingQueue<>(capacity);
+        Files.createDirectories(folder);
+        closeOpenSegments(folder);
+        this.writer = new Thread(this::write, "dead-letter-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Get the segments of a folder that can be read, in the order they were written.
+     *
+     * @param folder The folder of the segments.
+     * @return The closed segments, or an empty list if the folder does not exist.
+     * @throws IOException when the folder can not be listed.
+     */
+    public static List<Path> getSegments(Path folder) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(Compression::isJsonFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Rename the segments that a previous run did not close, so they are read with the others.
+     */
+    private static void closeOpenSegments(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(PREFIX) && name.endsWith(OPEN_SUFFIX)) {
+                    LOGGER.warn("The dead letter segment {} was not closed, it is readable up to its last flush",
+                            file);
+                    Files.move(file, file.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue a letter to be written, without waiting.
+     *
+     * @param letter A {@link DeadLetter}.
+     * @return True if the letter will be written, false if it was dropped because the queue is full or closed.
+     */
+    public boolean add(DeadLetter letter) {
+        if (!closed && letters.offer(letter)) {
+            queuedLetters.incrementAndGet();
+            return true;
+        }
+        droppedLetters.increment();
+        LOGGER.error("The dead letter queue is {}, the article {} was dropped", closed ? "closed" : "full",
+                letter.getId());
+        return false;
+    }
+
+    /**
+     * Write the letters of the queue until it is closed and empty.
+     */
+    private void write() {
+        List<DeadLetter> pending = new ArrayList<>();
+        while (true) {
+            DeadLetter letter;
+            try {
+                letter = letters.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (letter == null) {
+                if (closed && letters.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            pending.add(letter);
+            letters.drainTo(pending);
+            write(pending);
+            handled(pending.size());
+            pending.clear();
+        }
+        closeSegment();
+    }
+
+    private void write(List<DeadLetter> pending) {
+        try {
+            if (segmentStream == null) {
+                openSegment();
+            }
+            for (DeadLetter letter : pending) {
+                writeLetter(segmentStream, letter);
+            }
+            segmentStream.flush();
+            writtenLetters.add(pending.size());
+        } catch (IOException e) {
+            droppedLetters.add(pending.size());
+            LOGGER.error("There was an error writing {} dead letter(s) into {}: {}", pending.size(), segment, e);
+            closeSegment();
+            return;
+        }
+        if (segmentFile.getCount() >= maxSegmentBytes) {
+            closeSegment();
+        }
+    }
+
+    private synchronized void handled(int count) {
+        handledLetters += count;
+        notifyAll();
+    }
+
+    /**
+     * Wait until the letters queued so far have been written into the current segment, or dropped because they could
+     * not be written.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the {@code timeout}.
+     * @return True if every letter queued before the call was written or dropped before the timeout else false.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public synchronized boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long queued = queuedLetters.get();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (handledLetters < queued && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return handledLetters >= queued;
+    }
+
+    /**
+     * Write a letter on a single line, its source last, as it was sent.
+     *
+     * @param output The stream of the segment.
+     * @param letter A {@link DeadLetter}.
+     * @throws IOException when the letter can not be written.
+     */
+    static void writeLetter(OutputStream output, DeadLetter letter) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeStringField(DeadLetterReader.INDEX_FIELD, letter.getIndex());
+            generator.writeStringField(DeadLetterReader.ID_FIELD, letter.getId());
+            generator.writeStringField(DeadLetterReader.FAILURE_TYPE_FIELD, letter.getFailureType());
+            generator.writeStringField(DeadLetterReader.REASON_FIELD, letter.getReason());
+            generator.writeNumberField(DeadLetterReader.STATUS_FIELD, letter.getStatus());
+            generator.writeNumberField(DeadLetterReader.TIMESTAMP_FIELD, letter.getTimestamp());
+            generator.writeFieldName(DeadLetterReader.SOURCE_FIELD);
+            generator.writeRawValue(new String(letter.getSource(), StandardCharsets.UTF_8));
+            generator.writeEndObject();
+        }
+        output.write(LINE_SEPARATOR);
+    }
+
+    private void openSegment() throws IOException {
+        String name;
+        do {
+            // Another queue may have been created on the same folder in the same millisecond
+            name = compression.getFileName(PREFIX + segmentTime + String.format("-%05d", segmentSequence++));
+        } while (Files.exists(folder.resolve(name)));
+        segment = folder.resolve(name + OPEN_SUFFIX);
+        segmentFile = new CountingOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                FILE_BUFFER_BYTES));
+        try {
+            segmentStream = compression.compress(segmentFile);
+        } catch (IOException e) {
+            segmentFile.close();
+            segmentFile = null;
+            throw e;
+        }
+    }
+
+    private void closeSegment() {
+        if (segmentStream == null) {
+            return;
+        }
+        String name = segment.getFileName().toString();
+        try {
+            segmentStream.close();
+            Files.move(segment, segment.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length())),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("There was an error closing the dead letter segment {}: {}", segment, e);
+        } finally {
+            segmentStream = null;
+            segmentFile = null;
+        }
+    }
+
+    /**
+     * Get the number of letters written into the segments.
+     *
+     * @return The number of letters written since the queue was created.
+     */
+    public long getWrittenLetters() {
+        return writtenLetters.sum();
+    }
+
+    /**
+     * Get the number of letters lost, because the queue was full or closed, or because they could not be written.
+     *
+     * @return The number of letters dropped since the queue was created.
+     */
+    public long getDroppedLetters() {
+        return droppedLetters.sum();
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Stop accepting letters, wait until the queued ones are written and close the current segment.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while closing the dead letter queue, {} letter(s) may be lost", letters.size());
+        }
+        // The letters queued while the writer was stopping
+        int left = letters.size();
+        droppedLetters.add(left);
+        letters.clear();
+        handled(left);
+        if (getWrittenLetters() > 0 || getDroppedLetters() > 0) {
+            LOGGER.warn("{} article(s) were written into the dead letter queue {} and {} dropped",
+                    getWrittenLetters(), folder, getDroppedLetters());
+        }
+    }
+
+    /**
+     * Counts the bytes written into the file of a segment, after the compression.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+            count += length;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
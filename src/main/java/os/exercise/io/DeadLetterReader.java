@@ -0,0 +1,189 @@
+package os.exercise.io;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the {@link DeadLetter}s of a segment written by a {@link DeadLetterQueue}, one line at a time.
+ * A segment that was not closed, e.g. because of a crash, ends in the middle of a line or of its compressed data: it
+ * is read up to there, and {@link #isTruncated()} tells it apart from a complete segment. Any other error, e.g. a
+ * corrupted compressed block, ends the reading as well, and {@link #isFailed()} tells that the letters after it were
+ * not read. The lines that are not valid letters are skipped and counted.
+ */
+public class DeadLetterReader implements Closeable {
+
+    static final String INDEX_FIELD = "index";
+    static final String ID_FIELD = "id";
+    static final String FAILURE_TYPE_FIELD = "failure_type";
+    static final String REASON_FIELD = "reason";
+    static final String STATUS_FIELD = "status";
+    static final String TIMESTAMP_FIELD = "timestamp";
+    static final String SOURCE_FIELD = "source";
+
+    private static final Logger LOGGER = LogManager.getLogger(DeadLetterReader.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int FILE_BUFFER_BYTES = 1 << 16;
+    private static final int BYTE_MASK = 0xFF;
+
+    private final Path segment;
+    private final BufferedReader reader;
+    private long lineNumber;
+    private long skippedLines;
+    private boolean truncated;
+    private boolean failed;
+
+    /**
+     * Constructor of the DeadLetterReader.
+     *
+     * @param segment The location of a segment, whose compression is given by its extension.
+     * @throws IOException when the segment can not be opened.
+     */
+    public DeadLetterReader(Path segment) throws IOException {
+        this.segment = segment;
+        BufferedInputStream file = new BufferedInputStream(Files.newInputStream(segment), FILE_BUFFER_BYTES);
+        try {
+            this.reader = new BufferedReader(new InputStreamReader(
+                    new TruncationInputStream(Compression.of(segment).decompress(file)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read the next letter of the segment.
+     *
+     * @return The next {@link DeadLetter}, or null at the end of the segment or after an error reading it.
+     */
+    public DeadLetter readLetter() {
+        while (!failed) {
+            String line;
+            try {
+                line = reader.readLine();
+            } catch (IOException e) {
+                LOGGER.error("There was an error reading the dead letter segment {} after line {}: {}", segment,
+                        lineNumber, e);
+                failed = true;
+                return null;
+            }
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+            DeadLetter letter = parse(line);
+            if (letter != null) {
+                return letter;
+            }
+        }
+        return null;
+    }
+
+    private DeadLetter parse(String line) {
+        try {
+            JsonNode node = MAPPER.readTree(line);
+            JsonNode source = node.get(SOURCE_FIELD);
+            if (source == null || !source.isObject()) {
+                throw new IOException("it has no source");
+            }
+            return new DeadLetter(node.path(INDEX_FIELD).asText(null), node.path(ID_FIELD).asText(null),
+                    node.path(FAILURE_TYPE_FIELD).asText(null), node.path(REASON_FIELD).asText(null),
+                    node.path(STATUS_FIELD).asInt(), node.path(TIMESTAMP_FIELD).asLong(),
+                    MAPPER.writeValueAsBytes(source));
+        } catch (IOException e) {
+            // The last line of a truncated segment is usually incomplete
+            skippedLines++;
+            LOGGER.warn("The line {} of the dead letter segment {} is not a valid letter: {}", lineNumber, segment,
+                    e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Get the number of lines skipped because they were not valid letters.
+     *
+     * @return The number of lines skipped so far.
+     */
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Check if the segment ended before its compressed data, because it was not closed.
+     *
+     * @return True if the end of the segment could not be read else false.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Check if the reading stopped because of an error, other than the end of a segment that was not closed.
+     *
+     * @return True if the letters after the error could not be read else false.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public Path getSegment() {
+        return segment;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Ends the decompressed bytes where the compressed data of the segment ends, instead of failing, so the lines
+     * before are not lost: the decoder reads ahead of the line being returned.
+     */
+    private final class TruncationInputStream extends FilterInputStream {
+
+        TruncationInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & BYTE_MASK;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (truncated) {
+                return -1;
+            }
+            try {
+                return in.read(bytes, offset, length);
+            } catch (EOFException e) {
+                truncated = true;
+                LOGGER.warn("The dead letter segment {} was not closed, it ends after line {}", segment, lineNumber);
+                return -1;
+            }
+        }
+
+        @Override
+        public int available() throws IOException {
+            return truncated ? 0 : in.available();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package os.exercise.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The IngestManifest class remembers the input files indexed by the previous runs: the size, the modification time
+ * and the {@link ContentHash} of each file, and the {@link RecordHashes} of its records. An incremental run uses it to
+ * skip the files that did not change and, in the files that changed, to send only the records that are new or
+ * different, so its cost is proportional to the changes and not to the whole corpus.
+ * The manifest is kept in a binary file that is replaced atomically by {@link #save()}: the records of each file, as
+ * pairs of longs, then the states of the files with the position of their records, so only the states are loaded. The
+ * records of a file are read when it is processed with {@link #getRecordHashes(Path)}, and the records of the files
+ * put since the last save wait in a temporary file next to the manifest, so the heap only holds the files being read.
+ */
+public class IngestManifest implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(IngestManifest.class);
+    private static final int FORMAT_VERSION = 2;
+    private static final int RECORD_BYTES = 2 * Long.BYTES;
+    private static final int COPY_BUFFER_RECORDS = 64 * 1024;
+
+    private final Path manifestPath;
+    private final Map<Path, Entry> files = new HashMap<>();
+    // The records of the files put since the last save
+    private Path pendingPath;
+    private FileChannel pendingChannel;
+
+    /**
+     * Constructor of the IngestManifest. The states of the files recorded in the manifest file are loaded if it
+     * exists.
+     *
+     * @param manifestPath The location of the manifest file.
+     * @throws IOException when the manifest file exists but can not be read.
+     */
+    public IngestManifest(Path manifestPath) throws IOException {
+        this.manifestPath = manifestPath;
+        if (Files.exists(manifestPath)) {
+            load();
+        }
+    }
+
+    /**
+     * Get the state of a file recorded by the previous runs.
+     *
+     * @param file The location of an input file.
+     * @return The {@link FileState} of the file, or null if it was never indexed.
+     */
+    public synchronized FileState get(Path file) {
+        Entry entry = files.get(key(file));
+        return entry == null ? null : entry.state;
+    }
+
+    /**
+     * Read the hashes of the records of a file recorded by the previous runs.
+     *
+     * @param file The location of an input file.
+     * @return The {@link RecordHashes} of the file, empty if it was never indexed.
+     * @throws IOException when the records can not be read.
+     */
+    public synchronized RecordHashes getRecordHashes(Path file) throws IOException {
+        Entry entry = files.get(key(file));
+        if (entry == null || entry.records == 0) {
+            return RecordHashes.EMPTY;
+        }
+        if (entry.pending) {
+            return readRecords(pendingChannel, entry.recordsOffset, entry.records);
+        }
+        try (FileChannel channel = FileChannel.open(manifestPath, StandardOpenOption.READ)) {
+            return readRecords(channel, entry.recordsOffset, entry.records);
+        }
+    }
+
+    /**
+     * Record the state of a file, without records.
+     *
+     * @param file The location of an input file.
+     * @param state The {@link FileState} of the file when it was read.
+     * @throws IOException when the state can not be recorded.
+     */
+    public void put(Path file, FileState state) throws IOException {
+        put(file, state, RecordHashes.EMPTY);
+    }
+
+    /**
+     * Record the state of a file whose records have all been indexed. The hashes of the records are written into the
+     * temporary file of the manifest until it is saved.
+     *
+     * @param file The location of an input file.
+     * @param state The {@link FileState} of the file when it was read.
+     * @param hashes The {@link RecordHashes} of the records of the file.
+     * @throws IOException when the hashes can not be written.
+     */
+    public synchronized void put(Path file, FileState state, RecordHashes hashes) throws IOException {
+        long offset = 0;
+        if (hashes.size() > 0) {
+            if (pendingChannel == null) {
+                Path parent = manifestPath.toAbsolutePath().getParent();
+                pendingPath = Files.createTempFile(parent, manifestPath.getFileName().toString(), ".records");
+                pendingChannel = FileChannel.open(pendingPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            offset = pendingChannel.size();
+            writeRecords(pendingChannel, offset, hashes);
+        }
+        files.put(key(file), new Entry(state, true, offset, hashes.size()));
+    }
+
+    /**
+     * Check if a file has the same content as when it was last indexed. The size and the modification time are
+     * compared first; the content is only hashed when the size is the same but the file was modified, e.g. when it
+     * was copied again without changes.
+     *
+     * @param file The location of an input file.
+     * @return True if the content of the file did not change else false.
+     * @throws IOException when the file can not be read.
+     */
+    public boolean isUnchanged(Path file) throws IOException {
+        FileState previous = get(file);
+        if (previous == null) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (attributes.size() != previous.size) {
+            return false;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        if (lastModified == previous.lastModified) {
+            return true;
+        }
+        if (ContentHash.of(file) != previous.contentHash) {
+            return false;
+        }
+        synchronized (this) {
+            Entry entry = files.get(key(file));
+            files.put(key(file), new Entry(new FileState(previous.size, lastModified, previous.contentHash),
+                    entry.pending, entry.recordsOffset, entry.records));
+        }
+        return true;
+    }
+
+    /**
+     * Write the manifest to a temporary file and move it over the manifest file, so a crash never leaves it
+     * half-written. The records are copied from the previous manifest file and from the temporary file of the files
+     * put since, which is then deleted.
+     *
+     * @throws IOException when the manifest can not be written.
+     */
+    public synchronized void save() throws IOException {
+        Path parent = manifestPath.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, manifestPath.getFileName().toString(), ".tmp");
+        Map<Path, Entry> saved = new HashMap<>();
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.WRITE);
+             FileChannel previous = Files.exists(manifestPath)
+                     ? FileChannel.open(manifestPath, StandardOpenOption.READ) : null) {
+            ByteBuffer version = ByteBuffer.allocate(Integer.BYTES).putInt(FORMAT_VERSION);
+            version.flip();
+            writeFully(output, version, 0);
+            long position = Integer.BYTES;
+            for (Map.Entry<Path, Entry> file : files.entrySet()) {
+                Entry entry = file.getValue();
+                long bytes = (long) entry.records * RECORD_BYTES;
+                copy(entry.pending ? pendingChannel : previous, entry.recordsOffset, bytes, output, position);
+                saved.put(file.getKey(), new Entry(entry.state, false, position, entry.records));
+                position += bytes;
+            }
+            writeFully(output, ByteBuffer.wrap(getStates(saved, position)), position);
+            output.force(false);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        files.putAll(saved);
+        deletePending();
+    }
+
+    /**
+     * Delete the temporary file of the records put since the last save, which are lost if the manifest was not saved.
+     *
+     * @throws IOException when the temporary file can not be deleted.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        deletePending();
+    }
+
+    private void deletePending() throws IOException {
+        if (pendingChannel != null) {
+            pendingChannel.close();
+            pendingChannel = null;
+            Files.deleteIfExists(pendingPath);
+        }
+    }
+
+    /**
+     * Write the states of the files, followed by the position where they start, so they can be found from the end of
+     * the manifest file.
+     */
+    private static byte[] getStates(Map<Path, Entry> entries, long start) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(entries.size());
+            for (Map.Entry<Path, Entry> file : entries.entrySet()) {
+                Entry entry = file.getValue();
+                output.writeUTF(file.getKey().toString());
+                output.writeLong(entry.state.size);
+                output.writeLong(entry.state.lastModified);
+                output.writeLong(entry.state.contentHash);
+                output.writeLong(entry.recordsOffset);
+                output.writeInt(entry.records);
+            }
+            output.writeLong(start);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Load the states of the files. The last long of the manifest file is the position of the states, after the
+     * records.
+     */
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(manifestPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer version = ByteBuffer.allocate(Integer.BYTES);
+            readFully(channel, version, 0);
+            if (version.getInt(0) != FORMAT_VERSION) {
+                LOGGER.warn("Ignoring the manifest {}, its format version {} is not supported", manifestPath,
+                        version.getInt(0));
+                return;
+            }
+            if (size < Integer.BYTES + Long.BYTES) {
+                throw new IOException("The manifest " + manifestPath + " is truncated");
+            }
+            ByteBuffer statesStart = ByteBuffer.allocate(Long.BYTES);
+            readFully(channel, statesStart, size - Long.BYTES);
+            long start = statesStart.getLong(0);
+            if (start < Integer.BYTES || start > size - Long.BYTES) {
+                throw new IOException("The manifest " + manifestPath + " is corrupted");
+            }
+            ByteBuffer states = ByteBuffer.allocate((int) (size - Long.BYTES - start));
+            readFully(channel, states, start);
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(states.array()));
+            int nFiles = input.readInt();
+            for (int i = 0; i < nFiles; i++) {
+                Path file = Paths.get(input.readUTF());
+                FileState state = new FileState(input.readLong(), input.readLong(), input.readLong());
+                long recordsOffset = input.readLong();
+                int records = input.readInt();
+                files.put(file, new Entry(state, false, recordsOffset, records));
+            }
+        }
+    }
+
+    private static RecordHashes readRecords(FileChannel channel, long offset, int records) throws IOException {
+        long[] idHashes = new long[records];
+        long[] hashes = new long[records];
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(records, COPY_BUFFER_RECORDS) * RECORD_BYTES);
+        long position = offset;
+        int read = 0;
+        while (read < records) {
+            buffer.clear().limit(Math.min(records - read, COPY_BUFFER_RECORDS) * RECORD_BYTES);
+            readFully(channel, buffer, position);
+            position += buffer.limit();
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                idHashes[read] = buffer.getLong();
+                hashes[read++] = buffer.getLong();
+            }
+        }
+        return new RecordHashes(idHashes, hashes);
+    }
+
+    private static void writeRecords(FileChannel channel, long offset, RecordHashes hashes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(hashes.size(), COPY_BUFFER_RECORDS) * RECORD_BYTES);
+        long position = offset;
+        for (int i = 0; i < hashes.size(); i++) {
+            buffer.putLong(hashes.getIdHash(i)).putLong(hashes.getHash(i));
+            if (!buffer.hasRemaining() || i == hashes.size() - 1) {
+                buffer.flip();
+                position += writeFully(channel, buffer, position);
+                buffer.clear();
+            }
+        }
+    }
+
+    private static void copy(FileChannel source, long offset, long bytes, FileChannel target, long position)
+            throws IOException {
+        long copied = 0;
+        while (copied < bytes) {
+            long count = source.transferTo(offset + copied, bytes - copied, target.position(position + copied));
+            if (count <= 0) {
+                throw new EOFException("The records of the manifest end before " + (offset + bytes));
+            }
+            copied += count;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, offset);
+            if (count < 0) {
+                throw new EOFException("The manifest ends before " + (offset + buffer.remaining()));
+            }
+            offset += count;
+        }
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static Path key(Path file) {
+        return file.toAbsolutePath().normalize();
+    }
+
+    /**
+     * The state of a file and the position of its records, in the manifest file or in the temporary one.
+     */
+    private static final class Entry {
+        private final FileState state;
+        private final boolean pending;
+        private final long recordsOffset;
+        private final int records;
+
+        Entry(FileState state, boolean pending, long recordsOffset, int records) {
+            this.state = state;
+            this.pending = pending;
+            this.recordsOffset = recordsOffset;
+            this.records = records;
+        }
+    }
+
+    /**
+     * The state of an input file when it was indexed.
+     */
+    public static final class FileState {
+        private final long size;
+        private final long lastModified;
+        private final long contentHash;
+
+        /**
+         * Constructor of the FileState.
+         *
+         * @param size The size of the file in bytes.
+         * @param lastModified The modification time of the file in milliseconds.
+         * @param contentHash The {@link ContentHash} of the file.
+         */
+        public FileState(long size, long lastModified, long contentHash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+        }
+
+        /**
+         * Read the size, the modification time and the hash of a file.
+         *
+         * @param file The location of the file.
+         * @return The current {@link FileState} of the file.
+         * @throws IOException when the file can not be read.
+         */
+        public static FileState of(Path file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis(), ContentHash.of(file));
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public long getContentHash() {
+            return contentHash;
+        }
+    }
+}
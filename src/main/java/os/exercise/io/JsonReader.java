@@ -1,17 +1,29 @@
 package os.exercise.io;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.MappingIterator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
 
 /**
  * The JSONReader class offers some utilities to load articles given a json file.
@@ -19,24 +31,30 @@ import os.exercise.models.Article;
 public class JsonReader {
 
     private static final Logger LOGGER = LogManager.getLogger(JsonReader.class);
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Compressed files are read and decompressed in big blocks, on their own thread unless
+    // -Dingest.decompress.thread=false
+    private static final int COMPRESSED_BUFFER_SIZE = 1 << 20;
+    private static final int READ_AHEAD_BLOCKS = 4;
+    private static final boolean DECOMPRESSION_THREAD =
+            Boolean.parseBoolean(System.getProperty("ingest.decompress.thread", "true"));
 
     private JsonReader() {
     }
 
     /**
      * Given a json with articles return a list of those articles.
+     * The articles are parsed straight from the bytes of the file with the shared reader of {@link ArticleJson}.
      *
      * @param path The location of a json with articles.
      * @return A list of articles.
      */
     public static List<Article> readArticlesFile(Path path) {
-        ObjectMapper mapper = new ObjectMapper();
         List<Article> articles = new ArrayList<>();
-        String line;
-        try (BufferedReader reader = Files.newBufferedReader(path)) {
-            while ((line = reader.readLine()) != null) {
-                Article article = mapper.readValue(line, Article.class);
-                articles.add(article);
+        try (InputStream inputStream = new BufferedInputStream(openAt(path, 0), BUFFER_SIZE);
+             MappingIterator<Article> iterator = ArticleJson.getArticleReader().readValues(inputStream)) {
+            while (iterator.hasNextValue()) {
+                articles.add(iterator.nextValue());
             }
         } catch (IOException e) {
             LOGGER.error("There was an error reading the file {}: {}", path, e);
@@ -71,4 +89,196 @@ public class JsonReader {
     public static Integer getFileNumber(Path path) {
         return readArticlesFile(path).size();
     }
+
+    /**
+     * Given a json with articles and a batch size, open a reader that parses the file lazily in batches.
+     * Unlike {@link #readArticlesFileIntoPartition(Path, Integer)}, the file is read only once and only the
+     * current batch is kept in memory.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum size of the batches.
+     * @return An {@link ArticleBatchReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static ArticleBatchReader openArticlesFile(Path path, Integer batchSize) throws IOException {
+        return new ArticleBatchReader(path, batchSize);
+    }
+
+    /**
+     * Given a json with articles and the limits of a batch, open a reader that parses the file lazily in batches.
+     * A batch is closed when it reaches {@code batchSize} articles or when the lines of its articles add up to
+     * {@code maxBatchBytes} bytes.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum size of the batches.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @return An {@link ArticleBatchReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static ArticleBatchReader openArticlesFile(Path path, Integer batchSize, long maxBatchBytes)
+            throws IOException {
+        return new ArticleBatchReader(path, batchSize, maxBatchBytes);
+    }
+
+    /**
+     * Given a json with articles and the limits of a batch, open a reader that parses the file lazily in batches,
+     * starting at an offset of the file, e.g. the one recorded by a {@link CheckpointJournal}.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum size of the batches.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @param startOffset The offset of the file where the reading starts.
+     * @return An {@link ArticleBatchReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static ArticleBatchReader openArticlesFile(Path path, Integer batchSize, long maxBatchBytes,
+                                                      long startOffset) throws IOException {
+        return new ArticleBatchReader(path, batchSize, maxBatchBytes, startOffset);
+    }
+
+    /**
+     * Given a NDJSON file with articles already in the format of the index and the limits of a batch, open a reader
+     * that returns the original json of each article, without deserializing it.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param batchSize The maximum size of the batches.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @param startOffset The offset of the file where the reading starts, 0 to read the whole file.
+     * @return A {@link RawArticleBatchReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static RawArticleBatchReader openRawArticlesFile(Path path, Integer batchSize, long maxBatchBytes,
+                                                            long startOffset) throws IOException {
+        return new RawArticleBatchReader(path, batchSize, maxBatchBytes, startOffset);
+    }
+
+    /**
+     * Given a big NDJSON file with articles, open a reader that memory-maps it and parses chunks of it concurrently.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param batchSize The maximum size of the batches.
+     * @param chunkBytes The approximate number of bytes of the file parsed by each task.
+     * @param startOffset The offset of the file where the reading starts, 0 to read the whole file.
+     * @param pool The {@link ForkJoinPool} that parses the chunks.
+     * @param ordered True to return the batches in the order of the file else false.
+     * @return A {@link MappedArticleFileReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static MappedArticleFileReader<Article> openArticlesFileInChunks(Path path, Integer batchSize,
+            long chunkBytes, long startOffset, ForkJoinPool pool, boolean ordered) throws IOException {
+        return new MappedArticleFileReader<>(path, MappedArticleFileReader.articleParser(), batchSize, chunkBytes,
+                startOffset, pool, ordered);
+    }
+
+    /**
+     * Given a big NDJSON file with articles already in the format of the index, open a reader that memory-maps it
+     * and extracts the original json of the articles of chunks of it concurrently.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param batchSize The maximum size of the batches.
+     * @param chunkBytes The approximate number of bytes of the file parsed by each task.
+     * @param startOffset The offset of the file where the reading starts, 0 to read the whole file.
+     * @param pool The {@link ForkJoinPool} that parses the chunks.
+     * @param ordered True to return the batches in the order of the file else false.
+     * @return A {@link MappedArticleFileReader} that must be closed after use.
+     * @throws IOException when the file can not be opened.
+     */
+    public static MappedArticleFileReader<RawArticle> openRawArticlesFileInChunks(Path path, Integer batchSize,
+            long chunkBytes, long startOffset, ForkJoinPool pool, boolean ordered) throws IOException {
+        return new MappedArticleFileReader<>(path, MappedArticleFileReader.rawArticleParser(), batchSize,
+                chunkBytes, startOffset, pool, ordered);
+    }
+
+    /**
+     * Get the size of the content of a file, as counted by the offsets of the readers.
+     *
+     * @param path The location of a file.
+     * @return The size of the file in bytes, or -1 if it is compressed, as the size of its content is unknown.
+     * @throws IOException when the size of the file can not be read.
+     */
+    public static long getContentSize(Path path) throws IOException {
+        return Compression.of(path).isCompressed() ? -1 : Files.size(path);
+    }
+
+    /**
+     * Open a file for reading at an offset. A compressed file is decompressed on the fly, and the offset is an offset
+     * of its decompressed content, so the content before it is decompressed and skipped.
+     *
+     * @param path The location of a file.
+     * @param offset The offset of the first byte to read.
+     * @return An unbuffered {@code InputStream} positioned at the offset.
+     * @throws IOException when the file can not be opened.
+     */
+    static InputStream openAt(Path path, long offset) throws IOException {
+        Compression compression = Compression.of(path);
+        if (compression.isCompressed()) {
+            return openCompressedAt(path, compression, offset);
+        }
+        SeekableByteChannel channel = Files.newByteChannel(path, StandardOpenOption.READ);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return Channels.newInputStream(channel);
+    }
+
+    private static InputStream openCompressedAt(Path path, Compression compression, long offset) throws IOException {
+        InputStream inputStream = compression.decompress(
+                new BufferedInputStream(Files.newInputStream(path), COMPRESSED_BUFFER_SIZE));
+        if (DECOMPRESSION_THREAD) {
+            inputStream = new ReadAheadInputStream(inputStream, COMPRESSED_BUFFER_SIZE, READ_AHEAD_BLOCKS,
+                    "ingest-decompress-" + path.getFileName());
+        }
+        try {
+            skipFully(inputStream, offset);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+        return inputStream;
+    }
+
+    private static void skipFully(InputStream inputStream, long nBytes) throws IOException {
+        long remaining = nBytes;
+        while (remaining > 0) {
+            long skipped = inputStream.skip(remaining);
+            if (skipped <= 0) {
+                if (inputStream.read() == -1) {
+                    throw new EOFException("The offset " + nBytes + " is after the end of the content");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Given a json with articles and a batch size return a lazy stream of batches.
+     * The stream must be closed after use to release the file.
+     *
+     * @param path The location of a json with articles.
+     * @param batchSize The maximum size of the batches.
+     * @return A stream of batches of size at most {@code batchSize}, empty if the file can not be opened.
+     */
+    public static Stream<List<Article>> streamArticlesFileInBatches(Path path, Integer batchSize) {
+        ArticleBatchReader reader;
+        try {
+            reader = openArticlesFile(path, batchSize);
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the file {}: {}", path, e);
+            return Stream.empty();
+        }
+        Spliterator<List<Article>> spliterator = Spliterators.spliteratorUnknownSize(reader,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 }
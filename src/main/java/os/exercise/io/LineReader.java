@@ -0,0 +1,133 @@
+package os.exercise.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a NDJSON file as bytes, without decoding them, and keeps track of the offset after the last line
+ * read. It is shared by the readers of the articles, which parse each line on its own so a malformed line can be
+ * skipped.
+ */
+final class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream inputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfFile;
+    private byte[] lineBuffer = new byte[BUFFER_SIZE];
+    private int lineLength;
+    private long bytesConsumed;
+
+    /**
+     * Constructor of the LineReader.
+     *
+     * @param inputStream The content of the file from {@code startOffset}.
+     * @param startOffset The offset of the file where the stream starts.
+     */
+    LineReader(InputStream inputStream, long startOffset) {
+        this.inputStream = inputStream;
+        this.bytesConsumed = startOffset;
+    }
+
+    /**
+     * Read the next line of the file, without its line terminator and surrounding whitespace. When the line is
+     * entirely in the buffer it is copied once, straight from the buffer.
+     *
+     * @return The bytes of the line, or null at the end of the file.
+     * @throws IOException when the file can not be read.
+     */
+    byte[] readLine() throws IOException {
+        lineLength = 0;
+        boolean hasData = false;
+        while (true) {
+            if (position == limit) {
+                if (endOfFile || !fill()) {
+                    return hasData ? trim(lineBuffer, 0, lineLength) : null;
+                }
+            }
+            hasData = true;
+            int newline = indexOfNewline();
+            int end = newline < 0 ? limit : newline;
+            if (newline >= 0 && lineLength == 0) {
+                byte[] line = trim(buffer, position, end);
+                consume(newline + 1);
+                return line;
+            }
+            appendToLine(end);
+            if (newline >= 0) {
+                consume(newline + 1);
+                return trim(lineBuffer, 0, lineLength);
+            }
+            consume(limit);
+        }
+    }
+
+    /**
+     * Get the offset of the file after the last line read, with its line terminator.
+     *
+     * @return The number of bytes of the file consumed.
+     */
+    long getBytesConsumed() {
+        return bytesConsumed;
+    }
+
+    private boolean fill() throws IOException {
+        int n = inputStream.read(buffer);
+        if (n <= 0) {
+            endOfFile = true;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    private int indexOfNewline() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void appendToLine(int end) {
+        int length = end - position;
+        if (lineLength + length > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + length));
+        }
+        System.arraycopy(buffer, position, lineBuffer, lineLength, length);
+        lineLength += length;
+    }
+
+    private void consume(int newPosition) {
+        bytesConsumed += newPosition - position;
+        position = newPosition;
+    }
+
+    private static byte[] trim(byte[] bytes, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && isWhitespace(bytes[start])) {
+            start++;
+        }
+        while (end > start && isWhitespace(bytes[end - 1])) {
+            end--;
+        }
+        return Arrays.copyOfRange(bytes, start, end);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
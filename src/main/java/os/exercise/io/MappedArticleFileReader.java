@@ -0,0 +1,444 @@
+package os.exercise.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+
+/**
+ * The MappedArticleFileReader class reads a single NDJSON file with articles using several threads.
+ * The file is memory-mapped with {@link FileChannel#map}, so its bytes stay out of the Java heap, and it is split into
+ * chunks of about {@code chunkBytes} bytes aligned to the line boundaries. The chunks are parsed concurrently on a
+ * {@link ForkJoinPool}, and each of them produces one or more batches of at most {@code batchSize} articles.
+ * The batches are returned in the order of the file, or as soon as they are parsed if the order does not matter.
+ * Only a bounded number of chunks are parsed ahead of the consumer, so memory stays bounded as well.
+ * The ranges of the batches of a chunk are contiguous and cover the whole chunk, so a chunk without valid articles
+ * still produces one empty batch.
+ *
+ * @param <T> The type of the articles read.
+ */
+public class MappedArticleFileReader<T> implements BatchReader<T> {
+
+    private static final Logger LOGGER = LogManager.getLogger(MappedArticleFileReader.class);
+    private static final int SCAN_WINDOW_BYTES = 1 << 16;
+    private static final int MAX_LOGGED_BYTES = 200;
+    private static final int CHUNKS_AHEAD_PER_THREAD = 2;
+
+    /**
+     * Parses the articles of a chunk of a file.
+     *
+     * @param <T> The type of the articles.
+     */
+    @FunctionalInterface
+    public interface ChunkParser<T> {
+
+        /**
+         * Parse the articles of a chunk.
+         *
+         * @param chunk The bytes of the chunk, starting and ending at a line boundary.
+         * @param path The location of the file, for logging.
+         * @param sink The {@link ArticleSink} that receives the articles of the chunk in the order of the file.
+         * @throws IOException when the chunk can not be parsed.
+         */
+        void parse(ByteBuffer chunk, Path path, ArticleSink<T> sink) throws IOException;
+    }
+
+    /**
+     * Receives the articles parsed from a chunk.
+     *
+     * @param <T> The type of the articles.
+     */
+    @FunctionalInterface
+    public interface ArticleSink<T> {
+
+        /**
+         * Receive an article.
+         *
+         * @param article The article.
+         * @param end The offset in the chunk after the last byte of the article.
+         */
+        void accept(T article, int end);
+
+        /**
+         * Count a line of the chunk that was skipped because it is not a valid article.
+         */
+        default void skip() {
+        }
+    }
+
+    private final Path path;
+    private final int batchSize;
+    private final long chunkBytes;
+    private final ForkJoinPool pool;
+    private final boolean ordered;
+    private final ChunkParser<T> parser;
+    private final FileChannel channel;
+    private final long totalBytes;
+    private final int maxChunksAhead;
+
+    private final Deque<CompletableFuture<Chunk<T>>> pendingChunks = new ArrayDeque<>();
+    private final BlockingQueue<CompletableFuture<Chunk<T>>> parsedChunks = new LinkedBlockingQueue<>();
+    private final Deque<Batch<T>> batches = new ArrayDeque<>();
+    private Batch<T> lastBatch;
+    private int chunksInFlight;
+    private long nextChunkStart;
+    private long bytesRead;
+    private long skippedLines;
+    private boolean failed;
+    private boolean closed;
+
+    /**
+     * Constructor of the MappedArticleFileReader.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param parser The {@link ChunkParser} of the chunks, e.g. {@link #articleParser()}.
+     * @param batchSize The maximum number of articles in each batch.
+     * @param chunkBytes The approximate number of bytes of the file parsed by each task.
+     * @param startOffset The offset of the file where the reading starts. It must be the start of a line.
+     * @param pool The {@link ForkJoinPool} that parses the chunks.
+     * @param ordered True to return the batches in the order of the file else false.
+     * @throws IOException when the file can not be opened.
+     */
+    public MappedArticleFileReader(Path path, ChunkParser<T> parser, int batchSize, long chunkBytes,
+                                   long startOffset, ForkJoinPool pool, boolean ordered) throws IOException {
+        if (batchSize <= 0 || chunkBytes <= 0 || chunkBytes > Integer.MAX_VALUE || startOffset < 0) {
+            throw new IllegalArgumentException("Invalid chunk limits: " + batchSize + " articles, "
+                    + chunkBytes + " bytes, from offset " + startOffset);
+        }
+        this.path = path;
+        this.parser = parser;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+        this.pool = pool;
+        this.ordered = ordered;
+        this.maxChunksAhead = Math.max(1, pool.getParallelism() * CHUNKS_AHEAD_PER_THREAD);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.totalBytes = channel.size();
+        this.nextChunkStart = startOffset;
+        this.bytesRead = startOffset;
+    }
+
+    /**
+     * Parses a single line of a chunk.
+     *
+     * @param <T> The type of the articles.
+     */
+    @FunctionalInterface
+    private interface LineParser<T> {
+        T parse(byte[] line) throws IOException;
+    }
+
+    /**
+     * Get a {@link ChunkParser} that deserializes the articles into {@link Article}s. The lines that are not valid
+     * articles are logged and skipped, so a malformed line never hides the articles after it.
+     *
+     * @return A {@link ChunkParser} of {@link Article}s.
+     */
+    public static ChunkParser<Article> articleParser() {
+        return lineParser(line -> ArticleJson.getArticleReader().readValue(line));
+    }
+
+    /**
+     * Get a {@link ChunkParser} that keeps the original json of the articles, as {@link RawArticleBatchReader} does.
+     * Only the lines are copied into the heap; the lines that are not valid articles are logged and skipped.
+     *
+     * @return A {@link ChunkParser} of {@link RawArticle}s.
+     */
+    public static ChunkParser<RawArticle> rawArticleParser() {
+        return lineParser(RawArticleParser::parse);
+    }
+
+    private static <T> ChunkParser<T> lineParser(LineParser<T> lineParser) {
+        return (chunk, path, sink) -> {
+            int lineStart = chunk.position();
+            int limit = chunk.limit();
+            for (int i = lineStart; i <= limit; i++) {
+                if (i == limit || chunk.get(i) == '\n') {
+                    byte[] line = copyTrimmed(chunk, lineStart, i);
+                    if (line.length > 0) {
+                        try {
+                            sink.accept(lineParser.parse(line), Math.min(i + 1, limit));
+                        } catch (IOException e) {
+                            sink.skip();
+                            LOGGER.error("A line of the file {} was skipped because {}: {}", path, e.getMessage(),
+                                    new String(line, 0, Math.min(line.length, MAX_LOGGED_BYTES),
+                                            StandardCharsets.UTF_8));
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+            }
+        };
+    }
+
+    @Override
+    public boolean hasNext() {
+        return advance();
+    }
+
+    /**
+     * Get the next batch of articles, waiting for its chunk to be parsed.
+     *
+     * @return A list of at most {@code batchSize} articles, only empty if its chunk has no valid articles.
+     */
+    @Override
+    public List<T> next() {
+        if (!advance()) {
+            throw new NoSuchElementException("There are no more articles in the file " + path);
+        }
+        lastBatch = batches.poll();
+        bytesRead += lastBatch.end - lastBatch.start;
+        return lastBatch.articles;
+    }
+
+    /**
+     * Wait for parsed chunks until there is a batch pending to be returned, submitting new chunks to keep the pool
+     * busy. An error mapping the file ends the reading.
+     *
+     * @return True if there is a batch pending to be returned else false.
+     */
+    private boolean advance() {
+        while (batches.isEmpty() && !failed && !closed) {
+            submitChunks();
+            if (chunksInFlight == 0) {
+                break;
+            }
+            try {
+                Chunk<T> chunk = takeChunk().join();
+                chunksInFlight--;
+                batches.addAll(chunk.batches);
+                skippedLines += chunk.skippedLines;
+            } catch (CompletionException e) {
+                LOGGER.error("There was an error reading the file {}: {}", path, e.getCause());
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("The reading of the file {} was interrupted", path);
+                failed = true;
+            }
+        }
+        return !batches.isEmpty();
+    }
+
+    private void submitChunks() {
+        try {
+            while (chunksInFlight < maxChunksAhead && nextChunkStart < totalBytes) {
+                long start = nextChunkStart;
+                long end = findLineEnd(Math.min(totalBytes, start + chunkBytes));
+                if (end - start > Integer.MAX_VALUE) {
+                    throw new IOException("A line of the file " + path + " is longer than " + Integer.MAX_VALUE
+                            + " bytes");
+                }
+                nextChunkStart = end;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                CompletableFuture<Chunk<T>> future = CompletableFuture.supplyAsync(() -> parse(buffer, start), pool);
+                chunksInFlight++;
+                if (ordered) {
+                    pendingChunks.add(future);
+                } else {
+                    future.whenComplete((chunk, e) -> parsedChunks.add(future));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error("There was an error mapping the file {}: {}", path, e);
+            failed = true;
+        }
+    }
+
+    private CompletableFuture<Chunk<T>> takeChunk() throws InterruptedException {
+        return ordered ? pendingChunks.poll() : parsedChunks.take();
+    }
+
+    private Chunk<T> parse(ByteBuffer buffer, long start) {
+        Chunk<T> chunk = new Chunk<>(start, start + buffer.remaining(), batchSize);
+        try {
+            parser.parse(buffer, path, chunk);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return chunk.finish();
+    }
+
+    /**
+     * Find the end of the line that contains a position of the file.
+     *
+     * @return The position after the next line terminator, or the size of the file.
+     */
+    private long findLineEnd(long position) throws IOException {
+        long windowStart = position;
+        while (windowStart < totalBytes) {
+            long windowSize = Math.min(SCAN_WINDOW_BYTES, totalBytes - windowStart);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                if (window.get(i) == '\n') {
+                    return windowStart + i + 1;
+                }
+            }
+            windowStart += windowSize;
+        }
+        return totalBytes;
+    }
+
+    private static byte[] copyTrimmed(ByteBuffer chunk, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && isWhitespace(chunk.get(start))) {
+            start++;
+        }
+        while (end > start && isWhitespace(chunk.get(end - 1))) {
+            end--;
+        }
+        byte[] line = new byte[end - start];
+        ByteBuffer view = chunk.duplicate();
+        view.position(start);
+        view.get(line);
+        return line;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Get the number of lines skipped because they were not valid articles, in the chunks returned so far.
+     *
+     * @return The number of skipped lines.
+     */
+    @Override
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public long getBatchStart() {
+        return lastBatch == null ? bytesRead : lastBatch.start;
+    }
+
+    @Override
+    public long getBatchEnd() {
+        return lastBatch == null ? bytesRead : lastBatch.end;
+    }
+
+    /**
+     * Get the start offset plus the number of bytes covered by the batches returned so far. When the batches are not
+     * ordered, these batches may not be contiguous.
+     *
+     * @return The number of bytes read.
+     */
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Close the file. The chunks being parsed are left to finish, and the mapped memory is released when the buffers
+     * are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * The articles of a batch and the range of the file they cover.
+     */
+    private static final class Batch<T> {
+        private final List<T> articles;
+        private final long start;
+        private long end;
+
+        Batch(List<T> articles, long start, long end) {
+            this.articles = articles;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The batches parsed from a chunk. It is filled by a single task of the pool.
+     */
+    private static final class Chunk<T> implements ArticleSink<T> {
+        private final long start;
+        private final long end;
+        private final int batchSize;
+        private final List<Batch<T>> batches = new ArrayList<>();
+        private List<T> current = new ArrayList<>();
+        private long currentStart;
+        private long currentEnd;
+        private long skippedLines;
+
+        Chunk(long start, long end, int batchSize) {
+            this.start = start;
+            this.end = end;
+            this.batchSize = batchSize;
+            this.currentStart = start;
+            this.currentEnd = start;
+        }
+
+        @Override
+        public void accept(T article, int articleEnd) {
+            current.add(article);
+            currentEnd = start + articleEnd;
+            if (current.size() >= batchSize) {
+                batches.add(new Batch<>(current, currentStart, currentEnd));
+                current = new ArrayList<>();
+                currentStart = currentEnd;
+            }
+        }
+
+        @Override
+        public void skip() {
+            skippedLines++;
+        }
+
+        /**
+         * Close the last batch and extend it to the end of the chunk, so the batches cover the whole chunk. The
+         * parsers only return once every line of the chunk was parsed or skipped, so the bytes after the last article
+         * are blank or invalid lines: a chunk that can not be parsed to its end fails instead.
+         */
+        Chunk<T> finish() {
+            if (!current.isEmpty() || batches.isEmpty()) {
+                batches.add(new Batch<>(current, currentStart, end));
+            } else {
+                batches.get(batches.size() - 1).end = end;
+            }
+            return this;
+        }
+    }
+}
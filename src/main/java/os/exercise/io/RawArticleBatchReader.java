@@ -0,0 +1,192 @@
+package os.exercise.io;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import os.exercise.models.RawArticle;
+
+/**
+ * The RawArticleBatchReader class reads a file with one json article per line (NDJSON) lazily, one batch at a time,
+ * without deserializing the articles. Each line is validated with a streaming scan of its tokens that only extracts
+ * the id, and its original bytes are kept as the source of the article.
+ * A malformed line does not end the reading: it is logged, skipped and counted, as in {@link ArticleBatchReader}.
+ */
+public class RawArticleBatchReader implements BatchReader<RawArticle> {
+
+    private static final Logger LOGGER = LogManager.getLogger(RawArticleBatchReader.class);
+    private static final int INITIAL_BATCH_CAPACITY = 1024;
+    private static final int MAX_LOGGED_BYTES = 200;
+
+    private final Path path;
+    private final int batchSize;
+    private final long maxBatchBytes;
+    private final long totalBytes;
+    private final LineReader lines;
+    private long lineNumber;
+
+    private RawArticle nextArticle;
+    private long nextArticleEnd;
+    private long bytesRead;
+    private long batchStart;
+    private long skippedLines;
+    private boolean failed;
+
+    /**
+     * Constructor of the RawArticleBatchReader.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param batchSize The maximum number of articles in each batch.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @throws IOException when the file can not be opened.
+     */
+    public RawArticleBatchReader(Path path, int batchSize, long maxBatchBytes) throws IOException {
+        this(path, batchSize, maxBatchBytes, 0);
+    }
+
+    /**
+     * Constructor of the RawArticleBatchReader that starts reading at an offset of the file, e.g. to resume an
+     * interrupted run. The offset must be the start of a line.
+     *
+     * @param path The location of a NDJSON file with articles.
+     * @param batchSize The maximum number of articles in each batch.
+     * @param maxBatchBytes The number of bytes of the file after which a batch is closed.
+     * @param startOffset The offset of the file where the reading starts.
+     * @throws IOException when the file can not be opened.
+     */
+    public RawArticleBatchReader(Path path, int batchSize, long maxBatchBytes, long startOffset) throws IOException {
+        if (batchSize <= 0 || maxBatchBytes <= 0 || startOffset < 0) {
+            throw new IllegalArgumentException("The batch limits must be positive: " + batchSize + " articles, "
+                    + maxBatchBytes + " bytes, from offset " + startOffset);
+        }
+        this.path = path;
+        this.batchSize = batchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.totalBytes = JsonReader.getContentSize(path);
+        this.bytesRead = startOffset;
+        this.batchStart = startOffset;
+        this.lines = new LineReader(JsonReader.openAt(path, startOffset), startOffset);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return advance();
+    }
+
+    /**
+     * Read the next batch of articles.
+     *
+     * @return A non empty list of at most {@code batchSize} articles and about {@code maxBatchBytes} bytes.
+     */
+    @Override
+    public List<RawArticle> next() {
+        if (!advance()) {
+            throw new NoSuchElementException("There are no more articles in the file " + path);
+        }
+        List<RawArticle> batch = new ArrayList<>(Math.min(batchSize, INITIAL_BATCH_CAPACITY));
+        batchStart = bytesRead;
+        do {
+            batch.add(nextArticle);
+            bytesRead = nextArticleEnd;
+            nextArticle = null;
+        } while (batch.size() < batchSize && bytesRead - batchStart < maxBatchBytes && advance());
+        return batch;
+    }
+
+    /**
+     * Read lines until the next valid article, if it has not been read yet. An error reading the file ends the
+     * reading.
+     *
+     * @return True if there is an article pending to be returned else false.
+     */
+    private boolean advance() {
+        try {
+            while (nextArticle == null && !failed) {
+                byte[] line = lines.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNumber++;
+                if (line.length > 0) {
+                    nextArticle = parseLine(line);
+                }
+                nextArticleEnd = lines.getBytesConsumed();
+            }
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the file {}: {}", path, e);
+            failed = true;
+        }
+        return nextArticle != null;
+    }
+
+    /**
+     * Parse a line with {@link RawArticleParser}, skipping it if it is not valid.
+     *
+     * @return The article, or null if the line is not valid.
+     */
+    private RawArticle parseLine(byte[] line) {
+        try {
+            return RawArticleParser.parse(line);
+        } catch (IOException e) {
+            return skip(line, e.getMessage());
+        }
+    }
+
+    private RawArticle skip(byte[] line, String reason) {
+        skippedLines++;
+        LOGGER.error("The line {} of the file {} was skipped because {}: {}", lineNumber, path, reason,
+                new String(line, 0, Math.min(line.length, MAX_LOGGED_BYTES), StandardCharsets.UTF_8));
+        return null;
+    }
+
+    /**
+     * Get the number of lines skipped because they were not valid articles.
+     *
+     * @return The number of skipped lines.
+     */
+    @Override
+    public long getSkippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public long getBatchStart() {
+        return batchStart;
+    }
+
+    @Override
+    public long getBatchEnd() {
+        return bytesRead;
+    }
+
+    @Override
+    public boolean isFailed() {
+        return failed;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lines.close();
+    }
+}
@@ -0,0 +1,59 @@
+package os.exercise.io;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+import os.exercise.models.RawArticle;
+
+/**
+ * Validates the json of a single article with a streaming scan of its tokens, extracting only its id and its
+ * publication date, which routes it to its partition.
+ */
+final class RawArticleParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String ID_FIELD = "id";
+    private static final String PUB_DATE_FIELD = "pub_date";
+
+    private RawArticleParser() {
+    }
+
+    /**
+     * Check that a line is a single json object with a string id, without building any object but the id and the
+     * date.
+     *
+     * @param line The bytes of the line, without its line terminator. They are kept as the source of the article.
+     * @return The {@link RawArticle}.
+     * @throws IOException when the line is not a valid article, with the reason as message.
+     */
+    static RawArticle parse(byte[] line) throws IOException {
+        String id = null;
+        String pubDate = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("it is not a json object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (ID_FIELD.equals(field) && value == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else if (PUB_DATE_FIELD.equals(field) && value == JsonToken.VALUE_STRING) {
+                    pubDate = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IOException("there is more than one json value");
+            }
+        }
+        if (id == null) {
+            throw new IOException("it has no id");
+        }
+        return new RawArticle(id, pubDate, line);
+    }
+}
@@ -0,0 +1,173 @@
+package os.exercise.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An {@code InputStream} that reads another one ahead on its own thread, e.g. to decompress a file while the
+ * previous blocks are parsed. The source is read into a fixed number of blocks that go back and forth between the
+ * two threads, so nothing is allocated after the start and at most {@code nBlocks} blocks are read ahead.
+ * An error reading the source is thrown by the next read after the blocks read before it; an unchecked one is wrapped
+ * into an {@code IOException}.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final int BYTE_MASK = 0xFF;
+    // The block that marks the end of the source, or of what could be read of it
+    private static final Block END = new Block(0);
+
+    private final InputStream source;
+    private final BlockingQueue<Block> freeBlocks;
+    private final BlockingQueue<Block> filledBlocks;
+    private final Thread reader;
+    private volatile IOException failure;
+    private Block current;
+    private boolean endOfStream;
+
+    /**
+     * Constructor of the ReadAheadInputStream. The thread that reads the source starts at once.
+     *
+     * @param source The {@code InputStream} to read ahead. It is closed with this stream.
+     * @param blockBytes The size of each block.
+     * @param nBlocks The number of blocks, at least 2 so one is read while the other is consumed.
+     * @param threadName The name of the thread that reads the source.
+     */
+    public ReadAheadInputStream(InputStream source, int blockBytes, int nBlocks, String threadName) {
+        if (blockBytes <= 0 || nBlocks < 2) {
+            throw new IllegalArgumentException("Invalid read-ahead buffers: " + nBlocks + " blocks of " + blockBytes
+                    + " bytes");
+        }
+        this.source = source;
+        this.freeBlocks = new ArrayBlockingQueue<>(nBlocks);
+        // Room for every block and the end
+        this.filledBlocks = new ArrayBlockingQueue<>(nBlocks + 1);
+        for (int i = 0; i < nBlocks; i++) {
+            freeBlocks.add(new Block(blockBytes));
+        }
+        this.reader = new Thread(this::readAhead, threadName);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Fill the free blocks until the end of the source. The last block put is always the end one, whatever stops the
+     * thread, so the consumer never waits forever.
+     */
+    private void readAhead() {
+        try {
+            while (true) {
+                Block block = freeBlocks.take();
+                block.fill(source);
+                if (block.length == 0) {
+                    return;
+                }
+                filledBlocks.put(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException | Error e) {
+            failure = new IOException("There was an error reading ahead the source", e);
+        } finally {
+            filledBlocks.add(END);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextBlock()) {
+            return -1;
+        }
+        return current.data[current.position++] & BYTE_MASK;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int nBytes = Math.min(length, current.length - current.position);
+        System.arraycopy(current.data, current.position, bytes, offset, nBytes);
+        current.position += nBytes;
+        return nBytes;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - current.position;
+    }
+
+    /**
+     * Make sure the current block has bytes left, taking the next one if it is consumed.
+     *
+     * @return False at the end of the source.
+     */
+    private boolean nextBlock() throws IOException {
+        while (current == null || current.position == current.length) {
+            if (endOfStream) {
+                return false;
+            }
+            if (current != null) {
+                freeBlocks.add(current);
+            }
+            try {
+                current = filledBlocks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the next block");
+            }
+            if (current == END) {
+                endOfStream = true;
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * A buffer of the source.
+     */
+    private static final class Block {
+        private final byte[] data;
+        private int length;
+        private int position;
+
+        Block(int blockBytes) {
+            this.data = new byte[blockBytes];
+        }
+
+        /**
+         * Read the source until the block is full or the source ends.
+         */
+        void fill(InputStream source) throws IOException {
+            length = 0;
+            position = 0;
+            int read;
+            while (length < data.length && (read = source.read(data, length, data.length - length)) != -1) {
+                length += read;
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package os.exercise.io;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import os.exercise.util.LongLongHashMap;
+
+/**
+ * The {@link ContentHash} of each record of a file, by the hash of its id, as recorded by an {@link IngestManifest}.
+ * The pairs are kept sorted by id hash in two arrays of primitive longs, 16 bytes per record, and looked up by binary
+ * search. An id is only known by its 64-bit hash, like in the deduplication of the ids of a run.
+ * It is immutable; see {@link Builder} to collect the hashes of the records of a file.
+ */
+public final class RecordHashes {
+
+    public static final RecordHashes EMPTY = new RecordHashes(new long[0], new long[0]);
+
+    private final long[] idHashes;
+    private final long[] hashes;
+
+    RecordHashes(long[] idHashes, long[] hashes) {
+        this.idHashes = idHashes;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Hash the id of a record.
+     *
+     * @param id The id of a record.
+     * @return The 64-bit hash of the id.
+     */
+    public static long idHash(String id) {
+        return ContentHash.of(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Check if a record was recorded with the same hash.
+     *
+     * @param idHash The hash of the id of the record, see {@link #idHash(String)}.
+     * @param hash The {@link ContentHash} of the record.
+     * @return True if the record is known with this hash else false.
+     */
+    public boolean contains(long idHash, long hash) {
+        int index = Arrays.binarySearch(idHashes, idHash);
+        return index >= 0 && hashes[index] == hash;
+    }
+
+    public int size() {
+        return idHashes.length;
+    }
+
+    long getIdHash(int index) {
+        return idHashes[index];
+    }
+
+    long getHash(int index) {
+        return hashes[index];
+    }
+
+    /**
+     * Collects the hashes of the records of a file as it is read. A record read twice keeps its last hash.
+     * It is not thread-safe.
+     */
+    public static final class Builder {
+        private final LongLongHashMap hashes = new LongLongHashMap();
+
+        /**
+         * Add the hash of a record.
+         *
+         * @param idHash The hash of the id of the record, see {@link #idHash(String)}.
+         * @param hash The {@link ContentHash} of the record.
+         */
+        public void add(long idHash, long hash) {
+            hashes.put(idHash, hash);
+        }
+
+        /**
+         * Sort the hashes collected so far.
+         *
+         * @return The {@link RecordHashes} of the records added.
+         */
+        public RecordHashes build() {
+            long[] idHashes = hashes.sortedKeys();
+            long[] sortedHashes = new long[idHashes.length];
+            for (int i = 0; i < idHashes.length; i++) {
+                sortedHashes[i] = hashes.get(idHashes[i], 0);
+            }
+            return new RecordHashes(idHashes, sortedHashes);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package os.exercise.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.rest.RestStatus;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import os.exercise.opensearch.BulkBatch;
+import os.exercise.opensearch.BulkListener;
+import os.exercise.opensearch.RetryPolicy;
+
+/**
+ * The IngestionMetrics class counts what the ingestion does and records how long each step takes, so a run shows
+ * whether it is bound by the parsing, by the serialization, by the network or by the cluster.
+ * The counters are {@code LongAdder}s and the latencies are recorded in HdrHistogram {@code Recorder}s, which are
+ * wait-free and do not allocate, so the threads of the pipeline can record every batch.
+ * The latencies of the bulk requests, the {@code took} time of the cluster and the failures, by status and by type,
+ * are recorded as a {@link BulkListener} of the {@link os.exercise.opensearch.ArticlesIndexer}. The rates and
+ * percentiles are computed by {@link #sample()} over the interval since the previous call.
+ */
+public class IngestionMetrics implements BulkListener, IngestionMetricsMXBean {
+
+    private static final long MAX_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final long MAX_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final double P50 = 50;
+    private static final double P99 = 99;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024;
+    private static final RestStatus[] STATUSES = RestStatus.values();
+    private static final IntSupplier NO_DEPTH = () -> 0;
+    // The failures of the types seen after the first ones are counted together, so a cluster that names its failures
+    // after the documents can not grow the map without bound
+    private static final int MAX_FAILURE_TYPES = 32;
+    private static final String OTHER_FAILURE_TYPE = "other";
+
+    private final LongAdder documentsRead = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder documentsIndexed = new LongAdder();
+    private final LongAdder documentsFailed = new LongAdder();
+    private final LongAdder bulkRequests = new LongAdder();
+    private final LongAdder bulkRequestsFailed = new LongAdder();
+    private final AtomicLongArray itemFailures = new AtomicLongArray(STATUSES.length);
+    private final ConcurrentMap<String, LongAdder> itemFailuresByType = new ConcurrentHashMap<>();
+
+    private final Recorder parseNanos = new Recorder(1, MAX_NANOS, SIGNIFICANT_DIGITS);
+    private final Recorder serializeNanos = new Recorder(1, MAX_NANOS, SIGNIFICANT_DIGITS);
+    private final Recorder bulkNanos = new Recorder(1, MAX_NANOS, SIGNIFICANT_DIGITS);
+    private final Recorder tookMillis = new Recorder(1, MAX_MILLIS, SIGNIFICANT_DIGITS);
+
+    private volatile IntSupplier pathQueueDepth = NO_DEPTH;
+    private volatile IntSupplier articleQueueDepth = NO_DEPTH;
+    private volatile IntSupplier bulkQueueDepth = NO_DEPTH;
+    private volatile IntSupplier inFlightRequests = NO_DEPTH;
+
+    // The state of the last interval, written by sample() and read by the JMX getters
+    private Histogram parseInterval;
+    private Histogram serializeInterval;
+    private Histogram bulkInterval;
+    private Histogram tookInterval;
+    private long lastSampleNanos = System.nanoTime();
+    private long lastDocumentsRead;
+    private long lastBytesRead;
+    private volatile Interval interval = new Interval(0, 0, null, null, null, null);
+
+    /**
+     * Record the parsing of a batch of articles.
+     *
+     * @param nanos The time spent reading and parsing the batch.
+     * @param documents The number of articles in the batch.
+     * @param bytes The number of bytes of the file read for the batch.
+     */
+    public void recordParse(long nanos, int documents, long bytes) {
+        parseNanos.recordValue(clamp(nanos, MAX_NANOS));
+        documentsRead.add(documents);
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * Record the serialization of a batch of articles into bulk requests.
+     *
+     * @param nanos The time spent serializing the batch.
+     */
+    public void recordSerialize(long nanos) {
+        serializeNanos.recordValue(clamp(nanos, MAX_NANOS));
+    }
+
+    /**
+     * Set where the depths of the queues of the pipeline and the requests in flight are read from.
+     *
+     * @param pathQueue The number of files waiting to be parsed.
+     * @param articleQueue The number of batches of articles waiting to be serialized.
+     * @param bulkQueue The number of bulk requests waiting to be sent.
+     * @param inFlight The number of bulk requests waiting for a response.
+     */
+    public void setDepths(IntSupplier pathQueue, IntSupplier articleQueue, IntSupplier bulkQueue,
+                          IntSupplier inFlight) {
+        this.pathQueueDepth = pathQueue;
+        this.articleQueueDepth = articleQueue;
+        this.bulkQueueDepth = bulkQueue;
+        this.inFlightRequests = inFlight;
+    }
+
+    @Override
+    public void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response) {
+        bulkNanos.recordValue(clamp(latencyNanos, MAX_NANOS));
+        tookMillis.recordValue(clamp(response.getTook().millis(), MAX_MILLIS));
+        bulkRequests.increment();
+        int failed = 0;
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.isFailed()) {
+                    itemFailures.incrementAndGet(item.getFailure().getStatus().ordinal());
+                    countFailureType(item.getFailure().getCause());
+                    failed++;
+                }
+            }
+        }
+        documentsFailed.add(failed);
+        documentsIndexed.add(batch.size() - failed);
+    }
+
+    /**
+     * Count a failed item by the type of its cause, as {@link RetryPolicy#getFailureType(Throwable)} names it.
+     */
+    private void countFailureType(Throwable cause) {
+        String type = cause == null ? OTHER_FAILURE_TYPE : RetryPolicy.getFailureType(cause);
+        LongAdder count = itemFailuresByType.get(type);
+        if (count == null) {
+            // Two threads may both add a type at the bound, so the map may exceed it by the number of threads
+            String key = itemFailuresByType.size() < MAX_FAILURE_TYPES ? type : OTHER_FAILURE_TYPE;
+            count = itemFailuresByType.computeIfAbsent(key, k -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    @Override
+    public void afterBulk(BulkBatch batch, long latencyNanos, Exception failure) {
+        bulkNanos.recordValue(clamp(latencyNanos, MAX_NANOS));
+        bulkRequests.increment();
+        bulkRequestsFailed.increment();
+    }
+
+    /**
+     * Close the current interval: take the histograms recorded since the previous call and compute the rates.
+     *
+     * @return A compact line with the metrics of the interval, to be logged.
+     */
+    public synchronized String sample() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastSampleNanos) / NANOS_PER_SECOND;
+        long documents = documentsRead.sum();
+        long bytes = bytesRead.sum();
+        parseInterval = parseNanos.getIntervalHistogram(parseInterval);
+        serializeInterval = serializeNanos.getIntervalHistogram(serializeInterval);
+        bulkInterval = bulkNanos.getIntervalHistogram(bulkInterval);
+        tookInterval = tookMillis.getIntervalHistogram(tookInterval);
+        interval = new Interval((documents - lastDocumentsRead) / seconds, (bytes - lastBytesRead) / seconds,
+                parseInterval.copy(), serializeInterval.copy(), bulkInterval.copy(), tookInterval.copy());
+        lastSampleNanos = now;
+        lastDocumentsRead = documents;
+        lastBytesRead = bytes;
+        return toString();
+    }
+
+    @Override
+    public long getDocumentsRead() {
+        return documentsRead.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getDocumentsIndexed() {
+        return documentsIndexed.sum();
+    }
+
+    @Override
+    public long getDocumentsFailed() {
+        return documentsFailed.sum();
+    }
+
+    @Override
+    public long getBulkRequests() {
+        return bulkRequests.sum();
+    }
+
+    @Override
+    public long getBulkRequestsFailed() {
+        return bulkRequestsFailed.sum();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        return interval.documentsPerSecond;
+    }
+
+    @Override
+    public double getBytesPerSecond() {
+        return interval.bytesPerSecond;
+    }
+
+    @Override
+    public double getParseMillisP50() {
+        return nanosToMillis(interval.parse, P50);
+    }
+
+    @Override
+    public double getParseMillisP99() {
+        return nanosToMillis(interval.parse, P99);
+    }
+
+    @Override
+    public double getSerializeMillisP50() {
+        return nanosToMillis(interval.serialize, P50);
+    }
+
+    @Override
+    public double getSerializeMillisP99() {
+        return nanosToMillis(interval.serialize, P99);
+    }
+
+    @Override
+    public double getBulkMillisP50() {
+        return nanosToMillis(interval.bulk, P50);
+    }
+
+    @Override
+    public double getBulkMillisP99() {
+        return nanosToMillis(interval.bulk, P99);
+    }
+
+    @Override
+    public double getBulkMillisMax() {
+        Histogram bulk = interval.bulk;
+        return bulk == null ? 0 : bulk.getMaxValue() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getTookMillisP50() {
+        Histogram took = interval.took;
+        return took == null ? 0 : took.getValueAtPercentile(P50);
+    }
+
+    @Override
+    public double getTookMillisP99() {
+        Histogram took = interval.took;
+        return took == null ? 0 : took.getValueAtPercentile(P99);
+    }
+
+    @Override
+    public int getPathQueueDepth() {
+        return pathQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getArticleQueueDepth() {
+        return articleQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getBulkQueueDepth() {
+        return bulkQueueDepth.getAsInt();
+    }
+
+    @Override
+    public int getInFlightRequests() {
+        return inFlightRequests.getAsInt();
+    }
+
+    @Override
+    public Map<String, Long> getItemFailuresByStatus() {
+        Map<String, Long> failures = new TreeMap<>();
+        for (int i = 0; i < STATUSES.length; i++) {
+            long count = itemFailures.get(i);
+            if (count > 0) {
+                failures.put(STATUSES[i].name(), count);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public Map<String, Long> getItemFailuresByType() {
+        Map<String, Long> failures = new TreeMap<>();
+        itemFailuresByType.forEach((type, count) -> failures.put(type, count.sum()));
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.0f docs/s, %.1f MB/s, parse %.1f/%.1f ms, serialize %.1f/%.1f ms, "
+                        + "bulk %.0f/%.0f ms, took %.0f/%.0f ms, queues %d/%d/%d, in flight %d, "
+                        + "indexed %d, failed %d %s %s, failed bulks %d",
+                getDocumentsPerSecond(), getBytesPerSecond() / BYTES_PER_MB, getParseMillisP50(),
+                getParseMillisP99(), getSerializeMillisP50(), getSerializeMillisP99(), getBulkMillisP50(),
+                getBulkMillisP99(), getTookMillisP50(), getTookMillisP99(), getPathQueueDepth(),
+                getArticleQueueDepth(), getBulkQueueDepth(), getInFlightRequests(), getDocumentsIndexed(),
+                getDocumentsFailed(), getItemFailuresByStatus(), getItemFailuresByType(), getBulkRequestsFailed());
+    }
+
+    private static long clamp(long value, long max) {
+        return Math.max(1, Math.min(value, max));
+    }
+
+    private static double nanosToMillis(Histogram histogram, double percentile) {
+        return histogram == null ? 0 : histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * The rates and the latencies of the last interval sampled.
+     */
+    private static final class Interval {
+        private final double documentsPerSecond;
+        private final double bytesPerSecond;
+        private final Histogram parse;
+        private final Histogram serialize;
+        private final Histogram bulk;
+        private final Histogram took;
+
+        Interval(double documentsPerSecond, double bytesPerSecond, Histogram parse, Histogram serialize,
+                 Histogram bulk, Histogram took) {
+            this.documentsPerSecond = documentsPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+            this.parse = parse;
+            this.serialize = serialize;
+            this.bulk = bulk;
+            this.took = took;
+        }
+    }
+}
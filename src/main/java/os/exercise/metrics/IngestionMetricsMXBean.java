@@ -0,0 +1,67 @@
+package os.exercise.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of the ingestion exported over JMX. The totals are updated continuously; the rates and the percentiles
+ * are those of the last interval sampled by the {@link MetricsReporter}.
+ */
+public interface IngestionMetricsMXBean {
+
+    long getDocumentsRead();
+
+    long getBytesRead();
+
+    long getDocumentsIndexed();
+
+    long getDocumentsFailed();
+
+    long getBulkRequests();
+
+    long getBulkRequestsFailed();
+
+    double getDocumentsPerSecond();
+
+    double getBytesPerSecond();
+
+    double getParseMillisP50();
+
+    double getParseMillisP99();
+
+    double getSerializeMillisP50();
+
+    double getSerializeMillisP99();
+
+    double getBulkMillisP50();
+
+    double getBulkMillisP99();
+
+    double getBulkMillisMax();
+
+    double getTookMillisP50();
+
+    double getTookMillisP99();
+
+    int getPathQueueDepth();
+
+    int getArticleQueueDepth();
+
+    int getBulkQueueDepth();
+
+    int getInFlightRequests();
+
+    /**
+     * Get the number of failed articles by the HTTP status of their failure, e.g. TOO_MANY_REQUESTS.
+     *
+     * @return The number of failures by status, only for the statuses that occurred.
+     */
+    Map<String, Long> getItemFailuresByStatus();
+
+    /**
+     * Get the number of failed articles by the type of their failure, as OpenSearch names it, e.g.
+     * mapper_parsing_exception. Beyond the first types seen, the failures are counted as "other".
+     *
+     * @return The number of failures by type, only for the types that occurred.
+     */
+    Map<String, Long> getItemFailuresByType();
+}
@@ -0,0 +1,84 @@
+package os.exercise.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The MetricsReporter class exports an {@link IngestionMetrics} over JMX, as {@value #OBJECT_NAME}, and logs a compact
+ * line with its metrics at a fixed interval. Each line closes an interval of the metrics, so the rates and
+ * percentiles it shows are those of the last interval. A last line is logged when the reporter is closed.
+ */
+public class MetricsReporter implements Closeable {
+
+    public static final String OBJECT_NAME = "os.exercise:type=IngestionMetrics";
+
+    private static final Logger LOGGER = LogManager.getLogger(MetricsReporter.class);
+
+    private final IngestionMetrics metrics;
+    private final ScheduledExecutorService scheduler;
+    private ObjectName objectName;
+
+    /**
+     * Constructor of the MetricsReporter. The metrics are registered in the platform MBean server, and the first line
+     * is logged after one interval.
+     *
+     * @param metrics The {@link IngestionMetrics} to report.
+     * @param intervalMillis The time between two lines of the log.
+     */
+    public MetricsReporter(IngestionMetrics metrics, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("The report interval must be positive: " + intervalMillis);
+        }
+        this.metrics = metrics;
+        register();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingest-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void report() {
+        LOGGER.info("Ingestion: {}", metrics.sample());
+    }
+
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+            objectName = name;
+        } catch (JMException e) {
+            LOGGER.warn("The ingestion metrics could not be exported over JMX: {}", e.toString());
+        }
+    }
+
+    /**
+     * Stop the periodic reports, log the last one and remove the metrics from the MBean server.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.warn("The ingestion metrics could not be removed from JMX: {}", e.toString());
+            }
+        }
+    }
+}
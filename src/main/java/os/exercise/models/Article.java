@@ -1,22 +1,42 @@
 package os.exercise.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * Article Domain Entity.
+ * It is kept compact, as the batches hold many of them: the language, filter sources and publication types lists are
+ * immutable and shared between the articles through {@link InternedLists}, and a {@code yyyy-MM-dd} publication date
+ * is held as its epoch day.
  */
 
 @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonPropertyOrder({"id", "article_title", "abstract_text", "language", "pub_date", "filter_sources", "keywords",
+        "pub_types"})
 public class Article {
+    /**
+     * The epoch day of the articles without a publication date, or whose date is not {@code yyyy-MM-dd}.
+     */
+    public static final int NO_EPOCH_DAY = Integer.MIN_VALUE;
+    private static final int DATE_LENGTH = 10;
+    private static final int MONTH_START = 5;
+    private static final int DAY_START = 8;
+    private static final int DECIMAL_BASE = 10;
+
     private String id;
     private String articleTitle;
     private String abstractText;
     private List<String> language;
-    private String pubDate;
+    private int pubDateEpochDay = NO_EPOCH_DAY;
+    // The publication date as it was read when it is not yyyy-MM-dd, e.g. a partial date
+    private String pubDateText;
     private List<String> filterSources;
     private List<String> keywords;
     private List<String> pubTypes;
@@ -50,15 +70,73 @@ public class Article {
     }
 
     public void setLanguage(List<String> language) {
-        this.language = language;
+        this.language = InternedLists.intern(language);
     }
 
+    /**
+     * Get the publication date.
+     *
+     * @return The date as it was set, or null if there is none.
+     */
     public String getPubDate() {
-        return pubDate;
+        if (pubDateText != null || pubDateEpochDay == NO_EPOCH_DAY) {
+            return pubDateText;
+        }
+        return LocalDate.ofEpochDay(pubDateEpochDay).toString();
     }
 
+    /**
+     * Set the publication date. A {@code yyyy-MM-dd} date is parsed once into its epoch day, and any other value is
+     * kept as it is.
+     *
+     * @param pubDate The publication date, or null if there is none.
+     */
     public void setPubDate(String pubDate) {
-        this.pubDate = pubDate;
+        pubDateEpochDay = parseEpochDay(pubDate);
+        pubDateText = pubDateEpochDay == NO_EPOCH_DAY ? pubDate : null;
+    }
+
+    /**
+     * Get the publication date as a number of days since 1970-01-01.
+     *
+     * @return The epoch day, or {@link #NO_EPOCH_DAY} if the article has no {@code yyyy-MM-dd} date.
+     */
+    @JsonIgnore
+    public int getPubDateEpochDay() {
+        return pubDateEpochDay;
+    }
+
+    /**
+     * Parse a {@code yyyy-MM-dd} date without the exceptions of a {@code DateTimeFormatter} on the other formats.
+     */
+    private static int parseEpochDay(String date) {
+        if (date == null || date.length() != DATE_LENGTH || date.charAt(MONTH_START - 1) != '-'
+                || date.charAt(DAY_START - 1) != '-') {
+            return NO_EPOCH_DAY;
+        }
+        int year = parseDigits(date, 0, MONTH_START - 1);
+        int month = parseDigits(date, MONTH_START, DAY_START - 1);
+        int day = parseDigits(date, DAY_START, DATE_LENGTH);
+        if (year < 0 || month < 0 || day < 0) {
+            return NO_EPOCH_DAY;
+        }
+        try {
+            return Math.toIntExact(LocalDate.of(year, month, day).toEpochDay());
+        } catch (DateTimeException e) {
+            return NO_EPOCH_DAY;
+        }
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * DECIMAL_BASE + c - '0';
+        }
+        return value;
     }
 
     public List<String> getFilterSources() {
@@ -66,7 +144,7 @@ public class Article {
     }
 
     public void setFilterSources(List<String> filterResources) {
-        this.filterSources = filterResources;
+        this.filterSources = InternedLists.intern(filterResources);
     }
 
     public List<String> getKeywords() {
@@ -82,7 +160,7 @@ public class Article {
     }
 
     public void setPubTypes(List<String> pubTypes) {
-        this.pubTypes = pubTypes;
+        this.pubTypes = InternedLists.intern(pubTypes);
     }
 
     @Override
@@ -98,7 +176,8 @@ public class Article {
                 Objects.equals(articleTitle, article.articleTitle) &&
                 Objects.equals(abstractText, article.abstractText) &&
                 Objects.equals(language, article.language) &&
-                Objects.equals(pubDate, article.pubDate) &&
+                pubDateEpochDay == article.pubDateEpochDay &&
+                Objects.equals(pubDateText, article.pubDateText) &&
                 Objects.equals(filterSources, article.filterSources) &&
                 Objects.equals(keywords, article.keywords) &&
                 Objects.equals(pubTypes, article.pubTypes);
@@ -106,6 +185,7 @@ public class Article {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, articleTitle, abstractText, language, pubDate, filterSources, keywords, pubTypes);
+        return Objects.hash(id, articleTitle, abstractText, language, pubDateEpochDay, pubDateText, filterSources,
+                keywords, pubTypes);
     }
 }
@@ -0,0 +1,88 @@
+package os.exercise.models;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dictionary of the immutable lists of strings of the low-cardinality fields of the articles, e.g. the languages
+ * or the publication types: the same few dozen lists repeat across millions of articles, so every article with an
+ * equal list shares a single instance instead of holding its own {@code ArrayList} and strings.
+ * The dictionary is bounded: once it is full, the new lists are only made immutable, so a field that turns out to
+ * have many distinct values does not grow it without limit.
+ * It is thread-safe.
+ */
+public final class InternedLists {
+
+    private static final int MAX_ENTRIES = 4096;
+    private static final Map<List<String>, List<String>> LISTS = new ConcurrentHashMap<>();
+
+    private InternedLists() {
+    }
+
+    /**
+     * Get the shared instance of a list.
+     *
+     * @param list A list of strings, which is not modified.
+     * @return An immutable list equal to the given one, shared with the other equal lists while the dictionary is not
+     *         full, or null if the list is null.
+     */
+    public static List<String> intern(List<String> list) {
+        if (list == null) {
+            return null;
+        }
+        if (list.isEmpty()) {
+            return List.of();
+        }
+        // An interned list is returned as it is, e.g. when the list of an article is set on another one
+        List<String> interned = LISTS.get(list);
+        if (interned != null) {
+            return interned;
+        }
+        if (containsNull(list)) {
+            // List.of does not accept null values
+            return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        List<String> copy = copyOf(list);
+        if (LISTS.size() >= MAX_ENTRIES) {
+            return copy;
+        }
+        interned = LISTS.putIfAbsent(copy, copy);
+        return interned != null ? interned : copy;
+    }
+
+    /**
+     * Check if a list has a null value, since {@code contains(null)} throws NullPointerException on the immutable
+     * lists.
+     */
+    private static boolean containsNull(List<String> list) {
+        for (String value : list) {
+            if (value == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy a list with the canonical instance of each string, so the strings of the lists are shared too.
+     */
+    private static List<String> copyOf(List<String> list) {
+        String[] values = new String[list.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = list.get(i).intern();
+        }
+        return List.of(values);
+    }
+
+    /**
+     * Get the number of distinct lists in the dictionary.
+     *
+     * @return The number of shared lists.
+     */
+    public static int size() {
+        return LISTS.size();
+    }
+}
@@ -0,0 +1,46 @@
+package os.exercise.models;
+
+/**
+ * An article kept as the original json of its line, already in the snake_case format of the articles index.
+ * Only the id and the publication date are extracted, so the json can be sent to OpenSearch as it is.
+ */
+public class RawArticle {
+    private final String id;
+    private final String pubDate;
+    private final byte[] source;
+
+    /**
+     * Constructor of the RawArticle.
+     *
+     * @param id The id of the article.
+     * @param source The json of the article, encoded in UTF-8. It is not copied, so it must not be modified.
+     */
+    public RawArticle(String id, byte[] source) {
+        this(id, null, source);
+    }
+
+    /**
+     * Constructor of the RawArticle.
+     *
+     * @param id The id of the article.
+     * @param pubDate The {@code pub_date} of the article, or null if it has none.
+     * @param source The json of the article, encoded in UTF-8. It is not copied, so it must not be modified.
+     */
+    public RawArticle(String id, String pubDate, byte[] source) {
+        this.id = id;
+        this.pubDate = pubDate;
+        this.source = source;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getPubDate() {
+        return pubDate;
+    }
+
+    public byte[] getSource() {
+        return source;
+    }
+}
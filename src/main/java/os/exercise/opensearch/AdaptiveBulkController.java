@@ -0,0 +1,202 @@
+package os.exercise.opensearch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.rest.RestStatus;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The AdaptiveBulkController class tunes the size of the bulk requests and the number of requests in flight of an
+ * {@link ArticlesIndexer} from the feedback of the cluster, following an AIMD policy.
+ * The feedback is evaluated once per window, i.e. once every as many bulks as can be in flight:
+ * <ul>
+ *     <li>if any item was rejected (HTTP 429) or any bulk failed, both the batch size and the concurrency are halved,</li>
+ *     <li>else if the average latency is over the target, the batch size shrinks a quarter,</li>
+ *     <li>else both grow by a fixed step, up to their maximum.</li>
+ * </ul>
+ * It must be registered with {@link ArticlesIndexer#addBulkListener(BulkListener)}, and the batches must be built with
+ * the limits returned by {@link #getLimits()}.
+ */
+public class AdaptiveBulkController implements BulkListener {
+
+    private static final Logger LOGGER = LogManager.getLogger(AdaptiveBulkController.class);
+
+    // The type of the rejections, as OpenSearch names it, and as the clusters that come from Elasticsearch name it
+    private static final Set<String> REJECTION_TYPES = Set.of("rejected_execution_exception",
+            "es_rejected_execution_exception");
+    private static final int ADDITIVE_STEPS = 16;
+    private static final double LATENCY_DECREASE_FACTOR = 0.75;
+
+    private final ArticlesIndexer indexer;
+    private final BatchLimits minLimits;
+    private final BatchLimits maxLimits;
+    private final int maxInFlightRequests;
+    private final long targetLatencyNanos;
+    private final long bytesStep;
+    private final long startNanos = System.nanoTime();
+
+    private volatile BatchLimits limits;
+    private int inFlightRequests;
+
+    private int windowBulks;
+    private long windowLatencyNanos;
+    private long windowRejections;
+    private long windowFailures;
+
+    private long totalBulks;
+    private long totalDocuments;
+    private long totalBytes;
+    private long totalRejections;
+    private long totalFailures;
+    private long lastAverageLatencyNanos;
+
+    /**
+     * Constructor of the AdaptiveBulkController. The initial concurrency is the current window of the indexer.
+     *
+     * @param indexer The {@link ArticlesIndexer} whose window of requests in flight is tuned.
+     * @param initialLimits The {@link BatchLimits} to start with.
+     * @param minLimits The smallest {@link BatchLimits} allowed.
+     * @param maxLimits The biggest {@link BatchLimits} allowed.
+     * @param maxInFlightRequests The maximum number of requests in flight allowed.
+     * @param targetLatencyMillis The latency of a bulk request over which batches are considered too big.
+     */
+    public AdaptiveBulkController(ArticlesIndexer indexer, BatchLimits initialLimits, BatchLimits minLimits,
+                                  BatchLimits maxLimits, int maxInFlightRequests, long targetLatencyMillis) {
+        if (minLimits.getMaxBytes() > maxLimits.getMaxBytes()
+                || minLimits.getMaxDocuments() > maxLimits.getMaxDocuments()) {
+            throw new IllegalArgumentException("The minimum limits " + minLimits
+                    + " are bigger than the maximum limits " + maxLimits);
+        }
+        this.indexer = indexer;
+        this.minLimits = minLimits;
+        this.maxLimits = maxLimits;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.bytesStep = Math.max(1, (maxLimits.getMaxBytes() - minLimits.getMaxBytes()) / ADDITIVE_STEPS);
+        this.limits = clamp(initialLimits.getMaxBytes());
+        this.inFlightRequests = Math.min(indexer.getMaxInFlightRequests(), maxInFlightRequests);
+        indexer.setMaxInFlightRequests(inFlightRequests);
+    }
+
+    /**
+     * Get the limits the next batches should be built with.
+     *
+     * @return The current {@link BatchLimits}.
+     */
+    public BatchLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Get the number of requests in flight currently allowed.
+     *
+     * @return The size of the window of the indexer.
+     */
+    public synchronized int getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    @Override
+    public synchronized void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response) {
+        long rejections = countRejections(response);
+        totalRejections += rejections;
+        windowRejections += rejections;
+        record(batch, latencyNanos);
+    }
+
+    @Override
+    public synchronized void afterBulk(BulkBatch batch, long latencyNanos, Exception failure) {
+        totalFailures++;
+        windowFailures++;
+        record(batch, latencyNanos);
+    }
+
+    /**
+     * Count the items of a response rejected because the write thread pool of a node was full.
+     *
+     * @param response A {@code BulkResponse}.
+     * @return The number of rejected items.
+     */
+    public static long countRejections(BulkResponse response) {
+        long rejections = 0;
+        if (response.hasFailures()) {
+            for (BulkItemResponse item : response.getItems()) {
+                if (item.getFailure() != null && isRejection(item.getFailure())) {
+                    rejections++;
+                }
+            }
+        }
+        return rejections;
+    }
+
+    /**
+     * Check if a failed item was rejected because the write thread pool of a node was full: by its status, or by the
+     * type of its cause or of the causes of its cause, like {@link RetryPolicy#isRetriable(BulkItemResponse.Failure)}.
+     *
+     * @param failure The failure of a {@code BulkItemResponse}.
+     * @return True if the item was rejected else false.
+     */
+    public static boolean isRejection(BulkItemResponse.Failure failure) {
+        return failure.getStatus() == RestStatus.TOO_MANY_REQUESTS
+                || RetryPolicy.hasFailureType(failure.getCause(), REJECTION_TYPES);
+    }
+
+    private void record(BulkBatch batch, long latencyNanos) {
+        totalBulks++;
+        totalDocuments += batch.size();
+        totalBytes += batch.getRequest().estimatedSizeInBytes();
+        windowBulks++;
+        windowLatencyNanos += latencyNanos;
+        if (windowBulks >= inFlightRequests) {
+            adjust();
+        }
+    }
+
+    private void adjust() {
+        lastAverageLatencyNanos = windowLatencyNanos / windowBulks;
+        long bytes = limits.getMaxBytes();
+        if (windowRejections > 0 || windowFailures > 0) {
+            inFlightRequests = Math.max(1, inFlightRequests / 2);
+            limits = clamp(bytes / 2);
+            LOGGER.warn("The cluster rejected {} items and {} bulks failed, backing off: {}",
+                    windowRejections, windowFailures, this);
+        } else if (lastAverageLatencyNanos > targetLatencyNanos) {
+            limits = clamp((long) (bytes * LATENCY_DECREASE_FACTOR));
+            LOGGER.info("The bulk latency is over the target, shrinking batches: {}", this);
+        } else {
+            inFlightRequests = Math.min(maxInFlightRequests, inFlightRequests + 1);
+            limits = clamp(bytes + bytesStep);
+            LOGGER.debug("The cluster keeps up, growing: {}", this);
+        }
+        indexer.setMaxInFlightRequests(inFlightRequests);
+
+        windowBulks = 0;
+        windowLatencyNanos = 0;
+        windowRejections = 0;
+        windowFailures = 0;
+    }
+
+    /**
+     * Build the limits for a size in bytes, within the minimum and maximum limits. The number of articles is scaled
+     * in the same proportion as the bytes.
+     */
+    private BatchLimits clamp(long bytes) {
+        long maxBytes = Math.max(minLimits.getMaxBytes(), Math.min(maxLimits.getMaxBytes(), bytes));
+        long documents = maxLimits.getMaxDocuments() * maxBytes / maxLimits.getMaxBytes();
+        int maxDocuments = (int) Math.max(minLimits.getMaxDocuments(), documents);
+        return new BatchLimits(maxDocuments, maxBytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        double seconds = Math.max(1, System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        return String.format("%d bulks in flight, batches of %s, %d ms average latency, %.0f docs/s, %.0f bytes/s, "
+                        + "%d bulks, %d rejected items, %d failed bulks",
+                inFlightRequests, limits, TimeUnit.NANOSECONDS.toMillis(lastAverageLatencyNanos),
+                totalDocuments / seconds, totalBytes / seconds, totalBulks, totalRejections, totalFailures);
+    }
+}
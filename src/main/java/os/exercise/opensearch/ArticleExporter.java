@@ -0,0 +1,422 @@
+package os.exercise.opensearch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import os.exercise.io.Compression;
+
+/**
+ * The ArticleExporter class dumps an index of articles into NDJSON files in the format read by
+ * {@link os.exercise.io.JsonReader}: one {@code _source} per line, as it was indexed, so the export can be loaded
+ * again.
+ * The index is read through a point in time (PIT), so the export is a consistent snapshot whatever is indexed
+ * meanwhile, and paged with {@code search_after} on a tiebreaker sort, {@code _shard_doc} by default, whose cost does
+ * not grow with the depth of the page as {@code from}/{@code size} does. The PIT is split into slices, read in
+ * parallel, each one written to its own files.
+ * The responses are streamed: the sources are copied token by token from the response into the (optionally compressed)
+ * file, so the memory used is bounded by a page per slice whatever the size of the index.
+ * The files are written with a {@code .tmp} suffix and renamed once complete, so a failed export leaves no file that
+ * could be taken for a complete one.
+ */
+public class ArticleExporter {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArticleExporter.class);
+    private static final String FILTER_PATH = "pit_id,hits.hits._source,hits.hits.sort";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int FILE_BUFFER_BYTES = 1 << 16;
+    private static final char LINE_SEPARATOR = '\n';
+
+    private final RestClient client;
+    private final String index;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonFactory jsonFactory = mapper.getFactory();
+    private final LongAdder exportedDocuments = new LongAdder();
+    private int slices = 1;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private long maxDocumentsPerFile = Long.MAX_VALUE;
+    private Compression compression = Compression.NONE;
+    private String keepAlive = "5m";
+    private String tiebreaker = "_shard_doc";
+
+    /**
+     * Constructor of the ArticleExporter.
+     *
+     * @param client The {@code RestHighLevelClient} of the cluster. Only its low-level client is used.
+     * @param index The name of the articles index, or of its alias.
+     */
+    public ArticleExporter(RestHighLevelClient client, String index) {
+        this.client = client.getLowLevelClient();
+        this.index = index;
+    }
+
+    /**
+     * Set the number of slices of the PIT, read in parallel by as many threads.
+     *
+     * @param slices The number of slices, 1 to read the PIT in a single thread.
+     */
+    public void setSlices(int slices) {
+        if (slices <= 0) {
+            throw new IllegalArgumentException("The number of slices must be positive: " + slices);
+        }
+        this.slices = slices;
+    }
+
+    /**
+     * Set the number of articles of each page. A slice holds a page in memory at a time.
+     *
+     * @param pageSize The number of articles of each search request.
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Set the number of articles after which a slice starts a new file, so the export can be loaded again with a file
+     * per thread.
+     *
+     * @param maxDocumentsPerFile The maximum number of articles of each file.
+     */
+    public void setMaxDocumentsPerFile(long maxDocumentsPerFile) {
+        if (maxDocumentsPerFile <= 0) {
+            throw new IllegalArgumentException("The documents per file must be positive: " + maxDocumentsPerFile);
+        }
+        this.maxDocumentsPerFile = maxDocumentsPerFile;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Set how long the PIT is kept between two pages of a slice.
+     *
+     * @param keepAlive A time value, e.g. {@code 5m}.
+     */
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * Set the field the pages are sorted on, which must be unique in the PIT, e.g. {@code _id} for the clusters
+     * that can not sort on {@code _shard_doc}.
+     *
+     * @param tiebreaker The name of the field.
+     */
+    public void setTiebreaker(String tiebreaker) {
+        this.tiebreaker = tiebreaker;
+    }
+
+    public long getExportedDocuments() {
+        return exportedDocuments.sum();
+    }
+
+    /**
+     * Export the index into a folder. The files are named after the prefix, the slice and a part number, e.g.
+     * {@code articles-s0-00000.json.gz}.
+     *
+     * @param folder The folder of the files, created if it does not exist.
+     * @param prefix The prefix of the names of the files.
+     * @return True if every slice was exported else false.
+     */
+    public boolean export(Path folder, String prefix) {
+        String pitId;
+        try {
+            Files.createDirectories(folder);
+            pitId = createPit();
+        } catch (IOException e) {
+            LOGGER.error("There was an error starting the export of the index {}: {}", index, e);
+            return false;
+        }
+        long startNanos = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(slices, new ExportThreadFactory());
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                int sliceId = slice;
+                futures.add(executor.submit(() -> exportSlice(pitId, sliceId, folder, prefix)));
+            }
+            boolean success = true;
+            for (int slice = 0; slice < slices; slice++) {
+                try {
+                    long documents = futures.get(slice).get();
+                    LOGGER.info("Exported {} article(s) of the slice {}/{} of the index {}", documents, slice, slices,
+                            index);
+                } catch (ExecutionException e) {
+                    LOGGER.error("There was an error exporting the slice {}/{} of the index {}: {}", slice, slices,
+                            index, e.getCause());
+                    success = false;
+                }
+            }
+            LOGGER.info("Exported {} article(s) of the index {} into {} in {} ms", getExportedDocuments(), index,
+                    folder, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            return success;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("The export of the index {} was interrupted", index);
+            return false;
+        } finally {
+            executor.shutdownNow();
+            deletePit(pitId);
+        }
+    }
+
+    private String createPit() throws IOException {
+        Request request = new Request("POST", "/" + index + "/_search/point_in_time");
+        request.addParameter("keep_alive", keepAlive);
+        Response response = client.performRequest(request);
+        try (InputStream content = response.getEntity().getContent()) {
+            JsonNode pitId = mapper.readTree(content).path("pit_id");
+            if (!pitId.isTextual()) {
+                throw new IOException("The response to the creation of the PIT has no pit_id");
+            }
+            return pitId.asText();
+        }
+    }
+
+    private void deletePit(String pitId) {
+        Request request = new Request("DELETE", "/_search/point_in_time");
+        ObjectNode body = mapper.createObjectNode();
+        body.putArray("pit_id").add(pitId);
+        request.setJsonEntity(body.toString());
+        try {
+            client.performRequest(request);
+        } catch (IOException e) {
+            LOGGER.warn("The PIT of the export of the index {} could not be deleted, it expires after {}: {}", index,
+                    keepAlive, e.toString());
+        }
+    }
+
+    /**
+     * Read the pages of a slice until the last one, which is shorter than the others.
+     *
+     * @return The number of articles of the slice.
+     */
+    private long exportSlice(String pitId, int slice, Path folder, String prefix) throws IOException {
+        try (SliceWriter writer = new SliceWriter(folder, String.format(Locale.ROOT, "%s-s%d", prefix, slice))) {
+            Page page = new Page(pitId, null);
+            int hits;
+            do {
+                Request request = new Request("POST", "/_search");
+                request.addParameter("filter_path", FILTER_PATH);
+                request.setJsonEntity(getPageBody(page, slice));
+                Response response = client.performRequest(request);
+                try (InputStream content = response.getEntity().getContent()) {
+                    hits = readPage(content, page, writer);
+                }
+            } while (hits == pageSize);
+            writer.commit();
+            return writer.documents;
+        }
+    }
+
+    private String getPageBody(Page page, int slice) {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("size", pageSize);
+        body.put("track_total_hits", false);
+        body.putObject("pit").put("id", page.pitId).put("keep_alive", keepAlive);
+        body.putArray("sort").addObject().put(tiebreaker, "asc");
+        if (slices > 1) {
+            body.putObject("slice").put("id", slice).put("max", slices);
+        }
+        if (page.searchAfter != null) {
+            body.set("search_after", page.searchAfter);
+        }
+        return body.toString();
+    }
+
+    /**
+     * Stream a page: copy the source of each hit into the file and keep the sort values of the last hit and the PIT id,
+     * which may change between pages.
+     *
+     * @return The number of hits of the page.
+     */
+    private int readPage(InputStream content, Page page, SliceWriter writer) throws IOException {
+        int hits = 0;
+        try (JsonParser parser = jsonFactory.createParser(content)) {
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("pit_id".equals(field) && value == JsonToken.VALUE_STRING) {
+                    page.pitId = parser.getText();
+                } else if ("hits".equals(field) && value == JsonToken.START_OBJECT) {
+                    hits = readHits(parser, page, writer);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Read the {@code hits} object of a page, from its start.
+     */
+    private int readHits(JsonParser parser, Page page, SliceWriter writer) throws IOException {
+        int hits = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if (!"hits".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hitField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("_source".equals(hitField)) {
+                        writer.write(parser);
+                    } else if ("sort".equals(hitField)) {
+                        page.searchAfter = mapper.readTree(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                hits++;
+            }
+        }
+        exportedDocuments.add(hits);
+        return hits;
+    }
+
+    private static void expect(JsonToken token, JsonToken expected) throws IOException {
+        if (token != expected) {
+            throw new IOException("Unexpected token " + token + " in the search response, expected " + expected);
+        }
+    }
+
+    /**
+     * The state of the paging of a slice.
+     */
+    private static final class Page {
+        private String pitId;
+        private JsonNode searchAfter;
+
+        Page(String pitId, JsonNode searchAfter) {
+            this.pitId = pitId;
+            this.searchAfter = searchAfter;
+        }
+    }
+
+    /**
+     * Writes the sources of a slice, one per line, into files of at most {@code maxDocumentsPerFile} articles.
+     */
+    private final class SliceWriter implements Closeable {
+        private final Path folder;
+        private final String baseName;
+        private final List<Path> completed = new ArrayList<>();
+        private int part;
+        private long documents;
+        private long fileDocuments;
+        private Path temporary;
+        private JsonGenerator generator;
+
+        SliceWriter(Path folder, String baseName) {
+            this.folder = folder;
+            this.baseName = baseName;
+        }
+
+        /**
+         * Copy the value at the current token of the parser as a line.
+         */
+        void write(JsonParser parser) throws IOException {
+            if (generator == null || fileDocuments == maxDocumentsPerFile) {
+                closeFile();
+                openFile();
+            }
+            generator.copyCurrentStructure(parser);
+            generator.writeRaw(LINE_SEPARATOR);
+            documents++;
+            fileDocuments++;
+        }
+
+        private void openFile() throws IOException {
+            String name = compression.getFileName(String.format(Locale.ROOT, "%s-%05d", baseName, part++));
+            temporary = folder.resolve(name + TEMPORARY_SUFFIX);
+            OutputStream file = new BufferedOutputStream(Files.newOutputStream(temporary), FILE_BUFFER_BYTES);
+            generator = jsonFactory.createGenerator(compression.compress(file));
+            // The lines are separated by the raw line separators only
+            generator.setRootValueSeparator(null);
+            fileDocuments = 0;
+        }
+
+        private void closeFile() throws IOException {
+            if (generator != null) {
+                generator.close();
+                generator = null;
+                completed.add(temporary);
+            }
+        }
+
+        /**
+         * Close the last file and give every file its final name.
+         */
+        void commit() throws IOException {
+            closeFile();
+            for (Path file : completed) {
+                String name = file.getFileName().toString();
+                Files.move(file, file.resolveSibling(name.substring(0, name.length() - TEMPORARY_SUFFIX.length())),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            completed.clear();
+        }
+
+        /**
+         * Close the file left open by an error. The files that were not committed keep their temporary name.
+         */
+        @Override
+        public void close() throws IOException {
+            closeFile();
+        }
+    }
+
+    /**
+     * Names the threads of the slices.
+     */
+    private static final class ExportThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "article-export-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package os.exercise.opensearch;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import os.exercise.models.Article;
+
+/**
+ * The result of a search of the {@link ArticleSearcher}: the number of matching articles, the articles of the page
+ * and the buckets of the aggregations. It is immutable, as the same result is shared by every hit of the cache.
+ */
+public class ArticleSearchResult {
+
+    private final long total;
+    private final List<Article> articles;
+    private final Map<String, Map<String, Long>> aggregations;
+
+    /**
+     * Constructor of the ArticleSearchResult.
+     *
+     * @param total The number of articles that match the query.
+     * @param articles The articles of the page, in the order of their score.
+     * @param aggregations The document count of each bucket, by aggregation name and bucket key, in the order of the
+     *                     response.
+     */
+    public ArticleSearchResult(long total, List<Article> articles, Map<String, Map<String, Long>> aggregations) {
+        this.total = total;
+        this.articles = Collections.unmodifiableList(articles);
+        this.aggregations = Collections.unmodifiableMap(aggregations);
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public List<Article> getArticles() {
+        return articles;
+    }
+
+    public Map<String, Map<String, Long>> getAggregations() {
+        return aggregations;
+    }
+
+    /**
+     * Get the buckets of an aggregation.
+     *
+     * @param name The name of the aggregation, e.g. {@link ArticleSearcher#KEYWORDS_AGGREGATION}.
+     * @return The document count by bucket key, empty if there is no such aggregation.
+     */
+    public Map<String, Long> getBuckets(String name) {
+        return aggregations.getOrDefault(name, Collections.emptyMap());
+    }
+
+    @Override
+    public String toString() {
+        return total + " article(s), " + articles.size() + " in the page, aggregations " + aggregations.keySet();
+    }
+}
@@ -0,0 +1,382 @@
+package os.exercise.opensearch;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.util.EntityUtils;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+import os.exercise.util.LruCache;
+
+/**
+ * The ArticleSearcher class runs the queries of the articles index, the same as the Postman collection of
+ * {@code resources/postman}, through typed methods. The responses are slimmed with {@code filter_path} to the sources
+ * of the hits and the buckets of the aggregations, and can be cached in an {@link LruCache} bounded by their size.
+ * The cache keeps the bytes of the responses, parsed again on each hit, so every caller gets its own articles and can
+ * modify them. The key of the cache is the body of the query, which is built from normalized terms (trimmed,
+ * deduplicated and sorted), so the same query asked in different ways is cached once.
+ * Registered as a {@link BulkListener} of an {@link ArticlesIndexer}, the searcher empties the cache when a bulk
+ * request lands, and does not cache the results until the new articles are visible, after the refresh interval.
+ */
+public class ArticleSearcher implements BulkListener {
+
+    public static final String KEYWORDS_AGGREGATION = "keywords";
+    public static final String LANGUAGES_AGGREGATION = "languages";
+    public static final String YEARS_AGGREGATION = "publications_over_years";
+
+    private static final String HITS_FILTER = "hits.total.value,hits.hits._source";
+    private static final String AGGREGATIONS_FILTER = "hits.total.value,aggregations.*.buckets.key,"
+            + "aggregations.*.buckets.key_as_string,aggregations.*.buckets.doc_count";
+    private static final String ALL_FILTER = HITS_FILTER + "," + AGGREGATIONS_FILTER;
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int FACET_KEYWORDS = 15;
+    private static final int FACET_LANGUAGES = 5;
+    private static final int ID_BOOST = 4;
+    private static final int TITLE_BOOST = 3;
+    private static final int KEYWORDS_BOOST = 2;
+    private static final long DEFAULT_REFRESH_INTERVAL_MILLIS = 1000;
+    // Each character of the key of the cache takes two bytes
+    private static final int KEY_BYTES_PER_CHAR = 2;
+    // The sources may have fields that the articles do not, e.g. added by another loader
+    private static final ObjectReader ARTICLE_READER = ArticleJson.getArticleReader()
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final RestClient client;
+    private final String index;
+    private final LruCache<String, byte[]> cache;
+    private final ObjectMapper mapper = ArticleJson.getMapper();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile long lastWriteNanos = System.nanoTime() - TimeUnit.DAYS.toNanos(1);
+    private volatile long refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_REFRESH_INTERVAL_MILLIS);
+    private volatile int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Constructor of the ArticleSearcher.
+     *
+     * @param client The {@code RestHighLevelClient} of the cluster. Only its low-level client is used.
+     * @param index The name of the articles index, or of its alias.
+     * @param cache The cache of the responses, or null to send every query to the cluster.
+     */
+    public ArticleSearcher(RestHighLevelClient client, String index, LruCache<String, byte[]> cache) {
+        this.client = client.getLowLevelClient();
+        this.index = index;
+        this.cache = cache;
+    }
+
+    /**
+     * Set the number of articles returned by the searches.
+     *
+     * @param pageSize The size of a page.
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 0) {
+            throw new IllegalArgumentException("The page size can not be negative: " + pageSize);
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Set the refresh interval of the index: the results of the queries sent less than this time after a bulk
+     * request are not cached, as they may not see its articles yet.
+     *
+     * @param refreshIntervalMillis The {@code refresh_interval} of the index.
+     */
+    public void setRefreshIntervalMillis(long refreshIntervalMillis) {
+        this.refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(refreshIntervalMillis);
+    }
+
+    /**
+     * Search the articles whose title matches any of the terms.
+     *
+     * @param terms The terms, e.g. {@code management} and {@code leukaemias}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchTitle(String... terms) throws IOException {
+        return search(shouldMatch("article_title", terms), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles whose id matches.
+     *
+     * @param id A part of the id, e.g. {@code 32766}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchId(String id) throws IOException {
+        return search(shouldMatch("id", id), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles whose abstract matches a text.
+     *
+     * @param text The text, e.g. {@code Respiratory problems due to covid-19}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchAbstract(String text) throws IOException {
+        return search(match("abstract_text", normalize(text), 1), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles with any of the keywords.
+     *
+     * @param keywords The keywords, e.g. {@code covid-19} and {@code drug delivery}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchKeywords(String... keywords) throws IOException {
+        return search(shouldMatch("keywords", keywords), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles with any of the publication types. The types are keywords, so their case is kept.
+     *
+     * @param pubTypes The publication types, e.g. {@code Journal Article}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchPubTypes(String... pubTypes) throws IOException {
+        return search(shouldMatch("pub_types", pubTypes), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles in a language.
+     *
+     * @param language The language, e.g. {@code eng}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchLanguage(String language) throws IOException {
+        return search(match("language", normalize(language), 1), HITS_FILTER);
+    }
+
+    /**
+     * Search the articles published in a range of dates.
+     *
+     * @param from The first date of the range, included, e.g. {@code 2019}.
+     * @param to The end of the range, excluded, e.g. {@code 2020}.
+     * @return The {@link ArticleSearchResult}.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchPubDate(String from, String to) throws IOException {
+        ObjectNode query = mapper.createObjectNode();
+        ObjectNode range = query.putObject("range").putObject("pub_date");
+        range.put("gte", normalize(from));
+        range.put("lt", normalize(to));
+        return search(query, HITS_FILTER);
+    }
+
+    /**
+     * Count the articles of the most frequent keywords.
+     *
+     * @param size The number of keywords.
+     * @return The {@link ArticleSearchResult} with the {@link #KEYWORDS_AGGREGATION} buckets.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult aggregateKeywords(int size) throws IOException {
+        ObjectNode body = mapper.createObjectNode().put("size", 0);
+        addTerms(body.putObject("aggs"), KEYWORDS_AGGREGATION, "keywords", size);
+        return execute(body, AGGREGATIONS_FILTER);
+    }
+
+    /**
+     * Count the articles of the most frequent languages.
+     *
+     * @param size The number of languages.
+     * @return The {@link ArticleSearchResult} with the {@link #LANGUAGES_AGGREGATION} buckets.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult aggregateLanguages(int size) throws IOException {
+        ObjectNode body = mapper.createObjectNode().put("size", 0);
+        addTerms(body.putObject("aggs"), LANGUAGES_AGGREGATION, "language", size);
+        return execute(body, AGGREGATIONS_FILTER);
+    }
+
+    /**
+     * Count the articles published each year, from the most recent one.
+     *
+     * @return The {@link ArticleSearchResult} with the {@link #YEARS_AGGREGATION} buckets, keyed by year.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult aggregateYears() throws IOException {
+        ObjectNode body = mapper.createObjectNode().put("size", 0);
+        addYears(body.putObject("aggs")).putObject("order").put("_key", "desc");
+        return execute(body, AGGREGATIONS_FILTER);
+    }
+
+    /**
+     * Search the articles matching any of the fields, with the facets of the results: the id weighs the most, then
+     * the title, then the keywords, then the abstract. The null fields are not searched.
+     *
+     * @param id A part of the id, or null.
+     * @param title The terms of the title, or null.
+     * @param keywords A keyword, or null.
+     * @param abstractText The text of the abstract, or null.
+     * @return The {@link ArticleSearchResult} with the articles and the keywords, languages and years buckets.
+     * @throws IOException when the query fails.
+     */
+    public ArticleSearchResult searchWithFacets(String id, String title, String keywords, String abstractText)
+            throws IOException {
+        ObjectNode query = mapper.createObjectNode();
+        ArrayNode should = query.putObject("bool").putArray("should");
+        addMatch(should, "id", id, ID_BOOST);
+        addMatch(should, "article_title", title, TITLE_BOOST);
+        addMatch(should, "keywords", keywords, KEYWORDS_BOOST);
+        addMatch(should, "abstract_text", abstractText, 1);
+        ObjectNode body = mapper.createObjectNode().put("size", pageSize);
+        body.set("query", query);
+        ObjectNode aggs = body.putObject("aggs");
+        addTerms(aggs, KEYWORDS_AGGREGATION, "keywords", FACET_KEYWORDS);
+        addTerms(aggs, LANGUAGES_AGGREGATION, "language", FACET_LANGUAGES);
+        addYears(aggs);
+        return execute(body, ALL_FILTER);
+    }
+
+    private ArticleSearchResult search(ObjectNode query, String filterPath) throws IOException {
+        ObjectNode body = mapper.createObjectNode().put("size", pageSize);
+        body.set("query", query);
+        return execute(body, filterPath);
+    }
+
+    /**
+     * Send a query, or take its result from the cache.
+     */
+    private ArticleSearchResult execute(ObjectNode body, String filterPath) throws IOException {
+        String json = mapper.writeValueAsString(body);
+        String key = index + ' ' + filterPath + ' ' + json;
+        if (cache != null) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return parse(mapper.readTree(cached));
+            }
+        }
+        long writesBefore = writes.get();
+        long startNanos = System.nanoTime();
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.addParameter("filter_path", filterPath);
+        request.setJsonEntity(json);
+        Response response = client.performRequest(request);
+        byte[] bytes = EntityUtils.toByteArray(response.getEntity());
+        ArticleSearchResult result = parse(mapper.readTree(bytes));
+        // A bulk request landed during the query, or too recently for its articles to be visible
+        if (cache != null && writes.get() == writesBefore && startNanos - lastWriteNanos >= refreshIntervalNanos) {
+            cache.put(key, bytes, bytes.length + (long) key.length() * KEY_BYTES_PER_CHAR);
+        }
+        return result;
+    }
+
+    private ArticleSearchResult parse(JsonNode response) throws IOException {
+        long total = response.path("hits").path("total").path("value").asLong();
+        List<Article> articles = new ArrayList<>();
+        for (JsonNode hit : response.path("hits").path("hits")) {
+            articles.add(ARTICLE_READER.readValue(hit.path("_source")));
+        }
+        Map<String, Map<String, Long>> aggregations = new LinkedHashMap<>();
+        response.path("aggregations").fields().forEachRemaining(aggregation -> {
+            Map<String, Long> buckets = new LinkedHashMap<>();
+            for (JsonNode bucket : aggregation.getValue().path("buckets")) {
+                JsonNode key = bucket.has("key_as_string") ? bucket.get("key_as_string") : bucket.path("key");
+                buckets.put(key.asText(), bucket.path("doc_count").asLong());
+            }
+            aggregations.put(aggregation.getKey(), Collections.unmodifiableMap(buckets));
+        });
+        return new ArticleSearchResult(total, articles, aggregations);
+    }
+
+    private ObjectNode shouldMatch(String field, String... terms) {
+        ObjectNode query = mapper.createObjectNode();
+        ArrayNode should = query.putObject("bool").putArray("should");
+        for (String term : normalize(terms)) {
+            addMatch(should, field, term, 1);
+        }
+        return query;
+    }
+
+    private void addMatch(ArrayNode should, String field, String text, int boost) {
+        String normalized = normalize(text);
+        if (!normalized.isEmpty()) {
+            should.add(match(field, normalized, boost));
+        }
+    }
+
+    private ObjectNode match(String field, String text, int boost) {
+        ObjectNode match = mapper.createObjectNode();
+        if (boost == 1) {
+            match.putObject("match").put(field, text);
+        } else {
+            match.putObject("match").putObject(field).put("query", text).put("boost", boost);
+        }
+        return match;
+    }
+
+    private static void addTerms(ObjectNode aggs, String name, String field, int size) {
+        aggs.putObject(name).putObject("terms").put("field", field).put("size", size);
+    }
+
+    private static ObjectNode addYears(ObjectNode aggs) {
+        return aggs.putObject(YEARS_AGGREGATION).putObject("date_histogram")
+                .put("field", "pub_date")
+                .put("calendar_interval", "year")
+                .put("format", "yyyy");
+    }
+
+    /**
+     * Normalize the terms of a query: trimmed, with single spaces, without the empty and the repeated ones, sorted.
+     */
+    private static Set<String> normalize(String... terms) {
+        Set<String> normalized = new TreeSet<>();
+        for (String term : terms) {
+            String text = normalize(term);
+            if (!text.isEmpty()) {
+                normalized.add(text);
+            }
+        }
+        return normalized;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Empty the cache when articles may have been written, even by a bulk request that failed as a whole.
+     */
+    private void invalidate() {
+        lastWriteNanos = System.nanoTime();
+        writes.incrementAndGet();
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response) {
+        invalidate();
+    }
+
+    @Override
+    public void afterBulk(BulkBatch batch, long latencyNanos, Exception failure) {
+        invalidate();
+    }
+}
@@ -1,36 +1,87 @@
 package os.exercise.opensearch;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.opensearch.OpenSearchException;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.action.ActionListener;
+import org.opensearch.action.DocWriteRequest;
 import org.opensearch.action.bulk.BulkItemResponse;
 import org.opensearch.action.bulk.BulkRequest;
 import org.opensearch.action.bulk.BulkResponse;
 import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.support.WriteRequest;
+import org.opensearch.client.Request;
 import org.opensearch.client.RequestOptions;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
 import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.common.bytes.BytesReference;
+import org.opensearch.common.xcontent.DeprecationHandler;
+import org.opensearch.common.xcontent.NamedXContentRegistry;
+import org.opensearch.common.xcontent.XContentParser;
 import org.opensearch.common.xcontent.XContentType;
+import org.opensearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import os.exercise.io.DeadLetter;
+import os.exercise.io.DeadLetterQueue;
 import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+import os.exercise.util.ByteArrayPool;
 
 /**
  * The ArticlesIndexer class main purpose is to offer the utility of indexing a list of articles
  * {@link #bulkAppendArticles(String, List)}.
+ * Batches can also be sent asynchronously with {@link #indexBatchAsync(BulkBatch)}, keeping up to a configurable
+ * number of bulk requests in flight at the same time.
+ * Every batch can also be sent to other clusters, each one with its own window and retries (see {@link FanOutTarget}).
  */
 public class ArticlesIndexer {
 
     private static final Logger LOGGER = LogManager.getLogger(ArticlesIndexer.class);
     private static final Logger INDEXING_LOGGER = LogManager.getLogger("FailedIndexedArticlesLogger");
 
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 4;
+    private static final int INITIAL_SERIALIZATION_BUFFER_BYTES = 8 * 1024;
+    // Each serializing thread writes its articles into the same buffer, so only the final byte[] is allocated
+    private static final ThreadLocal<ByteArrayBuilder> SERIALIZATION_BUFFER =
+            ThreadLocal.withInitial(() -> new ByteArrayBuilder(INITIAL_SERIALIZATION_BUFFER_BYTES));
+
     private final RestHighLevelClient client;
-    private final ObjectMapper mapper;
+    private final ObjectWriter articleWriter;
+    private final InFlightWindow inFlightRequests;
+    private final List<BulkListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<FanOutTarget> targets = new CopyOnWriteArrayList<>();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.noRetries();
+    private volatile DocumentIdMode documentIdMode = DocumentIdMode.AUTO;
+    private volatile IndexPartitioner partitioner;
+    private volatile ByteArrayPool bodyPool;
+    private volatile boolean bodyCompression;
+    private volatile DeadLetterQueue deadLetterQueue;
+    private ScheduledExecutorService retryScheduler;
+    private volatile boolean closed;
 
     /**
      * Constructor of the ArticlesIndexer.
@@ -39,8 +90,148 @@ public class ArticlesIndexer {
      * @param mapper {@code ObjectMapper} to translate an Article into json format.
      */
     public ArticlesIndexer(RestHighLevelClient client, ObjectMapper mapper) {
+        this(client, mapper, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    /**
+     * Constructor of the ArticlesIndexer.
+     *
+     * @param client {@code RestHighLevelClient}.
+     * @param mapper {@code ObjectMapper} to translate an Article into json format.
+     * @param maxInFlightRequests The maximum number of asynchronous bulk requests waiting for a response.
+     */
+    public ArticlesIndexer(RestHighLevelClient client, ObjectMapper mapper, int maxInFlightRequests) {
+        this(client, mapper.writerFor(Article.class), maxInFlightRequests);
+    }
+
+    private ArticlesIndexer(RestHighLevelClient client, ObjectWriter articleWriter, int maxInFlightRequests) {
         this.client = client;
-        this.mapper = mapper;
+        this.articleWriter = articleWriter;
+        this.inFlightRequests = new InFlightWindow(maxInFlightRequests);
+    }
+
+    /**
+     * Create the indexer of a {@link FanOutTarget} of this indexer. It sends the same batches to another cluster, so
+     * it reads their responses with the same {@link DocumentIdMode}, e.g. a conflict is an existing article in
+     * {@link DocumentIdMode#CREATE}, and it sends them with the same retry policy and body pool.
+     *
+     * @param targetClient The {@code RestHighLevelClient} of the other cluster.
+     * @param maxInFlightRequests The maximum number of asynchronous bulk requests waiting for a response.
+     * @return A new {@link ArticlesIndexer}, without partitioner, dead letter queue nor targets.
+     */
+    public ArticlesIndexer createTargetIndexer(RestHighLevelClient targetClient, int maxInFlightRequests) {
+        ArticlesIndexer targetIndexer = new ArticlesIndexer(targetClient, articleWriter, maxInFlightRequests);
+        targetIndexer.setRetryPolicy(retryPolicy);
+        targetIndexer.setDocumentIdMode(documentIdMode);
+        targetIndexer.setBodyPool(bodyPool);
+        targetIndexer.setBodyCompression(bodyCompression);
+        return targetIndexer;
+    }
+
+    /**
+     * Set the {@link RetryPolicy} for the articles that fail for a transient reason. By default nothing is retried.
+     *
+     * @param retryPolicy A {@link RetryPolicy}.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Set how the {@code _id} of the documents is chosen. By default it is generated by OpenSearch.
+     *
+     * @param documentIdMode A {@link DocumentIdMode}.
+     */
+    public void setDocumentIdMode(DocumentIdMode documentIdMode) {
+        this.documentIdMode = documentIdMode;
+    }
+
+    public DocumentIdMode getDocumentIdMode() {
+        return documentIdMode;
+    }
+
+    /**
+     * Route each article to the partition of its publication date instead of the index given with it. The articles of
+     * each batch are then grouped by partition, so each bulk request writes to as few partitions as possible.
+     *
+     * @param partitioner An {@link IndexPartitioner}, or null to write every article to the index given with it.
+     */
+    public void setPartitioner(IndexPartitioner partitioner) {
+        this.partitioner = partitioner;
+    }
+
+    public IndexPartitioner getPartitioner() {
+        return partitioner;
+    }
+
+    /**
+     * Write the bodies of the bulk requests into the arrays of a pool, sent by the low-level client as they are,
+     * instead of letting the {@code RestHighLevelClient} build each body in a new buffer. The arrays go back to the
+     * pool as soon as the response arrives, so the pool should hold about the bodies of the requests in flight.
+     *
+     * @param bodyPool A {@link ByteArrayPool}, or null to send the requests through the {@code RestHighLevelClient}.
+     */
+    public void setBodyPool(ByteArrayPool bodyPool) {
+        this.bodyPool = bodyPool;
+    }
+
+    public ByteArrayPool getBodyPool() {
+        return bodyPool;
+    }
+
+    /**
+     * Compress the bodies written into the pool with gzip, so the pool holds the compressed bytes only. The client
+     * must not compress the requests itself, see {@link OpenSearchClientFactory#setPooledBulkCompression(boolean)}.
+     *
+     * @param bodyCompression True to compress the pooled bodies else false.
+     */
+    public void setBodyCompression(boolean bodyCompression) {
+        this.bodyCompression = bodyCompression;
+    }
+
+    public boolean isBodyCompression() {
+        return bodyCompression;
+    }
+
+    /**
+     * Set the {@link DeadLetterQueue} where the articles that can not be indexed are written with their failure, as
+     * well as logged. By default they are only logged.
+     *
+     * @param deadLetterQueue A {@link DeadLetterQueue}, or null to only log the failures.
+     */
+    public void setDeadLetterQueue(DeadLetterQueue deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    public DeadLetterQueue getDeadLetterQueue() {
+        return deadLetterQueue;
+    }
+
+    /**
+     * Add a cluster that every batch is sent to as well, e.g. the disaster recovery cluster. The batches are handed to
+     * the target before they are sent to this indexer's cluster, and the result of the target does not change the
+     * result of the batch. The target is owned by the caller, which closes it.
+     *
+     * @param target A {@link FanOutTarget}, with an indexer of its own cluster.
+     */
+    public void addTarget(FanOutTarget target) {
+        if (target.getIndexer() == this) {
+            throw new IllegalArgumentException("An indexer can not be its own fan-out target");
+        }
+        targets.add(target);
+    }
+
+    public List<FanOutTarget> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * Register a {@link BulkListener} that will be notified after every bulk request, sent synchronously or not.
+     *
+     * @param listener A {@link BulkListener}.
+     */
+    public void addBulkListener(BulkListener listener) {
+        listeners.add(listener);
     }
 
     /**
@@ -71,24 +262,463 @@ public class ArticlesIndexer {
      * @return True if success else false.
      */
     public boolean indexArticles(List<Article> articles, BulkRequest request) {
-        boolean success = true;
+        return indexBatch(new BulkBatch(request, getIds(articles)));
+    }
+
+    /**
+     * Execute the request of the batch and returns a boolean flag that is true if success.
+     * The articles that failed for a transient reason are sent again following the {@link RetryPolicy}, and the
+     * rest of the failed articles are logged.
+     *
+     * @param batch A {@link BulkBatch}.
+     * @return True if success else false.
+     */
+    public boolean indexBatch(BulkBatch batch) {
+        BulkBatch pending = fanOut(batch);
+        for (int attempt = 0; pending != null; attempt++) {
+            if (attempt > 0 && !sleep(retryPolicy.getDelayMillis(attempt - 1), pending)) {
+                return false;
+            }
+            long start = System.nanoTime();
+            try {
+                BulkResponse bulkResponse = bulk(pending);
+                notifyListeners(pending, start, bulkResponse);
+                pending = handleResponse(pending, bulkResponse, attempt);
+            } catch (IOException | OpenSearchStatusException e){
+                notifyListeners(pending, start, e);
+                if (!shouldRetry(pending, e, attempt)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Send the request of the batch without waiting for the response. If there are already
+     * {@code maxInFlightRequests} requests waiting for a response, this method blocks until one of them finishes.
+     * When the response arrives, the failed articles are retried and logged in the same way as in
+     * {@link #indexBatch(BulkBatch)}, without blocking: the retries are scheduled, and the batch keeps its place in
+     * the window until they finish. The future is completed before the batch leaves the window, so
+     * {@link #flush()} also waits for the actions chained to it.
+     *
+     * @param batch A {@link BulkBatch}.
+     * @return A future completed with true if success else false.
+     * @throws IllegalStateException when the indexer has been closed with {@link #awaitClose(long, TimeUnit)}.
+     */
+    public CompletableFuture<Boolean> indexBatchAsync(BulkBatch batch) {
+        if (closed) {
+            batch.releaseBody();
+            throw new IllegalStateException("The indexer is closed");
+        }
+        BulkBatch sent = fanOut(batch);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
         try {
-            BulkResponse bulkResponse = client.bulk(request, RequestOptions.DEFAULT);
-            List<String> failures = getNotIndexedArticles(bulkResponse, articles);
-            if(!failures.isEmpty()){
-                String failureMessage = bulkResponse.buildFailureMessage();
-                INDEXING_LOGGER.error(
-"There was an error indexing this batch: {}\nThe failures occurred in the article(s) with Id: {}",
-                        failureMessage, failures);
-                LOGGER.warn(
-"Some articles were not indexed properly. Consult the failed-indexed-articles.log file for more information.");
+            inFlightRequests.enter();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sent.releaseBody();
+            logError(sent, e);
+            result.complete(false);
+            return result;
+        }
+        sendAsync(sent, 0, result);
+        return result;
+    }
+
+    /**
+     * Hand a batch to the {@link FanOutTarget}s. It only waits for a target that is over its lag bound and can not
+     * spill. With a body pool, the body of the batch is written once for all the clusters: each target gets a
+     * reference to it, released when its response arrives.
+     *
+     * @return The batch to send to this cluster, with its reference to the shared body if there is one.
+     */
+    private BulkBatch fanOut(BulkBatch batch) {
+        if (targets.isEmpty()) {
+            return batch;
+        }
+        PooledBulkBody body = getSharedBody(batch);
+        for (FanOutTarget target : targets) {
+            BulkBatch shared = body == null ? batch : batch.withBody(body.retain());
+            try {
+                target.submit(shared);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                shared.releaseBody();
+                LOGGER.error("Interrupted while handing the batch {} -> {} to {}", batch.getIds().get(0),
+                        batch.getIds().get(batch.size() - 1), target.getName());
+            } catch (IllegalStateException e) {
+                shared.releaseBody();
+                LOGGER.error("The batch {} -> {} was not sent to {}: {}", batch.getIds().get(0),
+                        batch.getIds().get(batch.size() - 1), target.getName(), e.getMessage());
             }
-        } catch (IOException e){
-            LOGGER.error("There was an error indexing the batch {} -> {}: {}",
-                    articles.get(0).getId(), articles.get(articles.size() - 1).getId(), e);
-            success = false;
         }
-        return success;
+        return body == null ? batch : batch.withBody(body);
+    }
+
+    /**
+     * Write the body of a batch to share it with the targets.
+     *
+     * @return The {@link PooledBulkBody}, or null without a body pool or if it can not be written: then each cluster
+     *         writes its own, and reports the error itself.
+     */
+    private PooledBulkBody getSharedBody(BulkBatch batch) {
+        ByteArrayPool pool = bodyPool;
+        if (pool == null) {
+            return null;
+        }
+        try {
+            return PooledBulkBody.of(batch.getRequest(), pool, bodyCompression);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private void sendAsync(BulkBatch batch, int attempt, CompletableFuture<Boolean> result) {
+        long start = System.nanoTime();
+        bulkAsync(batch, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse bulkResponse) {
+                boolean retrying = false;
+                try {
+                    notifyListeners(batch, start, bulkResponse);
+                    BulkBatch retry = handleResponse(batch, bulkResponse, attempt);
+                    if (retry == null) {
+                        result.complete(true);
+                    } else {
+                        retrying = scheduleRetry(retry, attempt, result);
+                    }
+                } finally {
+                    if (!retrying) {
+                        inFlightRequests.leave();
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                boolean retrying = false;
+                try {
+                    notifyListeners(batch, start, e);
+                    if (shouldRetry(batch, e, attempt)) {
+                        retrying = scheduleRetry(batch, attempt, result);
+                    } else {
+                        result.complete(false);
+                    }
+                } finally {
+                    if (!retrying) {
+                        inFlightRequests.leave();
+                    }
+                }
+            }
+        });
+    }
+
+    private BulkResponse bulk(BulkBatch batch) throws IOException {
+        PooledBulkBody body = getBody(batch);
+        if (body == null) {
+            return client.bulk(batch.getRequest(), RequestOptions.DEFAULT);
+        }
+        try {
+            return parseBulkResponse(client.getLowLevelClient().performRequest(getBulkRequest(batch, body)));
+        } finally {
+            body.release();
+        }
+    }
+
+    private void bulkAsync(BulkBatch batch, ActionListener<BulkResponse> listener) {
+        PooledBulkBody body;
+        try {
+            body = getBody(batch);
+        } catch (IOException e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (body == null) {
+            client.bulkAsync(batch.getRequest(), RequestOptions.DEFAULT, listener);
+            return;
+        }
+        client.getLowLevelClient().performRequestAsync(getBulkRequest(batch, body), new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {
+                body.release();
+                BulkResponse bulkResponse;
+                try {
+                    bulkResponse = parseBulkResponse(response);
+                } catch (IOException e) {
+                    listener.onFailure(e);
+                    return;
+                }
+                listener.onResponse(bulkResponse);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                body.release();
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    /**
+     * Get the body to send a batch with: the shared body the batch carries on its first attempt, if it is written as
+     * this indexer would, else a new one from the body pool.
+     *
+     * @return A {@link PooledBulkBody} to release once the response has arrived, or null without a body pool.
+     */
+    private PooledBulkBody getBody(BulkBatch batch) throws IOException {
+        ByteArrayPool pool = bodyPool;
+        PooledBulkBody shared = batch.takeBody();
+        if (shared != null) {
+            if (pool != null && shared.isCompressed() == bodyCompression) {
+                return shared;
+            }
+            shared.release();
+        }
+        return pool == null ? null : PooledBulkBody.of(batch.getRequest(), pool, bodyCompression);
+    }
+
+    /**
+     * Build the low-level request of a batch, with the parameters the {@code RestHighLevelClient} would send.
+     */
+    private static Request getBulkRequest(BulkBatch batch, PooledBulkBody body) {
+        BulkRequest bulkRequest = batch.getRequest();
+        Request request = new Request("POST", "/_bulk");
+        if (bulkRequest.timeout() != null) {
+            request.addParameter("timeout", bulkRequest.timeout().getStringRep());
+        }
+        if (bulkRequest.getRefreshPolicy() != WriteRequest.RefreshPolicy.NONE) {
+            request.addParameter("refresh", bulkRequest.getRefreshPolicy().getValue());
+        }
+        request.setEntity(body.toEntity());
+        return request;
+    }
+
+    private static BulkResponse parseBulkResponse(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent();
+             XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                     DeprecationHandler.IGNORE_DEPRECATIONS, content)) {
+            return BulkResponse.fromXContent(parser);
+        }
+    }
+
+    private boolean scheduleRetry(BulkBatch batch, int attempt, CompletableFuture<Boolean> result) {
+        try {
+            getRetryScheduler().schedule(() -> sendAsync(batch, attempt + 1, result),
+                    retryPolicy.getDelayMillis(attempt), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException e) {
+            logError(batch, e);
+            result.complete(false);
+            return false;
+        }
+    }
+
+    private synchronized ScheduledExecutorService getRetryScheduler() {
+        if (retryScheduler == null) {
+            retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "articles-indexer-retry");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return retryScheduler;
+    }
+
+    /**
+     * Check the items of a response. The failures that can not be retried are logged, separating the articles
+     * rejected by the index (e.g. mapping errors) from the ones that ran out of retries.
+     *
+     * @return A batch with the articles to retry, or null if there are none.
+     */
+    private BulkBatch handleResponse(BulkBatch batch, BulkResponse bulkResponse, int attempt) {
+        if (!bulkResponse.hasFailures()) {
+            return null;
+        }
+        BulkItemResponse[] responses = bulkResponse.getItems();
+        List<Integer> retriable = new ArrayList<>();
+        List<BulkItemResponse> rejected = new ArrayList<>();
+        List<BulkItemResponse> exhausted = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            BulkItemResponse.Failure failure = responses[i].getFailure();
+            if (failure == null || isExistingDocument(failure)) {
+                continue;
+            }
+            if (!retryPolicy.isRetriable(failure)) {
+                rejected.add(responses[i]);
+            } else if (retryPolicy.canRetry(attempt)) {
+                retriable.add(i);
+            } else {
+                exhausted.add(responses[i]);
+            }
+        }
+        logFailures("The article(s) were rejected by the index", rejected, batch);
+        logFailures("The article(s) failed after " + (attempt + 1) + " attempts", exhausted, batch);
+        if (retriable.isEmpty()) {
+            return null;
+        }
+        LOGGER.warn("{} article(s) of the batch {} -> {} failed for a transient reason, retry {}/{}",
+                retriable.size(), batch.getIds().get(0), batch.getIds().get(batch.size() - 1), attempt + 1,
+                retryPolicy.getMaxRetries());
+        return batch.subBatch(retriable);
+    }
+
+    /**
+     * Check if a failure is the conflict of an article created with {@link DocumentIdMode#CREATE} that was already in
+     * the index, which means it does not have to be sent again.
+     */
+    private boolean isExistingDocument(BulkItemResponse.Failure failure) {
+        return documentIdMode == DocumentIdMode.CREATE && failure.getStatus() == RestStatus.CONFLICT;
+    }
+
+    private boolean shouldRetry(BulkBatch batch, Exception e, int attempt) {
+        if (retryPolicy.isRetriable(e) && retryPolicy.canRetry(attempt)) {
+            LOGGER.warn("There was an error indexing the batch {} -> {}, retry {}/{}: {}",
+                    batch.getIds().get(0), batch.getIds().get(batch.size() - 1), attempt + 1,
+                    retryPolicy.getMaxRetries(), e.toString());
+            return true;
+        }
+        logError(batch, e);
+        return false;
+    }
+
+    private boolean sleep(long delayMillis, BulkBatch batch) {
+        try {
+            Thread.sleep(delayMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logError(batch, e);
+            return false;
+        }
+    }
+
+    /**
+     * Send the request without waiting for the response, see {@link #indexBatchAsync(BulkBatch)}.
+     *
+     * @param articles A list of articles.
+     * @param request A {@code BulkRequest}.
+     * @return A future completed with true if success else false.
+     */
+    public CompletableFuture<Boolean> indexArticlesAsync(List<Article> articles, BulkRequest request) {
+        return indexBatchAsync(new BulkBatch(request, getIds(articles)));
+    }
+
+    /**
+     * Wait until every asynchronous request sent so far has received its response.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        inFlightRequests.awaitEmpty();
+    }
+
+    /**
+     * Stop accepting asynchronous requests and wait until the ones in flight have received their response.
+     * The client is not closed, since it is owned by the caller.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the {@code timeout}.
+     * @return True if every request finished before the timeout else false.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        boolean empty = inFlightRequests.awaitEmpty(timeout, unit);
+        if (empty) {
+            synchronized (this) {
+                if (retryScheduler != null) {
+                    retryScheduler.shutdown();
+                }
+            }
+        }
+        return empty;
+    }
+
+    /**
+     * Get the number of asynchronous requests waiting for a response.
+     *
+     * @return The number of requests in flight.
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.getInFlight();
+    }
+
+    /**
+     * Get the maximum number of asynchronous requests waiting for a response.
+     *
+     * @return The size of the window of requests in flight.
+     */
+    public int getMaxInFlightRequests() {
+        return inFlightRequests.getSize();
+    }
+
+    /**
+     * Change the maximum number of asynchronous requests waiting for a response. When it shrinks, the requests
+     * already in flight are not affected, but no new one is sent until enough of them have finished.
+     *
+     * @param maxInFlightRequests The new size of the window of requests in flight.
+     */
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        inFlightRequests.resize(maxInFlightRequests);
+    }
+
+    private void notifyListeners(BulkBatch batch, long start, BulkResponse bulkResponse) {
+        long latency = System.nanoTime() - start;
+        for (BulkListener listener : listeners) {
+            listener.afterBulk(batch, latency, bulkResponse);
+        }
+    }
+
+    private void notifyListeners(BulkBatch batch, long start, Exception failure) {
+        long latency = System.nanoTime() - start;
+        for (BulkListener listener : listeners) {
+            listener.afterBulk(batch, latency, failure);
+        }
+    }
+
+    private void logFailures(String reason, List<BulkItemResponse> failures, BulkBatch batch) {
+        if(!failures.isEmpty()){
+            StringBuilder failureMessage = new StringBuilder();
+            List<String> failedIds = new ArrayList<>(failures.size());
+            for (BulkItemResponse failure : failures) {
+                String id = batch.getIds().get(failure.getItemId());
+                failedIds.add(id);
+                failureMessage.append("\n[").append(failure.getItemId()).append("]: id [").append(id)
+                        .append("], message [").append(failure.getFailureMessage()).append(']');
+                String failureType = RetryPolicy.getFailureType(failure.getFailure().getCause());
+                addDeadLetter(batch, failure.getItemId(), failureType, failure.getFailureMessage(),
+                        failure.status().getStatus());
+            }
+            INDEXING_LOGGER.error(
+"There was an error indexing this batch: {}{}\nThe failures occurred in the article(s) with Id: {}",
+                    reason, failureMessage, failedIds);
+            LOGGER.warn(
+"Some articles were not indexed properly. Consult the failed-indexed-articles.log file for more information.");
+        }
+    }
+
+    private void logError(BulkBatch batch, Exception e) {
+        List<String> ids = batch.getIds();
+        LOGGER.error("There was an error indexing the batch {} -> {}: {}",
+                ids.get(0), ids.get(ids.size() - 1), e);
+        int status = e instanceof OpenSearchException ? ((OpenSearchException) e).status().getStatus() : 0;
+        for (int i = 0; i < batch.size(); i++) {
+            addDeadLetter(batch, i, RetryPolicy.getFailureType(e), e.getMessage(), status);
+        }
+    }
+
+    /**
+     * Write an article of a batch into the {@link DeadLetterQueue}, if there is one, with the source that was sent.
+     */
+    private void addDeadLetter(BulkBatch batch, int position, String failureType, String reason, int status) {
+        DeadLetterQueue queue = deadLetterQueue;
+        DocWriteRequest<?> action = batch.getRequest().requests().get(position);
+        if (queue != null && action instanceof IndexRequest) {
+            IndexRequest request = (IndexRequest) action;
+            queue.add(new DeadLetter(request.index(), batch.getIds().get(position), failureType, reason, status,
+                    BytesReference.toBytes(request.source())));
+        }
     }
 
     /**
@@ -99,18 +729,41 @@ public class ArticlesIndexer {
      * @return A list with articles ids.
      */
     public List<String> getNotIndexedArticles(BulkResponse bulkResponse, List<Article> articles){
+        return getNotIndexedIds(bulkResponse, getIds(articles));
+    }
+
+    /**
+     * Given a {@code BulkResponse}, return a list with the ids of all articles that were not correctly indexed.
+     *
+     * @param bulkResponse A {@code BulkResponse}.
+     * @param ids The ids of the articles in the request, in the same order as its actions.
+     * @return A list with articles ids.
+     */
+    public List<String> getNotIndexedIds(BulkResponse bulkResponse, List<String> ids){
         List<String> failures = new ArrayList<>();
         if(bulkResponse.hasFailures()) {
             BulkItemResponse[] responses = bulkResponse.getItems();
             failures = IntStream.range(0, responses.length)
                     .filter(i -> responses[i].getFailure() != null)
                     .boxed()
-                    .map(i -> articles.get(i).getId())
+                    .map(ids::get)
                     .collect(Collectors.toList());
         }
         return failures;
     }
 
+    /**
+     * Creates a {@link BulkBatch} to append the list of articles into the index.
+     *
+     * @param index The name of the articles index.
+     * @param articles A list of articles.
+     * @return A {@link BulkBatch}.
+     * @throws JsonProcessingException when the articles does not follow the Article.java format.
+     */
+    public BulkBatch getBulkBatch(String index, List<Article> articles) throws JsonProcessingException {
+        return new BulkBatch(getBulkRequest(index, articles), getIds(articles));
+    }
+
     /**
      * Creates a {@code BulkRequest} to append the list of articles into the index.
      *
@@ -123,17 +776,161 @@ public class ArticlesIndexer {
         BulkRequest request = new BulkRequest();
 
         for (Article article : articles) {
-            try{
-                String jsonArticle = mapper.writeValueAsString(article);
-
-                IndexRequest indexRequest = new IndexRequest(index)
-                        .source(jsonArticle, XContentType.JSON);
-                request.add(indexRequest);
-            }catch (JsonProcessingException e){
-                LOGGER.error("There was an error parsing the article {}: {}", article, e);
-                throw e;
-            }
+            request.add(getIndexRequest(index, article));
         }
         return request;
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the {@link BulkBatch}es to append the list of articles into the index, splitting the articles so that
+     * no bulk request exceeds the limits. The size of each article is the exact size of the json produced for it by
+     * {@link #getBulkRequest(String, List)}, plus the overhead of its action line.
+     * An article bigger than the byte limit is sent alone in its own batch.
+     *
+     * @param index The name of the articles index.
+     * @param articles A list of articles.
+     * @param limits The {@link BatchLimits} of each bulk request.
+     * @return A list of batches, in the same order as the articles, grouped by partition if there is a partitioner.
+     * @throws JsonProcessingException when the articles does not follow the Article.java format.
+     */
+    public List<BulkBatch> getSizedBulkBatches(String index, List<Article> articles, BatchLimits limits)
+            throws JsonProcessingException {
+        BatchSplitter splitter = new BatchSplitter(limits);
+        for (Article article : groupByPartition(articles, Article::getPubDate)) {
+            splitter.add(getIndexRequest(index, article), article.getId());
+        }
+        return splitter.finish();
+    }
+
+    /**
+     * Creates the {@link BulkBatch}es to append a list of raw articles into the index, with the same limits as
+     * {@link #getSizedBulkBatches(String, List, BatchLimits)}. The json of each article is sent as it is, so it is
+     * neither deserialized nor serialized again.
+     *
+     * @param index The name of the articles index.
+     * @param articles A list of {@link RawArticle}s in the format of the index.
+     * @param limits The {@link BatchLimits} of each bulk request.
+     * @return A list of batches, in the same order as the articles, grouped by partition if there is a partitioner.
+     */
+    public List<BulkBatch> getSizedRawBulkBatches(String index, List<RawArticle> articles, BatchLimits limits) {
+        BatchSplitter splitter = new BatchSplitter(limits);
+        for (RawArticle article : groupByPartition(articles, RawArticle::getPubDate)) {
+            IndexRequest request = new IndexRequest(getIndex(index, article.getPubDate()))
+                    .source(article.getSource(), XContentType.JSON);
+            splitter.add(documentIdMode.apply(request, article.getId()), article.getId());
+        }
+        return splitter.finish();
+    }
+
+    /**
+     * Creates the {@code IndexRequest} of an article, with the {@code _id} given by the {@link DocumentIdMode}.
+     * The article is serialized as UTF-8 bytes into a reusable buffer of the current thread, so no intermediate
+     * {@code String} is built.
+     *
+     * @param index The name of the articles index.
+     * @param article An article.
+     * @return An {@code IndexRequest} with the article in json format.
+     * @throws JsonProcessingException when the article does not follow the Article.java format.
+     */
+    private IndexRequest getIndexRequest(String index, Article article) throws JsonProcessingException {
+        ByteArrayBuilder buffer = SERIALIZATION_BUFFER.get();
+        try{
+            articleWriter.writeValue(buffer, article);
+
+            IndexRequest request = new IndexRequest(getIndex(index, article.getPubDate()))
+                    .source(buffer.toByteArray(), XContentType.JSON);
+            return documentIdMode.apply(request, article.getId());
+        }catch (JsonProcessingException e){
+            LOGGER.error("There was an error parsing the article {}: {}", article, e);
+            throw e;
+        }catch (IOException e){
+            LOGGER.error("There was an error parsing the article {}: {}", article, e);
+            throw JsonMappingException.fromUnexpectedIOE(e);
+        }finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Get the index of an article: the partition of its date if there is a partitioner else the given index.
+     */
+    private String getIndex(String index, String pubDate) {
+        IndexPartitioner current = partitioner;
+        return current == null ? index : current.getIndex(pubDate);
+    }
+
+    /**
+     * Order the articles of a batch by partition, keeping the order of the articles of each partition.
+     *
+     * @param articles A list of articles.
+     * @param pubDate Gets the publication date of an article.
+     * @return The articles grouped by partition, or the same list if there is a single partition.
+     */
+    private <T> List<T> groupByPartition(List<T> articles, Function<T, String> pubDate) {
+        IndexPartitioner current = partitioner;
+        if (current == null) {
+            return articles;
+        }
+        Map<String, List<T>> partitions = new LinkedHashMap<>();
+        for (T article : articles) {
+            partitions.computeIfAbsent(current.getIndex(pubDate.apply(article)), index -> new ArrayList<>())
+                    .add(article);
+        }
+        if (partitions.size() == 1) {
+            return articles;
+        }
+        List<T> grouped = new ArrayList<>(articles.size());
+        partitions.values().forEach(grouped::addAll);
+        return grouped;
+    }
+
+    /**
+     * Get the ids of a list of articles.
+     *
+     * @param articles A list of articles.
+     * @return The ids of the articles in the same order.
+     */
+    private static List<String> getIds(List<Article> articles) {
+        return articles.stream()
+                .map(Article::getId)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Groups index requests into batches that do not exceed the limits. The size of a batch is the exact size of its
+     * uncompressed bulk body: the source and the action line of each request.
+     */
+    private static final class BatchSplitter {
+
+        private final BatchLimits limits;
+        private final List<BulkBatch> batches = new ArrayList<>();
+        private BulkRequest request = new BulkRequest();
+        private List<String> ids = new ArrayList<>();
+        private long requestBytes;
+
+        BatchSplitter(BatchLimits limits) {
+            this.limits = limits;
+        }
+
+        void add(IndexRequest indexRequest, String id) {
+            long articleBytes = indexRequest.source().length() + PooledBulkBody.getActionLength(indexRequest);
+            if (!ids.isEmpty() && (ids.size() >= limits.getMaxDocuments()
+                    || requestBytes + articleBytes > limits.getMaxBytes())) {
+                batches.add(new BulkBatch(request, ids));
+                request = new BulkRequest();
+                ids = new ArrayList<>();
+                requestBytes = 0;
+            }
+            request.add(indexRequest);
+            ids.add(id);
+            requestBytes += articleBytes;
+        }
+
+        List<BulkBatch> finish() {
+            if (!ids.isEmpty()) {
+                batches.add(new BulkBatch(request, ids));
+            }
+            return batches;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package os.exercise.opensearch;
+
+/**
+ * The limits of a bulk request: a target size of the serialized payload in bytes and a maximum number of articles.
+ * A batch is closed as soon as adding another article would exceed either of them.
+ */
+public class BatchLimits {
+
+    private final int maxDocuments;
+    private final long maxBytes;
+
+    /**
+     * Constructor of the BatchLimits.
+     *
+     * @param maxDocuments The maximum number of articles in a bulk request.
+     * @param maxBytes The target size in bytes of the serialized articles of a bulk request.
+     */
+    public BatchLimits(int maxDocuments, long maxBytes) {
+        if (maxDocuments <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("The batch limits must be positive: " + maxDocuments + " documents, "
+                    + maxBytes + " bytes");
+        }
+        this.maxDocuments = maxDocuments;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxDocuments() {
+        return maxDocuments;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    @Override
+    public String toString() {
+        return maxDocuments + " documents / " + maxBytes + " bytes";
+    }
+}
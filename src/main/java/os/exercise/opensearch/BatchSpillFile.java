@@ -0,0 +1,219 @@
+package os.exercise.opensearch;
+
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.common.xcontent.XContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * A first-in first-out file of {@link BulkBatch}es, where a {@link FanOutTarget} puts the batches it can not keep in
+ * memory. Each batch is written as its bulk body, the NDJSON sent to OpenSearch, preceded by the ids of its articles,
+ * and is parsed back into a {@code BulkRequest} when it is read.
+ * The file is emptied each time every batch has been read, so it only grows while its target is behind. The batches
+ * left by a run that did not finish are read first by the next one.
+ * It is not thread-safe: the {@link FanOutTarget} locks it.
+ */
+class BatchSpillFile implements Closeable {
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteArrayPool pool;
+    private long readPosition;
+    private long writePosition;
+    private int batches;
+
+    /**
+     * Constructor of the BatchSpillFile.
+     *
+     * @param file The location of the file, created if it does not exist.
+     * @param pool The {@link ByteArrayPool} where the bulk bodies are written before they go to the file.
+     * @throws IOException when the file can not be opened.
+     */
+    BatchSpillFile(Path file, ByteArrayPool pool) throws IOException {
+        this.file = file;
+        this.pool = pool;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Count the batches of a previous run and drop the last one if it was not completely written.
+     */
+    private void recover() throws IOException {
+        long size = channel.size();
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        while (writePosition + LENGTH_BYTES <= size) {
+            length.clear();
+            readFully(length, writePosition);
+            long next = writePosition + LENGTH_BYTES + length.getInt(0);
+            if (next > size) {
+                break;
+            }
+            writePosition = next;
+            batches++;
+        }
+        channel.truncate(writePosition);
+    }
+
+    /**
+     * Write a batch at the end of the file.
+     *
+     * @param batch A {@link BulkBatch} of {@code IndexRequest}s with a json source.
+     * @throws IOException when the batch can not be written.
+     */
+    void append(BulkBatch batch) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(record);
+        output.writeInt(0);
+        output.writeInt(batch.size());
+        for (String id : batch.getIds()) {
+            output.writeBoolean(id != null);
+            if (id != null) {
+                output.writeUTF(id);
+            }
+        }
+        PooledBulkBody body = PooledBulkBody.of(batch.getRequest(), pool);
+        try {
+            output.writeInt(Math.toIntExact(body.getLength()));
+            body.toEntity().writeTo(output);
+        } finally {
+            body.release();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record.toByteArray());
+        buffer.putInt(0, buffer.capacity() - LENGTH_BYTES);
+        long position = writePosition;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        writePosition = position;
+        batches++;
+    }
+
+    /**
+     * Read the oldest batch of the file.
+     *
+     * @return The {@link BulkBatch}, or null if every batch has been read.
+     * @throws IOException when the batch can not be read or parsed.
+     */
+    BulkBatch read() throws IOException {
+        if (batches == 0) {
+            return null;
+        }
+        ByteBuffer length = ByteBuffer.allocate(LENGTH_BYTES);
+        readFully(length, readPosition);
+        byte[] record = new byte[length.getInt(0)];
+        readFully(ByteBuffer.wrap(record), readPosition + LENGTH_BYTES);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+        int count = input.readInt();
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(input.readBoolean() ? input.readUTF() : null);
+        }
+        int bodyLength = input.readInt();
+        BulkRequest request = new BulkRequest()
+                .add(record, record.length - bodyLength, bodyLength, XContentType.JSON);
+        readPosition += LENGTH_BYTES + record.length;
+        if (--batches == 0) {
+            readPosition = 0;
+            writePosition = 0;
+            channel.truncate(0);
+        }
+        return new BulkBatch(request, ids);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long current = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new IOException("The spill file " + file + " ends at " + current);
+            }
+            current += read;
+        }
+    }
+
+    /**
+     * Get the number of batches not read yet.
+     *
+     * @return The number of batches in the file.
+     */
+    int getBatches() {
+        return batches;
+    }
+
+    /**
+     * Get the size of the batches not read yet.
+     *
+     * @return The number of bytes of the file still to be read.
+     */
+    long getBytes() {
+        return writePosition - readPosition;
+    }
+
+    /**
+     * Close the file, keeping some batches before the ones not read yet, e.g. the batches its target had accepted in
+     * memory. The file is rewritten without the batches already read, so they are not sent again by the next run.
+     *
+     * @param first The batches to read first, in order.
+     * @throws IOException when the file can not be rewritten, in which case it keeps only the batches not read yet.
+     */
+    void close(Collection<BulkBatch> first) throws IOException {
+        if (first.isEmpty()) {
+            close();
+            return;
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(compacted);
+            try (BatchSpillFile spill = new BatchSpillFile(compacted, pool)) {
+                for (BulkBatch batch : first) {
+                    spill.append(batch);
+                }
+                long count = writePosition - readPosition;
+                long copied = 0;
+                channel.position(readPosition);
+                while (copied < count) {
+                    copied += spill.channel.transferFrom(channel, spill.writePosition + copied, count - copied);
+                }
+                spill.writePosition += count;
+                spill.batches += batches;
+            }
+        } finally {
+            channel.close();
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        batches += first.size();
+    }
+
+    /**
+     * Close the file, and delete it if every batch has been read.
+     *
+     * @throws IOException when the file can not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (batches == 0) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package os.exercise.opensearch;
+
+import org.opensearch.action.bulk.BulkRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@code BulkRequest} ready to be sent, together with the ids of the articles it contains in the same order.
+ * Only the ids are kept, so the articles can be discarded as soon as they are serialized.
+ * A batch sent to several clusters can also carry a reference to its {@link PooledBulkBody}, written once by the
+ * primary {@link ArticlesIndexer} and sent as it is by the first attempt of each cluster.
+ */
+public class BulkBatch {
+
+    private final BulkRequest request;
+    private final List<String> ids;
+    private final AtomicReference<PooledBulkBody> body;
+
+    /**
+     * Constructor of the BulkBatch.
+     *
+     * @param request A {@code BulkRequest}.
+     * @param ids The ids of the articles in the request, in the same order as its actions.
+     */
+    public BulkBatch(BulkRequest request, List<String> ids) {
+        this(request, ids, null);
+    }
+
+    private BulkBatch(BulkRequest request, List<String> ids, PooledBulkBody body) {
+        this.request = request;
+        this.ids = ids;
+        this.body = new AtomicReference<>(body);
+    }
+
+    /**
+     * Get the same batch with a reference to its body, which the new batch owns until it is taken.
+     *
+     * @param body A reference to the {@link PooledBulkBody} of the request.
+     * @return A new {@link BulkBatch} with the same request and ids.
+     */
+    BulkBatch withBody(PooledBulkBody body) {
+        return new BulkBatch(request, ids, body);
+    }
+
+    /**
+     * Take the reference to the body of the batch: only the first call gets it, and must release it.
+     *
+     * @return The {@link PooledBulkBody} of the request, or null if the batch has none or it was already taken.
+     */
+    PooledBulkBody takeBody() {
+        return body.getAndSet(null);
+    }
+
+    /**
+     * Release the reference to the body of a batch that will not be sent, if it was not taken.
+     */
+    void releaseBody() {
+        PooledBulkBody taken = takeBody();
+        if (taken != null) {
+            taken.release();
+        }
+    }
+
+    public BulkRequest getRequest() {
+        return request;
+    }
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * Get the number of articles in the batch.
+     *
+     * @return The number of articles.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Build a smaller batch with some of the articles of this one. The actions are reused, so the articles are not
+     * serialized again.
+     *
+     * @param positions The positions of the articles to keep, in this batch.
+     * @return A new {@link BulkBatch} with the articles at those positions.
+     */
+    public BulkBatch subBatch(List<Integer> positions) {
+        BulkRequest subRequest = new BulkRequest()
+                .timeout(request.timeout())
+                .setRefreshPolicy(request.getRefreshPolicy());
+        List<String> subIds = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            subRequest.add(request.requests().get(position));
+            subIds.add(ids.get(position));
+        }
+        return new BulkBatch(subRequest, subIds);
+    }
+}
@@ -0,0 +1,28 @@
+package os.exercise.opensearch;
+
+import org.opensearch.action.bulk.BulkResponse;
+
+/**
+ * A listener notified by the {@link ArticlesIndexer} every time a bulk request finishes, either with a response or
+ * with an error. It is called from the thread that handles the response, so it must not block.
+ */
+public interface BulkListener {
+
+    /**
+     * Called when a bulk request receives a response, even if some of its articles failed.
+     *
+     * @param batch The {@link BulkBatch} that was sent.
+     * @param latencyNanos The time between sending the request and receiving the response.
+     * @param response The {@code BulkResponse}.
+     */
+    void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response);
+
+    /**
+     * Called when a bulk request fails as a whole.
+     *
+     * @param batch The {@link BulkBatch} that was sent.
+     * @param latencyNanos The time between sending the request and the failure.
+     * @param failure The cause of the failure.
+     */
+    void afterBulk(BulkBatch batch, long latencyNanos, Exception failure);
+}
@@ -0,0 +1,151 @@
+package os.exercise.opensearch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.io.DeadLetter;
+import os.exercise.io.DeadLetterQueue;
+import os.exercise.io.DeadLetterReader;
+import os.exercise.models.RawArticle;
+
+/**
+ * The DeadLetterReplayer class indexes again the articles of the segments of a {@link DeadLetterQueue}, e.g. once the
+ * mapping that rejected them has been fixed. The sources are sent as they were, through the same batching, retries and
+ * partitions as the input files, with {@link ArticlesIndexer#getSizedRawBulkBatches(String, List, BatchLimits)} and
+ * {@link ArticlesIndexer#indexBatchAsync(BulkBatch)}.
+ * The articles that fail again go to the dead letter queue of the indexer, into new segments, so each segment is
+ * renamed with a {@code .replayed} suffix once it has been sent, and it is not replayed twice.
+ */
+public class DeadLetterReplayer {
+
+    private static final Logger LOGGER = LogManager.getLogger(DeadLetterReplayer.class);
+    private static final String REPLAYED_SUFFIX = ".replayed";
+    private static final long FLUSH_TIMEOUT_SECONDS = 60;
+
+    private final ArticlesIndexer indexer;
+    private final String index;
+    private final BatchLimits limits;
+    private long replayedLetters;
+
+    /**
+     * Constructor of the DeadLetterReplayer.
+     *
+     * @param indexer The {@link ArticlesIndexer} of the articles, with the dead letter queue of the new failures.
+     * @param index The name of the articles index, or of its alias.
+     * @param limits The {@link BatchLimits} of each bulk request.
+     */
+    public DeadLetterReplayer(ArticlesIndexer indexer, String index, BatchLimits limits) {
+        this.indexer = indexer;
+        this.index = index;
+        this.limits = limits;
+    }
+
+    /**
+     * Index again the articles of every segment of a folder, one segment after the other.
+     *
+     * @param folder The folder of the segments.
+     * @return True if every article was indexed else false.
+     */
+    public boolean replay(Path folder) {
+        List<Path> segments;
+        try {
+            segments = DeadLetterQueue.getSegments(folder);
+        } catch (IOException e) {
+            LOGGER.error("There was an error listing the dead letter segments of {}: {}", folder, e);
+            return false;
+        }
+        boolean success = true;
+        for (Path segment : segments) {
+            success &= replaySegment(segment);
+        }
+        LOGGER.info("{} article(s) of {} dead letter segment(s) were replayed", replayedLetters, segments.size());
+        return success;
+    }
+
+    /**
+     * Index again the articles of a segment, then mark it as replayed if it was read to its end and none of its
+     * articles was lost: each one was either indexed or written again into the dead letter queue. The failures are
+     * only counted once the dead letter queue has written or dropped every letter queued by the replay.
+     *
+     * @param segment A segment of a {@link DeadLetterQueue}.
+     * @return True if every article was indexed else false.
+     */
+    public boolean replaySegment(Path segment) {
+        DeadLetterQueue queue = indexer.getDeadLetterQueue();
+        long writtenBefore = queue == null ? 0 : queue.getWrittenLetters();
+        long droppedBefore = queue == null ? 0 : queue.getDroppedLetters();
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        boolean read;
+        boolean flushed;
+        try (DeadLetterReader reader = new DeadLetterReader(segment)) {
+            List<RawArticle> articles = new ArrayList<>();
+            for (DeadLetter letter = reader.readLetter(); letter != null; letter = reader.readLetter()) {
+                articles.add(letter.toRawArticle());
+                if (articles.size() >= limits.getMaxDocuments()) {
+                    send(articles, results);
+                    articles = new ArrayList<>();
+                }
+            }
+            send(articles, results);
+            indexer.flush();
+            read = !reader.isFailed();
+            flushed = queue != null && queue.flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the dead letter segment {}: {}", segment, e);
+            read = false;
+            flushed = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while replaying the dead letter segment {}", segment);
+            return false;
+        }
+        boolean indexed = read && results.stream().allMatch(CompletableFuture::join);
+        // Once flushed, each letter of the articles that failed again is counted as written or as dropped
+        long written = queue == null ? 0 : queue.getWrittenLetters() - writtenBefore;
+        long dropped = queue == null ? 0 : queue.getDroppedLetters() - droppedBefore;
+        boolean kept = flushed && written > 0 && dropped == 0;
+        if (read && (indexed || kept)) {
+            markReplayed(segment);
+        } else if (read) {
+            LOGGER.warn("Some articles of the dead letter segment {} were lost, it can be replayed again", segment);
+        } else {
+            LOGGER.warn("The dead letter segment {} could not be read to its end, it is not marked as replayed",
+                    segment);
+        }
+        return indexed;
+    }
+
+    private void send(List<RawArticle> articles, List<CompletableFuture<Boolean>> results) {
+        for (BulkBatch batch : indexer.getSizedRawBulkBatches(index, articles, limits)) {
+            results.add(indexer.indexBatchAsync(batch));
+        }
+        replayedLetters += articles.size();
+    }
+
+    private static void markReplayed(Path segment) {
+        try {
+            Files.move(segment, segment.resolveSibling(segment.getFileName() + REPLAYED_SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("There was an error marking the dead letter segment {} as replayed: {}", segment, e);
+        }
+    }
+
+    /**
+     * Get the number of articles sent again.
+     *
+     * @return The number of articles read from the segments so far.
+     */
+    public long getReplayedLetters() {
+        return replayedLetters;
+    }
+}
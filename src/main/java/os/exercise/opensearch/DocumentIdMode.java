@@ -0,0 +1,56 @@
+package os.exercise.opensearch;
+
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.index.IndexRequest;
+
+import java.util.Locale;
+
+/**
+ * How the {@code _id} of the documents is chosen. With an id taken from the article, loading the same articles again
+ * does not duplicate them in the index.
+ */
+public enum DocumentIdMode {
+
+    /**
+     * OpenSearch generates the id, so every load adds new documents.
+     */
+    AUTO,
+    /**
+     * The id of the article is the {@code _id}, and a document with the same id is replaced.
+     */
+    INDEX,
+    /**
+     * The id of the article is the {@code _id}, and a document with the same id is kept: the article is answered with
+     * a version conflict, which is not a failure.
+     */
+    CREATE;
+
+    /**
+     * Set the id and the operation of an index request. Articles without an id always get a generated one.
+     *
+     * @param request An {@code IndexRequest}.
+     * @param id The id of the article.
+     * @return The same request.
+     */
+    public IndexRequest apply(IndexRequest request, String id) {
+        if (this == AUTO || id == null) {
+            return request;
+        }
+        request.id(id);
+        if (this == CREATE) {
+            request.opType(DocWriteRequest.OpType.CREATE);
+        }
+        return request;
+    }
+
+    /**
+     * Get a mode from its name, ignoring the case, e.g. from a system property.
+     *
+     * @param name The name of a mode.
+     * @return The {@link DocumentIdMode}.
+     * @throws IllegalArgumentException when there is no mode with that name.
+     */
+    public static DocumentIdMode fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,408 @@
+package os.exercise.opensearch;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * A secondary cluster that an {@link ArticlesIndexer} sends every batch to, besides its own, e.g. the disaster recovery
+ * cluster or the new cluster of a migration (see {@link ArticlesIndexer#addTarget(FanOutTarget)}). The batches are
+ * shared: the articles are read and serialized once, and the same requests are sent to every cluster, with the same
+ * {@link PooledBulkBody} when the indexers have a body pool.
+ * Each target sends the batches through its own {@link ArticlesIndexer}, so it has its own window of requests in
+ * flight and its own retries, from a dispatcher thread: a slow target never blocks the sends of the primary cluster.
+ * The batches the target has accepted but not indexed yet are its lag. While the lag is under {@code maxLagBytes}, the
+ * batches wait in memory; beyond it, they are written into a {@link BatchSpillFile} if there is one, and read back in
+ * the same order once the target has caught up. Without a spill file, the primary waits for the target to fall back
+ * under the bound instead.
+ */
+public class FanOutTarget implements Closeable {
+
+    private static final Logger LOGGER = LogManager.getLogger(FanOutTarget.class);
+    private static final int SPILL_ARRAY_BYTES = 64 * 1024;
+    private static final long SPILL_POOL_BYTES = 1024L * 1024;
+
+    private final String name;
+    private final ArticlesIndexer indexer;
+    private final long maxLagBytes;
+    private final Deque<BulkBatch> queue = new ArrayDeque<>();
+    private final Thread dispatcher;
+    private BatchSpillFile spillFile;
+    private long lagBytes;
+    private int lagBatches;
+    private long spilledBatches;
+    private long indexedBatches;
+    private long failedBatches;
+    private long throttledNanos;
+    private boolean closed;
+    private boolean stopped;
+
+    /**
+     * Constructor of the FanOutTarget. It starts the dispatcher thread.
+     *
+     * @param name The name of the target, for the logs, e.g. its nodes.
+     * @param indexer The {@link ArticlesIndexer} of the cluster, which owns its window and retry policy.
+     * @param maxLagBytes The maximum size of the batches kept in memory until the cluster has indexed them.
+     */
+    public FanOutTarget(String name, ArticlesIndexer indexer, long maxLagBytes) {
+        if (maxLagBytes <= 0) {
+            throw new IllegalArgumentException("The maximum lag must be positive: " + maxLagBytes);
+        }
+        this.name = name;
+        this.indexer = indexer;
+        this.maxLagBytes = maxLagBytes;
+        this.dispatcher = new Thread(this::dispatch, "fan-out-" + name);
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Spill the batches beyond the lag bound into a file instead of making the primary wait. The batches left in the
+     * file by a previous run are sent first.
+     *
+     * @param file The location of the spill file of this target.
+     * @throws IOException when the file can not be opened.
+     */
+    public synchronized void setSpillFile(Path file) throws IOException {
+        if (spillFile != null) {
+            throw new IllegalStateException("The target " + name + " already has a spill file");
+        }
+        spillFile = new BatchSpillFile(file, new ByteArrayPool(SPILL_ARRAY_BYTES, SPILL_POOL_BYTES));
+        if (spillFile.getBatches() > 0) {
+            LOGGER.info("{} batch(es) left by the previous run will be sent to {}", spillFile.getBatches(), name);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Accept a batch to be sent to the cluster. It only waits if the lag is over the bound and there is no spill
+     * file, or it can not be written; in that case it also waits until the batches spilled before it have been sent,
+     * so that the batches are still sent in the order they were accepted.
+     *
+     * @param batch A {@link BulkBatch}, which must not be modified afterwards.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     * @throws IllegalStateException when the target has been closed, including while waiting.
+     */
+    synchronized void submit(BulkBatch batch) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The fan-out target " + name + " is closed");
+        }
+        long bytes = batch.getRequest().estimatedSizeInBytes();
+        if (!isSpilling() && fitsInMemory(bytes)) {
+            enqueue(batch, bytes);
+            return;
+        }
+        if (spillFile != null && spill(batch)) {
+            return;
+        }
+        // The spilled batches were accepted before this one, so it can only be queued once they have all been sent
+        long start = System.nanoTime();
+        while (isSpilling() || !fitsInMemory(bytes)) {
+            if (closed) {
+                throw new IllegalStateException("The fan-out target " + name + " was closed before the batch could be"
+                        + " queued");
+            }
+            wait();
+        }
+        throttledNanos += System.nanoTime() - start;
+        enqueue(batch, bytes);
+    }
+
+    private boolean isSpilling() {
+        return spillFile != null && spillFile.getBatches() > 0;
+    }
+
+    /**
+     * Check if a batch fits under the lag bound. A batch bigger than the bound fits when there is no lag.
+     */
+    private boolean fitsInMemory(long bytes) {
+        return lagBatches == 0 || lagBytes + bytes <= maxLagBytes;
+    }
+
+    private void enqueue(BulkBatch batch, long bytes) {
+        queue.add(batch);
+        lagBytes += bytes;
+        lagBatches++;
+        notifyAll();
+    }
+
+    private boolean spill(BulkBatch batch) {
+        try {
+            spillFile.append(batch);
+            // The spilled batch is read back without its body
+            batch.releaseBody();
+            spilledBatches++;
+            notifyAll();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("There was an error spilling a batch of {}, waiting for it to catch up: {}", name, e);
+            return false;
+        }
+    }
+
+    /**
+     * Send the batches in the order they were accepted: the ones in memory, then the ones in the spill file, read
+     * only while the lag is under the bound.
+     */
+    private void dispatch() {
+        while (true) {
+            BulkBatch batch;
+            long bytes;
+            synchronized (this) {
+                try {
+                    while (queue.isEmpty() && !canUnspill() && !(closed && isDrained()) && !stopped) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (stopped || queue.isEmpty() && !canUnspill()) {
+                    return;
+                }
+                batch = queue.isEmpty() ? unspill() : queue.poll();
+                if (batch == null) {
+                    continue;
+                }
+                bytes = batch.getRequest().estimatedSizeInBytes();
+            }
+            send(batch, bytes);
+        }
+    }
+
+    private boolean canUnspill() {
+        return spillFile != null && spillFile.getBatches() > 0 && lagBytes < maxLagBytes;
+    }
+
+    /**
+     * Read the oldest batch of the spill file, which counts in the lag until it is indexed.
+     */
+    private BulkBatch unspill() {
+        int spilled = spillFile.getBatches();
+        try {
+            BulkBatch batch = spillFile.read();
+            lagBytes += batch.getRequest().estimatedSizeInBytes();
+            lagBatches++;
+            return batch;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("There was an error reading the spill file of {}, {} batch(es) are lost: {}", name,
+                    spilled, e);
+            failedBatches += spilled;
+            try {
+                spillFile.close();
+                spillFile = null;
+            } catch (IOException closing) {
+                LOGGER.error("There was an error closing the spill file of {}: {}", name, closing);
+                spillFile = null;
+            }
+            notifyAll();
+            return null;
+        }
+    }
+
+    private void send(BulkBatch batch, long bytes) {
+        try {
+            indexer.indexBatchAsync(batch).whenComplete((success, e) -> done(bytes, Boolean.TRUE.equals(success)));
+        } catch (RuntimeException e) {
+            batch.releaseBody();
+            LOGGER.error("There was an error sending a batch to {}: {}", name, e);
+            done(bytes, false);
+        }
+    }
+
+    private synchronized void done(long bytes, boolean success) {
+        lagBytes -= bytes;
+        lagBatches--;
+        if (success) {
+            indexedBatches++;
+        } else {
+            failedBatches++;
+        }
+        notifyAll();
+    }
+
+    private boolean isDrained() {
+        return lagBatches == 0 && (spillFile == null || spillFile.getBatches() == 0);
+    }
+
+    /**
+     * Wait until the cluster has indexed every batch accepted so far, including the spilled ones.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the {@code timeout}.
+     * @return True if the target caught up before the timeout else false.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public synchronized boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (!isDrained() && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return isDrained();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ArticlesIndexer getIndexer() {
+        return indexer;
+    }
+
+    /**
+     * Get the size of the batches accepted and not indexed yet, in memory or in flight.
+     *
+     * @return The lag of the target in bytes, without the spilled batches.
+     */
+    public synchronized long getLagBytes() {
+        return lagBytes;
+    }
+
+    /**
+     * Get the number of batches accepted and not indexed yet, in memory or in flight.
+     *
+     * @return The lag of the target in batches, without the spilled batches.
+     */
+    public synchronized int getLagBatches() {
+        return lagBatches;
+    }
+
+    /**
+     * Get the number of batches waiting in the spill file.
+     *
+     * @return The number of spilled batches not sent yet.
+     */
+    public synchronized int getPendingSpilledBatches() {
+        return spillFile == null ? 0 : spillFile.getBatches();
+    }
+
+    /**
+     * Get the size of the batches waiting in the spill file.
+     *
+     * @return The number of bytes of the spill file not read yet.
+     */
+    public synchronized long getPendingSpilledBytes() {
+        return spillFile == null ? 0 : spillFile.getBytes();
+    }
+
+    /**
+     * Get the number of batches written into the spill file.
+     *
+     * @return The number of batches spilled since the target was created.
+     */
+    public synchronized long getSpilledBatches() {
+        return spilledBatches;
+    }
+
+    public synchronized long getIndexedBatches() {
+        return indexedBatches;
+    }
+
+    public synchronized long getFailedBatches() {
+        return failedBatches;
+    }
+
+    /**
+     * Get the time the primary waited for this target to fall back under the lag bound.
+     *
+     * @return The time in milliseconds.
+     */
+    public synchronized long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(throttledNanos);
+    }
+
+    /**
+     * Stop accepting batches and wait until the batches accepted so far, the spilled ones included, have been sent to
+     * the cluster and answered. Once the timeout expires the dispatcher is stopped, and the batches not sent yet are
+     * kept in the spill file for the next run, the ones in memory first; without a spill file they are lost, and
+     * counted as failed. The client of the cluster is not closed, since it is owned by the caller.
+     *
+     * @param timeout The maximum time to wait for the requests in flight.
+     * @param unit The unit of the {@code timeout}.
+     * @return True if every accepted batch was handed to the cluster and answered before the timeout else false.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    public boolean close(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        dispatcher.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+        }
+        // Release the dispatcher if it waits for a free slot of the window; that batch counts as failed
+        if (dispatcher.isAlive()) {
+            dispatcher.interrupt();
+            dispatcher.join();
+        }
+        boolean answered = indexer.awaitClose(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        synchronized (this) {
+            keepUnsentBatches();
+            LOGGER.info("Fan-out target {}: {}", name, this);
+            return answered && isDrained();
+        }
+    }
+
+    /**
+     * Move the batches left in memory by the stopped dispatcher into the spill file, before the spilled ones, and close
+     * it.
+     */
+    private void keepUnsentBatches() {
+        List<BulkBatch> unsent = new ArrayList<>(queue);
+        queue.clear();
+        for (BulkBatch batch : unsent) {
+            batch.releaseBody();
+            lagBytes -= batch.getRequest().estimatedSizeInBytes();
+            lagBatches--;
+        }
+        if (spillFile == null) {
+            if (!unsent.isEmpty()) {
+                LOGGER.error("{} batch(es) accepted by {} were not sent and are lost", unsent.size(), name);
+                failedBatches += unsent.size();
+            }
+            return;
+        }
+        try {
+            spillFile.close(unsent);
+            spilledBatches += unsent.size();
+        } catch (IOException e) {
+            LOGGER.error("There was an error keeping {} batch(es) of {} in its spill file, they are lost: {}",
+                    unsent.size(), name, e);
+            failedBatches += unsent.size();
+        }
+    }
+
+    /**
+     * Stop the target without waiting for its lag, see {@link #close(long, TimeUnit)}.
+     */
+    @Override
+    public void close() {
+        try {
+            close(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return indexedBatches + " batch(es) indexed, " + failedBatches + " failed, lag " + lagBatches + " batch(es) / "
+                + lagBytes + " bytes, " + getPendingSpilledBatches() + " spilled batch(es) pending of "
+                + spilledBatches + ", primary throttled " + getThrottledMillis() + " ms";
+    }
+}
@@ -0,0 +1,92 @@
+package os.exercise.opensearch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded window of requests waiting for a response. Unlike a {@code Semaphore}, its size can be changed while
+ * requests are in flight: when it shrinks, no new request enters until enough of the current ones have left.
+ */
+class InFlightWindow {
+
+    private int size;
+    private int inFlight;
+
+    /**
+     * Constructor of the InFlightWindow.
+     *
+     * @param size The maximum number of requests in flight.
+     */
+    InFlightWindow(int size) {
+        checkSize(size);
+        this.size = size;
+    }
+
+    /**
+     * Wait until there is room in the window and take it.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    synchronized void enter() throws InterruptedException {
+        while (inFlight >= size) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Leave the room taken by {@link #enter()}.
+     */
+    synchronized void leave() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * Wait until every request in flight has left the window.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the {@code timeout}.
+     * @return True if the window is empty else false.
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    synchronized boolean awaitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remaining = unit.toNanos(timeout);
+        while (inFlight > 0 && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return inFlight == 0;
+    }
+
+    /**
+     * Wait until every request in flight has left the window.
+     *
+     * @throws InterruptedException when the thread is interrupted while waiting.
+     */
+    synchronized void awaitEmpty() throws InterruptedException {
+        while (inFlight > 0) {
+            wait();
+        }
+    }
+
+    synchronized void resize(int newSize) {
+        checkSize(newSize);
+        size = newSize;
+        notifyAll();
+    }
+
+    synchronized int getSize() {
+        return size;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private static void checkSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("The number of in flight requests must be positive: " + size);
+        }
+    }
+}
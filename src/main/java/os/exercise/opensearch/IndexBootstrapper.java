@@ -0,0 +1,287 @@
+package os.exercise.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.admin.indices.alias.Alias;
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.opensearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.opensearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.opensearch.action.admin.indices.refresh.RefreshRequest;
+import org.opensearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.opensearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.opensearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.opensearch.client.GetAliasesResponse;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.client.indices.CreateIndexRequest;
+import org.opensearch.client.indices.GetIndexRequest;
+import org.opensearch.common.settings.Settings;
+import org.opensearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The IndexBootstrapper class manages the life cycle of an index loaded in bulk: it creates the index from the
+ * settings and mapping files of {@code resources/mappings}, switches it to a bulk-load profile while it is loaded
+ * (no refresh, no replicas, translog fsynced asynchronously), restores its settings afterwards, refreshes and
+ * optionally force-merges it, and finally points an alias to it. A full rebuild is then loaded into a new index while
+ * the searches still go through the alias to the previous one, and the alias is swapped atomically once it is ready.
+ * The partitions of an {@link IndexPartitioner} are created with {@link #ensureIndex(String, Path, Path, String)} and
+ * sealed with {@link #seal(String)} once their period is over.
+ */
+public class IndexBootstrapper {
+
+    public static final String REFRESH_INTERVAL = "index.refresh_interval";
+    public static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    public static final String TRANSLOG_DURABILITY = "index.translog.durability";
+    public static final String WRITE_BLOCK = "index.blocks.write";
+
+    private static final Logger LOGGER = LogManager.getLogger(IndexBootstrapper.class);
+    private static final Settings BULK_LOAD_SETTINGS = Settings.builder()
+            .put(REFRESH_INTERVAL, "-1")
+            .put(NUMBER_OF_REPLICAS, 0)
+            .put(TRANSLOG_DURABILITY, "async")
+            .build();
+    private static final String[] PROFILE_SETTINGS = {REFRESH_INTERVAL, NUMBER_OF_REPLICAS, TRANSLOG_DURABILITY};
+    // A refresh or a force merge after a bulk load takes much longer than the 30 s socket timeout of the client
+    private static final int MAINTENANCE_TIMEOUT_MS = (int) TimeUnit.HOURS.toMillis(1);
+    private static final RequestOptions MAINTENANCE_OPTIONS = RequestOptions.DEFAULT.toBuilder()
+            .setRequestConfig(RequestConfig.custom().setSocketTimeout(MAINTENANCE_TIMEOUT_MS).build())
+            .build();
+
+    private final RestHighLevelClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Settings> productionSettings = new HashMap<>();
+
+    /**
+     * Constructor of the IndexBootstrapper.
+     *
+     * @param client The {@code RestHighLevelClient} of the cluster.
+     */
+    public IndexBootstrapper(RestHighLevelClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Create an index with the settings and the mappings of two files, which hold a {@code settings} and a
+     * {@code mappings} object respectively, as the files of {@code resources/mappings}.
+     *
+     * @param index The name of the index.
+     * @param settingsFile The location of the settings file.
+     * @param mappingFile The location of the mapping file.
+     * @return True if the index was created else false.
+     */
+    public boolean createIndex(String index, Path settingsFile, Path mappingFile) {
+        return createIndex(index, settingsFile, mappingFile, null);
+    }
+
+    /**
+     * Make sure an index exists and is in an alias: create it as {@link #createIndex(String, Path, Path)} does, or,
+     * if it already exists, add it to the alias and allow the writes again, in case it was sealed by
+     * {@link #seal(String)}.
+     *
+     * @param index The name of the index.
+     * @param settingsFile The location of the settings file, used if the index is created.
+     * @param mappingFile The location of the mapping file, used if the index is created.
+     * @param alias The name of the alias.
+     * @return True if the index exists and is in the alias else false.
+     */
+    public boolean ensureIndex(String index, Path settingsFile, Path mappingFile, String alias) {
+        try {
+            if (!client.indices().exists(new GetIndexRequest(index), RequestOptions.DEFAULT)) {
+                return createIndex(index, settingsFile, mappingFile, alias);
+            }
+            client.indices().updateAliases(new IndicesAliasesRequest()
+                    .addAliasAction(AliasActions.add().index(index).alias(alias)), RequestOptions.DEFAULT);
+            updateSettings(index, Settings.builder().put(WRITE_BLOCK, false).build());
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error adding the index {} to the alias {}: {}", index, alias, e);
+            return false;
+        }
+    }
+
+    private boolean createIndex(String index, Path settingsFile, Path mappingFile, String alias) {
+        String source;
+        try {
+            ObjectNode body = mapper.createObjectNode();
+            body.setAll(readObject(settingsFile));
+            body.setAll(readObject(mappingFile));
+            source = mapper.writeValueAsString(body);
+        } catch (IOException e) {
+            LOGGER.error("There was an error reading the settings {} and the mapping {}: {}", settingsFile,
+                    mappingFile, e);
+            return false;
+        }
+        CreateIndexRequest request = new CreateIndexRequest(index).source(source, XContentType.JSON);
+        if (alias != null) {
+            request.alias(new Alias(alias));
+        }
+        try {
+            client.indices().create(request, RequestOptions.DEFAULT);
+            LOGGER.info("Created the index {} from {} and {}", index, settingsFile, mappingFile);
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error creating the index {}: {}", index, e);
+            return false;
+        }
+    }
+
+    private ObjectNode readObject(Path file) throws IOException {
+        JsonNode node = mapper.readTree(Files.readAllBytes(file));
+        if (!(node instanceof ObjectNode)) {
+            throw new IOException("The file " + file + " does not hold a JSON object");
+        }
+        return (ObjectNode) node;
+    }
+
+    /**
+     * Switch an index to the bulk-load profile, after saving the settings it has, explicitly or by default, so they
+     * are restored by {@link #finishBulkLoad(String, int)}.
+     *
+     * @param index The name of the index.
+     * @return True if the profile was applied else false.
+     */
+    public boolean startBulkLoad(String index) {
+        try {
+            GetSettingsResponse current = client.indices().getSettings(new GetSettingsRequest().indices(index)
+                    .names(PROFILE_SETTINGS).includeDefaults(true), RequestOptions.DEFAULT);
+            Settings.Builder saved = Settings.builder();
+            for (String setting : PROFILE_SETTINGS) {
+                String value = current.getSetting(index, setting);
+                if (value != null) {
+                    saved.put(setting, value);
+                }
+            }
+            synchronized (productionSettings) {
+                productionSettings.put(index, saved.build());
+            }
+            updateSettings(index, BULK_LOAD_SETTINGS);
+            LOGGER.info("Switched the index {} to the bulk-load profile {}, its settings were {}", index,
+                    BULK_LOAD_SETTINGS, saved.build());
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error switching the index {} to the bulk-load profile: {}", index, e);
+            return false;
+        }
+    }
+
+    /**
+     * End the bulk load of an index: refresh it, force-merge it while it has no replicas to merge too, and restore the
+     * settings saved by {@link #startBulkLoad(String)}.
+     *
+     * @param index The name of the index.
+     * @param maxSegments The number of segments per shard to force-merge to, 0 to skip the force merge.
+     * @return True if every step succeeded else false.
+     */
+    public boolean finishBulkLoad(String index, int maxSegments) {
+        Settings saved;
+        synchronized (productionSettings) {
+            saved = productionSettings.remove(index);
+        }
+        try {
+            client.indices().refresh(new RefreshRequest(index), MAINTENANCE_OPTIONS);
+            if (maxSegments > 0) {
+                client.indices().forcemerge(new ForceMergeRequest(index).maxNumSegments(maxSegments),
+                        MAINTENANCE_OPTIONS);
+                LOGGER.info("Force-merged the index {} to {} segment(s) per shard", index, maxSegments);
+            }
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error refreshing or merging the index {}: {}", index, e);
+            restoreSettings(index, saved);
+            return false;
+        }
+        return restoreSettings(index, saved);
+    }
+
+    private boolean restoreSettings(String index, Settings saved) {
+        if (saved == null || saved.isEmpty()) {
+            return true;
+        }
+        try {
+            updateSettings(index, saved);
+            LOGGER.info("Restored the settings {} of the index {}", saved, index);
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error restoring the settings {} of the index {}: {}", saved, index, e);
+            return false;
+        }
+    }
+
+    private void updateSettings(String index, Settings settings) throws IOException {
+        client.indices().putSettings(new UpdateSettingsRequest(index).settings(settings), RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Seal an index that is not written any more, e.g. the partition of a past year: force-merge it to a single
+     * segment per shard and block its writes, so it takes less memory and disk and its caches stay valid.
+     *
+     * @param index The name of the index.
+     * @return True if the index was sealed else false.
+     */
+    public boolean seal(String index) {
+        try {
+            client.indices().forcemerge(new ForceMergeRequest(index).maxNumSegments(1), MAINTENANCE_OPTIONS);
+            updateSettings(index, Settings.builder().put(WRITE_BLOCK, true).build());
+            LOGGER.info("Sealed the index {}", index);
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error sealing the index {}: {}", index, e);
+            return false;
+        }
+    }
+
+    /**
+     * Point an alias to an index and remove it from the indices it pointed to, in a single atomic request, so the
+     * searches through the alias never see both indices or none.
+     * An index with the name of the alias, e.g. from a load without alias, is only replaced if the previous indices
+     * are deleted.
+     *
+     * @param alias The name of the alias.
+     * @param index The name of the new index of the alias.
+     * @param deletePrevious True to delete the indices the alias pointed to else false to keep them.
+     * @return True if the alias was swapped else false.
+     */
+    public boolean swapAlias(String alias, String index, boolean deletePrevious) {
+        try {
+            GetAliasesResponse aliases = client.indices().getAlias(new GetAliasesRequest(alias),
+                    RequestOptions.DEFAULT);
+            Set<String> previous = aliases.getAliases().keySet();
+            IndicesAliasesRequest request = new IndicesAliasesRequest();
+            request.addAliasAction(AliasActions.add().index(index).alias(alias));
+            if (previous.isEmpty() && client.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+                if (!deletePrevious) {
+                    LOGGER.error("The alias {} can not be swapped to {}: an index has its name and the previous "
+                            + "indices are kept", alias, index);
+                    return false;
+                }
+                request.addAliasAction(AliasActions.removeIndex().index(alias));
+            }
+            for (String previousIndex : previous) {
+                if (!previousIndex.equals(index)) {
+                    request.addAliasAction(deletePrevious ? AliasActions.removeIndex().index(previousIndex)
+                            : AliasActions.remove().index(previousIndex).alias(alias));
+                }
+            }
+            client.indices().updateAliases(request, RequestOptions.DEFAULT);
+            LOGGER.info("Swapped the alias {} from {} to {}{}", alias, previous, index,
+                    deletePrevious ? ", deleting the previous indices" : "");
+            return true;
+        } catch (IOException | OpenSearchException e) {
+            LOGGER.error("There was an error swapping the alias {} to {}: {}", alias, index, e);
+            return false;
+        }
+    }
+}
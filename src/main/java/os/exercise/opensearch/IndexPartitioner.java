@@ -0,0 +1,165 @@
+package os.exercise.opensearch;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * The IndexPartitioner class routes each article to an index of the period of its {@code pub_date}, a year or a
+ * month, e.g. {@code articles-2003} or {@code articles-2003-12}, and the articles without a valid date to
+ * {@code articles-undated}. The partitions are created the first time an article of their period is seen, with an
+ * alias over all of them (the name of the index, e.g. {@code articles}) for the searches, which can then skip the
+ * partitions out of their date range, while the old partitions can be merged and made read-only.
+ * The date is only read from its first characters ({@code yyyy} or {@code yyyy-MM}), the rest is not parsed.
+ */
+public class IndexPartitioner {
+
+    /**
+     * The period of each partition.
+     */
+    public enum Granularity {
+        YEAR,
+        MONTH;
+
+        /**
+         * Get a granularity from its name, ignoring the case, e.g. from a system property.
+         *
+         * @param name The name of a granularity.
+         * @return The {@link Granularity}.
+         * @throws IllegalArgumentException when there is no granularity with that name.
+         */
+        public static Granularity fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static final String UNDATED = "undated";
+
+    private static final int YEAR_DIGITS = 4;
+    private static final int MONTH_END = 7;
+    private static final int MONTHS_PER_YEAR = 12;
+    private static final int DECIMAL_BASE = 10;
+    private static final int PERIOD_FACTOR = 100;
+    private static final int UNDATED_PERIOD = -1;
+    private static final char DATE_SEPARATOR = '-';
+
+    private final String alias;
+    private final Granularity granularity;
+    private final Predicate<String> createPartition;
+    // The partitions seen in this run by period, yyyy00 or yyyyMM, so the name is only built once per period
+    private final Map<Integer, String> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the IndexPartitioner.
+     *
+     * @param alias The alias over all the partitions, also the prefix of their names.
+     * @param granularity The period of each partition.
+     * @param createPartition Creates a partition, or adds the alias to it if it already exists, the first time it is
+     *                        used in the run. It returns false if the partition could not be created.
+     */
+    public IndexPartitioner(String alias, Granularity granularity, Predicate<String> createPartition) {
+        this.alias = alias;
+        this.granularity = granularity;
+        this.createPartition = createPartition;
+    }
+
+    public String getAlias() {
+        return alias;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    /**
+     * Get the partition of an article, creating it if it is its first article in the run.
+     * A partition that can not be created is not created again, so its articles fail in the bulk responses instead of
+     * sending a request for each of them.
+     *
+     * @param pubDate The {@code pub_date} of the article, e.g. {@code 2003-12-01}, or null.
+     * @return The name of the index of the article.
+     */
+    public String getIndex(String pubDate) {
+        return partitions.computeIfAbsent(getPeriod(pubDate), period -> {
+            String index = getName(period);
+            createPartition.test(index);
+            return index;
+        });
+    }
+
+    /**
+     * Get the partitions used in this run whose period ended before a date, e.g. to merge them and make them
+     * read-only. The undated partition is never one of them.
+     *
+     * @param now The current month.
+     * @return The names of the past partitions.
+     */
+    public List<String> getPastPartitions(YearMonth now) {
+        int current = getPeriod(now.getYear(), now.getMonthValue());
+        List<String> past = new ArrayList<>();
+        partitions.forEach((period, index) -> {
+            if (period != UNDATED_PERIOD && period < current) {
+                past.add(index);
+            }
+        });
+        return past;
+    }
+
+    /**
+     * Get the period of a date, {@code yyyy00} for a year or {@code yyyyMM} for a month. A date with a year but no
+     * month is in January.
+     */
+    private int getPeriod(String pubDate) {
+        if (pubDate == null || pubDate.length() < YEAR_DIGITS) {
+            return UNDATED_PERIOD;
+        }
+        int year = parseDigits(pubDate, 0, YEAR_DIGITS);
+        if (year < 0) {
+            return UNDATED_PERIOD;
+        }
+        int month = 1;
+        if (pubDate.length() >= MONTH_END && pubDate.charAt(YEAR_DIGITS) == DATE_SEPARATOR) {
+            month = parseDigits(pubDate, YEAR_DIGITS + 1, MONTH_END);
+            if (month < 1 || month > MONTHS_PER_YEAR) {
+                return UNDATED_PERIOD;
+            }
+        }
+        return getPeriod(year, month);
+    }
+
+    private int getPeriod(int year, int month) {
+        return granularity == Granularity.YEAR ? year * PERIOD_FACTOR : year * PERIOD_FACTOR + month;
+    }
+
+    private String getName(int period) {
+        if (period == UNDATED_PERIOD) {
+            return alias + DATE_SEPARATOR + UNDATED;
+        }
+        int year = period / PERIOD_FACTOR;
+        if (granularity == Granularity.YEAR) {
+            return alias + DATE_SEPARATOR + year;
+        }
+        return String.format(Locale.ROOT, "%s-%d-%02d", alias, year, period % PERIOD_FACTOR);
+    }
+
+    /**
+     * Parse the decimal digits of a part of a string.
+     *
+     * @return The number, or -1 if a character is not a digit.
+     */
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * DECIMAL_BASE + (c - '0');
+        }
+        return value;
+    }
+}
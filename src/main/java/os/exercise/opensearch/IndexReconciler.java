@@ -0,0 +1,404 @@
+package os.exercise.opensearch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.io.ContentHash;
+import os.exercise.io.JsonReader;
+import os.exercise.io.RawArticleBatchReader;
+import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+import os.exercise.util.LongHashSet;
+
+/**
+ * The IndexReconciler class verifies after a load that every article of the input files is in the index, looking up
+ * the {@code _id}s, so the articles must have been indexed with their id (a {@link DocumentIdMode} other than
+ * {@link DocumentIdMode#AUTO}).
+ * The exact check streams the ids of the files and looks them up in batches, in parallel: a {@code _count} of the
+ * batch, and only if some are missing, a search of the ids of the batch to tell which ones. The missing articles are
+ * reported and, if there is a repair indexer, indexed again from the files.
+ * The checksum check is the cheap path for large corpora: the ids are hashed into buckets, and the count and the sum
+ * of the hashes of each bucket are compared with the ones computed by an aggregation of the index. Only the ids of the
+ * buckets that differ are then checked exactly. The index does not know the file of each article, so the records of
+ * each file are only counted, and the files are compared to the index bucket by bucket.
+ */
+public class IndexReconciler {
+
+    private static final Logger LOGGER = LogManager.getLogger(IndexReconciler.class);
+    private static final String BUCKETS_AGGREGATION = "id_buckets";
+    private static final String CHECKSUM_AGGREGATION = "id_checksum";
+    // The same bucket and hash of the id as getBucket, as String.hashCode is the same in the scripts
+    private static final String BUCKET_SCRIPT = "int bucket = doc['_id'].value.hashCode() % params.buckets;"
+            + " return bucket < 0 ? bucket + params.buckets : bucket;";
+    private static final String HASH_SCRIPT = "doc['_id'].value.hashCode()";
+    // The default index.max_result_window, the most ids a search can return
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_BUCKETS = 1024;
+    private static final int DEFAULT_PARALLELISM = 4;
+
+    private final RestClient client;
+    private final String index;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int buckets = DEFAULT_BUCKETS;
+    private ArticlesIndexer repairIndexer;
+
+    /**
+     * Constructor of the IndexReconciler.
+     *
+     * @param client The {@code RestHighLevelClient} of the cluster. Only its low-level client is used.
+     * @param index The name of the articles index, or of its alias.
+     */
+    public IndexReconciler(RestHighLevelClient client, String index) {
+        this.client = client.getLowLevelClient();
+        this.index = index;
+    }
+
+    /**
+     * Set the number of ids looked up by each request.
+     *
+     * @param batchSize The number of ids of each check, at most 10000.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0 || batchSize > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("The batch size must be between 1 and " + MAX_BATCH_SIZE + ": "
+                    + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set the number of checks sent concurrently.
+     *
+     * @param parallelism The number of threads of the checks.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Set the number of hash buckets of the checksum check. The more buckets, the fewer ids are checked exactly for
+     * each missing article, and the bigger the aggregation. The sum of a bucket is exact up to 4 million articles.
+     *
+     * @param buckets The number of buckets.
+     */
+    public void setBuckets(int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("The number of buckets must be positive: " + buckets);
+        }
+        this.buckets = buckets;
+    }
+
+    /**
+     * Set the indexer of the missing articles.
+     *
+     * @param repairIndexer An {@link ArticlesIndexer} to index the missing articles again, or null to only report them.
+     */
+    public void setRepairIndexer(ArticlesIndexer repairIndexer) {
+        this.repairIndexer = repairIndexer;
+    }
+
+    /**
+     * Check every id of the files in the index.
+     *
+     * @param paths A list of json files.
+     * @return A {@link ReconciliationReport}, or null if the index could not be refreshed.
+     */
+    public ReconciliationReport reconcile(List<Path> paths) {
+        if (!refresh()) {
+            return null;
+        }
+        ReconciliationReport report = new ReconciliationReport();
+        check(paths, id -> true, true, report);
+        LOGGER.info("Reconciled the index {}: {}", index, report);
+        return report;
+    }
+
+    /**
+     * Compare the counts and the checksums of the ids of the files with the ones of the index, by hash bucket, and
+     * check exactly the ids of the buckets that differ. If the aggregation fails, e.g. when the cluster does not allow
+     * the scripts to read the {@code _id}, every id is checked exactly.
+     *
+     * @param paths A list of json files.
+     * @return A {@link ReconciliationReport}, or null if the index could not be refreshed.
+     */
+    public ReconciliationReport reconcileByChecksum(List<Path> paths) {
+        if (!refresh()) {
+            return null;
+        }
+        ReconciliationReport report = new ReconciliationReport();
+        long[] counts = new long[buckets];
+        long[] checksums = new long[buckets];
+        // The same id is a single document, so the duplicated ids are only counted once
+        LongHashSet seenIds = new LongHashSet();
+        for (Path path : paths) {
+            long records = 0;
+            long withoutId = 0;
+            try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(path, batchSize, Long.MAX_VALUE, 0)) {
+                while (reader.hasNext()) {
+                    for (RawArticle article : reader.next()) {
+                        records++;
+                        String id = article.getId();
+                        if (seenIds.add(ContentHash.of(id.getBytes(StandardCharsets.UTF_8)))) {
+                            counts[getBucket(id)]++;
+                            checksums[getBucket(id)] += id.hashCode();
+                        }
+                    }
+                }
+                withoutId = reader.getSkippedLines();
+                records += withoutId;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.error("There was an error reading the file {}: {}", path, e);
+                report.addFailedFile(path);
+            }
+            report.addRecords(path, records, withoutId);
+        }
+        BitSet mismatched;
+        try {
+            mismatched = getMismatchedBuckets(counts, checksums);
+        } catch (IOException e) {
+            LOGGER.warn("The checksums of the index {} could not be computed, every id is checked: {}", index,
+                    e.toString());
+            mismatched = new BitSet(buckets);
+            mismatched.set(0, buckets);
+        }
+        report.setMismatchedBuckets(mismatched.cardinality());
+        LOGGER.info("{}/{} hash bucket(s) of the index {} differ from the files", mismatched.cardinality(), buckets,
+                index);
+        if (!mismatched.isEmpty()) {
+            BitSet idsToCheck = mismatched;
+            check(paths, id -> idsToCheck.get(getBucket(id)), false, report);
+        }
+        LOGGER.info("Reconciled the index {}: {}", index, report);
+        return report;
+    }
+
+    private int getBucket(String id) {
+        return Math.floorMod(id.hashCode(), buckets);
+    }
+
+    private boolean refresh() {
+        try {
+            client.performRequest(new Request("POST", "/" + index + "/_refresh"));
+            return true;
+        } catch (IOException e) {
+            LOGGER.error("The index {} could not be refreshed before the reconciliation: {}", index, e);
+            return false;
+        }
+    }
+
+    /**
+     * Stream the files and check the ids accepted by the filter in batches, sent concurrently by at most
+     * {@code parallelism} threads. At most two batches per thread are waiting, so the memory does not grow with the
+     * files.
+     */
+    private void check(List<Path> paths, Predicate<String> filter, boolean countRecords, ReconciliationReport report) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore pendingBatches = new Semaphore(2 * parallelism);
+        try {
+            for (Path path : paths) {
+                long records = 0;
+                long withoutId = 0;
+                List<RawArticle> batch = new ArrayList<>(batchSize);
+                try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(path, batchSize, Long.MAX_VALUE,
+                        0)) {
+                    while (reader.hasNext()) {
+                        for (RawArticle article : reader.next()) {
+                            records++;
+                            if (filter.test(article.getId())) {
+                                batch.add(article);
+                            }
+                            if (batch.size() == batchSize) {
+                                submit(executor, pendingBatches, path, batch, report);
+                                batch = new ArrayList<>(batchSize);
+                            }
+                        }
+                    }
+                    withoutId = reader.getSkippedLines();
+                    records += withoutId;
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("There was an error reading the file {}: {}", path, e);
+                    report.addFailedFile(path);
+                }
+                if (!batch.isEmpty()) {
+                    submit(executor, pendingBatches, path, batch, report);
+                }
+                if (countRecords) {
+                    report.addRecords(path, records, withoutId);
+                }
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.info("Waiting for the checks of the index {}: {}", index, report);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("The reconciliation of the index {} was interrupted", index);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submit(ExecutorService executor, Semaphore pendingBatches, Path path, List<RawArticle> batch,
+                        ReconciliationReport report) throws InterruptedException {
+        pendingBatches.acquire();
+        executor.execute(() -> {
+            try {
+                checkBatch(path, batch, report);
+            } finally {
+                pendingBatches.release();
+            }
+        });
+    }
+
+    private void checkBatch(Path path, List<RawArticle> batch, ReconciliationReport report) {
+        Map<String, RawArticle> articles = new LinkedHashMap<>();
+        batch.forEach(article -> articles.putIfAbsent(article.getId(), article));
+        List<String> missing;
+        try {
+            missing = getMissingIds(articles.keySet());
+        } catch (IOException e) {
+            LOGGER.error("The ids of {} article(s) of the file {} could not be checked: {}", articles.size(), path,
+                    e.toString());
+            report.addFailed(articles.size());
+            return;
+        }
+        report.addChecked(path, articles.size(), missing);
+        if (missing.isEmpty()) {
+            return;
+        }
+        LOGGER.warn("{} article(s) of the file {} are missing from the index {}: {}", missing.size(), path, index,
+                missing);
+        if (repairIndexer != null) {
+            repair(path, missing, articles, report);
+        }
+    }
+
+    /**
+     * Count the ids in the index, and only if some of them are missing, search them to tell which ones.
+     */
+    private List<String> getMissingIds(Collection<String> ids) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        ArrayNode values = body.putObject("query").putObject("ids").putArray("values");
+        ids.forEach(values::add);
+        Request count = new Request("POST", "/" + index + "/_count");
+        count.addParameter("filter_path", "count");
+        count.setJsonEntity(body.toString());
+        long found = read(client.performRequest(count)).path("count").asLong();
+        if (found == ids.size()) {
+            return List.of();
+        }
+        // More documents than ids when an id is in several indices of an alias
+        body.put("size", Math.min(Math.max(found, ids.size()), MAX_BATCH_SIZE));
+        body.put("_source", false);
+        Request search = new Request("POST", "/" + index + "/_search");
+        search.addParameter("filter_path", "hits.hits._id");
+        search.setJsonEntity(body.toString());
+        Set<String> foundIds = new HashSet<>();
+        for (JsonNode hit : read(client.performRequest(search)).path("hits").path("hits")) {
+            foundIds.add(hit.path("_id").asText());
+        }
+        List<String> missing = new ArrayList<>();
+        for (String id : ids) {
+            if (!foundIds.contains(id)) {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private void repair(Path path, List<String> missing, Map<String, RawArticle> articles,
+                        ReconciliationReport report) {
+        List<Article> repaired = new ArrayList<>(missing.size());
+        try {
+            for (String id : missing) {
+                repaired.add(ArticleJson.getArticleReader().readValue(articles.get(id).getSource()));
+            }
+        } catch (IOException e) {
+            LOGGER.error("The missing articles of the file {} could not be parsed: {}", path, e);
+            return;
+        }
+        if (repairIndexer.bulkAppendArticles(index, repaired)) {
+            report.addRepaired(repaired.size());
+        } else {
+            LOGGER.error("The {} missing article(s) of the file {} could not be indexed again", repaired.size(), path);
+        }
+    }
+
+    /**
+     * Aggregate the count and the checksum of each bucket of the ids of the index, and compare them with the ones of
+     * the files.
+     */
+    private BitSet getMismatchedBuckets(long[] counts, long[] checksums) throws IOException {
+        ObjectNode body = mapper.createObjectNode();
+        body.put("size", 0);
+        ObjectNode bucketsAggregation = body.putObject("aggs").putObject(BUCKETS_AGGREGATION);
+        ObjectNode terms = bucketsAggregation.putObject("terms");
+        terms.put("size", buckets);
+        ObjectNode script = terms.putObject("script");
+        script.put("source", BUCKET_SCRIPT);
+        script.putObject("params").put("buckets", buckets);
+        bucketsAggregation.putObject("aggs").putObject(CHECKSUM_AGGREGATION).putObject("sum").putObject("script")
+                .put("source", HASH_SCRIPT);
+        Request request = new Request("POST", "/" + index + "/_search");
+        request.addParameter("filter_path", "aggregations");
+        request.setJsonEntity(body.toString());
+        JsonNode response = read(client.performRequest(request));
+
+        long[] indexCounts = new long[buckets];
+        long[] indexChecksums = new long[buckets];
+        for (JsonNode bucket : response.path("aggregations").path(BUCKETS_AGGREGATION).path("buckets")) {
+            int key = bucket.path("key").asInt();
+            if (key >= 0 && key < buckets) {
+                indexCounts[key] = bucket.path("doc_count").asLong();
+                // Sums of ints are exact in a double below 2^53
+                indexChecksums[key] = Math.round(bucket.path(CHECKSUM_AGGREGATION).path("value").asDouble());
+            }
+        }
+        BitSet mismatched = new BitSet(buckets);
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (counts[bucket] != indexCounts[bucket] || checksums[bucket] != indexChecksums[bucket]) {
+                mismatched.set(bucket);
+            }
+        }
+        return mismatched;
+    }
+
+    private JsonNode read(Response response) throws IOException {
+        try (InputStream content = response.getEntity().getContent()) {
+            return mapper.readTree(content);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package os.exercise.opensearch;
+
+import org.apache.http.HttpHost;
+import org.opensearch.client.Node;
+import org.opensearch.client.NodeSelector;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * A {@code NodeSelector} that keeps only the nodes with the fewest requests in flight. When several nodes have the
+ * same load they are all kept, and the {@code RestClient} takes turns between them as it does with every node.
+ */
+public class LeastLoadedNodeSelector implements NodeSelector {
+
+    private final ToIntFunction<HttpHost> load;
+
+    /**
+     * Constructor of the LeastLoadedNodeSelector.
+     *
+     * @param load The number of requests in flight on the node at a host, e.g. the connections leased from the pool.
+     */
+    public LeastLoadedNodeSelector(ToIntFunction<HttpHost> load) {
+        this.load = load;
+    }
+
+    @Override
+    public void select(Iterable<Node> nodes) {
+        // The loads are read once, as they change while the nodes are compared and every node could end up removed
+        List<Integer> loads = new ArrayList<>();
+        int minLoad = Integer.MAX_VALUE;
+        for (Node node : nodes) {
+            int nodeLoad = load.applyAsInt(node.getHost());
+            loads.add(nodeLoad);
+            minLoad = Math.min(minLoad, nodeLoad);
+        }
+        Iterator<Node> iterator = nodes.iterator();
+        for (int nodeLoad : loads) {
+            iterator.next();
+            if (nodeLoad > minLoad) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LEAST_LOADED";
+    }
+}
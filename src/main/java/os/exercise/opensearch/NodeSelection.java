@@ -0,0 +1,30 @@
+package os.exercise.opensearch;
+
+import java.util.Locale;
+
+/**
+ * How the {@link OpenSearchClientFactory} spreads the requests over the nodes of the cluster.
+ */
+public enum NodeSelection {
+
+    /**
+     * Each request goes to the next node, whatever the requests still in flight on each of them.
+     */
+    ROUND_ROBIN,
+    /**
+     * Each request goes to the node with the fewest requests in flight, so a slow coordinator gets fewer bulks.
+     * The nodes with the same number of requests take turns.
+     */
+    LEAST_LOADED;
+
+    /**
+     * Get a selection from its name, ignoring the case and accepting dashes, e.g. from a system property.
+     *
+     * @param name The name of a selection, e.g. {@code round-robin}.
+     * @return The {@link NodeSelection}.
+     * @throws IllegalArgumentException when there is no selection with that name.
+     */
+    public static NodeSelection fromName(String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,249 @@
+package os.exercise.opensearch;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.pool.PoolStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestClientBuilder;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.client.sniff.OpenSearchNodesSniffer;
+import org.opensearch.client.sniff.SniffOnFailureListener;
+import org.opensearch.client.sniff.Sniffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The OpenSearchClientFactory class creates the clients of a cluster with several nodes. The requests are spread over
+ * the nodes in turn or sent to the least loaded one, their bodies are compressed with gzip and the connection pool is
+ * sized for the requests in flight of the ingestion, instead of the 10 connections per node of the default client.
+ * The nodes can also be sniffed from the cluster at a fixed interval and after a failure, so the coordinators added
+ * to the cluster get requests too.
+ * The load of a node is the number of connections leased to it from the pool, i.e. the requests waiting for its
+ * response, which the pool keeps exact whether the requests succeed or fail.
+ */
+public class OpenSearchClientFactory implements Closeable {
+
+    public static final int DEFAULT_PORT = 9200;
+    public static final String DEFAULT_SCHEME = "http";
+
+    private static final Logger LOGGER = LogManager.getLogger(OpenSearchClientFactory.class);
+    private static final String HTTPS = "https";
+    private static final String NODE_SEPARATOR = ",";
+    private static final String SCHEME_SEPARATOR = "://";
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final List<HttpHost> nodes;
+    private final List<RestHighLevelClient> clients = new ArrayList<>();
+    private final List<Sniffer> sniffers = new ArrayList<>();
+    private NodeSelection nodeSelection = NodeSelection.ROUND_ROBIN;
+    private int maxConnectionsPerRoute = RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE;
+    private int maxConnectionsTotal = RestClientBuilder.DEFAULT_MAX_CONN_TOTAL;
+    private boolean compression;
+    private boolean pooledBulkCompression;
+    private long sniffIntervalMillis;
+
+    /**
+     * Constructor of the OpenSearchClientFactory.
+     *
+     * @param nodes The hosts of the nodes the requests are sent to, at least one.
+     */
+    public OpenSearchClientFactory(List<HttpHost> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is needed");
+        }
+        this.nodes = new ArrayList<>(nodes);
+    }
+
+    /**
+     * Parse a comma separated list of nodes, e.g. {@code http://node1:9200,node2}. A node without a scheme uses
+     * {@value #DEFAULT_SCHEME} and a node without a port uses {@value #DEFAULT_PORT}, the ports of OpenSearch.
+     *
+     * @param nodes The list of nodes, e.g. from a system property.
+     * @return The hosts of the nodes.
+     * @throws IllegalArgumentException when the list is empty or a node is not a valid host.
+     */
+    public static List<HttpHost> parseNodes(String nodes) {
+        List<HttpHost> hosts = new ArrayList<>();
+        for (String node : nodes.split(NODE_SEPARATOR)) {
+            String trimmed = node.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            HttpHost host = HttpHost.create(trimmed.contains(SCHEME_SEPARATOR) ? trimmed
+                    : DEFAULT_SCHEME + SCHEME_SEPARATOR + trimmed);
+            // The port is always set, so the routes of the connection pool are the hosts of the nodes
+            hosts.add(host.getPort() < 0 ? new HttpHost(host.getHostName(), DEFAULT_PORT, host.getSchemeName())
+                    : host);
+        }
+        if (hosts.isEmpty()) {
+            throw new IllegalArgumentException("No node in \"" + nodes + "\"");
+        }
+        return hosts;
+    }
+
+    public List<HttpHost> getNodes() {
+        return new ArrayList<>(nodes);
+    }
+
+    public void setNodeSelection(NodeSelection nodeSelection) {
+        this.nodeSelection = nodeSelection;
+    }
+
+    /**
+     * Set the size of the connection pool. Each request in flight holds a connection, so the pool must allow the
+     * requests in flight of the ingestion on a single node, when the others are down, and on all the nodes together.
+     *
+     * @param perRoute The maximum number of connections to each node.
+     * @param total The maximum number of connections to all the nodes.
+     */
+    public void setMaxConnections(int perRoute, int total) {
+        if (perRoute <= 0 || total < perRoute) {
+            throw new IllegalArgumentException("Invalid connection pool: " + perRoute + " connections per node and "
+                    + total + " in total");
+        }
+        this.maxConnectionsPerRoute = perRoute;
+        this.maxConnectionsTotal = total;
+    }
+
+    /**
+     * Set if the request bodies are compressed with gzip. The responses are then asked compressed too.
+     *
+     * @param compression True to compress the bodies else false.
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Set if the bulk bodies are compressed by the {@link ArticlesIndexer} as they are written into its pool (see
+     * {@link ArticlesIndexer#setBodyCompression(boolean)}). With compression, the client then only asks for compressed
+     * responses and leaves the request bodies as they are: it would gzip the pooled bodies again into a new buffer.
+     *
+     * @param pooledBulkCompression True if the bulk bodies are compressed by the indexer else false.
+     */
+    public void setPooledBulkCompression(boolean pooledBulkCompression) {
+        this.pooledBulkCompression = pooledBulkCompression;
+    }
+
+    /**
+     * Set the interval at which the nodes are sniffed from the cluster, replacing the nodes of the factory.
+     *
+     * @param sniffIntervalMillis The time between two sniffs, 0 to only use the nodes of the factory.
+     */
+    public void setSniffIntervalMillis(long sniffIntervalMillis) {
+        if (sniffIntervalMillis < 0 || sniffIntervalMillis > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid sniff interval: " + sniffIntervalMillis);
+        }
+        this.sniffIntervalMillis = sniffIntervalMillis;
+    }
+
+    /**
+     * Create a client with the settings of the factory. It is closed with the factory.
+     *
+     * @return A {@code RestHighLevelClient}.
+     * @throws IOException when the I/O reactor of the connection pool can not be started.
+     */
+    public synchronized RestHighLevelClient create() throws IOException {
+        PoolingNHttpClientConnectionManager connectionManager = createConnectionManager();
+        RestClientBuilder builder = RestClient.builder(nodes.toArray(new HttpHost[0]))
+                .setCompressionEnabled(compression && !pooledBulkCompression)
+                .setHttpClientConfigCallback(httpClient -> httpClient.setConnectionManager(connectionManager));
+        if (compression && pooledBulkCompression) {
+            builder.setDefaultHeaders(new Header[] {new BasicHeader(HttpHeaders.ACCEPT_ENCODING, GZIP_ENCODING)});
+        }
+        if (nodeSelection == NodeSelection.LEAST_LOADED) {
+            builder.setNodeSelector(new LeastLoadedNodeSelector(host -> getLoad(connectionManager, host)));
+        }
+        SniffOnFailureListener sniffOnFailure = null;
+        if (sniffIntervalMillis > 0) {
+            sniffOnFailure = new SniffOnFailureListener();
+            builder.setFailureListener(sniffOnFailure);
+        }
+        RestHighLevelClient client = new RestHighLevelClient(builder);
+        clients.add(client);
+        if (sniffOnFailure != null) {
+            Sniffer sniffer = createSniffer(client.getLowLevelClient());
+            sniffOnFailure.setSniffer(sniffer);
+            sniffers.add(sniffer);
+        }
+        LOGGER.info("Created a client of {} with {} selection, {} connections per node, {} in total, compression {}"
+                + " and sniffing every {} ms", nodes, nodeSelection, maxConnectionsPerRoute, maxConnectionsTotal,
+                compression, sniffIntervalMillis);
+        return client;
+    }
+
+    /**
+     * Create the connection pool, which the client would create with the same defaults but without a way to read
+     * the connections leased to each node.
+     */
+    private PoolingNHttpClientConnectionManager createConnectionManager() throws IOException {
+        Registry<SchemeIOSessionStrategy> strategies = RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register(DEFAULT_SCHEME, NoopIOSessionStrategy.INSTANCE)
+                .register(HTTPS, SSLIOSessionStrategy.getSystemDefaultStrategy())
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT), strategies);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        connectionManager.setMaxTotal(maxConnectionsTotal);
+        return connectionManager;
+    }
+
+    private Sniffer createSniffer(RestClient restClient) {
+        boolean secure = HTTPS.equalsIgnoreCase(nodes.get(0).getSchemeName());
+        OpenSearchNodesSniffer nodesSniffer = new OpenSearchNodesSniffer(restClient,
+                OpenSearchNodesSniffer.DEFAULT_SNIFF_REQUEST_TIMEOUT,
+                secure ? OpenSearchNodesSniffer.Scheme.HTTPS : OpenSearchNodesSniffer.Scheme.HTTP);
+        return Sniffer.builder(restClient)
+                .setSniffIntervalMillis((int) sniffIntervalMillis)
+                .setNodesSniffer(nodesSniffer)
+                .build();
+    }
+
+    /**
+     * Get the number of requests in flight on a node: the connections leased to it and the requests waiting for one.
+     */
+    private static int getLoad(PoolingNHttpClientConnectionManager connectionManager, HttpHost host) {
+        HttpRoute route = new HttpRoute(host, null, HTTPS.equalsIgnoreCase(host.getSchemeName()));
+        PoolStats stats = connectionManager.getStats(route);
+        return stats.getLeased() + stats.getPending();
+    }
+
+    /**
+     * Stop the sniffers and close the clients created by the factory.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (Sniffer sniffer : sniffers) {
+            sniffer.close();
+        }
+        sniffers.clear();
+        IOException failure = null;
+        for (RestHighLevelClient client : clients) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        clients.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
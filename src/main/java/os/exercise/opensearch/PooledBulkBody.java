@@ -0,0 +1,374 @@
+package os.exercise.opensearch;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * The NDJSON body of a bulk request, written straight into arrays of a {@link ByteArrayPool}: the action line of each
+ * document and its source, copied from the {@code IndexRequest}. It is sent as a single HTTP entity that hands the
+ * arrays to the connection as they are, so unlike the {@code RestHighLevelClient}, no buffer the size of the whole
+ * body is grown and copied for each request.
+ * The body can be compressed with gzip as it is written, so only the compressed bytes reach the pool. The client must
+ * then not compress the requests itself: its {@code ContentCompressingEntity} would gzip the entity into a new buffer
+ * on every send, see {@link OpenSearchClientFactory#setPooledBulkCompression(boolean)}.
+ * The source of each document is still its own array, since the {@code BulkRequest} is kept for the retries, the dead
+ * letter queue and the fan-out targets: the pool only removes the copies of the whole body.
+ * The arrays go back to the pool with {@link #release()}, once the response has arrived: the entity must not be used
+ * after that. A body sent to several clusters, see {@link ArticlesIndexer#addTarget(FanOutTarget)}, is written once
+ * and shared: each sender takes a reference with {@link #retain()}, and the arrays go back to the pool when the last
+ * one is released.
+ */
+public class PooledBulkBody extends OutputStream {
+
+    // A single generator writes the action lines of a body, flushed before each source is written after it
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+            .setRootValueSeparator(null);
+    private static final ContentType CONTENT_TYPE = ContentType.APPLICATION_JSON;
+    private static final byte LINE_SEPARATOR = '\n';
+    private static final int BYTE_MASK = 0xFF;
+    private static final int GZIP_BUFFER_BYTES = 1 << 13;
+    private static final String GZIP_ENCODING = "gzip";
+    // The braces, colons and quotes around the operation of an action line: {"index":{...}}
+    private static final int ACTION_SYNTAX_BYTES = 7;
+    // The comma, colon and quotes around the value of a field of an action line: ,"_id":"..."
+    private static final int FIELD_SYNTAX_BYTES = 6;
+
+    private final ByteArrayPool pool;
+    private final List<byte[]> arrays = new ArrayList<>();
+    // The reference of the creator of the body, and one more for each retain()
+    private final AtomicInteger references = new AtomicInteger(1);
+    // Where the actions are written: the body itself, or a gzip stream that writes into it
+    private OutputStream output = this;
+    private boolean compressed;
+    private JsonGenerator generator;
+    private byte[] current;
+    private int position;
+    private long length;
+
+    /**
+     * Constructor of an empty PooledBulkBody.
+     *
+     * @param pool The {@link ByteArrayPool} of the arrays of the body.
+     */
+    public PooledBulkBody(ByteArrayPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Write the body of a bulk request. If it fails, the arrays are released.
+     *
+     * @param request A {@code BulkRequest} of {@code IndexRequest}s with a json source.
+     * @param pool The {@link ByteArrayPool} of the arrays of the body.
+     * @return The {@link PooledBulkBody} of the request.
+     * @throws IOException when an action line can not be written.
+     */
+    public static PooledBulkBody of(BulkRequest request, ByteArrayPool pool) throws IOException {
+        return of(request, pool, false);
+    }
+
+    /**
+     * Write the body of a bulk request, compressed or not. If it fails, the arrays are released.
+     *
+     * @param request A {@code BulkRequest} of {@code IndexRequest}s with a json source.
+     * @param pool The {@link ByteArrayPool} of the arrays of the body.
+     * @param compressed True to compress the body with gzip, sent with its {@code Content-Encoding}, else false.
+     * @return The {@link PooledBulkBody} of the request.
+     * @throws IOException when an action line can not be written.
+     */
+    public static PooledBulkBody of(BulkRequest request, ByteArrayPool pool, boolean compressed) throws IOException {
+        PooledBulkBody body = new PooledBulkBody(pool);
+        try {
+            if (compressed) {
+                body.compressed = true;
+                body.output = new GZIPOutputStream(body, GZIP_BUFFER_BYTES);
+            }
+            for (DocWriteRequest<?> action : request.requests()) {
+                body.add(action);
+            }
+            body.finish();
+        } catch (IOException | RuntimeException e) {
+            body.release();
+            throw e;
+        }
+        return body;
+    }
+
+    /**
+     * Append the action line and the source of a request.
+     *
+     * @param action An {@code IndexRequest} with a json source, written on a single line.
+     * @throws IOException when the action line can not be written.
+     * @throws IllegalArgumentException when the request is not an {@code IndexRequest} with a json source.
+     */
+    public void add(DocWriteRequest<?> action) throws IOException {
+        if (!(action instanceof IndexRequest) || ((IndexRequest) action).getContentType() != XContentType.JSON) {
+            throw new IllegalArgumentException("Only the index requests with a json source can be pooled: " + action);
+        }
+        IndexRequest request = (IndexRequest) action;
+        if (generator == null) {
+            generator = JSON_FACTORY.createGenerator(output);
+        }
+        generator.writeStartObject();
+        generator.writeObjectFieldStart(request.opType().getLowercase());
+        generator.writeStringField("_index", request.index());
+        writeOptionalField(generator, "_id", request.id());
+        writeOptionalField(generator, "routing", request.routing());
+        writeOptionalField(generator, "pipeline", request.getPipeline());
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.flush();
+        output.write(LINE_SEPARATOR);
+        request.source().writeTo(output);
+        output.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Get the number of bytes a request adds to the body besides its source, before the compression: its action line,
+     * as written by {@link #add(DocWriteRequest)} and by the {@code RestHighLevelClient}, and the two line separators.
+     *
+     * @param request An {@code IndexRequest}.
+     * @return The length of the action line of the request, with the line separators.
+     */
+    public static long getActionLength(IndexRequest request) {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        // The separator after the action line and the one after the source
+        long length = 2;
+        length += ACTION_SYNTAX_BYTES + encoder.quoteAsUTF8(request.opType().getLowercase()).length;
+        // The first field has no comma before it
+        length += getFieldLength("_index", request.index()) - 1;
+        length += getFieldLength("_id", request.id());
+        length += getFieldLength("routing", request.routing());
+        length += getFieldLength("pipeline", request.getPipeline());
+        return length;
+    }
+
+    private static int getFieldLength(String name, String value) {
+        if (value == null) {
+            return 0;
+        }
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        return FIELD_SYNTAX_BYTES + encoder.quoteAsUTF8(name).length + encoder.quoteAsUTF8(value).length;
+    }
+
+    /**
+     * Close the generator of the action lines and the gzip stream, which releases the native memory of its deflater.
+     */
+    private void finish() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+        output.close();
+    }
+
+    private static void writeOptionalField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        if (current == null || position == current.length) {
+            nextArray();
+        }
+        current[position++] = (byte) b;
+        length++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) {
+        int written = 0;
+        while (written < count) {
+            if (current == null || position == current.length) {
+                nextArray();
+            }
+            int chunk = Math.min(count - written, current.length - position);
+            System.arraycopy(bytes, offset + written, current, position, chunk);
+            position += chunk;
+            written += chunk;
+        }
+        length += count;
+    }
+
+    private void nextArray() {
+        if (references.get() == 0) {
+            throw new IllegalStateException("The body has been released");
+        }
+        current = pool.acquire();
+        arrays.add(current);
+        position = 0;
+    }
+
+    /**
+     * Get the size of the body, as it is sent.
+     *
+     * @return The number of bytes written, after the compression if the body is compressed.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Get the entity of the body, which reads the arrays without copying them.
+     *
+     * @return A repeatable {@code HttpEntity} of {@link #getLength()} bytes.
+     */
+    public HttpEntity toEntity() {
+        return new Entity();
+    }
+
+    /**
+     * Take one more reference to the body, so it is kept until it has been released once more.
+     *
+     * @return This body.
+     * @throws IllegalStateException when the body has already been released.
+     */
+    public PooledBulkBody retain() {
+        if (references.getAndUpdate(count -> count == 0 ? 0 : count + 1) == 0) {
+            throw new IllegalStateException("The body has been released");
+        }
+        return this;
+    }
+
+    /**
+     * Release a reference to the body, and give the arrays back to the pool with the last one. Releasing a body with
+     * no reference left does nothing.
+     */
+    public void release() {
+        if (references.getAndUpdate(count -> Math.max(0, count - 1)) == 1) {
+            arrays.forEach(pool::release);
+            arrays.clear();
+            current = null;
+        }
+    }
+
+    /**
+     * Get the number of bytes of an array of the body: the last one may not be full.
+     */
+    private int getArrayLength(int index) {
+        return index == arrays.size() - 1 ? position : arrays.get(index).length;
+    }
+
+    /**
+     * The entity of the body. The client sends it through {@link #produceContent}, wrapping the arrays one at a time,
+     * and {@link #writeTo(OutputStream)} copies them into a stream, e.g. a {@link BatchSpillFile}.
+     */
+    private final class Entity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+        private int array;
+        private ByteBuffer buffer;
+
+        Entity() {
+            setContentType(CONTENT_TYPE.toString());
+            if (compressed) {
+                setContentEncoding(GZIP_ENCODING);
+            }
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new InputStream() {
+                private int readArray;
+                private int readOffset;
+
+                @Override
+                public int read() {
+                    byte[] single = new byte[1];
+                    return read(single, 0, 1) < 0 ? -1 : single[0] & BYTE_MASK;
+                }
+
+                @Override
+                public int read(byte[] bytes, int off, int len) {
+                    while (readArray < arrays.size() && readOffset == getArrayLength(readArray)) {
+                        readArray++;
+                        readOffset = 0;
+                    }
+                    if (readArray == arrays.size()) {
+                        return -1;
+                    }
+                    int count = Math.min(len, getArrayLength(readArray) - readOffset);
+                    System.arraycopy(arrays.get(readArray), readOffset, bytes, off, count);
+                    readOffset += count;
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            for (int i = 0; i < arrays.size(); i++) {
+                outputStream.write(arrays.get(i), 0, getArrayLength(i));
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+            if (buffer == null && array < arrays.size()) {
+                buffer = ByteBuffer.wrap(arrays.get(array), 0, getArrayLength(array));
+            }
+            if (buffer != null) {
+                encoder.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                buffer = null;
+                array++;
+            }
+            if (array == arrays.size()) {
+                encoder.complete();
+            }
+        }
+
+        /**
+         * Rewind the entity, so the client can send it again, e.g. to another node.
+         */
+        @Override
+        public void close() {
+            array = 0;
+            buffer = null;
+        }
+    }
+}
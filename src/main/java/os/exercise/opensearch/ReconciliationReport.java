@@ -0,0 +1,141 @@
+package os.exercise.opensearch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The result of a reconciliation of the {@link IndexReconciler}: the articles of each input file, the ids that are
+ * missing from the index and how many of them were indexed again.
+ * It is filled concurrently by the checks of the reconciler, so every method locks it.
+ */
+public class ReconciliationReport {
+
+    private final Map<Path, Long> records = new LinkedHashMap<>();
+    private final Map<Path, List<String>> missingIds = new LinkedHashMap<>();
+    private final List<Path> failedFiles = new ArrayList<>();
+    private long checkedIds;
+    private long recordsWithoutId;
+    private long failedIds;
+    private long repairedIds;
+    private int mismatchedBuckets = -1;
+
+    synchronized void addRecords(Path path, long count, long withoutId) {
+        records.merge(path, count, Long::sum);
+        recordsWithoutId += withoutId;
+    }
+
+    synchronized void addChecked(Path path, int checked, List<String> missing) {
+        checkedIds += checked;
+        if (!missing.isEmpty()) {
+            missingIds.computeIfAbsent(path, key -> new ArrayList<>()).addAll(missing);
+        }
+    }
+
+    synchronized void addFailed(int failed) {
+        failedIds += failed;
+    }
+
+    synchronized void addFailedFile(Path path) {
+        if (!failedFiles.contains(path)) {
+            failedFiles.add(path);
+        }
+    }
+
+    synchronized void addRepaired(int repaired) {
+        repairedIds += repaired;
+    }
+
+    synchronized void setMismatchedBuckets(int mismatchedBuckets) {
+        this.mismatchedBuckets = mismatchedBuckets;
+    }
+
+    /**
+     * Get the number of records of each input file, in the order the files were read.
+     *
+     * @return The number of records by file.
+     */
+    public synchronized Map<Path, Long> getRecords() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(records));
+    }
+
+    /**
+     * Get the ids missing from the index, by the file they were read from.
+     *
+     * @return The missing ids by file, only for the files with missing ids.
+     */
+    public synchronized Map<Path, List<String>> getMissingIds() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(missingIds));
+    }
+
+    public synchronized long getMissingCount() {
+        return missingIds.values().stream().mapToLong(List::size).sum();
+    }
+
+    public synchronized long getCheckedIds() {
+        return checkedIds;
+    }
+
+    /**
+     * Get the number of records without an id or that are not valid json, which can not be looked up in the index.
+     *
+     * @return The number of records skipped.
+     */
+    public synchronized long getRecordsWithoutId() {
+        return recordsWithoutId;
+    }
+
+    /**
+     * Get the number of ids whose check failed, e.g. because the cluster did not answer, so they are neither known to
+     * be indexed nor to be missing.
+     *
+     * @return The number of ids not checked.
+     */
+    public synchronized long getFailedIds() {
+        return failedIds;
+    }
+
+    /**
+     * Get the files that could not be read to the end, whose remaining records were not checked.
+     *
+     * @return The files that failed to be read.
+     */
+    public synchronized List<Path> getFailedFiles() {
+        return Collections.unmodifiableList(new ArrayList<>(failedFiles));
+    }
+
+    public synchronized long getRepairedIds() {
+        return repairedIds;
+    }
+
+    /**
+     * Get the number of hash buckets whose count or checksum differed between the files and the index.
+     *
+     * @return The number of mismatched buckets, or -1 if the checksums were not compared.
+     */
+    public synchronized int getMismatchedBuckets() {
+        return mismatchedBuckets;
+    }
+
+    /**
+     * Check if every record with an id is known to be in the index, either because it was found or because it was
+     * indexed again.
+     *
+     * @return True if no id is missing or failed to be checked, and every file was read, else false.
+     */
+    public synchronized boolean isReconciled() {
+        return failedIds == 0 && failedFiles.isEmpty() && getMissingCount() == repairedIds;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return records.values().stream().mapToLong(Long::longValue).sum() + " record(s) in " + records.size()
+                + " file(s), " + checkedIds + " id(s) checked, " + getMissingCount() + " missing, " + repairedIds
+                + " repaired, " + failedIds + " not checked, " + failedFiles.size() + " file(s) not read, "
+                + recordsWithoutId + " skipped"
+                + (mismatchedBuckets >= 0 ? ", " + mismatchedBuckets + " mismatched bucket(s)" : "");
+    }
+}
@@ -0,0 +1,169 @@
+package os.exercise.opensearch;
+
+import org.opensearch.OpenSearchException;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.client.ResponseException;
+import org.opensearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The RetryPolicy class decides which failures of a bulk request are transient and how long to wait before sending
+ * them again. Rejections (429), unavailable nodes or shards (502, 503) and timeouts are retried; any other failure,
+ * e.g. a document that does not follow the mappings, is final. A failed item is recognized by its status, or by the
+ * type of its cause or of the causes of its cause, never by the text of its reason: a mapping error may quote a
+ * field or a value that mentions a timeout.
+ * The delay grows exponentially with each attempt and is randomized ("equal jitter"), so the clients that were
+ * rejected at the same time do not come back at the same time.
+ */
+public class RetryPolicy {
+
+    private static final Set<RestStatus> RETRIABLE_STATUSES = EnumSet.of(RestStatus.TOO_MANY_REQUESTS,
+            RestStatus.BAD_GATEWAY, RestStatus.SERVICE_UNAVAILABLE, RestStatus.GATEWAY_TIMEOUT,
+            RestStatus.REQUEST_TIMEOUT);
+    // The types, as OpenSearch names them, of the failures of an item that are transient whatever their status
+    private static final Set<String> RETRIABLE_TYPES = Set.of("rejected_execution_exception", "timeout_exception",
+            "process_cluster_event_timeout_exception", "receive_timeout_transport_exception",
+            "unavailable_shards_exception");
+    private static final Pattern FAILURE_TYPE = Pattern.compile("OpenSearch exception \\[type=([^,\\]]+)");
+    private static final int MAX_CAUSES = 10;
+    private static final int MAX_SHIFT = 30;
+
+    private final int maxRetries;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * Constructor of the RetryPolicy.
+     *
+     * @param maxRetries The maximum number of times a failed article is sent again.
+     * @param initialDelayMillis The base delay before the first retry.
+     * @param maxDelayMillis The maximum delay before a retry.
+     */
+    public RetryPolicy(int maxRetries, long initialDelayMillis, long maxDelayMillis) {
+        if (maxRetries < 0 || initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid retry policy: " + maxRetries + " retries, delays from "
+                    + initialDelayMillis + " to " + maxDelayMillis + " ms");
+        }
+        this.maxRetries = maxRetries;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Get a policy that never retries.
+     *
+     * @return A {@link RetryPolicy} with no retries.
+     */
+    public static RetryPolicy noRetries() {
+        return new RetryPolicy(0, 0, 0);
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Check if there are retries left after a number of attempts.
+     *
+     * @param attempt The number of retries already done, 0 after the first request.
+     * @return True if the failures can be sent again else false.
+     */
+    public boolean canRetry(int attempt) {
+        return attempt < maxRetries;
+    }
+
+    /**
+     * Get the time to wait before a retry: half of the exponential delay plus a random part of the other half.
+     *
+     * @param attempt The number of retries already done, 0 after the first request.
+     * @return The delay in milliseconds.
+     */
+    public long getDelayMillis(int attempt) {
+        long exponential = Math.min(maxDelayMillis, initialDelayMillis << Math.min(attempt, MAX_SHIFT));
+        long half = exponential / 2;
+        return half + ThreadLocalRandom.current().nextLong(exponential - half + 1);
+    }
+
+    /**
+     * Check if a failed item of a bulk request is worth sending again.
+     *
+     * @param failure The failure of a {@code BulkItemResponse}.
+     * @return True if the failure is transient else false.
+     */
+    public boolean isRetriable(BulkItemResponse.Failure failure) {
+        if (RETRIABLE_STATUSES.contains(failure.getStatus())) {
+            return true;
+        }
+        Throwable cause = failure.getCause();
+        for (int i = 0; cause != null && i < MAX_CAUSES; i++) {
+            if (cause instanceof TimeoutException || cause instanceof SocketTimeoutException
+                    || RETRIABLE_TYPES.contains(getFailureType(cause))) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Check if a bulk request that failed as a whole is worth sending again. Connection errors are transient, and
+     * so are the error responses with a retriable status.
+     *
+     * @param failure The cause of the failure.
+     * @return True if the failure is transient else false.
+     */
+    public boolean isRetriable(Exception failure) {
+        if (failure instanceof OpenSearchStatusException) {
+            return RETRIABLE_STATUSES.contains(((OpenSearchStatusException) failure).status());
+        }
+        if (failure instanceof ResponseException) {
+            int statusCode = ((ResponseException) failure).getResponse().getStatusLine().getStatusCode();
+            RestStatus status = RestStatus.fromCode(statusCode);
+            return status != null && RETRIABLE_STATUSES.contains(status);
+        }
+        return failure instanceof IOException;
+    }
+
+    /**
+     * Check if a failure, or one of the causes of its cause, is of one of some types.
+     *
+     * @param failure The cause of a failure, or null.
+     * @param types Types of failures, as {@link #getFailureType(Throwable)} names them.
+     * @return True if one of the causes is of one of the types else false.
+     */
+    static boolean hasFailureType(Throwable failure, Set<String> types) {
+        Throwable cause = failure;
+        for (int i = 0; cause != null && i < MAX_CAUSES; i++) {
+            if (types.contains(getFailureType(cause))) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Get the type of a failure as OpenSearch names it, e.g. {@code mapper_parsing_exception}, or the class of the
+     * exception if it did not come from OpenSearch. The exceptions parsed from a response only keep their type in
+     * their message.
+     *
+     * @param failure The cause of a failure.
+     * @return The type of the failure.
+     */
+    public static String getFailureType(Throwable failure) {
+        if (!(failure instanceof OpenSearchException)) {
+            return failure.getClass().getName();
+        }
+        Matcher matcher = FAILURE_TYPE.matcher(String.valueOf(failure.getMessage()));
+        return matcher.find() ? matcher.group(1) : OpenSearchException.getExceptionName(failure);
+    }
+}
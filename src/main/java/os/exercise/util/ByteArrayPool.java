@@ -0,0 +1,86 @@
+package os.exercise.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of byte arrays of a fixed size, recycled between the requests that need a large buffer for a short time,
+ * e.g. the bodies of the bulk requests, so they do not allocate megabytes of garbage each. The pool keeps at most
+ * {@code maxRetainedBytes} of free arrays: the arrays released beyond that are left to the garbage collector, so a
+ * burst does not keep its memory forever.
+ * It is thread-safe: the arrays can be acquired and released by different threads.
+ */
+public class ByteArrayPool {
+
+    private final int arrayBytes;
+    private final BlockingQueue<byte[]> freeArrays;
+    private final LongAdder allocatedArrays = new LongAdder();
+
+    /**
+     * Constructor of the ByteArrayPool.
+     *
+     * @param arrayBytes The size of the arrays.
+     * @param maxRetainedBytes The maximum size of the free arrays kept by the pool.
+     */
+    public ByteArrayPool(int arrayBytes, long maxRetainedBytes) {
+        if (arrayBytes <= 0 || maxRetainedBytes < arrayBytes) {
+            throw new IllegalArgumentException("Invalid pool: arrays of " + arrayBytes + " bytes and at most "
+                    + maxRetainedBytes + " bytes retained");
+        }
+        this.arrayBytes = arrayBytes;
+        this.freeArrays = new ArrayBlockingQueue<>((int) Math.min(Integer.MAX_VALUE, maxRetainedBytes / arrayBytes));
+    }
+
+    /**
+     * Get a free array of the pool, or a new one if there is none. Its content is not cleared.
+     *
+     * @return An array of {@link #getArrayBytes()} bytes.
+     */
+    public byte[] acquire() {
+        byte[] array = freeArrays.poll();
+        if (array == null) {
+            allocatedArrays.increment();
+            array = new byte[arrayBytes];
+        }
+        return array;
+    }
+
+    /**
+     * Give an array back to the pool. It must not be used after that.
+     *
+     * @param array An array acquired from this pool.
+     */
+    public void release(byte[] array) {
+        if (array.length == arrayBytes) {
+            freeArrays.offer(array);
+        }
+    }
+
+    public int getArrayBytes() {
+        return arrayBytes;
+    }
+
+    /**
+     * Get the number of free arrays kept by the pool.
+     *
+     * @return The number of arrays ready to be acquired.
+     */
+    public int getFreeArrays() {
+        return freeArrays.size();
+    }
+
+    /**
+     * Get the number of arrays allocated because the pool had no free array.
+     *
+     * @return The number of arrays allocated since the pool was created.
+     */
+    public long getAllocatedArrays() {
+        return allocatedArrays.sum();
+    }
+
+    @Override
+    public String toString() {
+        return getFreeArrays() + " free array(s) of " + arrayBytes + " bytes, " + getAllocatedArrays() + " allocated";
+    }
+}
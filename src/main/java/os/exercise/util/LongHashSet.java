@@ -0,0 +1,119 @@
+package os.exercise.util;
+
+/**
+ * A set of primitive longs with open addressing and linear probing. The table doubles when it is half full, so each
+ * value takes between 16 and 32 bytes instead of the ~56 bytes of a {@code Long} in a {@code HashSet}, and no object
+ * is allocated per value: it can hold the hashes of tens of millions of ids.
+ * It is not thread-safe.
+ */
+public class LongHashSet {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    // Golden ratio constant used to spread the values over the table (Fibonacci hashing)
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private long[] table;
+    private int mask;
+    private int shift;
+    private int size;
+    // 0 marks the empty slots of the table, so it is tracked apart
+    private boolean containsZero;
+
+    /**
+     * Constructor of the LongHashSet.
+     */
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the LongHashSet.
+     *
+     * @param expectedSize The number of values expected, so the table does not have to grow until then.
+     */
+    public LongHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size can not be negative: " + expectedSize);
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Add a value to the set.
+     *
+     * @param value A value.
+     * @return True if the value was not in the set else false.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(value);
+        while (table[slot] != 0) {
+            if (table[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = value;
+        size++;
+        if (size * 2 > table.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Check if a value is in the set.
+     *
+     * @param value A value.
+     * @return True if the value is in the set else false.
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int slot = slot(value);
+        while (table[slot] != 0) {
+            if (table[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long value) {
+        return (int) ((value * SPREAD) >>> shift);
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    private void grow() {
+        long[] previous = table;
+        allocate(previous.length * 2);
+        for (long value : previous) {
+            if (value != 0) {
+                int slot = slot(value);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package os.exercise.util;
+
+import java.util.Arrays;
+
+/**
+ * A map of primitive longs to primitive longs with open addressing and linear probing, like {@link LongHashSet}: the
+ * keys and the values are kept in two arrays, so each entry takes between 32 and 64 bytes and no object is allocated
+ * per entry.
+ * It is not thread-safe.
+ */
+public class LongLongHashMap {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    // Golden ratio constant used to spread the keys over the table (Fibonacci hashing)
+    private static final long SPREAD = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int shift;
+    private int size;
+    // 0 marks the empty slots of the table, so its value is kept apart
+    private boolean containsZero;
+    private long zeroValue;
+
+    /**
+     * Constructor of the LongLongHashMap.
+     */
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor of the LongLongHashMap.
+     *
+     * @param expectedSize The number of keys expected, so the table does not have to grow until then.
+     */
+    public LongLongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("The expected size can not be negative: " + expectedSize);
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Associate a value with a key, replacing its previous value.
+     *
+     * @param key A key.
+     * @param value The value of the key.
+     */
+    public void put(long key, long value) {
+        if (key == 0) {
+            if (!containsZero) {
+                containsZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * Check if a key is in the map.
+     *
+     * @param key A key.
+     * @return True if the key is in the map else false.
+     */
+    public boolean containsKey(long key) {
+        return key == 0 ? containsZero : keys[find(key)] != 0;
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key A key.
+     * @param defaultValue The value returned if the key is not in the map.
+     * @return The value of the key, or {@code defaultValue} if it is not in the map.
+     */
+    public long get(long key, long defaultValue) {
+        if (key == 0) {
+            return containsZero ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return keys[slot] != 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * Get the keys of the map in ascending order.
+     *
+     * @return A new array of the keys.
+     */
+    public long[] sortedKeys() {
+        long[] sorted = new long[size];
+        int count = 0;
+        if (containsZero) {
+            sorted[count++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                sorted[count++] = key;
+            }
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the slot of a key, or the empty slot where it would be added.
+     */
+    private int find(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * SPREAD) >>> shift);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    private void grow() {
+        long[] previousKeys = keys;
+        long[] previousValues = values;
+        allocate(previousKeys.length * 2);
+        for (int i = 0; i < previousKeys.length; i++) {
+            if (previousKeys[i] != 0) {
+                int slot = find(previousKeys[i]);
+                keys[slot] = previousKeys[i];
+                values[slot] = previousValues[i];
+            }
+        }
+    }
+}
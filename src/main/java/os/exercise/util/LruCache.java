@@ -0,0 +1,157 @@
+package os.exercise.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A cache bounded by the total weight of its values, e.g. their size in bytes, rather than by their number, whose
+ * entries also expire after a fixed time. When a new value does not fit, the least recently used entries are evicted
+ * until it does; a value heavier than the whole cache is not kept.
+ * It is thread-safe: every method locks the cache, which only holds references, so the lock is never held long.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ */
+public class LruCache<K, V> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long maxWeight;
+    private final long ttlNanos;
+    private final LongSupplier nanoClock;
+    // In access order, so the first entry is the least recently used
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructor of the LruCache.
+     *
+     * @param maxWeight The maximum total weight of the values.
+     * @param ttlNanos The time after which an entry expires.
+     */
+    public LruCache(long maxWeight, long ttlNanos) {
+        this(maxWeight, ttlNanos, System::nanoTime);
+    }
+
+    /**
+     * Constructor of the LruCache.
+     *
+     * @param maxWeight The maximum total weight of the values.
+     * @param ttlNanos The time after which an entry expires.
+     * @param nanoClock The source of the time, in nanoseconds.
+     */
+    public LruCache(long maxWeight, long ttlNanos, LongSupplier nanoClock) {
+        if (maxWeight <= 0 || ttlNanos <= 0) {
+            throw new IllegalArgumentException("Invalid cache: a maximum weight of " + maxWeight + " and a TTL of "
+                    + ttlNanos + " ns");
+        }
+        this.maxWeight = maxWeight;
+        this.ttlNanos = ttlNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Get the value of a key, if it has not expired.
+     *
+     * @param key A key.
+     * @return The value, or null if there is none.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && nanoClock.getAsLong() - entry.createdNanos >= ttlNanos) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /**
+     * Put the value of a key, evicting the least recently used entries if it does not fit.
+     *
+     * @param key A key.
+     * @param value Its value.
+     * @param valueWeight The weight of the value, e.g. its size in bytes.
+     * @return True if the value was kept else false, when it is heavier than the whole cache.
+     */
+    public synchronized boolean put(K key, V value, long valueWeight) {
+        remove(key);
+        if (valueWeight > maxWeight) {
+            return false;
+        }
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while (weight + valueWeight > maxWeight && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(key, new Entry<>(value, valueWeight, nanoClock.getAsLong()));
+        weight += valueWeight;
+        return true;
+    }
+
+    private void remove(K key) {
+        Entry<V> removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Remove every entry.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return entries.size() + " entries, " + weight + "/" + maxWeight + " weight, " + hits + " hits, " + misses
+                + " misses, " + evictions + " evictions";
+    }
+
+    /**
+     * A value with its weight and the time it was put.
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdNanos;
+
+        Entry(V value, long weight, long createdNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
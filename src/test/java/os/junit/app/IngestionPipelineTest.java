@@ -0,0 +1,324 @@
+package os.junit.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensearch.action.ActionListener;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.index.shard.ShardId;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import os.exercise.app.IngestionPipeline;
+import os.exercise.io.CheckpointJournal;
+import os.exercise.io.IngestManifest;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+
+/**
+ * Unitary tests for the IngestionPipeline class.
+ */
+class IngestionPipelineTest {
+
+    private static final String INDEX = "articles";
+    private static final BatchLimits LIMITS = new BatchLimits(2, 1024 * 1024);
+
+    private final Path articlesFilePath = Paths.get("src/test/resources/articles-example.json");
+
+    private RestHighLevelClient mockClient(AtomicInteger indexedArticles) {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            indexedArticles.addAndGet(request.numberOfActions());
+            listener.onResponse(successfulResponse(request.numberOfActions()));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        return client;
+    }
+
+    private static BulkResponse successfulResponse(int nItems) {
+        ShardId shardId = new ShardId(INDEX, "_na_", -1);
+        BulkItemResponse[] items = new BulkItemResponse[nItems];
+        for (int i = 0; i < nItems; i++) {
+            IndexResponse response = new IndexResponse(shardId, "id" + i, i, 1, 1, true);
+            items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX, response);
+        }
+        return new BulkResponse(items, 1L);
+    }
+
+    @Test
+    void givenSeveralFilesWhenRunThenEveryArticleIsIndexed(@TempDir Path folder) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path copy = folder.resolve("articles-" + i + ".json");
+            Files.copy(articlesFilePath, copy);
+            paths.add(copy);
+        }
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 2, 2, 3, 1);
+
+        assertTrue(pipeline.run(paths));
+        assertEquals(15, indexedArticles.get());
+    }
+
+    @Test
+    void givenPassThroughModeWhenRunThenEveryArticleIsIndexed(@TempDir Path folder) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path copy = folder.resolve("articles-" + i + ".json");
+            Files.copy(articlesFilePath, copy);
+            paths.add(copy);
+        }
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 2, 1, 1);
+        pipeline.setPassThrough(true);
+
+        assertTrue(pipeline.run(paths));
+        assertEquals(9, indexedArticles.get());
+    }
+
+    @Test
+    void givenChunkedParsingWhenRunThenEveryArticleIsIndexed(@TempDir Path folder) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path copy = folder.resolve("articles-" + i + ".json");
+            Files.copy(articlesFilePath, copy);
+            paths.add(copy);
+        }
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, new BatchLimits(2, 100), 1, 1, 1, 1);
+        pipeline.setChunkedParsing(pool, 0, false);
+
+        assertTrue(pipeline.run(paths));
+        assertEquals(9, indexedArticles.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void givenCheckpointJournalWhenResumeThenOnlyTheFailedBatchesAreSentAgain(@TempDir Path folder)
+            throws IOException {
+        Path copy = folder.resolve("articles.json");
+        Files.copy(articlesFilePath, copy);
+        Path journalPath = folder.resolve("checkpoint");
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        AtomicInteger requests = new AtomicInteger();
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            if (requests.incrementAndGet() == 2) {
+                listener.onFailure(new IOException());
+            } else {
+                listener.onResponse(successfulResponse(request.numberOfActions()));
+            }
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        BatchLimits oneArticle = new BatchLimits(1, 1024 * 1024);
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, 60_000, false)) {
+            IngestionPipeline pipeline = new IngestionPipeline(new ArticlesIndexer(client, new ObjectMapper(), 1),
+                    INDEX, oneArticle, 1, 1, 1, 1);
+            pipeline.setCheckpointJournal(journal);
+            assertFalse(pipeline.run(List.of(copy)));
+        }
+
+        AtomicInteger indexedArticles = new AtomicInteger();
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, 60_000, true)) {
+            ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+            IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, oneArticle, 1, 1, 1, 1);
+            pipeline.setCheckpointJournal(journal);
+            assertTrue(pipeline.run(List.of(copy)));
+            assertEquals(Files.size(copy), journal.getOffset(copy));
+        }
+        assertEquals(2, indexedArticles.get());
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, 60_000, true)) {
+            ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+            IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, oneArticle, 1, 1, 1, 1);
+            pipeline.setCheckpointJournal(journal);
+            assertTrue(pipeline.run(List.of(copy)));
+        }
+        assertEquals(2, indexedArticles.get());
+    }
+
+    @Test
+    void givenManifestWhenRunAgainThenOnlyChangedRecordsAreIndexed(@TempDir Path folder) throws IOException {
+        Path copy = folder.resolve("articles.json");
+        Files.copy(articlesFilePath, copy);
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+        pipeline.setManifest(manifest);
+
+        assertTrue(pipeline.run(List.of(copy)));
+        assertEquals(3, indexedArticles.get());
+        assertEquals(3, manifest.getRecordHashes(copy).size());
+
+        assertTrue(pipeline.run(List.of(copy)));
+        assertEquals(3, indexedArticles.get());
+
+        String content = Files.readString(copy);
+        Files.writeString(copy, content.replace("Abstract text!", "Another abstract text!"));
+        assertTrue(pipeline.run(List.of(copy)));
+        assertEquals(4, indexedArticles.get());
+        assertTrue(manifest.isUnchanged(copy));
+    }
+
+    @Test
+    void givenFileNotReadToItsEndWhenRunWithManifestThenFailureAndFileIsNotRecorded(@TempDir Path folder)
+            throws IOException {
+        Path file = folder.resolve("articles.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file))) {
+            Files.copy(articlesFilePath, output);
+        }
+        byte[] compressed = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(compressed, compressed.length / 2));
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+        pipeline.setManifest(manifest);
+
+        assertFalse(pipeline.run(List.of(file)));
+        assertNull(manifest.get(file));
+    }
+
+    @Test
+    void givenMalformedLineWhenRunWithAndWithoutChunksThenSameArticlesAreIndexed(@TempDir Path folder)
+            throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.writeString(file, "{\"id\":\"1\"}\n{\"id\":\"2\",,}\n{\"id\":\"3\"}\n");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        for (long minChunkedFileBytes : new long[] {Long.MAX_VALUE, 0}) {
+            IngestManifest manifest = new IngestManifest(folder.resolve("data-" + minChunkedFileBytes + ".manifest"));
+            AtomicInteger indexedArticles = new AtomicInteger();
+            ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+            IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+            pipeline.setChunkedParsing(pool, minChunkedFileBytes, true);
+            pipeline.setManifest(manifest);
+
+            assertTrue(pipeline.run(List.of(file)));
+            assertEquals(2, indexedArticles.get());
+            assertEquals(2, manifest.getRecordHashes(file).size());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void givenSegmentNotSerializedWhenRunWithManifestThenFailureAndOtherSegmentsAreIndexed(@TempDir Path folder)
+            throws IOException {
+        Path copy = folder.resolve("articles.json");
+        Files.copy(articlesFilePath, copy);
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = spy(new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper()));
+        doThrow(new JsonMappingException(null, "Invalid article")).doCallRealMethod()
+                .when(indexer).getSizedBulkBatches(any(), any(), any());
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, new BatchLimits(1, 1024 * 1024), 1, 1, 1,
+                1);
+        pipeline.setManifest(manifest);
+
+        assertFalse(pipeline.run(List.of(copy)));
+        assertEquals(2, indexedArticles.get());
+        assertNull(manifest.get(copy));
+    }
+
+    @Test
+    void givenOverlappingFilesWhenRunWithDeduplicationThenEachIdIsSentOnce(@TempDir Path folder) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path copy = folder.resolve("articles-" + i + ".json");
+            Files.copy(articlesFilePath, copy);
+            paths.add(copy);
+        }
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 2, 2, 1, 1);
+        pipeline.setDeduplication(true);
+
+        assertTrue(pipeline.run(paths));
+        assertEquals(3, indexedArticles.get());
+    }
+
+    @Test
+    void givenNoFilesWhenRunThenSuccess() {
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+
+        assertTrue(pipeline.run(new ArrayList<>()));
+        assertEquals(0, indexedArticles.get());
+    }
+
+    @Test
+    void givenNonExistingFileWhenRunThenFailure() {
+        AtomicInteger indexedArticles = new AtomicInteger();
+        ArticlesIndexer indexer = new ArticlesIndexer(mockClient(indexedArticles), new ObjectMapper());
+        List<Path> paths = List.of(Paths.get("src/test/resources/non-existing-file.json"), articlesFilePath);
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+
+        assertFalse(pipeline.run(paths));
+        assertEquals(3, indexedArticles.get());
+    }
+
+    @Test
+    void givenExceptionWhileIndexingWhenRunThenFailure() {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onFailure(new IOException());
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+
+        IngestionPipeline pipeline = new IngestionPipeline(indexer, INDEX, LIMITS, 1, 1, 1, 1);
+
+        assertFalse(pipeline.run(List.of(articlesFilePath)));
+    }
+
+    @Test
+    void givenNoThreadsWhenCreatePipelineThenFailure() {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        assertThrows(IllegalArgumentException.class,
+                () -> new IngestionPipeline(indexer, INDEX, LIMITS, 0, 1, 1, 1));
+    }
+}
@@ -4,12 +4,15 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.platform.commons.util.ExceptionUtils;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import os.exercise.app.Main;
@@ -37,6 +40,20 @@ class MainTest {
         }
     }
 
+    @Test
+    void givenCompressedFilesWhenGetPathsThenTheyAreIncluded(@TempDir Path folder) throws IOException {
+        for (String name : List.of("a.json", "b.json.gz", "c.json.zst", "d.txt", "e.gz")) {
+            Files.createFile(folder.resolve(name));
+        }
+
+        List<String> names = Main.getPaths(folder).stream()
+                .map(path -> path.getFileName().toString())
+                .sorted()
+                .collect(Collectors.toList());
+
+        assertEquals(List.of("a.json", "b.json.gz", "c.json.zst"), names);
+    }
+
     @Test
     void givenAnInvalidPathWhenGetPathsThenNumberOfFilesEqualsZero() {
         Path folderPath = Paths.get("src/test/resources/non-existing-folder");
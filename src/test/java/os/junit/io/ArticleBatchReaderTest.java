@@ -0,0 +1,196 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import os.exercise.io.ArticleBatchReader;
+import os.exercise.io.JsonReader;
+import os.exercise.models.Article;
+
+/**
+ * Unitary tests for the ArticleBatchReader class.
+ */
+class ArticleBatchReaderTest {
+
+    private final Path articlesFilePath = Paths.get("src/test/resources/articles-example.json");
+
+    @Test
+    void givenArticlesFilePathWhenReadInBatchesThenSameArticlesAsReadArticlesFile() throws IOException {
+        List<Article> actual = new ArrayList<>();
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 2)) {
+            List<Integer> sizes = new ArrayList<>();
+            while (reader.hasNext()) {
+                List<Article> batch = reader.next();
+                sizes.add(batch.size());
+                actual.addAll(batch);
+            }
+            assertEquals(List.of(2, 1), sizes);
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+        assertEquals(JsonReader.readArticlesFile(articlesFilePath), actual);
+    }
+
+    @Test
+    void givenCompressedFilesWhenReadInBatchesThenSameArticlesAsTheUncompressedFile(@TempDir Path folder)
+            throws IOException {
+        Path gzip = folder.resolve("articles.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            Files.copy(articlesFilePath, output);
+        }
+        Path zstd = folder.resolve("articles.json.zst");
+        try (OutputStream output = new ZstdOutputStream(Files.newOutputStream(zstd))) {
+            Files.copy(articlesFilePath, output);
+        }
+        List<Article> expected = JsonReader.readArticlesFile(articlesFilePath);
+
+        for (Path compressed : List.of(gzip, zstd)) {
+            List<Article> actual = new ArrayList<>();
+            try (ArticleBatchReader reader = JsonReader.openArticlesFile(compressed, 2)) {
+                while (reader.hasNext()) {
+                    actual.addAll(reader.next());
+                }
+                assertEquals(-1, reader.getTotalBytes());
+                assertEquals(Files.size(articlesFilePath), reader.getBytesRead());
+            }
+            assertEquals(expected, actual);
+            assertEquals(expected, JsonReader.readArticlesFile(compressed));
+        }
+    }
+
+    @Test
+    void givenCompressedFileWhenOpenAtBatchEndThenTheFollowingArticlesAreRead(@TempDir Path folder)
+            throws IOException {
+        Path gzip = folder.resolve("articles.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            Files.copy(articlesFilePath, output);
+        }
+        long firstBatchEnd;
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(gzip, 1)) {
+            reader.next();
+            firstBatchEnd = reader.getBatchEnd();
+        }
+
+        List<Article> resumed = new ArrayList<>();
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(gzip, 10, Long.MAX_VALUE, firstBatchEnd)) {
+            while (reader.hasNext()) {
+                resumed.addAll(reader.next());
+            }
+        }
+        List<Article> expected = JsonReader.readArticlesFile(articlesFilePath);
+        assertEquals(expected.subList(1, expected.size()), resumed);
+    }
+
+    @Test
+    void givenArticlesFilePathWhenNextThenBytesReadGrows() throws IOException {
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 1)) {
+            long previous = reader.getBytesRead();
+            while (reader.hasNext()) {
+                reader.next();
+                assertTrue(reader.getBytesRead() > previous);
+                previous = reader.getBytesRead();
+            }
+        }
+    }
+
+    @Test
+    void givenByteLimitWhenReadInBatchesThenBatchesCloseAtTheLimit() throws IOException {
+        List<Integer> sizes = new ArrayList<>();
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 10, 1)) {
+            while (reader.hasNext()) {
+                sizes.add(reader.next().size());
+            }
+        }
+        assertEquals(List.of(1, 1, 1), sizes);
+    }
+
+    @Test
+    void givenBatchEndWhenOpenAtThatOffsetThenTheFollowingArticlesAreRead() throws IOException {
+        long firstBatchEnd;
+        List<Article> rest = new ArrayList<>();
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 1)) {
+            reader.next();
+            assertEquals(0, reader.getBatchStart());
+            firstBatchEnd = reader.getBatchEnd();
+            while (reader.hasNext()) {
+                rest.addAll(reader.next());
+            }
+        }
+
+        List<Article> resumed = new ArrayList<>();
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 10, Long.MAX_VALUE,
+                firstBatchEnd)) {
+            while (reader.hasNext()) {
+                resumed.addAll(reader.next());
+                assertEquals(firstBatchEnd, reader.getBatchStart());
+                assertEquals(reader.getTotalBytes(), reader.getBatchEnd());
+            }
+        }
+        assertEquals(rest, resumed);
+    }
+
+    @Test
+    void givenExhaustedReaderWhenNextThenThrowsNoSuchElementException() throws IOException {
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(articlesFilePath, 10)) {
+            reader.next();
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+        }
+    }
+
+    @Test
+    void givenMalformedLinesWhenReadInBatchesThenTheyAreSkippedAndCounted(@TempDir Path folder) throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.write(file, List.of("{\"id\":\"1\"}", "{\"id\":\"2\",,}", "", "{\"id\":\"3\"}", "[1]"));
+
+        try (ArticleBatchReader reader = JsonReader.openArticlesFile(file, 2)) {
+            List<Article> batch = reader.next();
+            assertEquals(List.of("1", "3"), batch.stream().map(Article::getId).collect(Collectors.toList()));
+            assertFalse(reader.hasNext());
+            assertFalse(reader.isFailed());
+            assertEquals(2, reader.getSkippedLines());
+            assertEquals(Files.size(file) - "[1]\n".length(), reader.getBytesRead());
+        }
+    }
+
+    @Test
+    void givenNonExistingFileWhenOpenArticlesFileThenFailure() {
+        Path wrongPath = Paths.get("src/test/resources/non-existing-file.json");
+        assertThrows(IOException.class, () -> JsonReader.openArticlesFile(wrongPath, 1));
+    }
+
+    @Test
+    void givenArticlesFilePathWhenStreamArticlesFileInBatchesThenSuccess() {
+        try (Stream<List<Article>> batches = JsonReader.streamArticlesFileInBatches(articlesFilePath, 1)) {
+            List<Integer> sizes = batches.map(List::size).collect(Collectors.toList());
+            assertEquals(List.of(1, 1, 1), sizes);
+        }
+    }
+
+    @Test
+    void givenNonExistingFileWhenStreamArticlesFileInBatchesThenEmptyStream() {
+        Path wrongPath = Paths.get("src/test/resources/non-existing-file.json");
+        try (Stream<List<Article>> batches = JsonReader.streamArticlesFileInBatches(wrongPath, 1)) {
+            assertEquals(0, batches.count());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import os.exercise.io.ArticleJson;
+import os.exercise.models.Article;
+
+/**
+ * Unitary tests for the ArticleJson class.
+ */
+class ArticleJsonTest {
+
+    private static final String JSON = "{\"id\":\"pmid:1\",\"article_title\":\"Title\",\"abstract_text\":\"Text\","
+            + "\"language\":[\"eng\"],\"pub_date\":\"2003-12-01\",\"filter_sources\":[\"cord19\"],"
+            + "\"keywords\":[\"kw1\"],\"pub_types\":[\"Editorial\"]}";
+
+    @Test
+    void givenArticleJsonWhenReadAndWriteThenSameJson() throws IOException {
+        Article article = ArticleJson.getArticleReader().readValue(JSON);
+
+        assertEquals(List.of("eng"), article.getLanguage());
+        assertEquals(JSON, ArticleJson.getArticleWriter().writeValueAsString(article));
+    }
+
+    @Test
+    void givenGeneratedAccessorsWhenReadAndWriteThenSameJson() throws IOException {
+        ObjectMapper mapper = ArticleJson.newMapper(true);
+        Article article = mapper.readValue(JSON, Article.class);
+
+        assertEquals(JSON, mapper.writeValueAsString(article));
+    }
+}
@@ -0,0 +1,108 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import os.exercise.io.CheckpointJournal;
+
+/**
+ * Unitary tests for the CheckpointJournal class.
+ */
+class CheckpointJournalTest {
+
+    private static final long SYNC_INTERVAL_MILLIS = 60_000;
+
+    private final Path file = Paths.get("data/articles-1.json");
+    private final Path otherFile = Paths.get("data/articles-2.json");
+
+    @Test
+    void givenRangesOutOfOrderWhenAcknowledgeThenOffsetOnlyMovesOverContiguousRanges(@TempDir Path folder)
+            throws IOException {
+        try (CheckpointJournal journal = new CheckpointJournal(folder.resolve("checkpoint"), SYNC_INTERVAL_MILLIS,
+                false)) {
+            journal.acknowledge(file, 100, 200);
+            journal.acknowledge(file, 300, 400);
+            assertEquals(0, journal.getOffset(file));
+
+            journal.acknowledge(file, 0, 100);
+            assertEquals(200, journal.getOffset(file));
+
+            journal.acknowledge(file, 200, 300);
+            assertEquals(400, journal.getOffset(file));
+            assertEquals(0, journal.getOffset(otherFile));
+        }
+    }
+
+    @Test
+    void givenSyncedJournalWhenResumeThenOffsetsAreLoaded(@TempDir Path folder) throws IOException {
+        Path journalPath = folder.resolve("checkpoint");
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, false)) {
+            journal.acknowledge(file, 0, 100);
+            journal.sync();
+            journal.acknowledge(file, 100, 250);
+            journal.acknowledge(otherFile, 0, 50);
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, true)) {
+            assertEquals(250, journal.getOffset(file));
+            assertEquals(50, journal.getOffset(otherFile.toAbsolutePath()));
+        }
+        assertEquals(2, Files.readAllLines(journalPath).size());
+    }
+
+    @Test
+    void givenNoResumeWhenOpenJournalThenOffsetsAreDiscarded(@TempDir Path folder) throws IOException {
+        Path journalPath = folder.resolve("checkpoint");
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, false)) {
+            journal.acknowledge(file, 0, 100);
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, false)) {
+            assertEquals(0, journal.getOffset(file));
+        }
+    }
+
+    @Test
+    void givenLineCutByACrashWhenResumeThenItIsIgnored(@TempDir Path folder) throws IOException {
+        Path journalPath = folder.resolve("checkpoint");
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, false)) {
+            journal.acknowledge(file, 0, 100);
+        }
+        Files.writeString(journalPath, "35", StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, true)) {
+            assertEquals(100, journal.getOffset(file));
+        }
+    }
+
+    @Test
+    void givenFileChangedSinceItsOffsetWhenResumeThenItIsReadFromTheStart(@TempDir Path folder) throws IOException {
+        Path journalPath = folder.resolve("checkpoint");
+        Path input = folder.resolve("articles.json");
+        Path replaced = folder.resolve("replaced.json");
+        Files.writeString(input, "{\"id\":\"1\"}\n{\"id\":\"2\"}\n");
+        Files.writeString(replaced, "{\"id\":\"1\"}\n");
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, false)) {
+            journal.acknowledge(input, 0, 11);
+            journal.acknowledge(replaced, 0, 11);
+        }
+        Files.writeString(replaced, "{\"id\":\"3\"}\n{\"id\":\"4\"}\n");
+
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, true)) {
+            assertEquals(11, journal.getOffset(input));
+            assertEquals(0, journal.getOffset(replaced));
+            journal.acknowledge(replaced, 0, 22);
+        }
+        try (CheckpointJournal journal = new CheckpointJournal(journalPath, SYNC_INTERVAL_MILLIS, true)) {
+            assertEquals(22, journal.getOffset(replaced));
+        }
+    }
+}
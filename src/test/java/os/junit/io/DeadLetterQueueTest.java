@@ -0,0 +1,150 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import os.exercise.io.Compression;
+import os.exercise.io.DeadLetter;
+import os.exercise.io.DeadLetterQueue;
+import os.exercise.io.DeadLetterReader;
+import os.exercise.models.RawArticle;
+
+/**
+ * Unitary tests for the DeadLetterQueue and DeadLetterReader classes.
+ */
+class DeadLetterQueueTest {
+
+    private static final long SEGMENT_BYTES = 1024L * 1024;
+    private static final int CAPACITY = 100;
+
+    private static DeadLetter letter(int number) {
+        String source = "{\"id\":\"pmid:" + number + "\",\"article_title\":\"Title " + number
+                + "\",\"pub_date\":\"2003-05-17\"}";
+        return new DeadLetter("articles", "pmid:" + number, "mapper_parsing_exception",
+                "failed to parse field [pub_date]", 400, source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<DeadLetter> readAll(Path folder) throws IOException {
+        List<DeadLetter> letters = new ArrayList<>();
+        for (Path segment : DeadLetterQueue.getSegments(folder)) {
+            try (DeadLetterReader reader = new DeadLetterReader(segment)) {
+                for (DeadLetter letter = reader.readLetter(); letter != null; letter = reader.readLetter()) {
+                    letters.add(letter);
+                }
+            }
+        }
+        return letters;
+    }
+
+    @Test
+    void givenLettersWhenCloseThenSegmentHasEveryLetterWithItsSource(@TempDir Path folder) throws IOException {
+        DeadLetter first = letter(1);
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY)) {
+            assertTrue(queue.add(first));
+            assertTrue(queue.add(letter(2)));
+        }
+
+        List<Path> segments = DeadLetterQueue.getSegments(folder);
+        assertEquals(1, segments.size());
+        assertTrue(segments.get(0).getFileName().toString().endsWith(".json.gz"));
+        List<DeadLetter> letters = readAll(folder);
+        assertEquals(2, letters.size());
+        DeadLetter read = letters.get(0);
+        assertEquals("articles", read.getIndex());
+        assertEquals("pmid:1", read.getId());
+        assertEquals("mapper_parsing_exception", read.getFailureType());
+        assertEquals("failed to parse field [pub_date]", read.getReason());
+        assertEquals(400, read.getStatus());
+        assertEquals(first.getTimestamp(), read.getTimestamp());
+        assertArrayEquals(first.getSource(), read.getSource());
+    }
+
+    @Test
+    void givenSmallSegmentsWhenAddLettersThenSegmentsAreRotated(@TempDir Path folder)
+            throws IOException, InterruptedException {
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.NONE, 1, CAPACITY)) {
+            for (int i = 0; i < 3; i++) {
+                queue.add(letter(i));
+                // Each letter is written alone, so it fills a segment
+                assertTrue(queue.flush(5, TimeUnit.SECONDS));
+            }
+            assertEquals(3, queue.getWrittenLetters());
+        }
+
+        assertEquals(3, DeadLetterQueue.getSegments(folder).size());
+        List<DeadLetter> letters = readAll(folder);
+        assertEquals(3, letters.size());
+        assertEquals("pmid:2", letters.get(2).getId());
+    }
+
+    @Test
+    void givenQueuedLettersWhenFlushThenTheyAreWrittenBeforeTheQueueIsClosed(@TempDir Path folder)
+            throws IOException, InterruptedException {
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(queue.add(letter(i)));
+            }
+
+            assertTrue(queue.flush(5, TimeUnit.SECONDS));
+            assertEquals(10, queue.getWrittenLetters());
+            assertEquals(0, queue.getDroppedLetters());
+        }
+    }
+
+    @Test
+    void givenSegmentLeftOpenWhenCreateQueueThenItIsReadUpToItsLastFlush(@TempDir Path folder) throws IOException {
+        Path open = folder.resolve("dead-letters-20240101-000000-000-00000.json.gz.open");
+        OutputStream file = Files.newOutputStream(open);
+        GZIPOutputStream compressed = new GZIPOutputStream(file, true);
+        compressed.write(("{\"id\":\"pmid:1\",\"failure_type\":\"x\",\"source\":{\"id\":\"pmid:1\"}}\n"
+                + "{\"id\":\"pmid:2\",\"source\":{\"id\"").getBytes(StandardCharsets.UTF_8));
+        compressed.flush();
+        file.close();
+
+        new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY).close();
+
+        assertFalse(Files.exists(open));
+        List<Path> segments = DeadLetterQueue.getSegments(folder);
+        assertEquals(1, segments.size());
+        try (DeadLetterReader reader = new DeadLetterReader(segments.get(0))) {
+            assertEquals("pmid:1", reader.readLetter().getId());
+            assertNull(reader.readLetter());
+            assertTrue(reader.isTruncated());
+        }
+    }
+
+    @Test
+    void givenClosedQueueWhenAddThenLetterIsDropped(@TempDir Path folder) throws IOException {
+        DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY);
+        queue.close();
+
+        assertFalse(queue.add(letter(1)));
+        assertEquals(1, queue.getDroppedLetters());
+        assertTrue(DeadLetterQueue.getSegments(folder).isEmpty());
+    }
+
+    @Test
+    void givenLetterWhenToRawArticleThenPubDateIsReadFromTheSource() {
+        RawArticle article = letter(7).toRawArticle();
+
+        assertEquals("pmid:7", article.getId());
+        assertEquals("2003-05-17", article.getPubDate());
+        assertArrayEquals(letter(7).getSource(), article.getSource());
+    }
+}
@@ -0,0 +1,121 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import os.exercise.io.ContentHash;
+import os.exercise.io.IngestManifest;
+import os.exercise.io.RecordHashes;
+
+/**
+ * Unitary tests for the IngestManifest class.
+ */
+class IngestManifestTest {
+
+    @Test
+    void givenSavedManifestWhenLoadThenFilesAndRecordsAreRestored(@TempDir Path folder) throws IOException {
+        Path file = Files.writeString(folder.resolve("articles.json"), "{\"id\":\"pmid:1\"}\n");
+        Path manifestPath = folder.resolve("data.manifest");
+        IngestManifest manifest = new IngestManifest(manifestPath);
+        manifest.put(file, IngestManifest.FileState.of(file), hashes(1, 3));
+        manifest.save();
+
+        IngestManifest loaded = new IngestManifest(manifestPath);
+        IngestManifest.FileState state = loaded.get(file);
+        assertEquals(Files.size(file), state.getSize());
+        assertEquals(ContentHash.of(file), state.getContentHash());
+        RecordHashes records = loaded.getRecordHashes(file);
+        assertEquals(3, records.size());
+        assertTrue(records.contains(RecordHashes.idHash("pmid:2"), 20));
+        assertFalse(records.contains(RecordHashes.idHash("pmid:2"), 21));
+        assertFalse(records.contains(RecordHashes.idHash("pmid:4"), 40));
+        assertTrue(loaded.isUnchanged(file));
+    }
+
+    @Test
+    void givenFilesPutAfterALoadWhenSaveThenRecordsOfAllFilesAreKept(@TempDir Path folder) throws IOException {
+        Path first = Files.writeString(folder.resolve("articles-1.json"), "{\"id\":\"pmid:1\"}\n");
+        Path second = Files.writeString(folder.resolve("articles-2.json"), "{\"id\":\"pmid:100001\"}\n");
+        Path manifestPath = folder.resolve("data.manifest");
+        try (IngestManifest manifest = new IngestManifest(manifestPath)) {
+            manifest.put(first, IngestManifest.FileState.of(first), hashes(1, 100_000));
+            manifest.save();
+        }
+
+        try (IngestManifest manifest = new IngestManifest(manifestPath)) {
+            manifest.put(second, IngestManifest.FileState.of(second), hashes(100_001, 2));
+            assertEquals(2, manifest.getRecordHashes(second).size());
+            manifest.save();
+        }
+
+        IngestManifest loaded = new IngestManifest(manifestPath);
+        RecordHashes firstRecords = loaded.getRecordHashes(first);
+        assertEquals(100_000, firstRecords.size());
+        assertTrue(firstRecords.contains(RecordHashes.idHash("pmid:99999"), 999_990));
+        assertTrue(loaded.getRecordHashes(second).contains(RecordHashes.idHash("pmid:100002"), 1_000_020));
+        assertEquals(0, loaded.getRecordHashes(folder.resolve("articles-3.json")).size());
+        try (Stream<Path> files = Files.list(folder)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    /**
+     * Build the hashes of the records {@code pmid:<first>} and after, each one with the hash 10 times its number.
+     */
+    private static RecordHashes hashes(int first, int count) {
+        RecordHashes.Builder builder = new RecordHashes.Builder();
+        for (int i = first; i < first + count; i++) {
+            builder.add(RecordHashes.idHash("pmid:" + i), i * 10L);
+        }
+        return builder.build();
+    }
+
+    @Test
+    void givenFileTouchedWithoutChangesWhenIsUnchangedThenTrue(@TempDir Path folder) throws IOException {
+        Path file = Files.writeString(folder.resolve("articles.json"), "{\"id\":\"pmid:1\"}\n");
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+        manifest.put(file, IngestManifest.FileState.of(file));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+
+        assertTrue(manifest.isUnchanged(file));
+        assertEquals(Files.getLastModifiedTime(file).toMillis(), manifest.get(file).getLastModified());
+    }
+
+    @Test
+    void givenFileWithSameSizeButDifferentContentWhenIsUnchangedThenFalse(@TempDir Path folder) throws IOException {
+        Path file = Files.writeString(folder.resolve("articles.json"), "{\"id\":\"pmid:1\"}\n");
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+        manifest.put(file, IngestManifest.FileState.of(file));
+        Files.writeString(file, "{\"id\":\"pmid:2\"}\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+
+        assertFalse(manifest.isUnchanged(file));
+    }
+
+    @Test
+    void givenUnknownFileWhenIsUnchangedThenFalse(@TempDir Path folder) throws IOException {
+        Path file = Files.writeString(folder.resolve("articles.json"), "{\"id\":\"pmid:1\"}\n");
+        IngestManifest manifest = new IngestManifest(folder.resolve("data.manifest"));
+
+        assertNull(manifest.get(file));
+        assertFalse(manifest.isUnchanged(file));
+    }
+
+    @Test
+    void givenDifferentBytesWhenHashThenHashesAreDifferent() {
+        assertEquals(ContentHash.of("abc".getBytes()), ContentHash.of("abc".getBytes()));
+        assertNotEquals(ContentHash.of("abc".getBytes()), ContentHash.of("abd".getBytes()));
+    }
+}
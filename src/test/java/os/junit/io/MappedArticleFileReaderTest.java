@@ -0,0 +1,146 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import os.exercise.io.JsonReader;
+import os.exercise.io.MappedArticleFileReader;
+import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+
+/**
+ * Unitary tests for the MappedArticleFileReader class.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MappedArticleFileReaderTest {
+
+    private final Path articlesFilePath = Paths.get("src/test/resources/articles-example.json");
+
+    private ForkJoinPool pool;
+
+    @BeforeAll
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private static Path writeArticles(Path folder, int nArticles) throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.write(file, IntStream.range(0, nArticles)
+                .mapToObj(i -> "{\"id\":\"pmid:" + i + "\",\"article_title\":\"Title " + i + "\"}")
+                .collect(Collectors.toList()));
+        return file;
+    }
+
+    @Test
+    void givenArticlesFilePathWhenReadInChunksThenSameArticlesAsReadArticlesFile() throws IOException {
+        List<String> actual = new ArrayList<>();
+        try (MappedArticleFileReader<Article> reader = JsonReader.openArticlesFileInChunks(articlesFilePath, 2, 1, 0,
+                pool, true)) {
+            while (reader.hasNext()) {
+                reader.next().forEach(article -> actual.add(article.getId()));
+            }
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+        assertEquals(JsonReader.readArticlesFile(articlesFilePath).stream().map(Article::getId)
+                .collect(Collectors.toList()), actual);
+    }
+
+    @Test
+    void givenOrderedReaderWhenReadInChunksThenBatchesFollowTheFile(@TempDir Path folder) throws IOException {
+        Path file = writeArticles(folder, 1000);
+        List<String> actual = new ArrayList<>();
+        try (MappedArticleFileReader<RawArticle> reader = JsonReader.openRawArticlesFileInChunks(file, 30, 1000, 0,
+                pool, true)) {
+            while (reader.hasNext()) {
+                List<RawArticle> batch = reader.next();
+                assertTrue(batch.size() <= 30);
+                batch.forEach(article -> actual.add(article.getId()));
+            }
+        }
+        assertEquals(IntStream.range(0, 1000).mapToObj(i -> "pmid:" + i).collect(Collectors.toList()), actual);
+    }
+
+    @Test
+    void givenUnorderedReaderWhenReadInChunksThenEveryArticleIsReadOnce(@TempDir Path folder) throws IOException {
+        Path file = writeArticles(folder, 1000);
+        Set<String> actual = new HashSet<>();
+        int nArticles = 0;
+        try (MappedArticleFileReader<RawArticle> reader = JsonReader.openRawArticlesFileInChunks(file, 30, 1000, 0,
+                pool, false)) {
+            while (reader.hasNext()) {
+                for (RawArticle article : reader.next()) {
+                    actual.add(article.getId());
+                    nArticles++;
+                }
+            }
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+        assertEquals(1000, nArticles);
+        assertEquals(1000, actual.size());
+    }
+
+    @Test
+    void givenInvalidLinesWhenReadRawArticlesInChunksThenTheyAreSkipped(@TempDir Path folder) throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.writeString(file, "{\"id\":\"1\"}\r\n\n{\"id\":\"2\",,}\n{\"title\":\"no id\"}\n{\"id\":\"3\"}");
+        List<String> ids = new ArrayList<>();
+        try (MappedArticleFileReader<RawArticle> reader = JsonReader.openRawArticlesFileInChunks(file, 10, 5, 0,
+                pool, true)) {
+            while (reader.hasNext()) {
+                reader.next().forEach(article -> ids.add(article.getId()));
+            }
+        }
+        assertEquals(List.of("1", "3"), ids);
+    }
+
+    @Test
+    void givenInvalidLinesWhenReadArticlesInChunksThenOnlyTheyAreSkipped(@TempDir Path folder) throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.writeString(file, "{\"id\":\"1\"}\n{\"id\":\"2\",,}\n{\"id\":\"3\"}\n{\"id\":\"4\"}\n");
+        List<String> ids = new ArrayList<>();
+        try (MappedArticleFileReader<Article> reader = JsonReader.openArticlesFileInChunks(file, 10, 1024, 0,
+                pool, true)) {
+            while (reader.hasNext()) {
+                reader.next().forEach(article -> ids.add(article.getId()));
+            }
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+        assertEquals(List.of("1", "3", "4"), ids);
+    }
+
+    @Test
+    void givenExhaustedReaderWhenNextThenThrowsNoSuchElementException() throws IOException {
+        try (MappedArticleFileReader<Article> reader = JsonReader.openArticlesFileInChunks(articlesFilePath, 10,
+                1024 * 1024, 0, pool, true)) {
+            reader.next();
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+        }
+    }
+}
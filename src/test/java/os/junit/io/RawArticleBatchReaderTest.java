@@ -0,0 +1,105 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import os.exercise.io.JsonReader;
+import os.exercise.io.RawArticleBatchReader;
+import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
+
+/**
+ * Unitary tests for the RawArticleBatchReader class.
+ */
+class RawArticleBatchReaderTest {
+
+    private final Path articlesFilePath = Paths.get("src/test/resources/articles-example.json");
+
+    @Test
+    void givenArticlesFilePathWhenReadInBatchesThenOriginalLinesAreKept() throws IOException {
+        List<RawArticle> actual = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(articlesFilePath, 2, Long.MAX_VALUE, 0)) {
+            while (reader.hasNext()) {
+                List<RawArticle> batch = reader.next();
+                sizes.add(batch.size());
+                actual.addAll(batch);
+            }
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+
+        List<String> lines = Files.readAllLines(articlesFilePath);
+        assertEquals(List.of(2, 1), sizes);
+        assertEquals(JsonReader.readArticlesFile(articlesFilePath).stream().map(Article::getId)
+                .collect(Collectors.toList()), actual.stream().map(RawArticle::getId).collect(Collectors.toList()));
+        assertEquals(JsonReader.readArticlesFile(articlesFilePath).stream().map(Article::getPubDate)
+                .collect(Collectors.toList()),
+                actual.stream().map(RawArticle::getPubDate).collect(Collectors.toList()));
+        for (int i = 0; i < lines.size(); i++) {
+            assertArrayEquals(lines.get(i).trim().getBytes(StandardCharsets.UTF_8), actual.get(i).getSource());
+        }
+    }
+
+    @Test
+    void givenInvalidLinesWhenReadInBatchesThenTheyAreSkipped(@TempDir Path folder) throws IOException {
+        Path file = folder.resolve("articles.json");
+        Files.writeString(file, "{\"id\":\"1\",\"keywords\":[\"a\",{\"b\":1}]}\r\n"
+                + "\n"
+                + "{\"id\":\"2\",,}\n"
+                + "{\"article_title\":\"no id\"}\n"
+                + "[1,2]\n"
+                + "{\"id\":\"3\"} {\"id\":\"4\"}\n"
+                + "{\"id\":\"5\"}");
+
+        List<String> ids = new ArrayList<>();
+        try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(file, 10, Long.MAX_VALUE, 0)) {
+            while (reader.hasNext()) {
+                reader.next().forEach(article -> ids.add(article.getId()));
+            }
+            assertEquals(4, reader.getSkippedLines());
+            assertEquals(reader.getTotalBytes(), reader.getBytesRead());
+        }
+        assertEquals(List.of("1", "5"), ids);
+    }
+
+    @Test
+    void givenLinesLongerThanTheBufferWhenReadInBatchesThenTheyAreReadWhole(@TempDir Path folder)
+            throws IOException {
+        Path file = folder.resolve("articles.json");
+        String longLine = "{\"id\":\"1\",\"abstract_text\":\"" + "x".repeat(200_000) + "\"}";
+        Files.writeString(file, longLine + "\n{\"id\":\"2\"}\n" + longLine + "\n");
+
+        List<RawArticle> articles = new ArrayList<>();
+        try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(file, 10, 1, 0)) {
+            while (reader.hasNext()) {
+                articles.addAll(reader.next());
+            }
+        }
+        assertEquals(3, articles.size());
+        assertArrayEquals(longLine.getBytes(StandardCharsets.UTF_8), articles.get(2).getSource());
+    }
+
+    @Test
+    void givenExhaustedReaderWhenNextThenThrowsNoSuchElementException() throws IOException {
+        try (RawArticleBatchReader reader = JsonReader.openRawArticlesFile(articlesFilePath, 10, Long.MAX_VALUE, 0)) {
+            reader.next();
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package os.junit.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Random;
+
+import os.exercise.io.ReadAheadInputStream;
+
+/**
+ * Unitary tests for the ReadAheadInputStream class.
+ */
+class ReadAheadInputStreamTest {
+
+    private static byte[] randomBytes(int nBytes) {
+        byte[] bytes = new byte[nBytes];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void givenSourceBiggerThanTheBlocksWhenReadThenSameBytes() throws IOException {
+        byte[] source = randomBytes(100_000);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (InputStream input = new ReadAheadInputStream(new ByteArrayInputStream(source), 1000, 3, "test")) {
+            assertEquals(source[0] & 0xFF, input.read());
+            copy.write(source[0]);
+            input.transferTo(copy);
+            assertEquals(-1, input.read());
+        }
+        assertArrayEquals(source, copy.toByteArray());
+    }
+
+    @Test
+    void givenFailingSourceWhenReadThenBytesBeforeTheErrorAreReadAndThenItIsThrown() throws IOException {
+        byte[] source = randomBytes(2500);
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Corrupted file");
+            }
+        };
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        try (InputStream input = new ReadAheadInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(source), failing), 1000, 2, "test")) {
+            byte[] buffer = new byte[500];
+            IOException e = assertThrows(IOException.class, () -> {
+                int read;
+                while ((read = input.read(buffer)) != -1) {
+                    copy.write(buffer, 0, read);
+                }
+            });
+            assertEquals("Corrupted file", e.getMessage());
+        }
+        assertEquals(2000, copy.size());
+    }
+
+    @Test
+    void givenSourceThrowingAnUncheckedExceptionWhenReadThenItIsThrownAsAnIOException() throws IOException {
+        byte[] source = randomBytes(1000);
+        IllegalStateException bug = new IllegalStateException("Inflater has been closed");
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw bug;
+            }
+        };
+        try (InputStream input = new ReadAheadInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(source), failing), 1000, 2, "test")) {
+            assertArrayEquals(source, input.readNBytes(source.length));
+            IOException e = assertThrows(IOException.class, input::read);
+            assertSame(bug, e.getCause());
+            assertEquals(-1, input.read());
+        }
+    }
+
+    @Test
+    void givenOneBlockWhenCreateStreamThenFailure() {
+        InputStream source = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalArgumentException.class, () -> new ReadAheadInputStream(source, 1000, 1, "test"));
+    }
+}
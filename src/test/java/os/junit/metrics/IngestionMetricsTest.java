@@ -0,0 +1,143 @@
+package os.junit.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import os.exercise.metrics.IngestionMetrics;
+import os.exercise.metrics.MetricsReporter;
+import os.exercise.opensearch.BulkBatch;
+
+/**
+ * Unitary tests for the IngestionMetrics and MetricsReporter classes.
+ */
+class IngestionMetricsTest {
+
+    private static final String INDEX = "articles";
+
+    private final BulkBatch batch = new BulkBatch(new BulkRequest(), Arrays.asList("pmid:1", "pmid:2", "pmid:3"));
+
+    private static BulkResponse response(long tookMillis, RestStatus... failures) {
+        ShardId shardId = new ShardId(INDEX, "_na_", -1);
+        BulkItemResponse[] items = new BulkItemResponse[3];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i < failures.length
+                    ? new BulkItemResponse(i, DocWriteRequest.OpType.INDEX, new BulkItemResponse.Failure(INDEX,
+                    "id" + i, new OpenSearchException("failure"), failures[i]))
+                    : new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new IndexResponse(shardId, "id" + i, i, 1, 1, true));
+        }
+        return new BulkResponse(items, tookMillis);
+    }
+
+    @Test
+    void givenBulkResponsesWhenAfterBulkThenDocumentsAndFailuresAreCounted() {
+        IngestionMetrics metrics = new IngestionMetrics();
+
+        metrics.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(20), response(15));
+        metrics.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(40), response(30, RestStatus.TOO_MANY_REQUESTS,
+                RestStatus.BAD_REQUEST));
+        metrics.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), new IOException());
+
+        assertEquals(3, metrics.getBulkRequests());
+        assertEquals(1, metrics.getBulkRequestsFailed());
+        assertEquals(4, metrics.getDocumentsIndexed());
+        assertEquals(2, metrics.getDocumentsFailed());
+        assertEquals(Map.of("BAD_REQUEST", 1L, "TOO_MANY_REQUESTS", 1L), metrics.getItemFailuresByStatus());
+        assertEquals(Map.of("exception", 2L), metrics.getItemFailuresByType());
+    }
+
+    @Test
+    void givenManyFailureTypesWhenAfterBulkThenTheLastOnesAreCountedTogether() {
+        IngestionMetrics metrics = new IngestionMetrics();
+        int types = 40;
+        for (int i = 0; i < types; i++) {
+            BulkItemResponse failed = new BulkItemResponse(0, DocWriteRequest.OpType.INDEX,
+                    new BulkItemResponse.Failure(INDEX, "id", new OpenSearchException(
+                            "OpenSearch exception [type=failure_" + i + "_exception, reason=failed]"),
+                            RestStatus.BAD_REQUEST));
+            metrics.afterBulk(batch, 1, new BulkResponse(new BulkItemResponse[]{failed}, 1L));
+        }
+
+        Map<String, Long> failures = metrics.getItemFailuresByType();
+        assertTrue(failures.size() < types);
+        assertEquals(1, failures.get("failure_0_exception"));
+        assertEquals(types, failures.values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(failures.get("other") > 0);
+        assertTrue(metrics.sample().contains("failure_0_exception=1"));
+    }
+
+    @Test
+    void givenRecordedBatchesWhenSampleThenPercentilesAreThoseOfTheInterval() {
+        IngestionMetrics metrics = new IngestionMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordParse(TimeUnit.MILLISECONDS.toNanos(i), 10, 1000);
+            metrics.recordSerialize(TimeUnit.MILLISECONDS.toNanos(2));
+        }
+        metrics.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(200), response(150));
+
+        String line = metrics.sample();
+
+        assertEquals(1000, metrics.getDocumentsRead());
+        assertEquals(100_000, metrics.getBytesRead());
+        assertEquals(50, metrics.getParseMillisP50(), 1);
+        assertEquals(99, metrics.getParseMillisP99(), 1);
+        assertEquals(2, metrics.getSerializeMillisP50(), 0.1);
+        assertEquals(200, metrics.getBulkMillisMax(), 2);
+        assertEquals(150, metrics.getTookMillisP99(), 2);
+        assertTrue(metrics.getDocumentsPerSecond() > 0);
+        assertTrue(line.contains("indexed 3"));
+
+        metrics.sample();
+        assertEquals(0, metrics.getParseMillisP99());
+        assertEquals(0, metrics.getDocumentsPerSecond());
+    }
+
+    @Test
+    void givenQueuesWhenSetDepthsThenDepthsAreRead() {
+        IngestionMetrics metrics = new IngestionMetrics();
+        assertEquals(0, metrics.getBulkQueueDepth());
+
+        metrics.setDepths(() -> 1, () -> 2, () -> 3, () -> 4);
+
+        assertEquals(1, metrics.getPathQueueDepth());
+        assertEquals(2, metrics.getArticleQueueDepth());
+        assertEquals(3, metrics.getBulkQueueDepth());
+        assertEquals(4, metrics.getInFlightRequests());
+    }
+
+    @Test
+    void givenReporterWhenReadOverJmxThenMetricsAreExported() throws JMException {
+        IngestionMetrics metrics = new IngestionMetrics();
+        metrics.recordParse(1000, 7, 100);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(MetricsReporter.OBJECT_NAME);
+
+        MetricsReporter reporter = new MetricsReporter(metrics, 60_000);
+        assertEquals(7L, server.getAttribute(name, "DocumentsRead"));
+        assertTrue(server.getAttribute(name, "ItemFailuresByType") instanceof TabularData);
+
+        reporter.close();
+        assertFalse(server.isRegistered(name));
+    }
+}
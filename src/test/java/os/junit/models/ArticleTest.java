@@ -2,11 +2,19 @@ package os.junit.models;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import os.exercise.models.Article;
 
@@ -15,6 +23,8 @@ import os.exercise.models.Article;
  */
 class ArticleTest {
 
+    private static final int BATCH_SIZE = 1000;
+
     private Article article;
 
     @BeforeEach
@@ -85,4 +95,105 @@ class ArticleTest {
     void whenCompareArticleWithOtherThenFailure() {
         assertNotEquals(article, new Object());
     }
+
+    @Test
+    void givenEqualListsWhenSetThenSharedImmutableList() {
+        Article other = new Article();
+        article.setPubTypes(new ArrayList<>(Arrays.asList("Journal Article", "Review")));
+        other.setPubTypes(new ArrayList<>(Arrays.asList("Journal Article", "Review")));
+
+        assertSame(article.getPubTypes(), other.getPubTypes());
+        assertThrows(UnsupportedOperationException.class, () -> article.getPubTypes().add("Letter"));
+    }
+
+    @Test
+    void givenListOfAnotherArticleWhenSetThenSameList() {
+        Article other = new Article();
+        article.setLanguage(new ArrayList<>(List.of("eng")));
+        article.setPubTypes(List.of("Review"));
+        other.setLanguage(article.getLanguage());
+        other.setPubTypes(article.getPubTypes());
+
+        assertSame(article.getLanguage(), other.getLanguage());
+        assertSame(article.getPubTypes(), other.getPubTypes());
+        assertEquals(List.of("Review"), other.getPubTypes());
+    }
+
+    @Test
+    void givenListWithNullWhenSetThenKeptAsImmutableList() {
+        article.setPubTypes(Arrays.asList("Review", null));
+
+        assertEquals(Arrays.asList("Review", null), article.getPubTypes());
+        assertThrows(UnsupportedOperationException.class, () -> article.getPubTypes().add("Letter"));
+    }
+
+    @Test
+    void givenIsoPubDateWhenSetThenEpochDay() {
+        article.setPubDate("2003-12-01");
+
+        assertEquals(LocalDate.of(2003, 12, 1).toEpochDay(), article.getPubDateEpochDay());
+        assertEquals("2003-12-01", article.getPubDate());
+    }
+
+    @Test
+    void givenOtherPubDatesWhenSetThenKeptAsTheyAre() {
+        for (String pubDate : List.of("2003-12", "2003-02-30", "notADate", "2003-1a-01")) {
+            article.setPubDate(pubDate);
+
+            assertEquals(Article.NO_EPOCH_DAY, article.getPubDateEpochDay());
+            assertEquals(pubDate, article.getPubDate());
+        }
+        article.setPubDate(null);
+        assertNull(article.getPubDate());
+    }
+
+    @Test
+    void givenSameValuesWhenCompareThenEqualWithSameHashCode() {
+        Article first = newArticle(0);
+        Article second = newArticle(0);
+        second.setLanguage(Arrays.asList("eng"));
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        second.setPubDate("2003-12-02");
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void givenArticleWhenMeasuredWithJolThenOnlyArticleAndIdAreItsOwn() {
+        Article single = newArticle(0);
+        long lists = GraphLayout.parseInstance(single.getLanguage(), single.getFilterSources(), single.getPubTypes())
+                .totalSize();
+
+        // The date is a primitive field and the lists are shared, so the id is the only object of the article
+        assertEquals(ClassLayout.parseInstance(single).instanceSize()
+                + GraphLayout.parseInstance(single.getId()).totalSize(),
+                GraphLayout.parseInstance(single).totalSize() - lists);
+    }
+
+    @Test
+    void givenBatchOfArticlesWhenMeasuredWithJolThenSharedListsCountedOnce() {
+        Object[] batch = new Object[BATCH_SIZE];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = newArticle(i);
+        }
+        Article single = newArticle(0);
+        long lists = GraphLayout.parseInstance(single.getLanguage(), single.getFilterSources(), single.getPubTypes())
+                .totalSize();
+        long ownSize = GraphLayout.parseInstance(single).totalSize() - lists;
+
+        long batchSize = GraphLayout.parseInstance((Object) batch).totalSize();
+
+        assertEquals(ClassLayout.parseInstance(batch).instanceSize() + lists + BATCH_SIZE * ownSize, batchSize);
+    }
+
+    private static Article newArticle(int number) {
+        Article article = new Article();
+        article.setId("pmid:" + (BATCH_SIZE + number));
+        article.setLanguage(new ArrayList<>(List.of("eng")));
+        article.setPubDate("2003-12-01");
+        article.setFilterSources(new ArrayList<>(List.of("cord19")));
+        article.setPubTypes(new ArrayList<>(List.of("Journal Article")));
+        return article;
+    }
 }
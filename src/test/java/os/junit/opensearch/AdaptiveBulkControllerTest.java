@@ -0,0 +1,151 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.opensearch.AdaptiveBulkController;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.BulkBatch;
+
+/**
+ * Unitary tests for the AdaptiveBulkController class.
+ */
+class AdaptiveBulkControllerTest {
+
+    private static final String INDEX = "articles";
+    private static final long MB = 1024 * 1024;
+
+    private ArticlesIndexer indexer;
+    private AdaptiveBulkController controller;
+    private BulkBatch batch;
+    private BulkResponse successfulResponse;
+    private BulkResponse rejectedResponse;
+
+    @BeforeEach
+    void setUp() {
+        indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper(), 2);
+        controller = new AdaptiveBulkController(indexer, new BatchLimits(1000, 8 * MB),
+                new BatchLimits(100, MB), new BatchLimits(1000, 17 * MB), 4, 1000);
+        batch = new BulkBatch(new BulkRequest(), Arrays.asList("pmid:1", "pmid:2"));
+
+        ShardId shardId = new ShardId(INDEX, "_na_", -1);
+        BulkItemResponse indexed = new BulkItemResponse(0, DocWriteRequest.OpType.INDEX,
+                new IndexResponse(shardId, "id", 1, 1, 1, true));
+        BulkItemResponse rejected = new BulkItemResponse(1, DocWriteRequest.OpType.INDEX,
+                new BulkItemResponse.Failure(INDEX, "id", new OpenSearchException(
+                        "OpenSearch exception [type=es_rejected_execution_exception, reason=rejected execution]"),
+                        RestStatus.TOO_MANY_REQUESTS));
+        successfulResponse = new BulkResponse(new BulkItemResponse[]{indexed, indexed}, 1L);
+        rejectedResponse = new BulkResponse(new BulkItemResponse[]{indexed, rejected}, 1L);
+    }
+
+    @Test
+    void givenFastBulksWhenAfterBulkThenBatchesAndConcurrencyGrow() {
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), successfulResponse);
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), successfulResponse);
+
+        assertEquals(9 * MB, controller.getLimits().getMaxBytes());
+        assertEquals(3, controller.getInFlightRequests());
+        assertEquals(3, indexer.getMaxInFlightRequests());
+    }
+
+    @Test
+    void givenRejectedItemsWhenAfterBulkThenBatchesAndConcurrencyAreHalved() {
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), successfulResponse);
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), rejectedResponse);
+
+        assertEquals(4 * MB, controller.getLimits().getMaxBytes());
+        assertEquals(1, controller.getInFlightRequests());
+        assertEquals(1, indexer.getMaxInFlightRequests());
+    }
+
+    @Test
+    void givenFailedBulkWhenAfterBulkThenBatchesAndConcurrencyAreHalved() {
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), new IOException());
+        controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), successfulResponse);
+
+        assertEquals(4 * MB, controller.getLimits().getMaxBytes());
+        assertEquals(1, controller.getInFlightRequests());
+    }
+
+    @Test
+    void givenSlowBulksWhenAfterBulkThenBatchesShrink() {
+        controller.afterBulk(batch, TimeUnit.SECONDS.toNanos(2), successfulResponse);
+        controller.afterBulk(batch, TimeUnit.SECONDS.toNanos(2), successfulResponse);
+
+        assertEquals(6 * MB, controller.getLimits().getMaxBytes());
+        assertEquals(2, controller.getInFlightRequests());
+    }
+
+    @Test
+    void givenManyRejectionsWhenAfterBulkThenLimitsStayOverTheMinimum() {
+        for (int i = 0; i < 20; i++) {
+            controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), rejectedResponse);
+        }
+
+        assertEquals(MB, controller.getLimits().getMaxBytes());
+        assertTrue(controller.getLimits().getMaxDocuments() >= 100);
+        assertEquals(1, controller.getInFlightRequests());
+    }
+
+    @Test
+    void givenManyFastBulksWhenAfterBulkThenLimitsStayUnderTheMaximum() {
+        for (int i = 0; i < 100; i++) {
+            controller.afterBulk(batch, TimeUnit.MILLISECONDS.toNanos(10), successfulResponse);
+        }
+
+        assertEquals(17 * MB, controller.getLimits().getMaxBytes());
+        assertEquals(1000, controller.getLimits().getMaxDocuments());
+        assertEquals(4, controller.getInFlightRequests());
+    }
+
+    @Test
+    void givenResponsesWhenCountRejectionsThenOnlyRejectedItemsAreCounted() {
+        assertEquals(0, AdaptiveBulkController.countRejections(successfulResponse));
+        assertEquals(1, AdaptiveBulkController.countRejections(rejectedResponse));
+    }
+
+    @Test
+    void givenFailuresWhenIsRejectionThenMatchedOnTheTypeOfTheirCauses() {
+        BulkItemResponse.Failure wrapped = new BulkItemResponse.Failure(INDEX, "id", new OpenSearchException(
+                "OpenSearch exception [type=exception, reason=failed]", new OpenSearchException(
+                        "OpenSearch exception [type=rejected_execution_exception, reason=queue full]")),
+                RestStatus.INTERNAL_SERVER_ERROR);
+        BulkItemResponse.Failure mapping = new BulkItemResponse.Failure(INDEX, "id", new OpenSearchException(
+                "OpenSearch exception [type=mapper_parsing_exception, reason=failed to parse field "
+                        + "[rejected_execution_exception]]"), RestStatus.BAD_REQUEST);
+
+        assertTrue(AdaptiveBulkController.isRejection(rejectedResponse.getItems()[1].getFailure()));
+        assertTrue(AdaptiveBulkController.isRejection(wrapped));
+        assertFalse(AdaptiveBulkController.isRejection(mapping));
+    }
+
+    @Test
+    void givenMinimumBiggerThanMaximumWhenCreateControllerThenFailure() {
+        BatchLimits limits = new BatchLimits(100, MB);
+        BatchLimits smaller = new BatchLimits(10, MB);
+        assertThrows(IllegalArgumentException.class,
+                () -> new AdaptiveBulkController(indexer, limits, limits, smaller, 4, 1000));
+    }
+}
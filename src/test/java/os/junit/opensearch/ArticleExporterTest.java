@@ -0,0 +1,165 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import os.exercise.io.Compression;
+import os.exercise.io.JsonReader;
+import os.exercise.models.Article;
+import os.exercise.opensearch.ArticleExporter;
+
+/**
+ * Unitary tests for the ArticleExporter class.
+ */
+class ArticleExporterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path folder;
+
+    private RestClient restClient;
+    private ArticleExporter exporter;
+    private final List<JsonNode> searches = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> deletedPits = Collections.synchronizedList(new ArrayList<>());
+    // The hits of each slice, by slice id, paged by the search_after of the request
+    private final Map<Integer, List<String>> slices = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        when(restClient.performRequest(any(Request.class))).thenAnswer(invocation -> answer(invocation.getArgument(0)));
+        exporter = new ArticleExporter(client, "articles");
+    }
+
+    private Response answer(Request request) throws IOException {
+        if (request.getEndpoint().endsWith("/_search/point_in_time") && "POST".equals(request.getMethod())) {
+            assertEquals("5m", request.getParameters().get("keep_alive"));
+            return respond("{\"pit_id\":\"pit-0\"}");
+        }
+        JsonNode body = MAPPER.readTree(EntityUtils.toString(request.getEntity()));
+        if ("DELETE".equals(request.getMethod())) {
+            deletedPits.add(body.at("/pit_id/0").asText());
+            return respond("{\"succeeded\":true}");
+        }
+        searches.add(body);
+        List<String> ids = slices.get(body.at("/slice/id").asInt(0));
+        int from = body.has("search_after") ? body.at("/search_after/0").asInt() + 1 : 0;
+        int to = Math.min(ids.size(), from + body.get("size").asInt());
+        StringBuilder hits = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            hits.append(i > from ? "," : "").append("{\"_source\":{\"id\":\"").append(ids.get(i))
+                    .append("\",\"article_title\":\"Title ").append(ids.get(i)).append("\"},\"sort\":[").append(i)
+                    .append("]}");
+        }
+        return respond("{\"pit_id\":\"pit-" + to + "\",\"hits\":{\"hits\":[" + hits + "]}}");
+    }
+
+    private Response respond(String body) {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new NStringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static List<String> ids(String prefix, int count) {
+        return Stream.iterate(0, i -> i + 1).limit(count).map(i -> prefix + i).collect(Collectors.toList());
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void givenSeveralPagesWhenExportThenSearchAfterTheLastHitAndPitDeleted() throws IOException {
+        slices.put(0, ids("pmid:", 5));
+        exporter.setPageSize(2);
+
+        assertTrue(exporter.export(folder, "articles"));
+
+        assertEquals(3, searches.size());
+        assertEquals("pit-0", searches.get(0).at("/pit/id").asText());
+        assertFalse(searches.get(0).has("search_after"));
+        assertFalse(searches.get(0).has("slice"));
+        assertEquals("asc", searches.get(0).at("/sort/0/_shard_doc").asText());
+        assertEquals(1, searches.get(1).at("/search_after/0").asInt());
+        assertEquals("pit-2", searches.get(1).at("/pit/id").asText());
+        assertEquals(3, searches.get(2).at("/search_after/0").asInt());
+        assertEquals(List.of("pit-0"), deletedPits);
+        assertEquals(5, exporter.getExportedDocuments());
+        assertEquals(List.of("articles-s0-00000.json"), files());
+        List<Article> articles = JsonReader.readArticlesFile(folder.resolve("articles-s0-00000.json"));
+        assertEquals(ids("pmid:", 5), articles.stream().map(Article::getId).collect(Collectors.toList()));
+        assertEquals("Title pmid:4", articles.get(4).getArticleTitle());
+    }
+
+    @Test
+    void givenSlicesAndRotationWhenExportThenCompressedFilesBySlice() throws IOException {
+        slices.put(0, ids("a", 3));
+        slices.put(1, ids("b", 2));
+        exporter.setSlices(2);
+        exporter.setMaxDocumentsPerFile(2);
+        exporter.setCompression(Compression.GZIP);
+        exporter.setTiebreaker("_id");
+
+        assertTrue(exporter.export(folder, "articles"));
+
+        assertEquals(List.of("articles-s0-00000.json.gz", "articles-s0-00001.json.gz", "articles-s1-00000.json.gz"),
+                files());
+        assertEquals(2, searches.get(0).at("/slice/max").asInt());
+        assertEquals("asc", searches.get(0).at("/sort/0/_id").asText());
+        assertEquals(2, JsonReader.readArticlesFile(folder.resolve("articles-s0-00000.json.gz")).size());
+        assertEquals("a2", JsonReader.readArticlesFile(folder.resolve("articles-s0-00001.json.gz")).get(0).getId());
+        assertEquals(2, JsonReader.readArticlesFile(folder.resolve("articles-s1-00000.json.gz")).size());
+        assertEquals(List.of("pit-0"), deletedPits);
+    }
+
+    @Test
+    void givenFailingSearchWhenExportThenFalseAndNoCompleteFile() throws IOException {
+        slices.put(0, ids("pmid:", 4));
+        exporter.setPageSize(2);
+        when(restClient.performRequest(any(Request.class))).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            if ("/_search".equals(request.getEndpoint()) && searches.size() == 1) {
+                throw new IOException("connection reset");
+            }
+            return answer(request);
+        });
+
+        assertFalse(exporter.export(folder, "articles"));
+
+        assertEquals(List.of("articles-s0-00000.json.tmp"), files());
+        assertEquals(List.of("pit-0"), deletedPits);
+    }
+}
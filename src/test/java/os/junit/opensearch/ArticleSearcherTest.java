@@ -0,0 +1,138 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import os.exercise.opensearch.ArticleSearchResult;
+import os.exercise.opensearch.ArticleSearcher;
+import os.exercise.util.LruCache;
+
+/**
+ * Unitary tests for the ArticleSearcher class.
+ */
+class ArticleSearcherTest {
+
+    private static final String HITS = "{\"hits\":{\"total\":{\"value\":2},\"hits\":["
+            + "{\"_source\":{\"id\":\"pmid:1\",\"article_title\":\"Leukaemias\",\"pub_date\":\"2003-12-01\"}},"
+            + "{\"_source\":{\"id\":\"pmid:2\",\"article_title\":\"Management\",\"extra\":true}}]}}";
+    private static final String YEARS = "{\"hits\":{\"total\":{\"value\":3}},\"aggregations\":"
+            + "{\"publications_over_years\":{\"buckets\":[{\"key_as_string\":\"2004\",\"key\":1072915200000,"
+            + "\"doc_count\":1},{\"key_as_string\":\"2003\",\"key\":1041379200000,\"doc_count\":2}]}}}";
+
+    private RestClient restClient;
+    private ArticleSearcher searcher;
+    private LruCache<String, byte[]> cache;
+
+    @BeforeEach
+    void setUp() {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        cache = new LruCache<>(1024 * 1024, TimeUnit.MINUTES.toNanos(1));
+        searcher = new ArticleSearcher(client, "articles", cache);
+        searcher.setRefreshIntervalMillis(0);
+    }
+
+    private void respond(String body) throws IOException {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new NStringEntity(body, ContentType.APPLICATION_JSON));
+        when(restClient.performRequest(any(Request.class))).thenReturn(response);
+    }
+
+    @Test
+    void givenTitleTermsWhenSearchTitleThenSlimmedQueryAndArticles() throws IOException {
+        respond(HITS);
+
+        ArticleSearchResult result = searcher.searchTitle("management", " leukaemias ");
+
+        ArgumentCaptor<Request> request = ArgumentCaptor.forClass(Request.class);
+        verify(restClient).performRequest(request.capture());
+        assertEquals("/articles/_search", request.getValue().getEndpoint());
+        assertEquals("hits.total.value,hits.hits._source", request.getValue().getParameters().get("filter_path"));
+        JsonNode body = new ObjectMapper().readTree(EntityUtils.toString(request.getValue().getEntity()));
+        assertEquals("leukaemias", body.at("/query/bool/should/0/match/article_title").asText());
+        assertEquals("management", body.at("/query/bool/should/1/match/article_title").asText());
+        assertEquals(2, result.getTotal());
+        assertEquals("pmid:1", result.getArticles().get(0).getId());
+        assertEquals("2003-12-01", result.getArticles().get(0).getPubDate());
+        assertEquals("Management", result.getArticles().get(1).getArticleTitle());
+    }
+
+    @Test
+    void givenTheSameQueryAskedDifferentlyWhenSearchThenTheClusterIsQueriedOnce() throws IOException {
+        respond(HITS);
+
+        ArticleSearchResult first = searcher.searchKeywords("covid-19", "drug   delivery");
+        ArticleSearchResult second = searcher.searchKeywords(" drug delivery", "covid-19", "covid-19");
+
+        assertEquals(first.getTotal(), second.getTotal());
+        assertEquals(first.getArticles(), second.getArticles());
+        verify(restClient, times(1)).performRequest(any(Request.class));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void givenACachedResultWhenItsArticlesAreModifiedThenTheNextHitIsNotAffected() throws IOException {
+        respond(HITS);
+
+        ArticleSearchResult first = searcher.searchId("32766");
+        first.getArticles().get(0).setArticleTitle("Modified");
+        ArticleSearchResult second = searcher.searchId("32766");
+
+        assertEquals(1, cache.getHits());
+        assertNotSame(first.getArticles().get(0), second.getArticles().get(0));
+        assertEquals("Leukaemias", second.getArticles().get(0).getArticleTitle());
+    }
+
+    @Test
+    void givenABulkWhenSearchThenTheCacheIsInvalidatedUntilTheRefresh() throws IOException {
+        respond(HITS);
+        searcher.searchId("32766");
+        searcher.setRefreshIntervalMillis(TimeUnit.MINUTES.toMillis(1));
+
+        searcher.afterBulk(null, 0, new BulkResponse(new BulkItemResponse[0], 1));
+        searcher.searchId("32766");
+        searcher.searchId("32766");
+
+        verify(restClient, times(3)).performRequest(any(Request.class));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void givenYearsWhenAggregateYearsThenBucketsAreKeyedByYear() throws IOException {
+        respond(YEARS);
+
+        ArticleSearchResult result = searcher.aggregateYears();
+
+        assertEquals(3, result.getTotal());
+        assertEquals(List.of(), result.getArticles());
+        assertEquals(Map.of("2004", 1L, "2003", 2L), result.getBuckets(ArticleSearcher.YEARS_AGGREGATION));
+        assertEquals(List.of("2004", "2003"), List.copyOf(result.getBuckets(ArticleSearcher.YEARS_AGGREGATION)
+                .keySet()));
+    }
+}
@@ -1,38 +1,73 @@
 package os.junit.opensearch;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.mockito.ArgumentCaptor;
 import org.opensearch.OpenSearchException;
+import org.opensearch.action.ActionListener;
 import org.opensearch.action.DocWriteRequest;
 import org.opensearch.action.bulk.BulkItemResponse;
 import org.opensearch.action.bulk.BulkRequest;
 import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexRequest;
 import org.opensearch.action.index.IndexResponse;
+import org.opensearch.client.Request;
 import org.opensearch.client.RequestOptions;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
 import org.opensearch.client.RestClient;
 import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.common.bytes.BytesReference;
 import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import os.exercise.io.DeadLetter;
+import os.exercise.io.DeadLetterQueue;
 import os.exercise.models.Article;
+import os.exercise.models.RawArticle;
 import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.BulkBatch;
+import os.exercise.opensearch.BulkListener;
+import os.exercise.opensearch.DocumentIdMode;
+import os.exercise.opensearch.IndexPartitioner;
+import os.exercise.opensearch.PooledBulkBody;
+import os.exercise.opensearch.RetryPolicy;
+import os.exercise.util.ByteArrayPool;
 
 /**
  * Unitary tests for the ArticlesIndexer class.
@@ -72,6 +107,14 @@ class ArticlesIndexerTest {
         failedResponse = new BulkItemResponse(1, DocWriteRequest.OpType.INDEX, failure);
     }
 
+    private static ObjectMapper failingMapper() throws IOException {
+        ObjectWriter writer = mock(ObjectWriter.class);
+        doThrow(new JsonProcessingException(""){}).when(writer).writeValue(any(OutputStream.class), any());
+        ObjectMapper mapper = mock(ObjectMapper.class);
+        when(mapper.writerFor(Article.class)).thenReturn(writer);
+        return mapper;
+    }
+
     @Test
     void givenTheArticlesIndexWhenBulkAppendArticlesThenSuccess() throws IOException {
         ObjectMapper mapper = new ObjectMapper();
@@ -91,8 +134,7 @@ class ArticlesIndexerTest {
 
     @Test
     void givenWrongJSONWhenBulkAppendArticlesThenFailure() throws IOException {
-        ObjectMapper mapper = mock(ObjectMapper.class);
-        when(mapper.writeValueAsString(any(Article.class))).thenThrow(new JsonProcessingException(""){});
+        ObjectMapper mapper = failingMapper();
 
         BulkItemResponse[] responses = {response1, response2};
 
@@ -137,9 +179,8 @@ class ArticlesIndexerTest {
     }
 
     @Test
-    void givenWrongJSONWhenGetBulkRequestThenFailure() throws JsonProcessingException {
-        ObjectMapper mapper = mock(ObjectMapper.class);
-        when(mapper.writeValueAsString(any(Article.class))).thenThrow(new JsonProcessingException(""){});
+    void givenWrongJSONWhenGetBulkRequestThenFailure() throws IOException {
+        ObjectMapper mapper = failingMapper();
 
         RestHighLevelClient client = new RestHighLevelClient(
                 RestClient.builder(new HttpHost("localhost", 9200, "http")));
@@ -227,4 +268,497 @@ class ArticlesIndexerTest {
 
         assertTrue(indexer.indexArticles(articlesBatch, request));
     }
-}
\ No newline at end of file
+
+    @Test
+    void givenArticlesWhenGetBulkBatchThenIdsFollowTheRequestOrder() throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), mapper);
+        Article first = new Article();
+        first.setId("pmid:1");
+        Article second = new Article();
+        second.setId("pmid:2");
+
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(first, second));
+
+        assertEquals(2, batch.getRequest().numberOfActions());
+        assertEquals(Arrays.asList("pmid:1", "pmid:2"), batch.getIds());
+    }
+
+    @Test
+    void givenBulkBatchWhenIndexBatchThenSuccess() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        BulkItemResponse[] responses = {response1, response2};
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class)))
+                .thenReturn(new BulkResponse(responses,2L));
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, mapper);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatch(batch));
+    }
+
+    @Test
+    void givenBulkBatchWhenIndexBatchAsyncThenSuccess() throws Exception {
+        BulkItemResponse[] responses = {response1, failedResponse};
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onResponse(new BulkResponse(responses, 2L));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatchAsync(batch).get());
+        assertEquals(0, indexer.getInFlightRequests());
+    }
+
+    @Test
+    void givenExceptionWhileIndexingWhenIndexArticlesAsyncThenFailure() throws Exception {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onFailure(new IOException());
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        List<Article> articlesBatch = Arrays.asList(article1, article2);
+        BulkRequest request = indexer.getBulkRequest(index, articlesBatch);
+
+        assertFalse(indexer.indexArticlesAsync(articlesBatch, request).get());
+        assertEquals(0, indexer.getInFlightRequests());
+    }
+
+    @Test
+    void givenFullWindowWhenIndexBatchAsyncThenWaitsForAResponse() throws Exception {
+        List<ActionListener<BulkResponse>> pending = new CopyOnWriteArrayList<>();
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            pending.add(invocation.getArgument(2));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 1);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+        indexer.indexBatchAsync(batch);
+        assertEquals(1, indexer.getInFlightRequests());
+
+        CompletableFuture<CompletableFuture<Boolean>> second =
+                CompletableFuture.supplyAsync(() -> indexer.indexBatchAsync(batch));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+        assertFalse(indexer.awaitClose(10, TimeUnit.MILLISECONDS));
+
+        pending.get(0).onResponse(new BulkResponse(new BulkItemResponse[]{response1, response2}, 2L));
+        second.get(5, TimeUnit.SECONDS);
+        pending.get(1).onResponse(new BulkResponse(new BulkItemResponse[]{response1, response2}, 2L));
+
+        assertTrue(indexer.awaitClose(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> indexer.indexBatchAsync(batch));
+    }
+
+    @Test
+    void givenNoInFlightRequestsWhenCreateIndexerThenFailure() {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        ObjectMapper mapper = new ObjectMapper();
+        assertThrows(IllegalArgumentException.class, () -> new ArticlesIndexer(client, mapper, 0));
+    }
+
+    @Test
+    void givenByteLimitWhenGetSizedBulkBatchesThenNoBatchExceedsTheLimit() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), mapper);
+        List<Article> articlesBatch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Article article = new Article();
+            article.setId("pmid:" + i);
+            article.setAbstractText("x".repeat(1000));
+            articlesBatch.add(article);
+        }
+        ByteArrayPool pool = new ByteArrayPool(1024, 1024 * 1024);
+        long maxBytes = PooledBulkBody.of(indexer.getSizedBulkBatches(index, articlesBatch.subList(0, 3),
+                new BatchLimits(3, Long.MAX_VALUE)).get(0).getRequest(), pool).getLength();
+
+        List<BulkBatch> batches = indexer.getSizedBulkBatches(index, articlesBatch, new BatchLimits(100, maxBytes));
+
+        assertEquals(4, batches.size());
+        assertEquals(Arrays.asList(3, 3, 3, 1),
+                batches.stream().map(BulkBatch::size).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("pmid:9"), batches.get(3).getIds());
+        for (BulkBatch batch : batches) {
+            assertEquals(batch.size(), batch.getRequest().numberOfActions());
+            assertTrue(PooledBulkBody.of(batch.getRequest(), pool).getLength() <= maxBytes);
+        }
+    }
+
+    @Test
+    void givenDocumentLimitWhenGetSizedBulkBatchesThenBatchesHaveAtMostThatManyArticles()
+            throws JsonProcessingException {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        List<Article> articlesBatch = Arrays.asList(article1, article2, article1, article2, article1);
+
+        List<BulkBatch> batches = indexer.getSizedBulkBatches(index, articlesBatch,
+                new BatchLimits(2, Long.MAX_VALUE));
+
+        assertEquals(Arrays.asList(2, 2, 1),
+                batches.stream().map(BulkBatch::size).collect(Collectors.toList()));
+    }
+
+    @Test
+    void givenArticleBiggerThanTheLimitWhenGetSizedBulkBatchesThenItIsSentAlone() throws JsonProcessingException {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        List<Article> articlesBatch = Arrays.asList(article1, article2);
+
+        List<BulkBatch> batches = indexer.getSizedBulkBatches(index, articlesBatch, new BatchLimits(10, 1));
+
+        assertEquals(2, batches.size());
+    }
+
+    @Test
+    void givenRawArticlesWhenGetSizedRawBulkBatchesThenSourceIsSentAsItIs() {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        byte[] source = "{\"id\":\"pmid:1\",\"article_title\":\"Title\"}".getBytes(StandardCharsets.UTF_8);
+        List<RawArticle> articlesBatch = Arrays.asList(new RawArticle("pmid:1", source),
+                new RawArticle("pmid:2", source), new RawArticle("pmid:3", source));
+
+        List<BulkBatch> batches = indexer.getSizedRawBulkBatches(index, articlesBatch,
+                new BatchLimits(2, Long.MAX_VALUE));
+
+        assertEquals(Arrays.asList(2, 1),
+                batches.stream().map(BulkBatch::size).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("pmid:3"), batches.get(1).getIds());
+        IndexRequest request = (IndexRequest) batches.get(0).getRequest().requests().get(0);
+        assertEquals(index, request.index());
+        assertArrayEquals(source, BytesReference.toBytes(request.source()));
+    }
+
+    @Test
+    void givenDocumentIdModeWhenGetSizedBulkBatchesThenArticleIdIsTheDocumentId() throws JsonProcessingException {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        BatchLimits limits = new BatchLimits(10, Long.MAX_VALUE);
+
+        IndexRequest generated = (IndexRequest) indexer.getSizedBulkBatches(index, Arrays.asList(article1), limits)
+                .get(0).getRequest().requests().get(0);
+        assertEquals(null, generated.id());
+
+        indexer.setDocumentIdMode(DocumentIdMode.INDEX);
+        IndexRequest indexed = (IndexRequest) indexer.getSizedBulkBatches(index, Arrays.asList(article1), limits)
+                .get(0).getRequest().requests().get(0);
+        assertEquals(article1.getId(), indexed.id());
+        assertEquals(DocWriteRequest.OpType.INDEX, indexed.opType());
+
+        indexer.setDocumentIdMode(DocumentIdMode.fromName("create"));
+        byte[] source = "{\"id\":\"pmid:1\"}".getBytes(StandardCharsets.UTF_8);
+        IndexRequest created = (IndexRequest) indexer.getSizedRawBulkBatches(index,
+                Arrays.asList(new RawArticle("pmid:1", source)), limits).get(0).getRequest().requests().get(0);
+        assertEquals("pmid:1", created.id());
+        assertEquals(DocWriteRequest.OpType.CREATE, created.opType());
+    }
+
+    @Test
+    void givenPartitionerWhenGetSizedBulkBatchesThenArticlesAreGroupedByPartition() throws JsonProcessingException {
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), new ObjectMapper());
+        List<String> partitions = new ArrayList<>();
+        indexer.setPartitioner(new IndexPartitioner(index, IndexPartitioner.Granularity.YEAR, partitions::add));
+        List<Article> articlesBatch = new ArrayList<>();
+        for (String pubDate : Arrays.asList("2003-12-01", "2004-06-01", "2003-01-01", null)) {
+            Article article = new Article();
+            article.setId("pmid:" + articlesBatch.size());
+            article.setPubDate(pubDate);
+            articlesBatch.add(article);
+        }
+        byte[] source = "{\"id\":\"pmid:9\"}".getBytes(StandardCharsets.UTF_8);
+
+        BatchLimits limits = new BatchLimits(10, Long.MAX_VALUE);
+
+        List<BulkBatch> batches = indexer.getSizedBulkBatches(index, articlesBatch, limits);
+        List<BulkBatch> rawBatches = indexer.getSizedRawBulkBatches(index,
+                Arrays.asList(new RawArticle("pmid:9", "2004-02-01", source)), limits);
+
+        assertEquals(Arrays.asList("pmid:0", "pmid:2", "pmid:1", "pmid:3"), batches.get(0).getIds());
+        assertEquals(Arrays.asList("articles-2003", "articles-2003", "articles-2004", "articles-undated"),
+                batches.get(0).getRequest().requests().stream().map(DocWriteRequest::index)
+                        .collect(Collectors.toList()));
+        assertEquals("articles-2004", rawBatches.get(0).getRequest().requests().get(0).index());
+        assertEquals(Arrays.asList("articles-2003", "articles-2004", "articles-undated"), partitions);
+    }
+
+    @Test
+    void givenWrongJSONWhenGetSizedBulkBatchesThenFailure() throws IOException {
+        ObjectMapper mapper = failingMapper();
+        ArticlesIndexer indexer = new ArticlesIndexer(mock(RestHighLevelClient.class), mapper);
+        List<Article> articlesBatch = Arrays.asList(article1, article2);
+
+        assertThrows(IOException.class,
+                () -> indexer.getSizedBulkBatches(index, articlesBatch, new BatchLimits(10, 1)));
+    }
+
+    @Test
+    void givenBulkListenerWhenIndexBatchThenListenerIsNotified() throws IOException {
+        BulkItemResponse[] responses = {response1, response2};
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class)))
+                .thenReturn(new BulkResponse(responses,2L))
+                .thenThrow(new IOException());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        List<String> events = new CopyOnWriteArrayList<>();
+        indexer.addBulkListener(new BulkListener() {
+            @Override
+            public void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response) {
+                events.add("response " + batch.size());
+            }
+
+            @Override
+            public void afterBulk(BulkBatch batch, long latencyNanos, Exception failure) {
+                events.add("failure " + batch.size());
+            }
+        });
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        indexer.indexBatch(batch);
+        indexer.indexBatch(batch);
+
+        assertEquals(Arrays.asList("response 2", "failure 2"), events);
+    }
+
+    @Test
+    void givenSmallerWindowWhenSetMaxInFlightRequestsThenNewRequestsWait() throws Exception {
+        List<ActionListener<BulkResponse>> pending = new CopyOnWriteArrayList<>();
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            pending.add(invocation.getArgument(2));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+        indexer.indexBatchAsync(batch);
+        indexer.setMaxInFlightRequests(1);
+        assertEquals(1, indexer.getMaxInFlightRequests());
+
+        CompletableFuture<CompletableFuture<Boolean>> second =
+                CompletableFuture.supplyAsync(() -> indexer.indexBatchAsync(batch));
+        Thread.sleep(100);
+        assertFalse(second.isDone());
+
+        pending.get(0).onResponse(new BulkResponse(new BulkItemResponse[]{response1, response2}, 2L));
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(1, indexer.getInFlightRequests());
+    }
+
+    @Test
+    void givenRejectedArticleWhenIndexBatchThenOnlyThatArticleIsRetried() throws IOException {
+        BulkItemResponse rejectedResponse = new BulkItemResponse(1, DocWriteRequest.OpType.INDEX,
+                new BulkItemResponse.Failure(index, "BBY6t4cBxgR8sHVdXkCN",
+                        new OpenSearchException("rejected execution"), RestStatus.TOO_MANY_REQUESTS));
+        List<Integer> sentActions = new CopyOnWriteArrayList<>();
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class))).thenAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            sentActions.add(request.numberOfActions());
+            return sentActions.size() == 1
+                    ? new BulkResponse(new BulkItemResponse[]{response1, rejectedResponse}, 2L)
+                    : new BulkResponse(new BulkItemResponse[]{response1}, 2L);
+        });
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        indexer.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatch(batch));
+        assertEquals(Arrays.asList(2, 1), sentActions);
+    }
+
+    @Test
+    void givenMappingFailureWhenIndexBatchThenItIsNotRetried() throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class)))
+                .thenReturn(new BulkResponse(new BulkItemResponse[]{response1, failedResponse}, 2L));
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        indexer.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatch(batch));
+        verify(client, times(1)).bulk(isA(BulkRequest.class), isA(RequestOptions.class));
+    }
+
+    @Test
+    void givenConnectionErrorWhenIndexBatchAsyncThenRetriesUntilSuccess() throws Exception {
+        List<Integer> attempts = new CopyOnWriteArrayList<>();
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            attempts.add(attempts.size());
+            if (attempts.size() < 3) {
+                listener.onFailure(new IOException("Connection refused"));
+            } else {
+                listener.onResponse(new BulkResponse(new BulkItemResponse[]{response1, response2}, 2L));
+            }
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        indexer.setRetryPolicy(new RetryPolicy(3, 1, 10));
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatchAsync(batch).get(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.size());
+        assertTrue(indexer.awaitClose(5, TimeUnit.SECONDS));
+        assertEquals(0, indexer.getInFlightRequests());
+    }
+
+    @Test
+    void givenPersistentErrorWhenIndexBatchAsyncThenFailsAfterTheLastRetry() throws Exception {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onFailure(new IOException("Connection refused"));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        indexer.setRetryPolicy(new RetryPolicy(2, 1, 10));
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertFalse(indexer.indexBatchAsync(batch).get(5, TimeUnit.SECONDS));
+        verify(client, times(3)).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        assertTrue(indexer.awaitClose(5, TimeUnit.SECONDS));
+        assertEquals(0, indexer.getInFlightRequests());
+    }
+
+    @Test
+    void givenDeadLetterQueueWhenArticleIsRejectedThenItIsWrittenWithItsSource() throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class)))
+                .thenReturn(new BulkResponse(new BulkItemResponse[]{response1, failedResponse}, 2L));
+        DeadLetterQueue deadLetterQueue = mock(DeadLetterQueue.class);
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        indexer.setDeadLetterQueue(deadLetterQueue);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertTrue(indexer.indexBatch(batch));
+        ArgumentCaptor<DeadLetter> letter = ArgumentCaptor.forClass(DeadLetter.class);
+        verify(deadLetterQueue, times(1)).add(letter.capture());
+        assertEquals(index, letter.getValue().getIndex());
+        assertEquals("illegal_argument_exception", letter.getValue().getFailureType());
+        assertTrue(letter.getValue().getReason().contains("failed to parse date field [foo]"));
+        IndexRequest rejected = (IndexRequest) batch.getRequest().requests().get(1);
+        assertArrayEquals(BytesReference.toBytes(rejected.source()), letter.getValue().getSource());
+    }
+
+    @Test
+    void givenDeadLetterQueueWhenBatchFailsAfterTheLastRetryThenEveryArticleIsWritten() throws Exception {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            listener.onFailure(new IOException("Connection refused"));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        DeadLetterQueue deadLetterQueue = mock(DeadLetterQueue.class);
+
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        indexer.setRetryPolicy(new RetryPolicy(1, 1, 10));
+        indexer.setDeadLetterQueue(deadLetterQueue);
+        BulkBatch batch = indexer.getBulkBatch(index, Arrays.asList(article1, article2));
+
+        assertFalse(indexer.indexBatchAsync(batch).get(5, TimeUnit.SECONDS));
+        ArgumentCaptor<DeadLetter> letters = ArgumentCaptor.forClass(DeadLetter.class);
+        verify(deadLetterQueue, times(2)).add(letters.capture());
+        for (DeadLetter letter : letters.getAllValues()) {
+            assertEquals(IOException.class.getName(), letter.getFailureType());
+            assertEquals("Connection refused", letter.getReason());
+            assertEquals(0, letter.getStatus());
+        }
+        assertTrue(indexer.awaitClose(5, TimeUnit.SECONDS));
+    }
+
+    private static final String POOLED_BULK_RESPONSE = "{\"took\":3,\"errors\":true,\"items\":["
+            + "{\"index\":{\"_index\":\"articles\",\"_id\":\"pmid:1\",\"_version\":1,\"result\":\"created\","
+            + "\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},\"_seq_no\":0,\"_primary_term\":1,"
+            + "\"status\":201}},"
+            + "{\"index\":{\"_index\":\"articles\",\"_id\":\"pmid:2\",\"status\":400,\"error\":"
+            + "{\"type\":\"mapper_parsing_exception\",\"reason\":\"failed to parse field [pub_date]\"}}}]}";
+
+    private static List<Article> pooledArticles() {
+        List<Article> articles = new ArrayList<>();
+        for (String id : Arrays.asList("pmid:1", "pmid:2")) {
+            Article article = new Article();
+            article.setId(id);
+            articles.add(article);
+        }
+        return articles;
+    }
+
+    private static Response pooledResponse() {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new NStringEntity(POOLED_BULK_RESPONSE, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    @Test
+    void givenBodyPoolWhenIndexBatchThenBodySentByLowLevelClientAndReleased() throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        RestClient restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        List<String> bodies = new ArrayList<>();
+        when(restClient.performRequest(any(Request.class))).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            assertEquals("/_bulk", request.getEndpoint());
+            bodies.add(EntityUtils.toString(request.getEntity()));
+            return pooledResponse();
+        });
+        ByteArrayPool pool = new ByteArrayPool(64, 1024);
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        indexer.setDocumentIdMode(DocumentIdMode.INDEX);
+        indexer.setBodyPool(pool);
+
+        // The rejected article is logged, as with the RestHighLevelClient
+        assertTrue(indexer.indexBatch(indexer.getBulkBatch(index, pooledArticles())));
+
+        verify(client, times(0)).bulk(any(BulkRequest.class), any(RequestOptions.class));
+        assertTrue(bodies.get(0).startsWith(
+                "{\"index\":{\"_index\":\"articles\",\"_id\":\"pmid:1\"}}\n{\"id\":\"pmid:1\""));
+        assertEquals(4, bodies.get(0).split("\n").length);
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+    }
+
+    @Test
+    void givenBodyPoolWhenIndexBatchAsyncThenResponseParsedAndBodyReleased() throws Exception {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        RestClient restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        doAnswer(invocation -> {
+            ResponseListener listener = invocation.getArgument(1);
+            listener.onSuccess(pooledResponse());
+            return null;
+        }).when(restClient).performRequestAsync(any(Request.class), any(ResponseListener.class));
+        List<BulkResponse> responses = new CopyOnWriteArrayList<>();
+        ByteArrayPool pool = new ByteArrayPool(64, 1024);
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper());
+        indexer.setBodyPool(pool);
+        indexer.addBulkListener(new BulkListener() {
+            @Override
+            public void afterBulk(BulkBatch batch, long latencyNanos, BulkResponse response) {
+                responses.add(response);
+            }
+
+            @Override
+            public void afterBulk(BulkBatch batch, long latencyNanos, Exception failure) {
+            }
+        });
+
+        assertTrue(indexer.indexBatchAsync(indexer.getBulkBatch(index, pooledArticles())).get(5, TimeUnit.SECONDS));
+
+        assertEquals(2, responses.get(0).getItems().length);
+        assertEquals(RestStatus.BAD_REQUEST, responses.get(0).getItems()[1].getFailure().getStatus());
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+        assertTrue(indexer.awaitClose(5, TimeUnit.SECONDS));
+    }
+}
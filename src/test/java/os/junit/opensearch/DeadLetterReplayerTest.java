@@ -0,0 +1,148 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensearch.action.ActionListener;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.index.shard.ShardId;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import os.exercise.io.Compression;
+import os.exercise.io.DeadLetter;
+import os.exercise.io.DeadLetterQueue;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.DeadLetterReplayer;
+import os.exercise.opensearch.DocumentIdMode;
+
+/**
+ * Unitary tests for the DeadLetterReplayer class.
+ */
+class DeadLetterReplayerTest {
+
+    private static final long SEGMENT_BYTES = 1024L * 1024;
+    private static final int CAPACITY = 100;
+    private static final BatchLimits LIMITS = new BatchLimits(2, SEGMENT_BYTES);
+
+    private static void writeLetters(Path folder, int count) throws IOException {
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY)) {
+            for (int i = 0; i < count; i++) {
+                String source = "{\"id\":\"pmid:" + i + "\",\"article_title\":\"Title " + i + "\"}";
+                queue.add(new DeadLetter("articles-20240101-000000", "pmid:" + i, "mapper_parsing_exception",
+                        "failed to parse", 400, source.getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+    }
+
+    private static RestHighLevelClient client(List<IndexRequest> sent, boolean fail) {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            ActionListener<BulkResponse> listener = invocation.getArgument(2);
+            if (fail) {
+                listener.onFailure(new IOException("Connection refused"));
+                return null;
+            }
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                IndexRequest action = (IndexRequest) request.requests().get(i);
+                sent.add(action);
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                        new IndexResponse(new ShardId(action.index(), "_na_", 0),
+                                action.id() != null ? action.id() : "generated-" + i, 1, 1, 1, true));
+            }
+            listener.onResponse(new BulkResponse(items, 1L));
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        return client;
+    }
+
+    private static List<String> fileNames(Path folder) throws IOException {
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void givenSegmentWhenReplayThenArticlesAreIndexedAgainAndSegmentIsMarked(@TempDir Path folder)
+            throws IOException {
+        writeLetters(folder, 3);
+        List<IndexRequest> sent = new CopyOnWriteArrayList<>();
+        ArticlesIndexer indexer = new ArticlesIndexer(client(sent, false), new ObjectMapper());
+        indexer.setDocumentIdMode(DocumentIdMode.INDEX);
+        DeadLetterReplayer replayer = new DeadLetterReplayer(indexer, "articles", LIMITS);
+
+        assertTrue(replayer.replay(folder));
+        assertEquals(3, replayer.getReplayedLetters());
+        assertEquals(3, sent.size());
+        assertEquals("articles", sent.get(0).index());
+        assertEquals("pmid:0", sent.get(0).id());
+        assertEquals("{\"id\":\"pmid:0\",\"article_title\":\"Title 0\"}", sent.get(0).source().utf8ToString());
+        assertTrue(DeadLetterQueue.getSegments(folder).isEmpty());
+        assertTrue(fileNames(folder).get(0).endsWith(".json.gz.replayed"));
+    }
+
+    @Test
+    void givenArticlesFailingAgainWhenReplayThenTheyAreWrittenIntoNewSegments(@TempDir Path folder)
+            throws IOException {
+        writeLetters(folder, 2);
+        Path segment = DeadLetterQueue.getSegments(folder).get(0);
+        ArticlesIndexer indexer = new ArticlesIndexer(client(new CopyOnWriteArrayList<>(), true), new ObjectMapper());
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, SEGMENT_BYTES, CAPACITY)) {
+            indexer.setDeadLetterQueue(queue);
+            DeadLetterReplayer replayer = new DeadLetterReplayer(indexer, "articles", LIMITS);
+
+            assertFalse(replayer.replay(folder));
+            assertEquals(2, queue.getWrittenLetters());
+        }
+
+        assertFalse(Files.exists(segment));
+        List<Path> segments = DeadLetterQueue.getSegments(folder);
+        assertEquals(1, segments.size());
+        assertFalse(segments.get(0).equals(segment));
+        DeadLetterReplayer again = new DeadLetterReplayer(
+                new ArticlesIndexer(client(new CopyOnWriteArrayList<>(), false), new ObjectMapper()), "articles",
+                LIMITS);
+        assertTrue(again.replay(folder));
+        assertEquals(2, again.getReplayedLetters());
+    }
+
+    @Test
+    void givenCorruptedSegmentWhenReplayThenItIsNotMarkedAsReplayed(@TempDir Path folder) throws IOException {
+        writeLetters(folder, 3);
+        Path segment = DeadLetterQueue.getSegments(folder).get(0);
+        byte[] bytes = Files.readAllBytes(segment);
+        // The CRC of the gzip trailer
+        bytes[bytes.length - 8] ^= 0xFF;
+        Files.write(segment, bytes);
+        ArticlesIndexer indexer = new ArticlesIndexer(client(new CopyOnWriteArrayList<>(), false), new ObjectMapper());
+        DeadLetterReplayer replayer = new DeadLetterReplayer(indexer, "articles", LIMITS);
+
+        assertFalse(replayer.replay(folder));
+        assertEquals(List.of(segment), DeadLetterQueue.getSegments(folder));
+    }
+}
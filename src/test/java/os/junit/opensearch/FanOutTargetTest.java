@@ -0,0 +1,426 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opensearch.OpenSearchException;
+import org.opensearch.action.ActionListener;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.bulk.BulkResponse;
+import org.opensearch.action.index.IndexResponse;
+import org.opensearch.client.Request;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import os.exercise.io.Compression;
+import os.exercise.io.DeadLetterQueue;
+import os.exercise.models.RawArticle;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.BatchLimits;
+import os.exercise.opensearch.BulkBatch;
+import os.exercise.opensearch.DocumentIdMode;
+import os.exercise.opensearch.FanOutTarget;
+import os.exercise.opensearch.PooledBulkBody;
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * Unitary tests for the FanOutTarget class.
+ */
+class FanOutTargetTest {
+
+    private static final long WAIT_SECONDS = 5;
+
+    /**
+     * A bulk request received by a mocked client, answered when the test decides.
+     */
+    private static final class PendingBulk {
+        private final BulkRequest request;
+        private final ActionListener<BulkResponse> listener;
+
+        PendingBulk(BulkRequest request, ActionListener<BulkResponse> listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        void succeed() {
+            listener.onResponse(successResponse(request));
+        }
+    }
+
+    private static BulkResponse successResponse(BulkRequest request) {
+        BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+        for (int i = 0; i < items.length; i++) {
+            DocWriteRequest<?> action = request.requests().get(i);
+            items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                    new IndexResponse(new ShardId(action.index(), "_na_", 0), action.id(), 1, 1, 1, true));
+        }
+        return new BulkResponse(items, 1L);
+    }
+
+    private static RestHighLevelClient client(BlockingQueue<PendingBulk> received, boolean answer)
+            throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            PendingBulk bulk = new PendingBulk(invocation.getArgument(0), invocation.getArgument(2));
+            received.add(bulk);
+            if (answer) {
+                bulk.succeed();
+            }
+            return null;
+        }).when(client).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        when(client.bulk(isA(BulkRequest.class), isA(RequestOptions.class)))
+                .thenAnswer(invocation -> successResponse(invocation.getArgument(0)));
+        return client;
+    }
+
+    /**
+     * A client that sends the bulk requests through its low-level client, as with a body pool, and keeps the listener
+     * of each one until the test answers it.
+     */
+    private static RestHighLevelClient lowLevelClient(BlockingQueue<ResponseListener> listeners, List<String> bodies) {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        RestClient restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        doAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            bodies.add(EntityUtils.toString(request.getEntity()));
+            listeners.add(invocation.getArgument(1));
+            return null;
+        }).when(restClient).performRequestAsync(any(Request.class), any(ResponseListener.class));
+        return client;
+    }
+
+    private static Response lowLevelResponse(String id) {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new NStringEntity("{\"took\":1,\"errors\":false,\"items\":["
+                + "{\"index\":{\"_index\":\"articles\",\"_id\":\"" + id + "\",\"_version\":1,"
+                + "\"result\":\"created\",\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},"
+                + "\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}]}", ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private static ArticlesIndexer indexer(RestHighLevelClient client) {
+        ArticlesIndexer indexer = new ArticlesIndexer(client, new ObjectMapper(), 2);
+        indexer.setDocumentIdMode(DocumentIdMode.INDEX);
+        return indexer;
+    }
+
+    private static List<BulkBatch> batches(ArticlesIndexer indexer, int count) {
+        List<RawArticle> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String source = "{\"id\":\"pmid:" + i + "\",\"article_title\":\"Title " + i + "\"}";
+            articles.add(new RawArticle("pmid:" + i, source.getBytes(StandardCharsets.UTF_8)));
+        }
+        return indexer.getSizedRawBulkBatches("articles", articles, new BatchLimits(1, Long.MAX_VALUE));
+    }
+
+    private static PendingBulk next(BlockingQueue<PendingBulk> received) throws InterruptedException {
+        return received.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void givenTargetWhenIndexBatchAsyncThenTheSameRequestsAreSentToBothClusters() throws Exception {
+        BlockingQueue<PendingBulk> primaryBulks = new LinkedBlockingQueue<>();
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        ArticlesIndexer primary = indexer(client(primaryBulks, true));
+        FanOutTarget target = new FanOutTarget("dr", indexer(client(targetBulks, true)), 1024);
+        primary.addTarget(target);
+        BulkBatch batch = batches(primary, 1).get(0);
+
+        assertTrue(primary.indexBatchAsync(batch).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(target.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertSame(batch.getRequest().requests().get(0), next(targetBulks).request.requests().get(0));
+        assertEquals(1, primaryBulks.size());
+        assertEquals(1, target.getIndexedBatches());
+        assertEquals(0, target.getLagBatches());
+        assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenCreateModeWhenTargetAnswersConflictsThenTheyAreExistingArticles(@TempDir Path folder) throws Exception {
+        RestHighLevelClient targetClient = mock(RestHighLevelClient.class);
+        doAnswer(invocation -> {
+            BulkRequest request = invocation.getArgument(0);
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                DocWriteRequest<?> action = request.requests().get(i);
+                items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.CREATE, new BulkItemResponse.Failure(
+                        action.index(), action.id(), new OpenSearchException("version conflict, document already "
+                        + "exists"), RestStatus.CONFLICT));
+            }
+            invocation.<ActionListener<BulkResponse>>getArgument(2).onResponse(new BulkResponse(items, 1L));
+            return null;
+        }).when(targetClient).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        ArticlesIndexer primary = new ArticlesIndexer(client(new LinkedBlockingQueue<>(), true), new ObjectMapper());
+        primary.setDocumentIdMode(DocumentIdMode.CREATE);
+        ArticlesIndexer targetIndexer = primary.createTargetIndexer(targetClient, 2);
+        FanOutTarget target = new FanOutTarget("dr", targetIndexer, 1024);
+        primary.addTarget(target);
+
+        try (DeadLetterQueue queue = new DeadLetterQueue(folder, Compression.GZIP, 1024 * 1024, 16)) {
+            targetIndexer.setDeadLetterQueue(queue);
+            assertTrue(primary.indexBatchAsync(batches(primary, 1).get(0)).get(WAIT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+            queue.close();
+
+            assertEquals(DocumentIdMode.CREATE, targetIndexer.getDocumentIdMode());
+            assertEquals(1, target.getIndexedBatches());
+            assertEquals(0, queue.getWrittenLetters());
+        }
+    }
+
+    @Test
+    void givenSlowTargetWithSpillFileWhenIndexBatchAsyncThenPrimaryIsNotHeldBack(@TempDir Path folder)
+            throws Exception {
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        FanOutTarget target = new FanOutTarget("dr", indexer(client(targetBulks, false)), 1);
+        Path spillFile = folder.resolve("dr.spill");
+        target.setSpillFile(spillFile);
+        primary.addTarget(target);
+
+        for (BulkBatch batch : batches(primary, 3)) {
+            assertTrue(primary.indexBatchAsync(batch).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        }
+        assertEquals(1, target.getLagBatches());
+        assertEquals(2, target.getPendingSpilledBatches());
+
+        List<String> sentIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            PendingBulk bulk = next(targetBulks);
+            sentIds.add(bulk.request.requests().get(0).id());
+            bulk.succeed();
+        }
+        assertTrue(target.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of("pmid:0", "pmid:1", "pmid:2"), sentIds);
+        assertEquals(2, target.getSpilledBatches());
+        assertEquals(3, target.getIndexedBatches());
+        assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void givenBatchThatCanNotBeSpilledWhenSpillFileIsNotEmptyThenItIsSentAfterTheSpilledBatches(@TempDir Path folder)
+            throws Exception {
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        CountDownLatch secondSent = new CountDownLatch(1);
+        CountDownLatch releaseDispatcher = new CountDownLatch(1);
+        RestHighLevelClient targetClient = mock(RestHighLevelClient.class);
+        // The dispatcher is held while it sends the second batch, so it can not take a batch queued meanwhile
+        doAnswer(invocation -> {
+            targetBulks.add(new PendingBulk(invocation.getArgument(0), invocation.getArgument(2)));
+            if (targetBulks.size() == 2) {
+                secondSent.countDown();
+                releaseDispatcher.await(WAIT_SECONDS, TimeUnit.SECONDS);
+            }
+            return null;
+        }).when(targetClient).bulkAsync(isA(BulkRequest.class), isA(RequestOptions.class), any());
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        List<BulkBatch> batches = batches(primary, 4);
+        long batchBytes = batches.get(0).getRequest().estimatedSizeInBytes();
+        FanOutTarget target = new FanOutTarget("dr", indexer(targetClient), 2 * batchBytes);
+        target.setSpillFile(folder.resolve("dr.spill"));
+        primary.addTarget(target);
+        // An id longer than 65535 bytes can not be written into the spill file
+        BulkBatch unspillable = new BulkBatch(batches.get(3).getRequest(), List.of("x".repeat(70000)));
+
+        assertTrue(primary.indexBatch(batches.get(0)));
+        assertTrue(primary.indexBatch(batches.get(1)));
+        assertTrue(secondSent.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(primary.indexBatch(batches.get(2)));
+        assertEquals(1, target.getPendingSpilledBatches());
+        CompletableFuture<Boolean> fourth = CompletableFuture.supplyAsync(() -> primary.indexBatch(unspillable));
+        next(targetBulks).succeed();
+        boolean waited;
+        try {
+            fourth.get(100, TimeUnit.MILLISECONDS);
+            waited = false;
+        } catch (TimeoutException e) {
+            waited = true;
+        }
+        releaseDispatcher.countDown();
+
+        assertTrue(waited);
+        List<String> sentIds = new ArrayList<>(List.of("pmid:0"));
+        for (int i = 0; i < 3; i++) {
+            PendingBulk bulk = next(targetBulks);
+            sentIds.add(bulk.request.requests().get(0).id());
+            bulk.succeed();
+        }
+        assertTrue(fourth.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(target.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(List.of("pmid:0", "pmid:1", "pmid:2", "pmid:3"), sentIds);
+        assertEquals(4, target.getIndexedBatches());
+        assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenBodyPoolWhenIndexBatchAsyncThenBodyIsWrittenOnceAndReleasedWithTheLastResponse() throws Exception {
+        BlockingQueue<ResponseListener> primaryListeners = new LinkedBlockingQueue<>();
+        BlockingQueue<ResponseListener> targetListeners = new LinkedBlockingQueue<>();
+        List<String> bodies = new CopyOnWriteArrayList<>();
+        ByteArrayPool pool = new ByteArrayPool(64, 1024 * 1024);
+        ArticlesIndexer primary = indexer(lowLevelClient(primaryListeners, bodies));
+        primary.setBodyPool(pool);
+        FanOutTarget target = new FanOutTarget("dr",
+                primary.createTargetIndexer(lowLevelClient(targetListeners, bodies), 2), 1024 * 1024);
+        primary.addTarget(target);
+        BulkBatch batch = batches(primary, 1).get(0);
+        ByteArrayPool onePool = new ByteArrayPool(64, 1024 * 1024);
+        PooledBulkBody.of(batch.getRequest(), onePool).release();
+
+        CompletableFuture<Boolean> sent = primary.indexBatchAsync(batch);
+        ResponseListener primaryListener = primaryListeners.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        ResponseListener targetListener = targetListeners.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(onePool.getAllocatedArrays(), pool.getAllocatedArrays());
+        assertEquals(2, bodies.size());
+        assertEquals(bodies.get(0), bodies.get(1));
+        primaryListener.onSuccess(lowLevelResponse("pmid:0"));
+        assertTrue(sent.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, pool.getFreeArrays());
+        targetListener.onSuccess(lowLevelResponse("pmid:0"));
+        assertTrue(target.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+        assertEquals(1, target.getIndexedBatches());
+        assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenSlowTargetWithoutSpillFileWhenLagIsOverTheBoundThenPrimaryWaits() throws Exception {
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        FanOutTarget target = new FanOutTarget("dr", indexer(client(targetBulks, false)), 1);
+        primary.addTarget(target);
+        List<BulkBatch> batches = batches(primary, 2);
+
+        assertTrue(primary.indexBatchAsync(batches.get(0)).get(WAIT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> primary.indexBatch(batches.get(1)));
+        PendingBulk first = next(targetBulks);
+        boolean waited;
+        try {
+            second.get(100, TimeUnit.MILLISECONDS);
+            waited = false;
+        } catch (TimeoutException e) {
+            waited = true;
+        }
+        assertTrue(waited);
+
+        first.succeed();
+        assertTrue(second.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        next(targetBulks).succeed();
+        assertTrue(target.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(target.getThrottledMillis() > 0);
+        assertTrue(target.close(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenSpilledBatchesLeftByARunWhenSetSpillFileThenTheyAreSent(@TempDir Path folder) throws Exception {
+        Path spillFile = folder.resolve("dr.spill");
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        FanOutTarget stopped = new FanOutTarget("dr", indexer(client(new LinkedBlockingQueue<>(), false)), 1);
+        stopped.setSpillFile(spillFile);
+        primary.addTarget(stopped);
+        for (BulkBatch batch : batches(primary, 3)) {
+            primary.indexBatch(batch);
+        }
+        assertFalse(stopped.close(0, TimeUnit.MILLISECONDS));
+        assertTrue(Files.size(spillFile) > 0);
+
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        FanOutTarget restarted = new FanOutTarget("dr", indexer(client(targetBulks, true)), 1024);
+        restarted.setSpillFile(spillFile);
+
+        assertTrue(restarted.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("pmid:1", next(targetBulks).request.requests().get(0).id());
+        assertEquals("pmid:2", next(targetBulks).request.requests().get(0).id());
+        assertTrue(restarted.close(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    void givenBatchesInMemoryWhenCloseTimesOutThenTheyAreKeptInTheSpillFile(@TempDir Path folder) throws Exception {
+        Path spillFile = folder.resolve("dr.spill");
+        BlockingQueue<PendingBulk> stoppedBulks = new LinkedBlockingQueue<>();
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        FanOutTarget stopped = new FanOutTarget("dr", indexer(client(stoppedBulks, false)), 1024);
+        stopped.setSpillFile(spillFile);
+        primary.addTarget(stopped);
+        for (BulkBatch batch : batches(primary, 4)) {
+            primary.indexBatch(batch);
+        }
+        next(stoppedBulks);
+        next(stoppedBulks);
+
+        assertFalse(stopped.close(0, TimeUnit.MILLISECONDS));
+        // The dispatcher may have taken the third batch, waiting for a slot of the window
+        assertEquals(2, stopped.getPendingSpilledBatches() + stopped.getFailedBatches());
+        assertTrue(stopped.getPendingSpilledBatches() >= 1);
+
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        FanOutTarget restarted = new FanOutTarget("dr", indexer(client(targetBulks, true)), 1024);
+        restarted.setSpillFile(spillFile);
+
+        assertTrue(restarted.awaitDrained(WAIT_SECONDS, TimeUnit.SECONDS));
+        List<String> sentIds = new ArrayList<>();
+        PendingBulk bulk = next(targetBulks);
+        while (bulk != null) {
+            sentIds.add(bulk.request.requests().get(0).id());
+            bulk = targetBulks.poll();
+        }
+        assertEquals(stopped.getPendingSpilledBatches(), sentIds.size());
+        assertEquals("pmid:3", sentIds.get(sentIds.size() - 1));
+        assertTrue(restarted.close(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givenBatchesInMemoryWithoutSpillFileWhenCloseTimesOutThenTheyAreCountedAsFailed() throws Exception {
+        BlockingQueue<PendingBulk> targetBulks = new LinkedBlockingQueue<>();
+        ArticlesIndexer primary = indexer(client(new LinkedBlockingQueue<>(), true));
+        FanOutTarget target = new FanOutTarget("dr", indexer(client(targetBulks, false)), 1024);
+        primary.addTarget(target);
+        for (BulkBatch batch : batches(primary, 4)) {
+            primary.indexBatch(batch);
+        }
+        next(targetBulks);
+        next(targetBulks);
+
+        assertFalse(target.close(0, TimeUnit.MILLISECONDS));
+        assertEquals(2, target.getFailedBatches());
+        assertEquals(2, target.getLagBatches());
+    }
+}
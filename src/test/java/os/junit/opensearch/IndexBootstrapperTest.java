@@ -0,0 +1,164 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.opensearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.opensearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.opensearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.opensearch.action.admin.indices.refresh.RefreshRequest;
+import org.opensearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.opensearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.opensearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.opensearch.client.GetAliasesResponse;
+import org.opensearch.client.IndicesClient;
+import org.opensearch.client.RequestOptions;
+import org.opensearch.client.RestHighLevelClient;
+import org.opensearch.client.indices.CreateIndexRequest;
+import org.opensearch.client.indices.GetIndexRequest;
+import org.opensearch.common.collect.ImmutableOpenMap;
+import org.opensearch.common.settings.Settings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import os.exercise.opensearch.IndexBootstrapper;
+
+/**
+ * Unitary tests for the IndexBootstrapper class.
+ */
+class IndexBootstrapperTest {
+
+    private IndicesClient indices;
+    private IndexBootstrapper bootstrapper;
+
+    @BeforeEach
+    void setUp() {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        indices = mock(IndicesClient.class);
+        when(client.indices()).thenReturn(indices);
+        bootstrapper = new IndexBootstrapper(client);
+    }
+
+    @Test
+    void givenSettingsAndMappingFilesWhenCreateIndexThenBothAreSent(@TempDir Path folder) throws IOException {
+        Path settings = folder.resolve("settings.json");
+        Path mapping = folder.resolve("mapping.json");
+        Files.write(settings, "{\"settings\":{\"index\":{\"number_of_shards\":3}}}".getBytes(StandardCharsets.UTF_8));
+        Files.write(mapping, "{\"mappings\":{\"properties\":{\"pub_date\":{\"type\":\"date\"}}}}"
+                .getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(bootstrapper.createIndex("articles-1", settings, mapping));
+
+        ArgumentCaptor<CreateIndexRequest> request = ArgumentCaptor.forClass(CreateIndexRequest.class);
+        verify(indices).create(request.capture(), any(RequestOptions.class));
+        assertEquals("articles-1", request.getValue().index());
+        assertEquals("3", request.getValue().settings().get("index.number_of_shards"));
+        assertTrue(request.getValue().mappings().utf8ToString().contains("pub_date"));
+    }
+
+    @Test
+    void givenMissingFileWhenCreateIndexThenFailure(@TempDir Path folder) throws IOException {
+        assertFalse(bootstrapper.createIndex("articles-1", folder.resolve("settings.json"),
+                folder.resolve("mapping.json")));
+        verify(indices, never()).create(isA(CreateIndexRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void givenAnExistingPartitionWhenEnsureIndexThenItIsAddedToTheAliasAndWritable(@TempDir Path folder)
+            throws IOException {
+        when(indices.exists(isA(GetIndexRequest.class), any(RequestOptions.class))).thenReturn(true);
+
+        assertTrue(bootstrapper.ensureIndex("articles-2003", folder.resolve("settings.json"),
+                folder.resolve("mapping.json"), "articles"));
+
+        ArgumentCaptor<IndicesAliasesRequest> aliases = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indices).updateAliases(aliases.capture(), any(RequestOptions.class));
+        assertEquals("articles", aliases.getValue().getAliasActions().get(0).aliases()[0]);
+        ArgumentCaptor<UpdateSettingsRequest> settings = ArgumentCaptor.forClass(UpdateSettingsRequest.class);
+        verify(indices).putSettings(settings.capture(), any(RequestOptions.class));
+        assertEquals("false", settings.getValue().settings().get(IndexBootstrapper.WRITE_BLOCK));
+        verify(indices, never()).create(isA(CreateIndexRequest.class), any(RequestOptions.class));
+    }
+
+    @Test
+    void givenAnIndexWhenBulkLoadThenProfileIsAppliedAndSettingsAreRestored() throws IOException {
+        Settings explicit = Settings.builder().put(IndexBootstrapper.NUMBER_OF_REPLICAS, 1).build();
+        Settings defaults = Settings.builder().put(IndexBootstrapper.REFRESH_INTERVAL, "1s")
+                .put(IndexBootstrapper.TRANSLOG_DURABILITY, "request").build();
+        when(indices.getSettings(isA(GetSettingsRequest.class), any(RequestOptions.class)))
+                .thenReturn(new GetSettingsResponse(ImmutableOpenMap.<String, Settings>builder()
+                        .fPut("articles-1", explicit).build(), ImmutableOpenMap.<String, Settings>builder()
+                        .fPut("articles-1", defaults).build()));
+
+        assertTrue(bootstrapper.startBulkLoad("articles-1"));
+        assertTrue(bootstrapper.finishBulkLoad("articles-1", 1));
+
+        ArgumentCaptor<UpdateSettingsRequest> updates = ArgumentCaptor.forClass(UpdateSettingsRequest.class);
+        InOrder order = inOrder(indices);
+        order.verify(indices).putSettings(updates.capture(), any(RequestOptions.class));
+        order.verify(indices).refresh(isA(RefreshRequest.class), any(RequestOptions.class));
+        order.verify(indices).forcemerge(isA(ForceMergeRequest.class), any(RequestOptions.class));
+        order.verify(indices).putSettings(updates.capture(), any(RequestOptions.class));
+        Settings profile = updates.getAllValues().get(0).settings();
+        Settings restored = updates.getAllValues().get(1).settings();
+        assertEquals("-1", profile.get(IndexBootstrapper.REFRESH_INTERVAL));
+        assertEquals("0", profile.get(IndexBootstrapper.NUMBER_OF_REPLICAS));
+        assertEquals("async", profile.get(IndexBootstrapper.TRANSLOG_DURABILITY));
+        assertEquals("1s", restored.get(IndexBootstrapper.REFRESH_INTERVAL));
+        assertEquals("1", restored.get(IndexBootstrapper.NUMBER_OF_REPLICAS));
+        assertEquals("request", restored.get(IndexBootstrapper.TRANSLOG_DURABILITY));
+    }
+
+    @Test
+    void givenAnAliasOfAnotherIndexWhenSwapAliasThenItIsMovedInASingleRequest() throws IOException {
+        GetAliasesResponse aliases = mock(GetAliasesResponse.class);
+        when(aliases.getAliases()).thenReturn(Map.of("articles-0", Set.of()));
+        when(indices.getAlias(isA(GetAliasesRequest.class), any(RequestOptions.class))).thenReturn(aliases);
+
+        assertTrue(bootstrapper.swapAlias("articles", "articles-1", false));
+
+        ArgumentCaptor<IndicesAliasesRequest> request = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indices).updateAliases(request.capture(), any(RequestOptions.class));
+        List<String> actions = request.getValue().getAliasActions().stream()
+                .map(action -> action.actionType() + " " + String.join(",", action.indices()))
+                .collect(Collectors.toList());
+        assertEquals(List.of("ADD articles-1", "REMOVE articles-0"), actions);
+    }
+
+    @Test
+    void givenAnIndexWithTheNameOfTheAliasWhenSwapAliasThenItIsOnlyReplacedIfDeleted() throws IOException {
+        GetAliasesResponse aliases = mock(GetAliasesResponse.class);
+        when(aliases.getAliases()).thenReturn(Map.of());
+        when(indices.getAlias(isA(GetAliasesRequest.class), any(RequestOptions.class))).thenReturn(aliases);
+        when(indices.exists(isA(GetIndexRequest.class), any(RequestOptions.class))).thenReturn(true);
+
+        assertFalse(bootstrapper.swapAlias("articles", "articles-1", false));
+        verify(indices, never()).updateAliases(isA(IndicesAliasesRequest.class), any(RequestOptions.class));
+
+        assertTrue(bootstrapper.swapAlias("articles", "articles-1", true));
+        ArgumentCaptor<IndicesAliasesRequest> request = ArgumentCaptor.forClass(IndicesAliasesRequest.class);
+        verify(indices).updateAliases(request.capture(), any(RequestOptions.class));
+        assertEquals(AliasActions.Type.REMOVE_INDEX, request.getValue().getAliasActions().get(1).actionType());
+    }
+}
@@ -0,0 +1,64 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import os.exercise.opensearch.IndexPartitioner;
+import os.exercise.opensearch.IndexPartitioner.Granularity;
+
+/**
+ * Unitary tests for the IndexPartitioner class.
+ */
+class IndexPartitionerTest {
+
+    private final List<String> created = new ArrayList<>();
+
+    @Test
+    void givenYearlyPartitionsWhenGetIndexThenEachYearIsCreatedOnce() {
+        IndexPartitioner partitioner = new IndexPartitioner("articles", Granularity.YEAR, created::add);
+
+        assertEquals("articles-2003", partitioner.getIndex("2003-12-01"));
+        assertEquals("articles-2003", partitioner.getIndex("2003-01-15"));
+        assertEquals("articles-2004", partitioner.getIndex("2004"));
+
+        assertEquals(List.of("articles-2003", "articles-2004"), created);
+    }
+
+    @Test
+    void givenMonthlyPartitionsWhenGetIndexThenTheMonthIsInTheName() {
+        IndexPartitioner partitioner = new IndexPartitioner("articles", Granularity.fromName("month"), created::add);
+
+        assertEquals("articles-2003-12", partitioner.getIndex("2003-12-01"));
+        assertEquals("articles-2004-01", partitioner.getIndex("2004"));
+        assertEquals("articles-2004-06", partitioner.getIndex("2004-06"));
+    }
+
+    @Test
+    void givenInvalidDatesWhenGetIndexThenUndatedPartition() {
+        IndexPartitioner partitioner = new IndexPartitioner("articles", Granularity.MONTH, created::add);
+
+        assertEquals("articles-undated", partitioner.getIndex(null));
+        assertEquals("articles-undated", partitioner.getIndex("20"));
+        assertEquals("articles-undated", partitioner.getIndex("circa 2003"));
+        assertEquals("articles-undated", partitioner.getIndex("2003-13-01"));
+        assertEquals(List.of("articles-undated"), created);
+    }
+
+    @Test
+    void givenPartitionsWhenGetPastPartitionsThenOnlyTheEndedPeriods() {
+        IndexPartitioner partitioner = new IndexPartitioner("articles", Granularity.YEAR, created::add);
+        partitioner.getIndex("2003-12-01");
+        partitioner.getIndex("2023-05-01");
+        partitioner.getIndex("2023-12-01");
+        partitioner.getIndex(null);
+
+        List<String> past = partitioner.getPastPartitions(YearMonth.of(2023, 6));
+
+        assertEquals(List.of("articles-2003"), past);
+    }
+}
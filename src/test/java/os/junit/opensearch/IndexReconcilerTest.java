@@ -0,0 +1,226 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.RestClient;
+import org.opensearch.client.RestHighLevelClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import os.exercise.models.Article;
+import os.exercise.opensearch.ArticlesIndexer;
+import os.exercise.opensearch.IndexReconciler;
+import os.exercise.opensearch.ReconciliationReport;
+
+/**
+ * Unitary tests for the IndexReconciler class.
+ */
+class IndexReconcilerTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int BUCKETS = 8;
+
+    @TempDir
+    Path folder;
+
+    private RestClient restClient;
+    private IndexReconciler reconciler;
+    private final Set<String> indexedIds = Collections.synchronizedSet(new HashSet<>());
+    private final List<String> endpoints = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RestHighLevelClient client = mock(RestHighLevelClient.class);
+        restClient = mock(RestClient.class);
+        when(client.getLowLevelClient()).thenReturn(restClient);
+        when(restClient.performRequest(any(Request.class))).thenAnswer(invocation -> answer(invocation.getArgument(0)));
+        reconciler = new IndexReconciler(client, "articles");
+        reconciler.setBatchSize(2);
+        reconciler.setBuckets(BUCKETS);
+    }
+
+    private Response answer(Request request) throws IOException {
+        String filterPath = request.getParameters().getOrDefault("filter_path", "");
+        endpoints.add(request.getEndpoint() + (filterPath.isEmpty() ? "" : "?" + filterPath));
+        if (request.getEndpoint().endsWith("/_refresh")) {
+            return respond("{}");
+        }
+        JsonNode body = MAPPER.readTree(EntityUtils.toString(request.getEntity()));
+        if ("aggregations".equals(filterPath)) {
+            return respond(aggregate());
+        }
+        List<String> found = new ArrayList<>();
+        body.at("/query/ids/values").forEach(id -> {
+            if (indexedIds.contains(id.asText())) {
+                found.add(id.asText());
+            }
+        });
+        if (request.getEndpoint().endsWith("/_count")) {
+            return respond("{\"count\":" + found.size() + "}");
+        }
+        return respond("{\"hits\":{\"hits\":[" + found.stream().map(id -> "{\"_id\":\"" + id + "\"}")
+                .collect(Collectors.joining(",")) + "]}}");
+    }
+
+    private String aggregate() {
+        Map<Integer, long[]> buckets = new TreeMap<>();
+        for (String id : indexedIds) {
+            long[] bucket = buckets.computeIfAbsent(Math.floorMod(id.hashCode(), BUCKETS), key -> new long[2]);
+            bucket[0]++;
+            bucket[1] += id.hashCode();
+        }
+        return "{\"aggregations\":{\"id_buckets\":{\"buckets\":[" + buckets.entrySet().stream()
+                .map(bucket -> "{\"key\":" + bucket.getKey() + ",\"doc_count\":" + bucket.getValue()[0]
+                        + ",\"id_checksum\":{\"value\":" + (double) bucket.getValue()[1] + "}}")
+                .collect(Collectors.joining(",")) + "]}}}";
+    }
+
+    private Response respond(String body) {
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new NStringEntity(body, ContentType.APPLICATION_JSON));
+        return response;
+    }
+
+    private Path writeFile(String name, String... ids) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String id : ids) {
+            lines.add(id == null ? "{\"article_title\":\"No id\"}"
+                    : "{\"id\":\"" + id + "\",\"article_title\":\"Title " + id + "\"}");
+        }
+        return Files.write(folder.resolve(name), lines);
+    }
+
+    private long count(String endpoint) {
+        return endpoints.stream().filter(endpoint::equals).count();
+    }
+
+    @Test
+    void givenMissingIdsWhenReconcileThenMissingReportedByFile() throws IOException {
+        Path first = writeFile("first.json", "pmid:1", "pmid:2", "pmid:3");
+        Path second = writeFile("second.json", "pmid:4", null, "pmid:5");
+        indexedIds.addAll(List.of("pmid:1", "pmid:2", "pmid:4"));
+
+        ReconciliationReport report = reconciler.reconcile(List.of(first, second));
+
+        assertEquals(Map.of(first, List.of("pmid:3"), second, List.of("pmid:5")), report.getMissingIds());
+        assertEquals(Map.of(first, 3L, second, 3L), report.getRecords());
+        assertEquals(5, report.getCheckedIds());
+        assertEquals(1, report.getRecordsWithoutId());
+        assertEquals(-1, report.getMismatchedBuckets());
+        assertFalse(report.isReconciled());
+        assertEquals("/articles/_refresh", endpoints.get(0));
+        // The complete batch pmid:1, pmid:2 is only counted
+        assertEquals(3, count("/articles/_count?count"));
+        assertEquals(2, count("/articles/_search?hits.hits._id"));
+    }
+
+    @Test
+    void givenRepairIndexerWhenReconcileThenMissingArticlesIndexedAgain() throws IOException {
+        Path file = writeFile("articles.json", "pmid:1", "pmid:2", "pmid:3");
+        indexedIds.add("pmid:2");
+        ArticlesIndexer indexer = mock(ArticlesIndexer.class);
+        when(indexer.bulkAppendArticles(eq("articles"), anyList())).thenReturn(true);
+        reconciler.setRepairIndexer(indexer);
+        reconciler.setParallelism(1);
+
+        ReconciliationReport report = reconciler.reconcile(List.of(file));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Article>> articles = ArgumentCaptor.forClass(List.class);
+        verify(indexer, times(2)).bulkAppendArticles(eq("articles"), articles.capture());
+        assertEquals(List.of("pmid:1", "pmid:3"), articles.getAllValues().stream().flatMap(List::stream)
+                .map(Article::getId).collect(Collectors.toList()));
+        assertEquals("Title pmid:3", articles.getAllValues().get(1).get(0).getArticleTitle());
+        assertEquals(2, report.getRepairedIds());
+        assertTrue(report.isReconciled());
+    }
+
+    @Test
+    void givenMatchingChecksumsWhenReconcileByChecksumThenNoIdChecked() throws IOException {
+        Path first = writeFile("first.json", "pmid:1", "pmid:2", "pmid:3");
+        Path second = writeFile("second.json", "pmid:3", "pmid:4");
+        indexedIds.addAll(List.of("pmid:1", "pmid:2", "pmid:3", "pmid:4"));
+
+        ReconciliationReport report = reconciler.reconcileByChecksum(List.of(first, second));
+
+        assertEquals(0, report.getMismatchedBuckets());
+        assertEquals(0, report.getCheckedIds());
+        assertEquals(Map.of(first, 3L, second, 2L), report.getRecords());
+        assertTrue(report.isReconciled());
+        assertEquals(List.of("/articles/_refresh", "/articles/_search?aggregations"), endpoints);
+    }
+
+    @Test
+    void givenMissingIdWhenReconcileByChecksumThenOnlyItsBucketChecked() throws IOException {
+        Path file = writeFile("articles.json", "pmid:1", "pmid:2", "pmid:3", "pmid:4", "pmid:5");
+        indexedIds.addAll(List.of("pmid:1", "pmid:2", "pmid:4", "pmid:5"));
+        int missingBucket = Math.floorMod("pmid:3".hashCode(), BUCKETS);
+        long idsInBucket = List.of("pmid:1", "pmid:2", "pmid:3", "pmid:4", "pmid:5").stream()
+                .filter(id -> Math.floorMod(id.hashCode(), BUCKETS) == missingBucket).count();
+
+        ReconciliationReport report = reconciler.reconcileByChecksum(List.of(file));
+
+        assertEquals(1, report.getMismatchedBuckets());
+        assertEquals(idsInBucket, report.getCheckedIds());
+        assertEquals(Map.of(file, List.of("pmid:3")), report.getMissingIds());
+        assertEquals(Map.of(file, 5L), report.getRecords());
+        assertFalse(report.isReconciled());
+    }
+
+    @Test
+    void givenFailingAggregationWhenReconcileByChecksumThenEveryIdChecked() throws IOException {
+        Path file = writeFile("articles.json", "pmid:1", "pmid:2", "pmid:3");
+        indexedIds.addAll(List.of("pmid:1", "pmid:2", "pmid:3"));
+        when(restClient.performRequest(any(Request.class))).thenAnswer(invocation -> {
+            Request request = invocation.getArgument(0);
+            if ("aggregations".equals(request.getParameters().get("filter_path"))) {
+                throw new IOException("cannot access _id field data");
+            }
+            return answer(request);
+        });
+
+        ReconciliationReport report = reconciler.reconcileByChecksum(List.of(file));
+
+        assertEquals(BUCKETS, report.getMismatchedBuckets());
+        assertEquals(3, report.getCheckedIds());
+        assertTrue(report.isReconciled());
+    }
+
+    @Test
+    void givenUnreachableIndexWhenReconcileThenNull() throws IOException {
+        when(restClient.performRequest(any(Request.class))).thenThrow(new IOException("connection refused"));
+
+        assertNull(reconciler.reconcile(List.of(writeFile("articles.json", "pmid:1"))));
+    }
+}
@@ -0,0 +1,51 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.http.HttpHost;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import os.exercise.opensearch.LeastLoadedNodeSelector;
+
+/**
+ * Unitary tests for the LeastLoadedNodeSelector class.
+ */
+class LeastLoadedNodeSelectorTest {
+
+    private final Node node1 = new Node(new HttpHost("node1", 9200));
+    private final Node node2 = new Node(new HttpHost("node2", 9200));
+    private final Node node3 = new Node(new HttpHost("node3", 9200));
+    private final Map<HttpHost, Integer> loads = new HashMap<>();
+    private final LeastLoadedNodeSelector selector =
+            new LeastLoadedNodeSelector(host -> loads.getOrDefault(host, 0));
+
+    @Test
+    void givenLoadedNodesWhenSelectThenOnlyTheLeastLoadedIsKept() {
+        loads.put(node1.getHost(), 3);
+        loads.put(node2.getHost(), 1);
+        loads.put(node3.getHost(), 2);
+        List<Node> nodes = new ArrayList<>(List.of(node1, node2, node3));
+
+        selector.select(nodes);
+
+        assertEquals(List.of(node2), nodes);
+    }
+
+    @Test
+    void givenNodesWithTheSameLoadWhenSelectThenTheyAreAllKept() {
+        loads.put(node1.getHost(), 1);
+        loads.put(node3.getHost(), 1);
+        loads.put(node2.getHost(), 2);
+        List<Node> nodes = new ArrayList<>(List.of(node1, node2, node3));
+
+        selector.select(nodes);
+
+        assertEquals(List.of(node1, node3), nodes);
+    }
+}
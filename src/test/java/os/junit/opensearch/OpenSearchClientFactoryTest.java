@@ -0,0 +1,209 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.client.Request;
+import org.opensearch.client.Response;
+import org.opensearch.client.ResponseListener;
+import org.opensearch.client.RestClient;
+import org.opensearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import os.exercise.opensearch.NodeSelection;
+import os.exercise.opensearch.OpenSearchClientFactory;
+import os.exercise.opensearch.PooledBulkBody;
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * Unitary tests for the OpenSearchClientFactory class, against local HTTP servers standing for the nodes.
+ */
+class OpenSearchClientFactoryTest {
+
+    private static final byte[] EMPTY_RESPONSE = "{}".getBytes(StandardCharsets.UTF_8);
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void givenNodesWhenParseNodesThenDefaultSchemeAndPortAreSet() {
+        List<HttpHost> nodes = OpenSearchClientFactory.parseNodes(" node1, https://node2:9201 ,http://node3,");
+
+        assertEquals(List.of(new HttpHost("node1", 9200, "http"), new HttpHost("node2", 9201, "https"),
+                new HttpHost("node3", 9200, "http")), nodes);
+        assertThrows(IllegalArgumentException.class, () -> OpenSearchClientFactory.parseNodes(" , "));
+    }
+
+    @Test
+    void givenInvalidPoolWhenSetMaxConnectionsThenIllegalArgumentException() {
+        OpenSearchClientFactory factory = new OpenSearchClientFactory(OpenSearchClientFactory.parseNodes("node1"));
+
+        assertThrows(IllegalArgumentException.class, () -> factory.setMaxConnections(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> factory.setMaxConnections(8, 4));
+    }
+
+    @Test
+    void givenCompressionWhenBulkThenBodyIsSentWithGzip() throws IOException {
+        Queue<String> encodings = new ConcurrentLinkedQueue<>();
+        Queue<String> bodies = new ConcurrentLinkedQueue<>();
+        HttpHost node = startServer(exchange -> {
+            String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+            encodings.add(String.valueOf(encoding));
+            InputStream body = "gzip".equals(encoding) ? new GZIPInputStream(exchange.getRequestBody())
+                    : exchange.getRequestBody();
+            bodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            respond(exchange);
+        });
+        String bulk = "{\"index\":{\"_index\":\"articles\"}}\n{\"title\":\"A title\"}\n";
+
+        try (OpenSearchClientFactory factory = new OpenSearchClientFactory(List.of(node))) {
+            factory.setCompression(true);
+            RestClient client = factory.create().getLowLevelClient();
+            Request request = new Request("POST", "/_bulk");
+            request.setEntity(new NStringEntity(bulk, ContentType.create("application/x-ndjson")));
+            client.performRequest(request);
+        }
+
+        assertEquals(List.of("gzip"), new ArrayList<>(encodings));
+        assertEquals(List.of(bulk), new ArrayList<>(bodies));
+    }
+
+    @Test
+    void givenPooledBulkCompressionWhenBulkThenPooledGzipIsSentAsItIs() throws IOException {
+        Queue<String> encodings = new ConcurrentLinkedQueue<>();
+        Queue<String> bodies = new ConcurrentLinkedQueue<>();
+        HttpHost node = startServer(exchange -> {
+            encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding") + " / "
+                    + exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            bodies.add(new String(new GZIPInputStream(exchange.getRequestBody()).readAllBytes(),
+                    StandardCharsets.UTF_8));
+            respond(exchange);
+        });
+        BulkRequest bulk = new BulkRequest()
+                .add(new IndexRequest("articles").source("{\"title\":\"A title\"}", XContentType.JSON));
+        PooledBulkBody body = PooledBulkBody.of(bulk, new ByteArrayPool(16, 1024), true);
+
+        try (OpenSearchClientFactory factory = new OpenSearchClientFactory(List.of(node))) {
+            factory.setCompression(true);
+            factory.setPooledBulkCompression(true);
+            RestClient client = factory.create().getLowLevelClient();
+            Request request = new Request("POST", "/_bulk");
+            request.setEntity(body.toEntity());
+            client.performRequest(request);
+        } finally {
+            body.release();
+        }
+
+        assertEquals(List.of("gzip / gzip"), new ArrayList<>(encodings));
+        assertEquals(List.of("{\"index\":{\"_index\":\"articles\"}}\n{\"title\":\"A title\"}\n"),
+                new ArrayList<>(bodies));
+    }
+
+    @Test
+    void givenLeastLoadedSelectionWhenANodeIsBusyThenRequestsGoToTheOtherNode() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch slowReceived = new CountDownLatch(1);
+        AtomicInteger fastRequests = new AtomicInteger();
+        HttpHost slowNode = startServer(exchange -> {
+            slowReceived.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange);
+        });
+        HttpHost fastNode = startServer(exchange -> {
+            fastRequests.incrementAndGet();
+            respond(exchange);
+        });
+
+        try (OpenSearchClientFactory factory = new OpenSearchClientFactory(List.of(slowNode, fastNode))) {
+            factory.setNodeSelection(NodeSelection.LEAST_LOADED);
+            RestClient client = factory.create().getLowLevelClient();
+            // Send requests until one waits on the slow node
+            while (slowReceived.getCount() > 0) {
+                client.performRequestAsync(new Request("GET", "/"), new IgnoringListener());
+                slowReceived.await(100, TimeUnit.MILLISECONDS);
+            }
+            int before = fastRequests.get();
+
+            for (int i = 0; i < 5; i++) {
+                client.performRequest(new Request("GET", "/"));
+            }
+
+            assertEquals(before + 5, fastRequests.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private HttpHost startServer(Handler handler) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                handler.handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        servers.add(server);
+        return new HttpHost(InetAddress.getLoopbackAddress().getHostAddress(), server.getAddress().getPort(), "http");
+    }
+
+    private static void respond(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, EMPTY_RESPONSE.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(EMPTY_RESPONSE);
+        }
+    }
+
+    /**
+     * The handler of the requests of a server.
+     */
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * A listener of the requests whose response does not matter.
+     */
+    private static final class IgnoringListener implements ResponseListener {
+        @Override
+        public void onSuccess(Response response) {
+        }
+
+        @Override
+        public void onFailure(Exception exception) {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opensearch.action.DocWriteRequest;
+import org.opensearch.action.bulk.BulkRequest;
+import org.opensearch.action.delete.DeleteRequest;
+import org.opensearch.action.index.IndexRequest;
+import org.opensearch.common.xcontent.XContentType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import os.exercise.opensearch.PooledBulkBody;
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * Unitary tests for the PooledBulkBody class.
+ */
+class PooledBulkBodyTest {
+
+    private static final String SOURCE = "{\"id\":\"pmid:1\",\"article_title\":\"Leukaemias \\\"acute\\\"\"}";
+    private static final String BODY = "{\"index\":{\"_index\":\"articles\"}}\n" + SOURCE + "\n"
+            + "{\"create\":{\"_index\":\"articles-2003\",\"_id\":\"pmid:\\\"2\\\"\"}}\n{\"id\":\"pmid:2\"}\n";
+
+    private ByteArrayPool pool;
+    private BulkRequest request;
+
+    @BeforeEach
+    void setUp() {
+        // Arrays smaller than a line, so the lines span several arrays
+        pool = new ByteArrayPool(16, 1024);
+        request = new BulkRequest()
+                .add(new IndexRequest("articles").source(SOURCE, XContentType.JSON))
+                .add(new IndexRequest("articles-2003").id("pmid:\"2\"").opType(DocWriteRequest.OpType.CREATE)
+                        .source("{\"id\":\"pmid:2\"}", XContentType.JSON));
+    }
+
+    @Test
+    void givenBulkRequestWhenWriteBodyThenNdjsonOfActionsAndSources() throws IOException {
+        PooledBulkBody body = PooledBulkBody.of(request, pool);
+
+        HttpEntity entity = body.toEntity();
+        assertEquals(BODY.length(), body.getLength());
+        assertEquals(BODY.length(), entity.getContentLength());
+        assertEquals(BODY, EntityUtils.toString(entity));
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        entity.writeTo(written);
+        assertEquals(BODY, written.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void givenCompressionWhenWriteBodyThenGzipOfNdjsonInThePool() throws IOException {
+        PooledBulkBody body = PooledBulkBody.of(request, pool, true);
+
+        HttpEntity entity = body.toEntity();
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+        byte[] compressed = EntityUtils.toByteArray(entity);
+        assertEquals(compressed.length, body.getLength());
+        try (GZIPInputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(BODY, new String(decompressed.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        body.release();
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+    }
+
+    @Test
+    void givenSlowConnectionWhenProduceContentThenWholeBodySentAndRepeatable() throws IOException {
+        PooledBulkBody body = PooledBulkBody.of(request, pool);
+        HttpAsyncContentProducer producer = (HttpAsyncContentProducer) body.toEntity();
+
+        assertEquals(BODY, produce(producer));
+        producer.close();
+        assertEquals(BODY, produce(producer));
+    }
+
+    private static String produce(HttpAsyncContentProducer producer) throws IOException {
+        SlowEncoder encoder = new SlowEncoder();
+        while (!encoder.completed) {
+            producer.produceContent(encoder, null);
+        }
+        return encoder.written.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void givenBodyWhenReleaseThenArraysBackToPool() throws IOException {
+        PooledBulkBody body = PooledBulkBody.of(request, pool);
+        long arrays = pool.getAllocatedArrays();
+
+        body.release();
+        body.release();
+
+        assertEquals(arrays, pool.getFreeArrays());
+        PooledBulkBody.of(request, pool).release();
+        assertEquals(arrays, pool.getAllocatedArrays());
+        assertThrows(IllegalStateException.class, () -> body.write(1));
+    }
+
+    @Test
+    void givenRetainedBodyWhenReleaseThenArraysBackToPoolWithTheLastReference() throws IOException {
+        PooledBulkBody body = PooledBulkBody.of(request, pool);
+
+        assertSame(body, body.retain());
+        body.release();
+        assertEquals(0, pool.getFreeArrays());
+        body.release();
+
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+        assertThrows(IllegalStateException.class, body::retain);
+    }
+
+    @Test
+    void givenIndexRequestsWhenGetActionLengthThenBodyLengthWithoutTheSources() throws IOException {
+        request.add(new IndexRequest("articles").id("pmid:\u00e9").routing("r").setPipeline("dates")
+                .source("{}", XContentType.JSON));
+        PooledBulkBody body = PooledBulkBody.of(request, pool);
+
+        long expected = 0;
+        for (DocWriteRequest<?> action : request.requests()) {
+            IndexRequest indexRequest = (IndexRequest) action;
+            expected += PooledBulkBody.getActionLength(indexRequest) + indexRequest.source().length();
+        }
+        assertEquals(expected, body.getLength());
+    }
+
+    @Test
+    void givenDeleteRequestWhenWriteBodyThenExceptionAndArraysReleased() {
+        request.add(new DeleteRequest("articles", "pmid:1"));
+
+        assertThrows(IllegalArgumentException.class, () -> PooledBulkBody.of(request, pool));
+        assertTrue(pool.getFreeArrays() > 0);
+        assertEquals(pool.getAllocatedArrays(), pool.getFreeArrays());
+    }
+
+    /**
+     * A {@code ContentEncoder} that accepts at most 5 bytes per call, like a connection whose buffer is full.
+     */
+    private static final class SlowEncoder implements ContentEncoder {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private boolean completed;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = Math.min(5, src.remaining());
+            for (int i = 0; i < count; i++) {
+                written.write(src.get());
+            }
+            return count;
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package os.junit.opensearch;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.opensearch.OpenSearchException;
+import org.opensearch.OpenSearchStatusException;
+import org.opensearch.action.UnavailableShardsException;
+import org.opensearch.action.bulk.BulkItemResponse;
+import org.opensearch.index.shard.ShardId;
+import org.opensearch.rest.RestStatus;
+
+import java.io.IOException;
+
+import os.exercise.opensearch.RetryPolicy;
+
+/**
+ * Unitary tests for the RetryPolicy class.
+ */
+class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 100, 1000);
+
+    @Test
+    void givenAttemptsWhenGetDelayMillisThenDelayGrowsWithJitterUpToTheMaximum() {
+        for (int i = 0; i < 100; i++) {
+            long first = policy.getDelayMillis(0);
+            long third = policy.getDelayMillis(2);
+            long tenth = policy.getDelayMillis(9);
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+            assertTrue(tenth >= 500 && tenth <= 1000);
+        }
+    }
+
+    @Test
+    void givenAttemptsWhenCanRetryThenOnlyUpToTheMaximum() {
+        assertTrue(policy.canRetry(2));
+        assertFalse(policy.canRetry(3));
+        assertFalse(RetryPolicy.noRetries().canRetry(0));
+    }
+
+    @Test
+    void givenItemFailuresWhenIsRetriableThenOnlyTransientFailures() {
+        BulkItemResponse.Failure rejected = new BulkItemResponse.Failure("articles", "1",
+                new OpenSearchException("rejected execution"), RestStatus.TOO_MANY_REQUESTS);
+        BulkItemResponse.Failure unavailable = new BulkItemResponse.Failure("articles", "1",
+                new UnavailableShardsException(new ShardId("articles", "_na_", 0), "primary shard is not active"));
+        BulkItemResponse.Failure mapping = new BulkItemResponse.Failure("articles", "1",
+                new OpenSearchException("failed to parse date field [foo]"), RestStatus.BAD_REQUEST);
+
+        assertTrue(policy.isRetriable(rejected));
+        assertTrue(policy.isRetriable(unavailable));
+        assertFalse(policy.isRetriable(mapping));
+    }
+
+    @Test
+    void givenItemFailuresParsedFromAResponseWhenIsRetriableThenMatchedOnTheirType() {
+        BulkItemResponse.Failure clusterEventTimeout = new BulkItemResponse.Failure("articles", "1",
+                new OpenSearchException("OpenSearch exception [type=process_cluster_event_timeout_exception, "
+                        + "reason=failed to process cluster event (put-mapping) within 30s]"),
+                RestStatus.INTERNAL_SERVER_ERROR);
+        BulkItemResponse.Failure nestedTimeout = new BulkItemResponse.Failure("articles", "1",
+                new OpenSearchException("OpenSearch exception [type=exception, reason=failed]",
+                        new OpenSearchException("OpenSearch exception [type=timeout_exception, reason=30s]")),
+                RestStatus.INTERNAL_SERVER_ERROR);
+        BulkItemResponse.Failure mappingAboutTimeout = new BulkItemResponse.Failure("articles", "1",
+                new OpenSearchException("OpenSearch exception [type=mapper_parsing_exception, "
+                        + "reason=failed to parse field [timeout] of type [long]: timed out is not a number]"),
+                RestStatus.BAD_REQUEST);
+
+        assertTrue(policy.isRetriable(clusterEventTimeout));
+        assertTrue(policy.isRetriable(nestedTimeout));
+        assertFalse(policy.isRetriable(mappingAboutTimeout));
+    }
+
+    @Test
+    void givenRequestFailuresWhenIsRetriableThenOnlyTransientFailures() {
+        assertTrue(policy.isRetriable(new IOException("Connection refused")));
+        assertTrue(policy.isRetriable(new OpenSearchStatusException("busy", RestStatus.SERVICE_UNAVAILABLE)));
+        assertFalse(policy.isRetriable(new OpenSearchStatusException("bad", RestStatus.BAD_REQUEST)));
+        assertFalse(policy.isRetriable(new IllegalStateException()));
+    }
+
+    @Test
+    void givenMaxDelaySmallerThanInitialDelayWhenCreatePolicyThenFailure() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryPolicy(3, 100, 10));
+    }
+}
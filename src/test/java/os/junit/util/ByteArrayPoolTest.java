@@ -0,0 +1,58 @@
+package os.junit.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import os.exercise.util.ByteArrayPool;
+
+/**
+ * Unitary tests for the ByteArrayPool class.
+ */
+class ByteArrayPoolTest {
+
+    @Test
+    void givenReleasedArrayWhenAcquireThenSameArray() {
+        ByteArrayPool pool = new ByteArrayPool(16, 64);
+        byte[] array = pool.acquire();
+
+        pool.release(array);
+
+        assertSame(array, pool.acquire());
+        assertEquals(1, pool.getAllocatedArrays());
+    }
+
+    @Test
+    void givenFullPoolWhenReleaseThenArrayNotKept() {
+        ByteArrayPool pool = new ByteArrayPool(16, 32);
+        byte[] first = pool.acquire();
+        byte[] second = pool.acquire();
+        byte[] third = pool.acquire();
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        assertEquals(2, pool.getFreeArrays());
+        assertEquals(3, pool.getAllocatedArrays());
+    }
+
+    @Test
+    void givenArrayOfOtherSizeWhenReleaseThenNotKept() {
+        ByteArrayPool pool = new ByteArrayPool(16, 64);
+        byte[] other = new byte[8];
+
+        pool.release(other);
+
+        assertEquals(0, pool.getFreeArrays());
+        assertNotSame(other, pool.acquire());
+    }
+
+    @Test
+    void givenRetainedBytesBelowArrayWhenCreateThenException() {
+        assertThrows(IllegalArgumentException.class, () -> new ByteArrayPool(16, 8));
+    }
+}
@@ -0,0 +1,51 @@
+package os.junit.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import os.exercise.util.LongHashSet;
+
+/**
+ * Unitary tests for the LongHashSet class.
+ */
+class LongHashSetTest {
+
+    @Test
+    void givenValuesWhenAddThenOnlyNewValuesAreAdded() {
+        LongHashSet set = new LongHashSet();
+
+        assertTrue(set.add(42));
+        assertTrue(set.add(0));
+        assertTrue(set.add(-1));
+        assertFalse(set.add(42));
+        assertFalse(set.add(0));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertFalse(set.contains(7));
+    }
+
+    @Test
+    void givenMoreValuesThanTheCapacityWhenAddThenTheSetGrows() {
+        LongHashSet set = new LongHashSet(4);
+        for (long value = 1; value <= 10_000; value++) {
+            assertTrue(set.add(value * 31));
+        }
+
+        assertEquals(10_000, set.size());
+        for (long value = 1; value <= 10_000; value++) {
+            assertTrue(set.contains(value * 31));
+            assertFalse(set.contains(value * 31 + 1));
+        }
+    }
+
+    @Test
+    void givenNegativeSizeWhenCreateSetThenFailure() {
+        assertThrows(IllegalArgumentException.class, () -> new LongHashSet(-1));
+    }
+}
@@ -0,0 +1,55 @@
+package os.junit.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import os.exercise.util.LongLongHashMap;
+
+/**
+ * Unitary tests for the LongLongHashMap class.
+ */
+class LongLongHashMapTest {
+
+    @Test
+    void givenEntriesWhenPutThenLastValueOfEachKeyIsKept() {
+        LongLongHashMap map = new LongLongHashMap();
+
+        map.put(42, 1);
+        map.put(0, 2);
+        map.put(-1, 3);
+        map.put(42, 4);
+
+        assertEquals(3, map.size());
+        assertEquals(4, map.get(42, -7));
+        assertEquals(2, map.get(0, -7));
+        assertEquals(3, map.get(-1, -7));
+        assertEquals(-7, map.get(7, -7));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(7));
+        assertArrayEquals(new long[] {-1, 0, 42}, map.sortedKeys());
+    }
+
+    @Test
+    void givenMoreKeysThanTheCapacityWhenPutThenTheMapGrows() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key * 31, key);
+        }
+
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key, map.get(key * 31, 0));
+            assertFalse(map.containsKey(key * 31 + 1));
+        }
+    }
+
+    @Test
+    void givenNegativeSizeWhenCreateMapThenFailure() {
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashMap(-1));
+    }
+}
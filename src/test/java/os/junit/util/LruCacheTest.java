@@ -0,0 +1,76 @@
+package os.junit.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import os.exercise.util.LruCache;
+
+/**
+ * Unitary tests for the LruCache class.
+ */
+class LruCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final LruCache<String, String> cache = new LruCache<>(100, 1000, clock::get);
+
+    @Test
+    void givenAFullCacheWhenPutThenTheLeastRecentlyUsedAreEvicted() {
+        cache.put("a", "A", 40);
+        cache.put("b", "B", 40);
+        assertEquals("A", cache.get("a"));
+
+        cache.put("c", "C", 40);
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(80, cache.getWeight());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void givenAnExpiredEntryWhenGetThenItIsRemoved() {
+        cache.put("a", "A", 10);
+        clock.set(999);
+        assertEquals("A", cache.get("a"));
+
+        clock.set(1000);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void givenAValueHeavierThanTheCacheWhenPutThenItIsNotKept() {
+        cache.put("a", "A", 10);
+
+        assertFalse(cache.put("b", "B", 101));
+        assertTrue(cache.put("a", "A2", 100));
+
+        assertNull(cache.get("b"));
+        assertEquals("A2", cache.get("a"));
+        assertEquals(100, cache.getWeight());
+    }
+
+    @Test
+    void givenEntriesWhenClearThenTheCacheIsEmpty() {
+        cache.put("a", "A", 10);
+        cache.put("b", "B", 10);
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+        assertThrows(IllegalArgumentException.class, () -> new LruCache<String, String>(0, 1));
+    }
+}